@@ -11,6 +11,7 @@ import java.awt.*;
 import java.io.IOException;
 import java.nio.file.*;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
@@ -230,9 +231,15 @@ public class AnalyzerWrapper implements AutoCloseable {
         logger.debug("Creating {} analyzer for {}", language, project.getRoot());
         var excluded = project.awaitBuildDetails().excludedDirectories();
         if (language == Language.JAVA) {
-            newAnalyzer = new JavaAnalyzer(root, excluded);
-            Path analyzerPath = root.resolve(".brokk").resolve("joern.cpg");
-            ((JavaAnalyzer) newAnalyzer).writeCpg(analyzerPath);
+            var modules = discoverJavaModules();
+            if (modules.size() > 1) {
+                // unchanged modules are reused from their cached CPGs
+                newAnalyzer = createShardedAnalyzer(modules, false);
+            } else {
+                newAnalyzer = new JavaAnalyzer(root, excluded);
+                Path analyzerPath = root.resolve(".brokk").resolve("joern.cpg");
+                ((JavaAnalyzer) newAnalyzer).writeCpg(analyzerPath);
+            }
         } else {
             newAnalyzer = switch (language) {
                 case PYTHON -> new PythonAnalyzer(project, excluded);
@@ -246,8 +253,54 @@ public class AnalyzerWrapper implements AutoCloseable {
         return newAnalyzer;
     }
 
+    /**
+     * Module source roots of a Java project, relative to the project root. A single entry means
+     * the project is analyzed as one CPG.
+     */
+    private List<Path> discoverJavaModules() {
+        var details = project.awaitBuildDetails();
+        var modules = ModuleRoots.discover(project.getAllFiles(), details.buildFiles(), details.excludedDirectories());
+        logger.debug("Found {} Java module(s): {}", modules.size(), modules);
+        return modules;
+    }
+
+    /**
+     * Builds (or reloads from .brokk/cpg) one CPG per module and federates them.
+     */
+    private IAnalyzer createShardedAnalyzer(List<Path> modules, boolean reuseAnyCache) {
+        var build = shardedBuild(modules);
+        try {
+            return build.build(project.getAllFiles(), reuseAnyCache);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while building code intelligence", e);
+        }
+    }
+
+    private ShardedJavaBuild shardedBuild(List<Path> modules) {
+        var excluded = project.awaitBuildDetails().excludedDirectories();
+        return new ShardedJavaBuild(root, modules, excluded, root.resolve(".brokk").resolve("cpg"));
+    }
+
     /** Load a cached analyzer if it is up to date; otherwise return null. */
     private IAnalyzer loadCachedAnalyzer(Path analyzerPath) {
+        if (language == Language.JAVA) {
+            var modules = discoverJavaModules();
+            if (modules.size() > 1) {
+                // in MANUAL mode any cached module CPG will do; otherwise each must be newer than its files
+                boolean manual = project.getCpgRefresh() == CpgRefresh.MANUAL;
+                if (!shardedBuild(modules).isCacheCurrent(project.getAllFiles(), manual)) {
+                    logger.debug("Cached module CPGs are missing or out of date");
+                    return null;
+                }
+                try {
+                    return createShardedAnalyzer(modules, true);
+                } catch (Throwable th) {
+                    logger.info("Error loading cached module CPGs", th);
+                    return null;
+                }
+            }
+        }
         if (!Files.exists(analyzerPath)) {
             return null;
         }
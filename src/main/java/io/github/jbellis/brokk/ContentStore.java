@@ -0,0 +1,290 @@
+package io.github.jbellis.brokk;
+
+import io.github.jbellis.brokk.analyzer.ProjectFile;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Content-addressed store for the file contents that ContextHistory keeps for undo and redo.
+ * <p>
+ * Each distinct text is deflated and stored once, keyed by its SHA-256, and reference counted by the
+ * {@link Snapshot}s that use it, so a file that is edited over and over costs one compressed copy per
+ * distinct version instead of one full String per undo step. When the compressed bytes held in memory
+ * exceed the heap budget, the least recently used blobs are spilled to a temporary directory and read
+ * back from there on demand.
+ */
+public class ContentStore {
+    private static final Logger logger = LogManager.getLogger(ContentStore.class);
+
+    static final long DEFAULT_HEAP_BUDGET = 16L << 20;
+
+    /** Memory used by the store; rawBytes is what the same texts would take as UTF-8 without deduplication or compression. */
+    public record Stats(int blobs, long rawBytes, long heapBytes, long spilledBytes) {
+    }
+
+    private static final class Blob {
+        final int rawLength;
+        final int compressedLength;
+        byte[] compressed; // null once spilled
+        int refs;
+
+        Blob(int rawLength, byte[] compressed) {
+            this.rawLength = rawLength;
+            this.compressedLength = compressed.length;
+            this.compressed = compressed;
+        }
+    }
+
+    private final long heapBudget;
+    // guarded by this; access order, so iteration starts with the least recently used blob
+    private final Map<String, Blob> blobs = new LinkedHashMap<>(16, 0.75f, true);
+    private long heapBytes;
+    private long spilledBytes;
+    private long rawBytes;
+    private Path spillDir;
+
+    ContentStore(long heapBudget) {
+        this.heapBudget = heapBudget;
+    }
+
+    /**
+     * Stores the contents and returns a map view of them that reads through this store. The snapshot
+     * holds a reference to each blob until it is {@link Snapshot#release released}.
+     */
+    synchronized Snapshot snapshot(Map<ProjectFile, String> contents) {
+        var hashes = new LinkedHashMap<ProjectFile, String>();
+        contents.forEach((file, text) -> hashes.put(file, retain(text)));
+        spill();
+        return new Snapshot(hashes);
+    }
+
+    synchronized Stats stats() {
+        return new Stats(blobs.size(), rawBytes, heapBytes, spilledBytes);
+    }
+
+    /**
+     * Deletes any spilled blobs. The store should not be used afterwards.
+     */
+    synchronized void close() {
+        if (spillDir == null) {
+            return;
+        }
+        try (var files = Files.list(spillDir)) {
+            for (var file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(spillDir);
+        } catch (IOException e) {
+            logger.warn("Unable to delete undo spill directory {}", spillDir, e);
+        }
+        spillDir = null;
+    }
+
+    private String retain(String text) {
+        var raw = text.getBytes(StandardCharsets.UTF_8);
+        var hash = HexFormat.of().formatHex(sha256(raw));
+        var blob = blobs.get(hash);
+        if (blob == null) {
+            blob = new Blob(raw.length, deflate(raw));
+            blobs.put(hash, blob);
+            heapBytes += blob.compressedLength;
+        }
+        blob.refs++;
+        rawBytes += blob.rawLength;
+        return hash;
+    }
+
+    private synchronized String get(String hash) {
+        var blob = blobs.get(hash);
+        if (blob == null) {
+            throw new IllegalStateException("Undo contents " + hash + " were already released");
+        }
+        var compressed = blob.compressed;
+        if (compressed == null) {
+            try {
+                compressed = Files.readAllBytes(spillDir.resolve(hash));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return inflate(compressed, blob.rawLength);
+    }
+
+    private synchronized void release(String hash) {
+        var blob = blobs.get(hash);
+        if (blob == null) {
+            return;
+        }
+        rawBytes -= blob.rawLength;
+        if (--blob.refs > 0) {
+            return;
+        }
+        blobs.remove(hash);
+        if (blob.compressed != null) {
+            heapBytes -= blob.compressedLength;
+            return;
+        }
+        spilledBytes -= blob.compressedLength;
+        try {
+            Files.deleteIfExists(spillDir.resolve(hash));
+        } catch (IOException e) {
+            logger.debug("Unable to delete spilled undo contents {}", hash, e);
+        }
+    }
+
+    /**
+     * Moves least recently used blobs to disk until the in-memory bytes fit the budget.
+     */
+    private void spill() {
+        if (heapBytes <= heapBudget) {
+            return;
+        }
+        try {
+            if (spillDir == null) {
+                spillDir = Files.createTempDirectory("brokk-undo-");
+            }
+            for (var entry : blobs.entrySet()) {
+                if (heapBytes <= heapBudget) {
+                    break;
+                }
+                var blob = entry.getValue();
+                if (blob.compressed == null) {
+                    continue;
+                }
+                Files.write(spillDir.resolve(entry.getKey()), blob.compressed);
+                blob.compressed = null;
+                heapBytes -= blob.compressedLength;
+                spilledBytes += blob.compressedLength;
+            }
+        } catch (IOException e) {
+            // keep whatever is left in memory; undo still works, it just costs more heap
+            logger.warn("Unable to spill undo contents to disk", e);
+        }
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        var out = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+        var deflater = new Deflater(Deflater.BEST_SPEED);
+        try (var dos = new DeflaterOutputStream(out, deflater)) {
+            dos.write(raw);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            deflater.end();
+        }
+        return out.toByteArray();
+    }
+
+    private static String inflate(byte[] compressed, int rawLength) {
+        var raw = new byte[rawLength];
+        var inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            int n = 0;
+            while (n < raw.length && !inflater.finished()) {
+                n += inflater.inflate(raw, n, raw.length - n);
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt undo contents", e);
+        } finally {
+            inflater.end();
+        }
+        return new String(raw, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] sha256(byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * An immutable map of file contents held in the store. Values are decompressed on each access.
+     */
+    final class Snapshot extends AbstractMap<ProjectFile, String> {
+        private final Map<ProjectFile, String> hashes;
+        private boolean released;
+
+        private Snapshot(Map<ProjectFile, String> hashes) {
+            this.hashes = hashes;
+        }
+
+        @Override
+        public int size() {
+            return hashes.size();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return hashes.containsKey(key);
+        }
+
+        @Override
+        public String get(Object key) {
+            var hash = hashes.get(key);
+            return hash == null ? null : ContentStore.this.get(hash);
+        }
+
+        @Override
+        public Set<Entry<ProjectFile, String>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<ProjectFile, String>> iterator() {
+                    var it = hashes.entrySet().iterator();
+                    return new Iterator<>() {
+                        @Override
+                        public boolean hasNext() {
+                            return it.hasNext();
+                        }
+
+                        @Override
+                        public Entry<ProjectFile, String> next() {
+                            var e = it.next();
+                            return new SimpleImmutableEntry<>(e.getKey(), ContentStore.this.get(e.getValue()));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return hashes.size();
+                }
+            };
+        }
+
+        /**
+         * Drops this snapshot's references to its blobs. Idempotent.
+         */
+        void release() {
+            synchronized (ContentStore.this) {
+                if (released) {
+                    return;
+                }
+                released = true;
+                hashes.values().forEach(ContentStore.this::release);
+            }
+        }
+    }
+}
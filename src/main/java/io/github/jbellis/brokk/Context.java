@@ -5,6 +5,7 @@ import dev.langchain4j.data.message.ChatMessage;
 import io.github.jbellis.brokk.ContextFragment.HistoryFragment;
 import io.github.jbellis.brokk.ContextFragment.SkeletonFragment;
 import io.github.jbellis.brokk.analyzer.AbstractAnalyzer;
+import io.github.jbellis.brokk.analyzer.FederatedAnalyzer;
 import io.github.jbellis.brokk.analyzer.CodeUnit;
 import io.github.jbellis.brokk.analyzer.IAnalyzer;
 import io.github.jbellis.brokk.analyzer.ProjectFile;
@@ -301,8 +302,8 @@ public class Context implements Serializable {
     public static SkeletonFragment buildAutoContext(IAnalyzer analyzer, Map<String, Double> weightedSeeds, Set<CodeUnit> ineligibleSources, int topK) {
         var pagerankResults = AnalyzerUtil.combinedPagerankFor(analyzer, weightedSeeds);
 
-        // build skeleton map
-        var skeletonMap = new HashMap<CodeUnit, String>();
+        // build skeleton map, keeping pagerank order so callers can prefer the highest-ranked classes
+        var skeletonMap = new LinkedHashMap<CodeUnit, String>();
         for (var codeUnit : pagerankResults) {
             var fqcn = codeUnit.fqName();
             var sourceFileOption = analyzer.getFileFor(fqcn);
@@ -317,7 +318,8 @@ public class Context implements Serializable {
                 var parentFqcn = fqcn.substring(0, fqcn.indexOf('$'));
                 // FIXME generalize this
                 // Check if the analyzer supports cuClass and cast if necessary
-                if (analyzer instanceof AbstractAnalyzer aa) {
+                var owner = analyzer instanceof FederatedAnalyzer fa ? fa.shardFor(sourceFile).orElse(analyzer) : analyzer;
+                if (owner instanceof AbstractAnalyzer aa) {
                     // Use the analyzer helper method which handles splitting correctly
                     var parentUnitOpt = aa.cuClass(parentFqcn, sourceFile); // Returns scala.Option
                     if (parentUnitOpt.isDefined() && ineligibleSources.contains(parentUnitOpt.get())) {
@@ -602,6 +604,28 @@ public class Context implements Serializable {
         return parsedOutput;
     }
 
+    /**
+     * Rebuilds a saved Context (see SessionStore). Like a deserialized Context, it starts with the welcome
+     * message as its output and no original contents to undo.
+     */
+    static Context restore(IContextManager contextManager,
+                           List<ContextFragment.ProjectPathFragment> editableFiles,
+                           List<ContextFragment.PathFragment> readonlyFiles,
+                           List<ContextFragment.VirtualFragment> virtualFragments,
+                           List<TaskEntry> taskHistory,
+                           String welcomeMessage)
+    {
+        return new Context(newId(),
+                           contextManager,
+                           editableFiles,
+                           readonlyFiles,
+                           virtualFragments,
+                           taskHistory,
+                           Map.of(),
+                           getWelcomeOutput(welcomeMessage),
+                           CompletableFuture.completedFuture(WELCOME_BACK));
+    }
+
     /**
      * Serializes a Context object to a byte array
      */
@@ -1054,7 +1054,7 @@ public interface ContextFragment extends Serializable {
         public String text() {
             // FIXME the right thing to do here is probably to throw UnsupportedOperationException,
             // but lots of stuff breaks without text(), so I am putting that off for another refactor
-            return TaskEntry.formatMessages(messages);
+            return TaskEntry.formatMessages(messages());
         }
 
         @Override
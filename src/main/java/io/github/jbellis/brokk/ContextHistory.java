@@ -10,9 +10,16 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
  * Manages the context history with thread-safe operations for undo/redo functionality.
+ * <p>
+ * The original file contents that each context keeps for undo (and each redo context keeps for redo)
+ * are moved into a {@link ContentStore} as contexts enter the history, so repeated edits to the same
+ * large files share compressed, deduplicated copies instead of holding one full String per step.
+ * Fragment and task history lists need no such treatment: contexts only copy them when they change,
+ * so unchanged lists are shared by reference across the whole history.
  */
 public class ContextHistory {
     private final Logger logger = LogManager.getLogger(ContextHistory.class);
@@ -22,12 +29,24 @@ public class ContextHistory {
     private List<Context> history = List.of();
     private final List<Context> redoHistory = new ArrayList<>();
     private Context selectedContext = null;
+    private final ContentStore contents;
+
+    public ContextHistory() {
+        this(ContentStore.DEFAULT_HEAP_BUDGET);
+    }
+
+    ContextHistory(long undoHeapBudget) {
+        this.contents = new ContentStore(undoHeapBudget);
+    }
 
     /**
      * Set the initial context
      */
     public synchronized void setInitialContext(Context initialContext) {
+        var dropped = Stream.concat(history.stream(), redoHistory.stream()).toList();
         history = new ArrayList<>(List.of(initialContext))  ;
+        redoHistory.clear();
+        dropped.forEach(this::releaseIfUnreferenced);
         selectedContext = initialContext; // The first context is selected by default
     }
 
@@ -62,10 +81,11 @@ public class ContextHistory {
                 continue;
             }
 
-            history.set(i, newContext);
+            history.set(i, store(newContext));
+            releaseIfUnreferenced(oldContext);
             // Update selected context if it was replaced
             if (selectedContext == oldContext) {
-                selectedContext = newContext;
+                selectedContext = history.get(i);
             }
             break;
         }
@@ -74,7 +94,8 @@ public class ContextHistory {
     /**
      * Push a new context onto the history stack
      * @param contextGenerator Function to generate the new context from the current one
-     * @return The new context that was added, or null if no change occurred
+     * @return The new context that was added, or null if no change occurred. Its original contents
+     * are held in the undo store, so it may be a copy of the context returned by the generator.
      */
     public synchronized Context pushContext(Function<Context, Context> contextGenerator) {
         Context newContext;
@@ -84,11 +105,15 @@ public class ContextHistory {
             return null;
         }
 
+        newContext = store(newContext);
         history.add(newContext);
+        var dropped = new ArrayList<>(redoHistory);
+        redoHistory.clear();
         if (history.size() > MAX_UNDO_DEPTH) {
-            history.removeFirst();
+            dropped.add(history.removeFirst());
         }
-        redoHistory.clear();
+        dropped.forEach(this::releaseIfUnreferenced);
+        logMemoryUsage();
 
         // Set new context as selected by default
         selectedContext = newContext;
@@ -124,7 +149,9 @@ public class ContextHistory {
             var popped = history.removeLast();
             var redoContext = undoAndInvertChanges(popped, io);
             redoHistory.add(redoContext);
+            releaseIfUnreferenced(popped);
         }
+        logMemoryUsage();
 
         // Update selected context to the top of the history
         if (!history.isEmpty()) {
@@ -174,6 +201,7 @@ public class ContextHistory {
         var popped = redoHistory.removeLast();
         var undoContext = undoAndInvertChanges(popped, io);
         history.add(undoContext);
+        releaseIfUnreferenced(popped);
 
         // Set the newly redone context as selected
         selectedContext = undoContext;
@@ -212,6 +240,50 @@ public class ContextHistory {
         }
         return selectedContext;
     }
+    /**
+     * @return how much memory the undo and redo file contents are using
+     */
+    public ContentStore.Stats getUndoMemoryUsage() {
+        return contents.stats();
+    }
+
+    /**
+     * Deletes undo contents that were spilled to disk.
+     */
+    public synchronized void close() {
+        logMemoryUsage();
+        contents.close();
+    }
+
+    /**
+     * @return the context with its original contents moved into the undo store
+     */
+    private Context store(Context context) {
+        if (context.originalContents.isEmpty() || context.originalContents instanceof ContentStore.Snapshot) {
+            return context;
+        }
+        return context.withOriginalContents(contents.snapshot(context.originalContents));
+    }
+
+    /**
+     * Releases a context's stored contents once no context left in the history or redo list shares them.
+     */
+    private void releaseIfUnreferenced(Context dropped) {
+        if (!(dropped.originalContents instanceof ContentStore.Snapshot snapshot)) {
+            return;
+        }
+        if (Stream.concat(history.stream(), redoHistory.stream()).anyMatch(c -> c.originalContents == snapshot)) {
+            return;
+        }
+        snapshot.release();
+    }
+
+    private void logMemoryUsage() {
+        var stats = contents.stats();
+        logger.debug("Undo contents: {} distinct texts, {} bytes uncompressed, {} bytes on heap, {} bytes spilled to disk",
+                     stats.blobs(), stats.rawBytes(), stats.heapBytes(), stats.spilledBytes());
+    }
+
     /**
      * Inverts changes from a popped context to revert to prior state, returning a new context for re-inversion
      */
@@ -243,6 +315,6 @@ public class ContextHistory {
         if (!changedFiles.isEmpty()) {
             io.systemOutput("Modified " + changedFiles);
         }
-        return original.withOriginalContents(redoContents);
+        return store(original.withOriginalContents(redoContents));
     }
 }
@@ -8,6 +8,7 @@ import io.github.jbellis.brokk.ContextFragment.VirtualFragment;
 import io.github.jbellis.brokk.ContextHistory.UndoResult;
 import io.github.jbellis.brokk.agents.BuildAgent;
 import io.github.jbellis.brokk.agents.BuildAgent.BuildDetails;
+import io.github.jbellis.brokk.agents.FileSummaryStore;
 import io.github.jbellis.brokk.analyzer.*;
 import io.github.jbellis.brokk.gui.Chrome;
 import io.github.jbellis.brokk.prompts.EditBlockParser;
@@ -16,9 +17,9 @@ import io.github.jbellis.brokk.tools.SearchTools;
 import io.github.jbellis.brokk.tools.ToolRegistry;
 import io.github.jbellis.brokk.tools.WorkspaceTools;
 import io.github.jbellis.brokk.util.ImageUtil;
-import io.github.jbellis.brokk.util.LoggingExecutorService;
 import io.github.jbellis.brokk.util.Messages;
 import io.github.jbellis.brokk.util.StackTrace;
+import io.github.jbellis.brokk.util.TaskScheduler;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jetbrains.annotations.NotNull;
@@ -34,6 +35,7 @@ import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -55,9 +57,12 @@ public class ContextManager implements IContextManager, AutoCloseable {
     private AnalyzerWrapper analyzerWrapper;
 
 
+    // All asynchronous work runs on virtual threads; each lane below caps its own concurrency
+    private final TaskScheduler taskScheduler = new TaskScheduler();
+
     // Run main user-driven tasks in background (Code/Ask/Search/Run)
     // Only one of these can run at a time
-    private final ExecutorService userActionExecutor = createLoggingExecutorService(Executors.newSingleThreadExecutor());
+    private final TaskScheduler.Lane userActionExecutor = taskScheduler.lane("user", 1, uncaughtExceptionHandler(Set.of()));
     private final AtomicReference<Thread> userActionThread = new AtomicReference<>();
 
     // Regex to identify test files. Looks for "test" or "tests" surrounded by separators or camelCase boundaries.
@@ -85,13 +90,8 @@ public class ContextManager implements IContextManager, AutoCloseable {
     }
 
     @NotNull
-    private LoggingExecutorService createLoggingExecutorService(ExecutorService toWrap) {
-        return createLoggingExecutorService(toWrap, Set.of());
-    }
-
-    @NotNull
-    private LoggingExecutorService createLoggingExecutorService(ExecutorService toWrap, Set<Class<? extends Throwable>> ignoredExceptions) {
-        return new LoggingExecutorService(toWrap, th -> {
+    private Consumer<Throwable> uncaughtExceptionHandler(Set<Class<? extends Throwable>> ignoredExceptions) {
+        return th -> {
             var thread = Thread.currentThread();
             if (ignoredExceptions.stream().anyMatch(cls -> cls.isInstance(th))) {
                 logger.debug("Uncaught exception (ignorable) in executor", th);
@@ -103,26 +103,16 @@ public class ContextManager implements IContextManager, AutoCloseable {
                 io.systemOutput("Uncaught exception in thread %s. This shouldn't happen, please report a bug!\n%s"
                                         .formatted(thread.getName(), getStackTraceAsString(th)));
             }
-        });
+        };
     }
 
     // Context modification tasks (Edit/Read/Summarize/Drop/etc)
     // Multiple of these can run concurrently
-    private final ExecutorService contextActionExecutor = createLoggingExecutorService(
-            new ThreadPoolExecutor(2, 2,
-                                   60L, TimeUnit.SECONDS,
-                                   new LinkedBlockingQueue<>(), // Unbounded queue
-                                   Executors.defaultThreadFactory()));
+    private final TaskScheduler.Lane contextActionExecutor = taskScheduler.lane("context", 2, uncaughtExceptionHandler(Set.of()));
 
     // Internal background tasks (unrelated to user actions)
-    // Lots of threads allowed since AutoContext updates get dropped here
-    // Use unbounded queue to prevent task rejection
-    private final ExecutorService backgroundTasks = createLoggingExecutorService(
-            new ThreadPoolExecutor(3, 12,
-                                   60L, TimeUnit.SECONDS,
-                                   new LinkedBlockingQueue<>(), // Unbounded queue to prevent rejection
-                                   Executors.defaultThreadFactory()),
-            Set.of(InterruptedException.class));
+    // Three at a time, as before (the old pool's unbounded queue kept it at its core size); the rest wait in the lane's queue
+    private final TaskScheduler.Lane backgroundTasks = taskScheduler.lane("background", 3, uncaughtExceptionHandler(Set.of(InterruptedException.class)));
 
     private final Path root;
     private final Models models;
@@ -132,16 +122,35 @@ public class ContextManager implements IContextManager, AutoCloseable {
     // Context history for undo/redo functionality
     private final ContextHistory contextHistory;
     private final List<ContextListener> contextListeners = new CopyOnWriteArrayList<>();
+    private final List<Runnable> fileChangeListeners = new CopyOnWriteArrayList<>();
 
     public ExecutorService getBackgroundTasks() {
         return backgroundTasks;
     }
 
+    /**
+     * @return a live view of every queued and running user, context and background task, with durations
+     */
+    public List<TaskScheduler.TaskInfo> getActiveTasks() {
+        return taskScheduler.activeTasks();
+    }
+
     @Override
     public void addContextListener(ContextListener listener) {
         contextListeners.add(Objects.requireNonNull(listener));
     }
 
+    /**
+     * Registers a callback to run (on the file watcher thread) whenever tracked files change on disk.
+     */
+    public void addFileChangeListener(Runnable listener) {
+        fileChangeListeners.add(Objects.requireNonNull(listener));
+    }
+
+    public void removeFileChangeListener(Runnable listener) {
+        fileChangeListeners.remove(listener);
+    }
+
     /**
      * Minimal constructor called from Brokk
      */
@@ -150,9 +159,6 @@ public class ContextManager implements IContextManager, AutoCloseable {
         this.root = root.toAbsolutePath().normalize();
         this.contextHistory = new ContextHistory();
         this.models = new Models();
-        userActionExecutor.submit(() -> {
-            userActionThread.set(Thread.currentThread());
-        });
     }
 
     /**
@@ -195,6 +201,7 @@ public class ContextManager implements IContextManager, AutoCloseable {
             @Override
             public void onTrackedFileChange() {
                 io.updateCommitPanel();
+                fileChangeListeners.forEach(Runnable::run);
             }
         };
 
@@ -418,7 +425,7 @@ public class ContextManager implements IContextManager, AutoCloseable {
     }
 
     public Future<?> submitUserTask(String description, boolean isLlmTask, Runnable task) {
-        return userActionExecutor.submit(() -> {
+        return userActionExecutor.submit(description, () -> {
             userActionThread.set(Thread.currentThread());
             io.disableActionButtons();
 
@@ -439,12 +446,14 @@ public class ContextManager implements IContextManager, AutoCloseable {
                 if (isLlmTask) {
                     io.blockLlmOutput(false);
                 }
+                userActionThread.compareAndSet(Thread.currentThread(), null);
             }
+            return null;
         });
     }
 
     public <T> Future<T> submitUserTask(String description, Callable<T> task) {
-        return userActionExecutor.submit(() -> {
+        return userActionExecutor.submit(description, () -> {
             userActionThread.set(Thread.currentThread());
             io.disableActionButtons();
 
@@ -460,12 +469,13 @@ public class ContextManager implements IContextManager, AutoCloseable {
             } finally {
                 io.actionComplete();
                 io.enableActionButtons();
+                userActionThread.compareAndSet(Thread.currentThread(), null);
             }
         });
     }
 
     public Future<?> submitContextTask(String description, Runnable task) {
-        return contextActionExecutor.submit(() -> {
+        return contextActionExecutor.submit(description, () -> {
             try {
                 task.run();
             } catch (CancellationException cex) {
@@ -474,6 +484,7 @@ public class ContextManager implements IContextManager, AutoCloseable {
                 logger.error("Error while " + description, e);
                 io.toolErrorRaw("Error while " + description + ": " + e.getMessage());
             }
+            return null;
         });
     }
 
@@ -716,7 +727,7 @@ public class ContextManager implements IContextManager, AutoCloseable {
      */
     public void captureTextFromContextAsync()
     {
-        contextActionExecutor.submit(() -> {
+        contextActionExecutor.submit("Capturing output", () -> {
             try {
                 var selectedCtx = selectedContext();
                 if (selectedCtx != null && selectedCtx.getParsedOutput() != null) {
@@ -728,6 +739,7 @@ public class ContextManager implements IContextManager, AutoCloseable {
             } catch (CancellationException cex) {
                 io.systemOutput("Capture canceled.");
             }
+            return null;
         });
     }
 
@@ -1011,9 +1023,23 @@ public class ContextManager implements IContextManager, AutoCloseable {
      * Shutdown all executors
      */
     public void close() {
-        userActionExecutor.shutdown();
-        contextActionExecutor.shutdown();
-        backgroundTasks.shutdown();
+        toolRegistry.logMetrics();
+        if (!taskScheduler.activeTasks().isEmpty()) {
+            logger.debug("Tasks still active at shutdown:\n{}", taskScheduler.format());
+        }
+        taskScheduler.shutdown();
+        ResponseCache.forProject(project.getRoot()).flush();
+        FileSummaryStore.removeProject(project.getRoot());
+        UrlFetcher.removeProject(project.getRoot());
+        // writes what is still queued and stops the writer thread; a no-op if nothing was ever logged
+        try {
+            if (!LlmHistoryLog.close(Llm.getHistoryBaseDir(project.getRoot()), Duration.ofSeconds(5))) {
+                logger.warn("Timed out writing LLM history");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        contextHistory.close();
         project.close();
         analyzerWrapper.close();
     }
@@ -1378,7 +1404,7 @@ public class ContextManager implements IContextManager, AutoCloseable {
     @Override
     public <T> Future<T> submitBackgroundTask(String taskDescription, Callable<T> task) {
         assert taskDescription != null;
-        Future<T> future = backgroundTasks.submit(() -> {
+        Future<T> future = backgroundTasks.submit(taskDescription, () -> {
             try {
                 io.backgroundOutput(taskDescription);
                 return task.call();
@@ -1587,7 +1613,7 @@ public class ContextManager implements IContextManager, AutoCloseable {
         var msgs = SummarizerPrompts.instance.compressHistory(historyString);
         Llm.StreamingResult result;
         try {
-            result = getLlm(models.quickModel(), "Compress history entry").sendRequest(msgs);
+            result = getLlm(models.quickModel(), "Compress history entry").sendCacheableRequest(msgs);
         } catch (InterruptedException e) {
             throw new RuntimeException(e);
         }
@@ -1711,7 +1737,7 @@ public class ContextManager implements IContextManager, AutoCloseable {
             // Use quickModel for summarization
             Llm.StreamingResult result;
             try {
-                result = getLlm(models.quickestModel(), "Summarize: " + content).sendRequest(msgs);
+                result = getLlm(models.quickestModel(), "Summarize: " + content).sendCacheableRequest(msgs);
             } catch (InterruptedException e) {
                 throw new RuntimeException(e);
             }
@@ -10,9 +10,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -131,6 +133,10 @@ public class EditBlock {
 
     /**
      * Parse the LLM response for SEARCH/REPLACE blocks and apply them.
+     * <p>
+     * All blocks are first applied to an in-memory {@link EditOverlay}, so multiple blocks against the same
+     * file cost a single read. Files touched by at least one successful block are then written exactly once;
+     * if any write fails, the files already written are restored and an IOException is thrown.
      */
     public static EditResult applyEditBlocks(IContextManager contextManager, IConsoleIO io, Collection<SearchReplaceBlock> blocks)
     throws IOException
@@ -138,9 +144,8 @@ public class EditBlock {
         // Track which blocks succeed or fail during application
         List<FailedBlock> failed = new ArrayList<>();
         Map<SearchReplaceBlock, ProjectFile> succeeded = new HashMap<>();
-
-        // Track original file contents before any changes
-        Map<ProjectFile, String> changedFiles = new HashMap<>();
+        Set<ProjectFile> createdFiles = new LinkedHashSet<>();
+        var overlay = new EditOverlay();
 
         for (SearchReplaceBlock block : blocks) {
             // 1. Resolve the filename
@@ -157,27 +162,24 @@ public class EditBlock {
                 continue; // Skip to the next block
             }
 
-            // 2. Apply the edit using replaceInFile
+            // 2. Apply the edit to the in-memory copy of the file
+            HashedLines current;
             try {
-            // Save original content before attempting change
-            if (!changedFiles.containsKey(file)) {
-                changedFiles.put(file, file.exists() ? file.read() : "");
+                current = overlay.read(file);
+            } catch (IOException e) {
+                var msg = "Error applying edit to " + file;
+                logger.error("{}: {}", msg, e.getMessage());
+                throw new IOException(msg);
             }
 
-            // Perform the replacement
-            replaceInFile(file, block.beforeText(), block.afterText(), contextManager);
-
-            // If successful, add to succeeded list
-            // If it was a deletion, replaceInFile handled it and returned; file will not exist.
-            // If it was a modification or creation, the file will exist with new content.
-            succeeded.put(block, file);
-            if (isCreateNew) {
-                contextManager.getRepo().add(List.of(file));
-                io.systemOutput("Added to git " + file);
-            }
-        } catch(NoMatchException | AmbiguousMatchException e) {
-                assert changedFiles.containsKey(file);
-                var originalContent = changedFiles.get(file);
+            try {
+                overlay.update(file, replaceMostSimilarChunk(current, block.beforeText(), block.afterText()));
+                succeeded.put(block, file);
+                if (isCreateNew) {
+                    createdFiles.add(file);
+                }
+            } catch (NoMatchException | AmbiguousMatchException e) {
+                var originalContent = overlay.original(file);
                 String commentary;
                 try {
                     replaceMostSimilarChunk(originalContent, block.afterText, "");
@@ -201,10 +203,36 @@ public class EditBlock {
                 logger.debug("Edit application failed for file [{}] {}: {}", file, e.getClass().getSimpleName(), e.getMessage());
                 var reason = e instanceof NoMatchException ? EditBlockFailureReason.NO_MATCH : EditBlockFailureReason.AMBIGUOUS_MATCH;
                 failed.add(new FailedBlock(block, reason, commentary));
-            } catch (IOException e) {
-                var msg = "Error applying edit to " + file;
+            }
+        }
+
+        // 3. Write each successfully edited file exactly once, or not at all
+        var changedFiles = new LinkedHashSet<>(succeeded.values());
+        EditOverlay.CommitResult committed;
+        try {
+            committed = overlay.commit(changedFiles);
+        } catch (IOException e) {
+            var msg = "Error writing edits to " + changedFiles;
+            logger.error("{}: {}", msg, e.getMessage());
+            throw new IOException(msg);
+        }
+
+        // 4. Stage additions and deletions in git now that the tree is consistent
+        var repo = contextManager.getRepo();
+        for (var file : committed.deleted()) {
+            try {
+                repo.remove(file);
+            } catch (GitAPIException e) {
+                var msg = "Non-fatal error: unable to update `%s` in Git".formatted(file);
                 logger.error("{}: {}", msg, e.getMessage());
-                throw new IOException(msg);
+                io.toolErrorRaw(msg);
+            }
+        }
+        createdFiles.removeAll(committed.deleted());
+        for (var file : createdFiles) {
+            try {
+                repo.add(List.of(file));
+                io.systemOutput("Added to git " + file);
             } catch (GitAPIException e) {
                 var msg = "Non-fatal error: unable to update `%s` in Git".formatted(file);
                 logger.error("{}: {}", msg, e.getMessage());
@@ -212,8 +240,7 @@ public class EditBlock {
             }
         }
 
-        changedFiles.keySet().retainAll(succeeded.values());
-        return new EditResult(changedFiles, failed);
+        return new EditResult(overlay.originals(changedFiles), failed);
     }
 
     /**
@@ -278,32 +305,6 @@ public class EditBlock {
         return updatedContent.isBlank();
     }
 
-    /**
-     * Replace the first occurrence of `beforeText` lines with `afterText` lines in the given file.
-     * If the operation results in the file becoming blank (and it wasn't already), the file is deleted
-     * and the deletion is staged in Git via the contextManager.
-     * Throws NoMatchException if `beforeText` is not found in the file content.
-     * Throws AmbiguousMatchException if more than one match is found.
-     */
-    public static void replaceInFile(ProjectFile file,
-                                     String beforeText,
-                                     String afterText,
-                                     IContextManager contextManager)
-    throws IOException, NoMatchException, AmbiguousMatchException, GitAPIException
-    {
-        String original = file.exists() ? file.read() : "";
-        String updated = replaceMostSimilarChunk(original, beforeText, afterText);
-
-        if (isDeletion(original, updated)) {
-            logger.info("Detected deletion for file {}", file);
-            java.nio.file.Files.deleteIfExists(file.absPath()); // remove from disk
-            contextManager.getRepo().remove(file); // stage deletion
-            return; // Do not write the blank content
-        }
-
-        file.write(updated);
-    }
-
     /**
      * Custom exception thrown when no matching location is found in the file.
      */
@@ -329,43 +330,52 @@ public class EditBlock {
      */
     static String replaceMostSimilarChunk(String content, String target, String replace)
     throws AmbiguousMatchException, NoMatchException
+    {
+        return replaceMostSimilarChunk(HashedLines.of(content), target, replace).content();
+    }
+
+    /**
+     * Same as {@link #replaceMostSimilarChunk(String, String, String)}, but against content that has already
+     * been split and hashed, so that successive blocks against one file reuse the same line hashes.
+     */
+    static HashedLines replaceMostSimilarChunk(HashedLines original, String target, String replace)
+    throws AmbiguousMatchException, NoMatchException
     {
         // 1) prep for line-based matching
-        ContentLines originalCL = prep(content);
-        ContentLines targetCl = prep(target);
-        ContentLines replaceCL = prep(replace);
+        String[] targetLines = splitLines(target);
+        String[] replaceLines = splitLines(replace);
 
         // 2) perfect or whitespace approach
-        String attempt = perfectOrWhitespace(originalCL.lines, targetCl.lines, replaceCL.lines);
+        HashedLines attempt = perfectOrWhitespace(original, targetLines, replaceLines);
         if (attempt != null) {
             return attempt;
         }
 
         // 3) handle triple-dot expansions
         try {
-            attempt = tryDotdotdots(content, target, replace);
-            if (attempt != null) {
-                return attempt;
+            String dotted = tryDotdotdots(original.content(), target, replace);
+            if (dotted != null) {
+                return HashedLines.of(dotted);
             }
         } catch (IllegalArgumentException e) {
             // ignore if it fails
         }
 
         // 3a) If that failed, attempt dropping a spurious leading blank line from the "search" block:
-        if (targetCl.lines.length > 2 && targetCl.lines[0].trim().isEmpty()) {
-            String[] splicedTarget = Arrays.copyOfRange(targetCl.lines, 1, targetCl.lines.length);
-            String[] splicedReplace = Arrays.copyOfRange(replaceCL.lines, 1, replaceCL.lines.length);
+        if (targetLines.length > 2 && targetLines[0].trim().isEmpty()) {
+            String[] splicedTarget = Arrays.copyOfRange(targetLines, 1, targetLines.length);
+            String[] splicedReplace = Arrays.copyOfRange(replaceLines, 1, replaceLines.length);
 
-            attempt = perfectOrWhitespace(originalCL.lines, splicedTarget, splicedReplace);
+            attempt = perfectOrWhitespace(original, splicedTarget, splicedReplace);
             if (attempt != null) {
                 return attempt;
             }
 
-            attempt = tryDotdotdots(content,
-                                    String.join("", splicedTarget),
-                                    String.join("", splicedReplace));
-            if (attempt != null) {
-                return attempt;
+            String dotted = tryDotdotdots(original.content(),
+                                          String.join("", splicedTarget),
+                                          String.join("", splicedReplace));
+            if (dotted != null) {
+                return HashedLines.of(dotted);
             }
         }
 
@@ -437,11 +447,20 @@ public class EditBlock {
                                              String[] targetLines,
                                              String[] replaceLines)
     throws AmbiguousMatchException, NoMatchException
+    {
+        var result = perfectOrWhitespace(HashedLines.of(originalLines), targetLines, replaceLines);
+        return result == null ? null : result.content();
+    }
+
+    static HashedLines perfectOrWhitespace(HashedLines original,
+                                           String[] targetLines,
+                                           String[] replaceLines)
+    throws AmbiguousMatchException, NoMatchException
     {
         try {
-            return perfectReplace(originalLines, targetLines, replaceLines);
+            return perfectReplace(original, targetLines, replaceLines);
         } catch (NoMatchException e) {
-            return replaceIgnoringWhitespace(originalLines, targetLines, replaceLines);
+            return replaceIgnoringWhitespace(original, targetLines, replaceLines);
         }
     }
 
@@ -454,43 +473,30 @@ public class EditBlock {
                                         String[] targetLines,
                                         String[] replaceLines)
     throws AmbiguousMatchException, NoMatchException
+    {
+        return perfectReplace(HashedLines.of(originalLines), targetLines, replaceLines).content();
+    }
+
+    static HashedLines perfectReplace(HashedLines original,
+                                      String[] targetLines,
+                                      String[] replaceLines)
+    throws AmbiguousMatchException, NoMatchException
     {
         // special-case replace entire file (empty target)
         if (targetLines.length == 0) {
-            return String.join("", replaceLines);
+            return HashedLines.of(replaceLines);
         }
 
-        List<Integer> matches = new ArrayList<>();
-
-        outer:
-        for (int i = 0; i <= originalLines.length - targetLines.length; i++) {
-            for (int j = 0; j < targetLines.length; j++) {
-                if (!Objects.equals(originalLines[i + j], targetLines[j])) {
-                    continue outer;
-                }
-            }
-            matches.add(i);
-            if (matches.size() > 1) {
-                throw new AmbiguousMatchException("Multiple exact matches found for the oldLines");
-            }
+        var matches = original.findExact(targetLines, 2);
+        if (matches.size() > 1) {
+            throw new AmbiguousMatchException("Multiple exact matches found for the oldLines");
         }
-
         if (matches.isEmpty()) {
             throw new NoMatchException("No exact matches found for the search block");
         }
 
         // Exactly one match
-        int matchStart = matches.getFirst();
-        List<String> newLines = new ArrayList<>();
-        // everything before
-        newLines.addAll(Arrays.asList(originalLines).subList(0, matchStart));
-        // add replacement
-        newLines.addAll(Arrays.asList(replaceLines));
-        // everything after
-        newLines.addAll(Arrays.asList(originalLines)
-                                .subList(matchStart + targetLines.length, originalLines.length));
-
-        return String.join("", newLines);
+        return original.splice(matches.getFirst(), targetLines.length, replaceLines);
     }
 
     /**
@@ -504,6 +510,15 @@ public class EditBlock {
                                             String[] targetLines,
                                             String[] replaceLines)
     throws AmbiguousMatchException, NoMatchException
+    {
+        var result = replaceIgnoringWhitespace(HashedLines.of(originalLines), targetLines, replaceLines);
+        return result == null ? null : result.content();
+    }
+
+    static HashedLines replaceIgnoringWhitespace(HashedLines original,
+                                                 String[] targetLines,
+                                                 String[] replaceLines)
+    throws AmbiguousMatchException, NoMatchException
     {
         var truncatedTarget = removeLeadingTrailingEmptyLines(targetLines);
         var truncatedReplace = removeLeadingTrailingEmptyLines(replaceLines);
@@ -513,35 +528,21 @@ public class EditBlock {
             return null;
         }
 
-        List<Integer> matches = new ArrayList<>();
-        int needed = truncatedTarget.length;
-
-        for (int start = 0; start <= originalLines.length - needed; start++) {
-            if (matchesIgnoringWhitespace(originalLines, start, truncatedTarget)) {
-                matches.add(start);
-                if (matches.size() > 1) {
-                    throw new AmbiguousMatchException("No exact matches found, and multiple matches found ignoring whitespace");
-                }
-            }
+        var matches = original.findIgnoringWhitespace(truncatedTarget, 2);
+        if (matches.size() > 1) {
+            throw new AmbiguousMatchException("No exact matches found, and multiple matches found ignoring whitespace");
         }
-
         if (matches.isEmpty()) {
             throw new NoMatchException("No matches found ignoring whitespace");
         }
 
         // Exactly one match
         int matchStart = matches.getFirst();
-
-        List<String> newLines = new ArrayList<>(Arrays.asList(originalLines).subList(0, matchStart));
         if (truncatedReplace.length > 0) {
-            var adjusted = getLeadingWhitespace(originalLines[matchStart])
+            truncatedReplace[0] = getLeadingWhitespace(original.line(matchStart))
                     + truncatedReplace[0].trim() + "\n";
-            newLines.add(adjusted);
-            newLines.addAll(Arrays.asList(truncatedReplace).subList(1, truncatedReplace.length));
         }
-        newLines.addAll(Arrays.asList(originalLines)
-                                .subList(matchStart + needed, originalLines.length));
-        return String.join("", newLines);
+        return original.splice(matchStart, truncatedTarget.length, truncatedReplace);
     }
 
     private static String[] removeLeadingTrailingEmptyLines(String[] targetLines) {
@@ -557,25 +558,10 @@ public class EditBlock {
         return Arrays.copyOfRange(targetLines, pStart, pEnd);
     }
 
-    /**
-     * return true if the targetLines match the originalLines starting at 'start', ignoring whitespace.
-     */
-    static boolean matchesIgnoringWhitespace(String[] originalLines, int start, String[] targetLines) {
-        if (start + targetLines.length > originalLines.length) {
-            return false;
-        }
-        for (int i = 0; i < targetLines.length; i++) {
-            if (!nonWhitespace(originalLines[start + i]).equals(nonWhitespace(targetLines[i]))) {
-                return false;
-            }
-        }
-        return true;
-    }
-
     /**
      * @return the non-whitespace characters in `line`
      */
-    private static String nonWhitespace(String line) {
+    static String nonWhitespace(String line) {
         StringBuilder result = new StringBuilder();
         for (int i = 0; i < line.length(); i++) {
             char c = line.charAt(i);
@@ -603,10 +589,10 @@ public class EditBlock {
     }
 
     /**
-     * Scanning for a filename up to 3 lines above the HEAD block index. If none found, fallback to
-     * currentFilename if it's not null.
+     * Splits content into lines, each retaining its trailing newline. A final newline is
+     * added if the content does not already end with one.
      */
-    private static ContentLines prep(String content) {
+    static String[] splitLines(String content) {
         Objects.requireNonNull(content, "Content cannot be null");
         // ensure it ends with newline
         if (!content.isEmpty() && !content.endsWith("\n")) {
@@ -618,10 +604,7 @@ public class EditBlock {
         for (int i = 0; i < lines.length; i++) {
             lines[i] = lines[i] + "\n";
         }
-        return new ContentLines(content, lines);
-    }
-
-    private record ContentLines(String original, String[] lines) {
+        return lines;
     }
 
     /**
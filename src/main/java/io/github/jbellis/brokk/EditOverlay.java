@@ -0,0 +1,148 @@
+package io.github.jbellis.brokk;
+
+import io.github.jbellis.brokk.analyzer.ProjectFile;
+import io.github.jbellis.brokk.util.AtomicWrites;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory buffer of file contents for a single round of edits.
+ * <p>
+ * Each file is read from disk at most once, on first access, and kept as {@link HashedLines} so that
+ * successive blocks against the same file reuse its line hashes. All subsequent edits are applied to the
+ * buffered copy, and {@link #commit} writes every touched file exactly once. If any write fails, the
+ * files that were already written are restored to their original contents so the tree is never left
+ * half-edited.
+ */
+class EditOverlay {
+    private static final Logger logger = LogManager.getLogger(EditOverlay.class);
+
+    private final Map<ProjectFile, String> originals = new LinkedHashMap<>();
+    private final Map<ProjectFile, HashedLines> current = new LinkedHashMap<>();
+    private final Set<ProjectFile> existedOnDisk = new HashSet<>();
+
+    /**
+     * Files whose final content was written, and files that were deleted because they became blank.
+     */
+    record CommitResult(List<ProjectFile> written, List<ProjectFile> deleted) {
+    }
+
+    /**
+     * @return the current (possibly edited) content of the file, loading it from disk on first access.
+     * Files that do not exist are treated as empty.
+     */
+    HashedLines read(ProjectFile file) throws IOException {
+        var buffered = current.get(file);
+        if (buffered != null) {
+            return buffered;
+        }
+        String content;
+        if (file.exists()) {
+            content = file.read();
+            existedOnDisk.add(file);
+        } else {
+            content = "";
+        }
+        var lines = HashedLines.of(content);
+        originals.put(file, content);
+        current.put(file, lines);
+        return lines;
+    }
+
+    /**
+     * Replaces the buffered content of a file. The file must have been read first.
+     */
+    void update(ProjectFile file, HashedLines content) {
+        assert originals.containsKey(file) : "update before read of " + file;
+        current.put(file, content);
+    }
+
+    /**
+     * @return the content the file had on disk before this overlay touched it
+     */
+    String original(ProjectFile file) {
+        assert originals.containsKey(file);
+        return originals.get(file);
+    }
+
+    /**
+     * @return a snapshot of the original contents of the given files, suitable for undo
+     */
+    Map<ProjectFile, String> originals(Collection<ProjectFile> files) {
+        var snapshot = new LinkedHashMap<ProjectFile, String>();
+        for (var file : files) {
+            assert originals.containsKey(file);
+            snapshot.put(file, originals.get(file));
+        }
+        return snapshot;
+    }
+
+    /**
+     * Writes the buffered content of the given files to disk, each exactly once.
+     * A file whose content became blank (and was not blank before) is deleted instead of written.
+     * Unchanged files that already exist on disk are left alone.
+     * <p>
+     * Either every file is committed, or none are: on failure, files written so far are restored
+     * and the IOException is rethrown.
+     */
+    CommitResult commit(Collection<ProjectFile> files) throws IOException {
+        var written = new ArrayList<ProjectFile>();
+        var deleted = new ArrayList<ProjectFile>();
+        var touched = new ArrayList<ProjectFile>();
+        try {
+            for (var file : files) {
+                var original = originals.get(file);
+                assert original != null && current.containsKey(file);
+                var updated = current.get(file).content();
+
+                if (EditBlock.isDeletion(original, updated)) {
+                    logger.info("Detected deletion for file {}", file);
+                    touched.add(file);
+                    Files.deleteIfExists(file.absPath());
+                    deleted.add(file);
+                    continue;
+                }
+                if (updated.equals(original) && file.exists()) {
+                    continue;
+                }
+
+                touched.add(file);
+                Files.createDirectories(file.absPath().getParent());
+                AtomicWrites.atomicOverwrite(file.absPath(), updated);
+                written.add(file);
+            }
+        } catch (IOException e) {
+            rollback(touched);
+            throw e;
+        }
+        return new CommitResult(written, deleted);
+    }
+
+    /**
+     * Best-effort restore of files to the state they were in before commit started.
+     */
+    private void rollback(List<ProjectFile> touched) {
+        for (var file : touched) {
+            try {
+                if (existedOnDisk.contains(file)) {
+                    Files.createDirectories(file.absPath().getParent());
+                    AtomicWrites.atomicOverwrite(file.absPath(), originals.get(file));
+                } else {
+                    Files.deleteIfExists(file.absPath());
+                }
+            } catch (IOException e) {
+                logger.error("Unable to roll back {} after failed edit commit: {}", file, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package io.github.jbellis.brokk;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Immutable line-split view of a file's content with per-line hashes computed once, both for the exact
+ * text and for the text with all whitespace removed.
+ * <p>
+ * Searching for a block of target lines uses a Rabin-Karp rolling hash over the per-line hashes, so each
+ * search is linear in the number of lines rather than (lines x target lines). Candidate windows are verified
+ * against the real text before being reported, so hash collisions can never produce a false match.
+ * <p>
+ * After a replacement, {@link #splice} produces the new content while reusing the hashes of every
+ * untouched line, so applying many blocks to the same large file only hashes the replacement text.
+ */
+final class HashedLines {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long ROLLING_BASE = 0x9E3779B97F4A7C15L; // odd, so multiplication mod 2^64 is invertible
+
+    /** Every line includes its trailing newline, matching what EditBlock.splitLines produces. */
+    private final String[] lines;
+    private final long[] exactHashes;
+    private final long[] normalizedHashes;
+    private String content; // lazily joined when not supplied
+
+    private HashedLines(String[] lines, long[] exactHashes, long[] normalizedHashes, String content) {
+        this.lines = lines;
+        this.exactHashes = exactHashes;
+        this.normalizedHashes = normalizedHashes;
+        this.content = content;
+    }
+
+    /**
+     * Splits content into newline-terminated lines (adding a final newline if missing) and hashes each line.
+     * {@link #content()} returns the original string unchanged.
+     */
+    static HashedLines of(String content) {
+        Objects.requireNonNull(content, "Content cannot be null");
+        return new HashedLines(EditBlock.splitLines(content), content);
+    }
+
+    /**
+     * Hashes the given newline-terminated lines.
+     */
+    static HashedLines of(String[] lines) {
+        return new HashedLines(lines.clone(), null);
+    }
+
+    private HashedLines(String[] lines, String content) {
+        this(lines, new long[lines.length], new long[lines.length], content);
+        for (int i = 0; i < lines.length; i++) {
+            exactHashes[i] = exactHash(lines[i]);
+            normalizedHashes[i] = normalizedHash(lines[i]);
+        }
+    }
+
+    int size() {
+        return lines.length;
+    }
+
+    String line(int i) {
+        return lines[i];
+    }
+
+    /**
+     * @return a copy of the lines, each including its trailing newline
+     */
+    String[] lines() {
+        return lines.clone();
+    }
+
+    String content() {
+        if (content == null) {
+            content = String.join("", lines);
+        }
+        return content;
+    }
+
+    /**
+     * Finds start positions where {@code target} matches exactly, stopping after {@code limit} matches.
+     */
+    List<Integer> findExact(String[] target, int limit) {
+        var targetHashes = new long[target.length];
+        for (int i = 0; i < target.length; i++) {
+            targetHashes[i] = exactHash(target[i]);
+        }
+        return find(exactHashes, targetHashes, limit, start -> {
+            for (int j = 0; j < target.length; j++) {
+                if (!lines[start + j].equals(target[j])) {
+                    return false;
+                }
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Finds start positions where {@code target} matches when all whitespace is ignored,
+     * stopping after {@code limit} matches.
+     */
+    List<Integer> findIgnoringWhitespace(String[] target, int limit) {
+        var targetHashes = new long[target.length];
+        var targetStripped = new String[target.length];
+        for (int i = 0; i < target.length; i++) {
+            targetHashes[i] = normalizedHash(target[i]);
+            targetStripped[i] = EditBlock.nonWhitespace(target[i]);
+        }
+        return find(normalizedHashes, targetHashes, limit, start -> {
+            for (int j = 0; j < target.length; j++) {
+                if (!EditBlock.nonWhitespace(lines[start + j]).equals(targetStripped[j])) {
+                    return false;
+                }
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Returns a new HashedLines with {@code removed} lines starting at {@code start} replaced by
+     * {@code replacement}. Hashes of the untouched prefix and suffix are copied rather than recomputed.
+     */
+    HashedLines splice(int start, int removed, String[] replacement) {
+        assert start >= 0 && removed >= 0 && start + removed <= lines.length;
+        int tail = lines.length - start - removed;
+        int newSize = start + replacement.length + tail;
+
+        var newLines = new String[newSize];
+        var newExact = new long[newSize];
+        var newNormalized = new long[newSize];
+
+        System.arraycopy(lines, 0, newLines, 0, start);
+        System.arraycopy(exactHashes, 0, newExact, 0, start);
+        System.arraycopy(normalizedHashes, 0, newNormalized, 0, start);
+
+        for (int i = 0; i < replacement.length; i++) {
+            newLines[start + i] = replacement[i];
+            newExact[start + i] = exactHash(replacement[i]);
+            newNormalized[start + i] = normalizedHash(replacement[i]);
+        }
+
+        int srcTail = start + removed;
+        int dstTail = start + replacement.length;
+        System.arraycopy(lines, srcTail, newLines, dstTail, tail);
+        System.arraycopy(exactHashes, srcTail, newExact, dstTail, tail);
+        System.arraycopy(normalizedHashes, srcTail, newNormalized, dstTail, tail);
+
+        return new HashedLines(newLines, newExact, newNormalized, null);
+    }
+
+    @Override
+    public String toString() {
+        return "HashedLines(" + lines.length + " lines)";
+    }
+
+    @FunctionalInterface
+    private interface WindowVerifier {
+        boolean matches(int start);
+    }
+
+    /**
+     * Rabin-Karp over line hashes: slides a window of target.length lines across the haystack,
+     * maintaining the window hash in O(1) per step, and verifies each hash hit with {@code verifier}.
+     */
+    private List<Integer> find(long[] haystack, long[] target, int limit, WindowVerifier verifier) {
+        var matches = new ArrayList<Integer>();
+        int m = target.length;
+        int n = haystack.length;
+        if (m == 0 || m > n) {
+            return matches;
+        }
+
+        long targetHash = 0;
+        long windowHash = 0;
+        long highPower = 1; // ROLLING_BASE^(m-1)
+        for (int i = 0; i < m; i++) {
+            targetHash = targetHash * ROLLING_BASE + target[i];
+            windowHash = windowHash * ROLLING_BASE + haystack[i];
+            if (i > 0) {
+                highPower *= ROLLING_BASE;
+            }
+        }
+
+        for (int start = 0; ; start++) {
+            if (windowHash == targetHash
+                && Arrays.equals(haystack, start, start + m, target, 0, m)
+                && verifier.matches(start))
+            {
+                matches.add(start);
+                if (matches.size() >= limit) {
+                    return matches;
+                }
+            }
+            if (start + m >= n) {
+                return matches;
+            }
+            windowHash = (windowHash - haystack[start] * highPower) * ROLLING_BASE + haystack[start + m];
+        }
+    }
+
+    private static long exactHash(String line) {
+        long h = FNV_OFFSET;
+        for (int i = 0; i < line.length(); i++) {
+            h = (h ^ line.charAt(i)) * FNV_PRIME;
+        }
+        return h;
+    }
+
+    private static long normalizedHash(String line) {
+        long h = FNV_OFFSET;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                h = (h ^ c) * FNV_PRIME;
+            }
+        }
+        return h;
+    }
+}
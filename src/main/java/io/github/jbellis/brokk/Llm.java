@@ -31,15 +31,13 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jetbrains.annotations.NotNull;
 
-import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
@@ -61,6 +59,7 @@ public class Llm {
 
     private final IConsoleIO io;
     private final Path sessionHistoryDir; // Directory for this specific LLM session's history files
+    private final LlmHistoryLog historyLog;
     final IContextManager contextManager;
     private final int MAX_ATTEMPTS = 8; // Keep retry logic for now
     private final StreamingChatLanguageModel model;
@@ -77,15 +76,9 @@ public class Llm {
         var timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd-HH-mm-ss"));
         var sessionDesc = LogDescription.getShortDescription(taskDescription);
         var sessionDirName = String.format("%s %s", timestamp, sessionDesc);
+        // created by the history log when the first request is written
         this.sessionHistoryDir = historyBaseDir.resolve(sessionDirName);
-
-        // Create the specific directory for this session
-        try {
-            Files.createDirectories(this.sessionHistoryDir);
-        } catch (IOException e) {
-            logger.error("Failed to create session history directory {}", this.sessionHistoryDir, e);
-            // sessionHistoryDir might be null or unusable, logRequest checks for null
-        }
+        this.historyLog = LlmHistoryLog.forBaseDir(historyBaseDir);
     }
 
     /**
@@ -113,11 +106,43 @@ public class Llm {
         return result;
     }
 
+    /**
+     * Waits for the project's LlmScheduler to admit the request, then streams it. Requests the user is
+     * watching (echo) are admitted ahead of background ones.
+     */
     private StreamingResult doSingleStreamingCallInternal(ChatRequest request, boolean echo) throws InterruptedException {
         if (Thread.currentThread().isInterrupted()) {
             throw new InterruptedException();
         }
 
+        var priority = echo ? LlmScheduler.Priority.INTERACTIVE : LlmScheduler.Priority.BACKGROUND;
+        long estimatedTokens = Messages.getApproximateTokens(request.messages());
+        try (var permit = contextManager.getModels().getScheduler()
+                .acquire(schedulerKey(), priority, estimatedTokens))
+        {
+            var result = streamChat(request, echo);
+            if (result.error == null) {
+                var usage = result.chatResponse.tokenUsage();
+                permit.complete(usage == null || usage.totalTokenCount() == null ? estimatedTokens : usage.totalTokenCount());
+            } else if (LlmScheduler.isRateLimit(result.error)) {
+                permit.rateLimited(LlmScheduler.retryAfter(result.error).orElse(LlmScheduler.DEFAULT_COOLDOWN));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * The scheduler tracks limits per model location; models without default request parameters,
+     * such as UnavailableStreamingModel, are grouped by class instead.
+     */
+    private String schedulerKey() {
+        var parameters = model.defaultRequestParameters();
+        var location = parameters == null ? null : parameters.modelName();
+        return location == null ? model.getClass().getName() : location;
+    }
+
+    private StreamingResult streamChat(ChatRequest request, boolean echo) throws InterruptedException {
+
         // latch for awaiting the complete response
         var latch = new CountDownLatch(1);
         var cancelled = new AtomicBoolean(false);
@@ -232,6 +257,35 @@ public class Llm {
         return sendRequest(messages, false);
     }
 
+    /**
+     * Like sendRequest(messages), for helper calls whose answer depends only on their input (summaries,
+     * compressions, suggestions). A response previously returned for the same model, parameters and
+     * messages is served from the project's ResponseCache without contacting the model.
+     */
+    public StreamingResult sendCacheableRequest(List<ChatMessage> messages) throws InterruptedException {
+        // the unavailable placeholder's canned reply must not be stored and replayed once a real model is back
+        var maybeKey = model instanceof Models.UnavailableStreamingModel ? Optional.<String>empty() : ResponseCache.key(model, messages);
+        if (maybeKey.isEmpty()) {
+            return sendRequest(messages);
+        }
+        var key = maybeKey.get();
+        var cache = ResponseCache.forProject(contextManager.getProject().getRoot());
+        var cached = cache.get(key);
+        if (cached.isPresent()) {
+            logger.debug("Serving {} from response cache", LogDescription.getShortDescription(Messages.getText(messages.getLast()), 12));
+            return new StreamingResult(ChatResponse.builder().aiMessage(new AiMessage(cached.get())).build(), null);
+        }
+
+        var result = sendRequest(messages);
+        if (result.error == null) {
+            var text = result.chatResponse.aiMessage().text();
+            if (text != null && !text.isBlank() && !result.chatResponse.aiMessage().hasToolExecutionRequests()) {
+                cache.put(key, text);
+            }
+        }
+        return result;
+    }
+
     /**
      * Sends messages to a model with possible tools and a chosen tool usage policy.
      */
@@ -310,6 +364,11 @@ public class Llm {
             if (attempt == maxAttempts) {
                 break; // done
             }
+            if (lastError != null && LlmScheduler.isRateLimit(lastError)) {
+                // the scheduler holds the next attempt (and everyone else's) until the model has capacity again
+                io.systemOutput(String.format("Rate limited on attempt %d/%d; waiting for capacity.", attempt, maxAttempts));
+                continue;
+            }
             // wait between attempts
             long backoffSeconds = 1L << (attempt - 1);
             backoffSeconds = Math.min(backoffSeconds, 16L);
@@ -954,43 +1013,14 @@ public class Llm {
      * Writes history information to session-specific files.
      */
     private void logRequest(StreamingChatLanguageModel model, ChatRequest request, StreamingResult result) {
-        if (sessionHistoryDir == null) {
-            // History directory creation failed in constructor, do nothing.
-            return;
-        }
-        try {
-            var timestamp = LocalDateTime.now(); // timestamp finished, not started
-
-            var formattedRequest = "# Request to %s:\n\n%s\n".formatted(contextManager.getModels().nameOf(model),
-                                                                        TaskEntry.formatMessages(request.messages()));
-            var formattedTools = request.toolSpecifications() == null ? "" : "# Tools:\n\n" + request.toolSpecifications().stream().map(ToolSpecification::name).collect(Collectors.joining("\n"));
-            var formattedResponse = result == null
-                                    ? "# Response:\n\nCancelled"
-                                    : "# Response:\n\n%s".formatted(result.formatted());
-            String fileTimestamp = timestamp.format(DateTimeFormatter.ofPattern("HH-mm-ss"));
-            String shortDesc = result == null ? "Cancelled" : LogDescription.getShortDescription(result.getDescription());
-            var filePath = sessionHistoryDir.resolve(String.format("%s %s.log", fileTimestamp, shortDesc));
-            var options = new StandardOpenOption[]{StandardOpenOption.CREATE, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE};
-            logger.trace("Writing history to file {}", filePath);
-            // Ensure the filename is unique before writing
-            var uniqueFilePath = filePath;
-            int suffix = 1;
-            while (Files.exists(uniqueFilePath)) {
-                var newFilePath = filePath.toString();
-                int dotIndex = newFilePath.lastIndexOf('.');
-                if (dotIndex > 0) {
-                    newFilePath = newFilePath.substring(0, dotIndex) + "-" + suffix + newFilePath.substring(dotIndex);
-                } else {
-                    newFilePath += "-" + suffix;
-                }
-                uniqueFilePath = Path.of(newFilePath);
-                suffix++;
-            }
-            logger.trace("Writing history to file {}", uniqueFilePath);
-            Files.writeString(uniqueFilePath, formattedRequest + formattedTools + formattedResponse, options);
-        } catch (IOException e) {
-            logger.error("Failed to write LLM history file", e);
-        }
+        var tools = request.toolSpecifications() == null ? null : request.toolSpecifications().stream().map(ToolSpecification::name).toList();
+        // timestamp finished, not started
+        historyLog.submit(new LlmHistoryLog.Request(sessionHistoryDir,
+                                                    LocalDateTime.now(),
+                                                    contextManager.getModels().nameOf(model),
+                                                    request.messages(),
+                                                    tools,
+                                                    result));
     }
 
     /**
@@ -1026,7 +1056,7 @@ public class Llm {
          *
          * @return A short description string.
          */
-        private String getDescription() {
+        String getDescription() {
             if (error != null) {
                 return error.getMessage();
             }
@@ -0,0 +1,326 @@
+package io.github.jbellis.brokk;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.data.message.ChatMessage;
+import io.github.jbellis.brokk.util.Messages;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes LLM request/response history off the calling thread.
+ * <p>
+ * Llm hands each finished request to {@link #submit}, which only enqueues it; a single background
+ * thread per history directory formats and writes it. Each session directory holds two files:
+ * <ul>
+ * <li>{@value #BLOBS_FILE}: every distinct message body, deflated and stored once, keyed by its SHA-256.
+ * Each record is the 32-byte hash, the raw length, the compressed length, then the compressed bytes.</li>
+ * <li>{@value #INDEX_FILE}: one JSON line per request listing the model, message types and blob
+ * hashes, tool names, and the response's blob hash.</li>
+ * </ul>
+ * Requests in a session repeat the same workspace messages, so most bodies after the first request
+ * are already stored. Use {@link LlmHistoryReader} to turn a session back into readable logs.
+ * <p>
+ * If the queue is full, new entries are dropped rather than blocking the agent. {@link #close} writes
+ * what is queued and stops the thread; anything submitted to a closed log is dropped.
+ */
+public final class LlmHistoryLog {
+    private static final Logger logger = LogManager.getLogger(LlmHistoryLog.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    public static final String BLOBS_FILE = "blobs.bin";
+    public static final String INDEX_FILE = "index.jsonl";
+    static final int QUEUE_CAPACITY = 256;
+    private static final int MAX_OPEN_SESSIONS = 64;
+
+    private static final Map<Path, LlmHistoryLog> byBaseDir = new ConcurrentHashMap<>();
+
+    /**
+     * One finished request as handed over by Llm; formatting happens on the writer thread.
+     *
+     * @param result null if the request was cancelled
+     */
+    public record Request(Path sessionDir,
+                          LocalDateTime time,
+                          String model,
+                          List<ChatMessage> messages,
+                          List<String> tools,
+                          Llm.StreamingResult result)
+    {
+    }
+
+    /** One line of the index file. */
+    record IndexEntry(int seq, String time, String model, List<MessageRef> messages, List<String> tools,
+                      String description, String response)
+    {
+    }
+
+    record MessageRef(String type, String blob) {
+    }
+
+    private sealed interface Item {
+    }
+
+    private record Submitted(Request request) implements Item {
+    }
+
+    private record Flush(CountDownLatch done) implements Item {
+    }
+
+    private record Stop(CountDownLatch done) implements Item {
+    }
+
+    private final BlockingQueue<Item> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread writer;
+    private volatile boolean closed;
+    // recently written sessions, only touched by the writer thread; older ones are reloaded from disk if needed
+    private final Map<Path, Session> sessions = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, Session> eldest) {
+            return size() > MAX_OPEN_SESSIONS;
+        }
+    };
+
+    /** Per-session state: which blobs are already on disk and the next sequence number. */
+    private static final class Session {
+        final Set<String> blobs = new HashSet<>();
+        int nextSeq;
+
+        static Session load(Path sessionDir) throws IOException {
+            var session = new Session();
+            var blobsFile = sessionDir.resolve(BLOBS_FILE);
+            if (Files.exists(blobsFile)) {
+                var locations = LlmHistoryReader.scanBlobs(blobsFile);
+                session.blobs.addAll(locations.keySet());
+                // drop a partial record left by an interrupted write, so appends stay aligned
+                long end = locations.values().stream().mapToLong(l -> l.offset() + l.compressedLength()).max().orElse(0);
+                if (Files.size(blobsFile) > end) {
+                    try (var channel = FileChannel.open(blobsFile, StandardOpenOption.WRITE)) {
+                        channel.truncate(end);
+                    }
+                }
+            }
+            var indexFile = sessionDir.resolve(INDEX_FILE);
+            if (Files.exists(indexFile)) {
+                try (var lines = Files.lines(indexFile)) {
+                    session.nextSeq = (int) lines.filter(l -> !l.isBlank()).count();
+                }
+            }
+            return session;
+        }
+    }
+
+    private LlmHistoryLog(Path baseDir) {
+        writer = Thread.ofPlatform()
+                .name("brokk-llm-history")
+                .daemon(true)
+                .start(this::run);
+        logger.debug("Started LLM history writer for {}", baseDir);
+    }
+
+    /**
+     * @return the shared history log for the given base directory (see {@link Llm#getHistoryBaseDir})
+     */
+    public static LlmHistoryLog forBaseDir(Path baseDir) {
+        return byBaseDir.computeIfAbsent(baseDir.toAbsolutePath().normalize(), LlmHistoryLog::new);
+    }
+
+    /**
+     * Writes everything queued for the given base directory, stops its writer thread and forgets it;
+     * a later {@link #forBaseDir} starts a new one.
+     *
+     * @return false if the queue was not written within the timeout; the thread still stops once it has been
+     */
+    public static boolean close(Path baseDir, Duration timeout) throws InterruptedException {
+        var log = byBaseDir.remove(baseDir.toAbsolutePath().normalize());
+        return log == null || log.stop(timeout);
+    }
+
+    private boolean stop(Duration timeout) throws InterruptedException {
+        closed = true;
+        var done = new CountDownLatch(1);
+        long deadline = System.nanoTime() + timeout.toNanos();
+        if (!queue.offer(new Stop(done), timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+            // the queue is wedged; don't leave the thread behind
+            writer.interrupt();
+            return false;
+        }
+        return done.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Queues a request for writing. Never blocks.
+     *
+     * @return false if the log is closed or the queue was full, and the request was dropped
+     */
+    public boolean submit(Request request) {
+        if (closed) {
+            return false;
+        }
+        if (queue.offer(new Submitted(request))) {
+            return true;
+        }
+        long n = dropped.incrementAndGet();
+        if (Long.bitCount(n) == 1) {
+            // 1st, 2nd, 4th, 8th...
+            logger.warn("LLM history queue is full; dropped {} entries so far", n);
+        }
+        return false;
+    }
+
+    /**
+     * Waits until everything submitted before this call has been written.
+     *
+     * @return false if that did not happen within the timeout
+     */
+    public boolean flush(Duration timeout) throws InterruptedException {
+        var done = new CountDownLatch(1);
+        long deadline = System.nanoTime() + timeout.toNanos();
+        if (!queue.offer(new Flush(done), timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+            return false;
+        }
+        return done.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    public long droppedCount() {
+        return dropped.get();
+    }
+
+    private void run() {
+        var batch = new ArrayList<Item>();
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch);
+
+            // group by session so each session's files are opened once per batch
+            var bySession = new LinkedHashMap<Path, List<Request>>();
+            for (var item : batch) {
+                if (item instanceof Submitted(var request)) {
+                    bySession.computeIfAbsent(request.sessionDir(), d -> new ArrayList<>()).add(request);
+                }
+            }
+            bySession.forEach((dir, requests) -> {
+                try {
+                    write(dir, requests);
+                } catch (Throwable th) {
+                    logger.error("Failed to write LLM history to {}", dir, th);
+                    // what made it to disk is unknown; reload the session state on next write
+                    sessions.remove(dir);
+                }
+            });
+            boolean stopped = false;
+            for (var item : batch) {
+                if (item instanceof Flush(var done)) {
+                    done.countDown();
+                } else if (item instanceof Stop(var done)) {
+                    done.countDown();
+                    stopped = true;
+                }
+            }
+            if (stopped) {
+                logger.debug("Stopped LLM history writer");
+                return;
+            }
+            batch.clear();
+        }
+    }
+
+    private void write(Path sessionDir, List<Request> requests) throws IOException {
+        Files.createDirectories(sessionDir);
+        var session = sessions.get(sessionDir);
+        if (session == null) {
+            session = Session.load(sessionDir);
+            sessions.put(sessionDir, session);
+        }
+        try (var blobOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(sessionDir.resolve(BLOBS_FILE), StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+             var indexOut = new BufferedOutputStream(Files.newOutputStream(sessionDir.resolve(INDEX_FILE), StandardOpenOption.CREATE, StandardOpenOption.APPEND)))
+        {
+            for (var request : requests) {
+                var refs = new ArrayList<MessageRef>();
+                for (var message : request.messages()) {
+                    refs.add(new MessageRef(message.type().name().toLowerCase(),
+                                            storeBlob(session, blobOut, Messages.getRepr(message))));
+                }
+                var result = request.result();
+                var response = result == null ? "Cancelled" : result.formatted();
+                var description = result == null ? "Cancelled" : result.getDescription();
+                var entry = new IndexEntry(session.nextSeq++,
+                                           request.time().toString(),
+                                           request.model(),
+                                           refs,
+                                           request.tools(),
+                                           description,
+                                           storeBlob(session, blobOut, response));
+                indexOut.write(objectMapper.writeValueAsBytes(entry));
+                indexOut.write('\n');
+            }
+        }
+    }
+
+    /**
+     * Appends text to the blob file unless an identical body is already there.
+     *
+     * @return the body's hash
+     */
+    private static String storeBlob(Session session, DataOutputStream out, String text) throws IOException {
+        var raw = text.getBytes(StandardCharsets.UTF_8);
+        var hash = sha256(raw);
+        var hex = HexFormat.of().formatHex(hash);
+        if (!session.blobs.add(hex)) {
+            return hex;
+        }
+        var compressed = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+        var deflater = new Deflater(Deflater.BEST_SPEED);
+        try (var dos = new DeflaterOutputStream(compressed, deflater)) {
+            dos.write(raw);
+        } finally {
+            deflater.end();
+        }
+        out.write(hash);
+        out.writeInt(raw.length);
+        out.writeInt(compressed.size());
+        compressed.writeTo(out);
+        return hex;
+    }
+
+    static byte[] sha256(byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package io.github.jbellis.brokk;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.jbellis.brokk.util.LogDescription;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reconstructs the requests in a session directory written by {@link LlmHistoryLog}.
+ * <p>
+ * Run from the command line to export a session as one readable .log file per request:
+ * {@code LlmHistoryReader <sessionDir> [outputDir]}; without an output directory the requests are
+ * printed to stdout.
+ */
+public final class LlmHistoryReader {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private LlmHistoryReader() {
+    }
+
+    public record Message(String type, String text) {
+    }
+
+    public record Entry(int seq,
+                        LocalDateTime time,
+                        String model,
+                        List<Message> messages,
+                        List<String> tools,
+                        String description,
+                        String response)
+    {
+        /**
+         * @return the request and response in the layout of the plain-text history logs
+         */
+        public String format() {
+            var formattedRequest = "# Request to %s:\n\n%s\n".formatted(model,
+                                                                        messages.stream()
+                                                                                .map(m -> TaskEntry.formatMessage(m.type(), m.text()))
+                                                                                .collect(Collectors.joining("\n")));
+            var formattedTools = tools == null ? "" : "# Tools:\n\n" + String.join("\n", tools);
+            return formattedRequest + formattedTools + "# Response:\n\n" + response;
+        }
+    }
+
+    /** Where a blob's compressed bytes live in the blob file. */
+    record BlobLocation(long offset, int rawLength, int compressedLength) {
+    }
+
+    /**
+     * @return every request in the session, in the order they were logged
+     */
+    public static List<Entry> read(Path sessionDir) throws IOException {
+        var blobsFile = sessionDir.resolve(LlmHistoryLog.BLOBS_FILE);
+        var indexFile = sessionDir.resolve(LlmHistoryLog.INDEX_FILE);
+        if (!Files.exists(indexFile)) {
+            return List.of();
+        }
+        var locations = Files.exists(blobsFile) ? scanBlobs(blobsFile) : Map.<String, BlobLocation>of();
+
+        var entries = new ArrayList<Entry>();
+        try (var channel = Files.exists(blobsFile) ? FileChannel.open(blobsFile, StandardOpenOption.READ) : null;
+             var lines = Files.lines(indexFile))
+        {
+            var cache = new HashMap<String, String>();
+            for (var line : lines.filter(l -> !l.isBlank()).toList()) {
+                var ie = objectMapper.readValue(line, LlmHistoryLog.IndexEntry.class);
+                var messages = ie.messages().stream()
+                        .map(ref -> new Message(ref.type(), cache.computeIfAbsent(ref.blob(), h -> loadBlob(channel, locations, h))))
+                        .toList();
+                entries.add(new Entry(ie.seq(),
+                                      LocalDateTime.parse(ie.time()),
+                                      ie.model(),
+                                      messages,
+                                      ie.tools(),
+                                      ie.description(),
+                                      cache.computeIfAbsent(ie.response(), h -> loadBlob(channel, locations, h))));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Reads the record headers of a blob file. A truncated final record (e.g. from a crash mid-write) is ignored.
+     */
+    static Map<String, BlobLocation> scanBlobs(Path blobsFile) throws IOException {
+        var locations = new HashMap<String, BlobLocation>();
+        long size = Files.size(blobsFile);
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(blobsFile)))) {
+            long offset = 0;
+            var hash = new byte[32];
+            while (true) {
+                try {
+                    in.readFully(hash);
+                } catch (EOFException e) {
+                    break;
+                }
+                int rawLength = in.readInt();
+                int compressedLength = in.readInt();
+                long dataOffset = offset + hash.length + 8;
+                if (dataOffset + compressedLength > size) {
+                    break;
+                }
+                in.skipNBytes(compressedLength);
+                locations.putIfAbsent(HexFormat.of().formatHex(hash), new BlobLocation(dataOffset, rawLength, compressedLength));
+                offset = dataOffset + compressedLength;
+            }
+        } catch (EOFException e) {
+            // truncated header
+        }
+        return locations;
+    }
+
+    private static String loadBlob(FileChannel channel, Map<String, BlobLocation> locations, String hash) {
+        var location = locations.get(hash);
+        if (channel == null || location == null) {
+            return "[missing from history log: " + hash + "]";
+        }
+        try {
+            var compressed = ByteBuffer.allocate(location.compressedLength());
+            while (compressed.hasRemaining()) {
+                if (channel.read(compressed, location.offset() + compressed.position()) < 0) {
+                    throw new EOFException();
+                }
+            }
+            var raw = new byte[location.rawLength()];
+            var inflater = new Inflater();
+            try {
+                inflater.setInput(compressed.array());
+                int n = 0;
+                while (n < raw.length && !inflater.finished()) {
+                    n += inflater.inflate(raw, n, raw.length - n);
+                }
+            } finally {
+                inflater.end();
+            }
+            return new String(raw, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (DataFormatException e) {
+            return "[corrupt history log entry: " + hash + "]";
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: LlmHistoryReader <sessionDir> [outputDir]");
+            System.exit(1);
+        }
+        var entries = read(Path.of(args[0]));
+        if (args.length == 1) {
+            for (var entry : entries) {
+                System.out.println(entry.format());
+                System.out.println();
+            }
+            return;
+        }
+
+        var outputDir = Path.of(args[1]);
+        Files.createDirectories(outputDir);
+        var format = DateTimeFormatter.ofPattern("HH-mm-ss");
+        for (var entry : entries) {
+            var name = "%03d %s %s.log".formatted(entry.seq(), entry.time().format(format), LogDescription.getShortDescription(entry.description()));
+            Files.writeString(outputDir.resolve(name), entry.format());
+        }
+        System.out.printf("Wrote %d requests to %s%n", entries.size(), outputDir);
+    }
+}
@@ -0,0 +1,356 @@
+package io.github.jbellis.brokk;
+
+import dev.langchain4j.exception.HttpException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * Admission control for LLM requests, shared by every Llm in a project so that parallel agents
+ * don't overrun the proxy's rate limits.
+ * <p>
+ * Each model has a concurrency limit and, once the provider has rate-limited us, a tokens-per-minute
+ * budget. The concurrency limit grows by one after a run of successful requests and halves on a
+ * rate-limit error; the token budget starts at what was consumed in the minute before the first rate
+ * limit and creeps back up as requests succeed. A rate limit also pauses all admissions to that model
+ * for the retry-after period. Waiting requests are admitted interactive-first, then in arrival order.
+ */
+public class LlmScheduler {
+    private static final Logger logger = LogManager.getLogger(LlmScheduler.class);
+
+    public enum Priority {
+        /** The user is watching the response stream. */
+        INTERACTIVE,
+        /** Summaries, compression, searches and other work the user isn't waiting on directly. */
+        BACKGROUND
+    }
+
+    static final int INITIAL_CONCURRENCY = 8;
+    static final int MAX_CONCURRENCY = 32;
+    static final Duration WINDOW = Duration.ofMinutes(1);
+    static final Duration DEFAULT_COOLDOWN = Duration.ofSeconds(2);
+
+    // LiteLLM and most providers say e.g. "Please retry after 20 seconds" or "try again in 1.5s"
+    private static final Pattern RETRY_AFTER = Pattern.compile("(?i)(?:retry|try again)\\s+(?:after|in)\\s+(\\d+(?:\\.\\d+)?)\\s*(ms|s|sec|secs|seconds?)?\\b");
+
+    private final ConcurrentHashMap<String, ModelState> models = new ConcurrentHashMap<>();
+
+    /**
+     * Blocks until a request of about {@code estimatedTokens} may be sent to {@code model}.
+     * The returned permit must be closed when the request is done, after reporting its outcome
+     * with {@link Permit#complete} or {@link Permit#rateLimited} if known.
+     */
+    public Permit acquire(String model, Priority priority, long estimatedTokens) throws InterruptedException {
+        return models.computeIfAbsent(model, ModelState::new).acquire(priority, estimatedTokens);
+    }
+
+    /**
+     * Queue depth, limits and wait times per model, sorted by model name.
+     */
+    public List<Stats> getStats() {
+        return models.values().stream()
+                .map(ModelState::stats)
+                .sorted(Comparator.comparing(Stats::model))
+                .toList();
+    }
+
+    /**
+     * @param tokenBudget tokens per minute we currently allow ourselves, or -1 if the model has not rate-limited us yet
+     */
+    public record Stats(String model,
+                        int queuedInteractive,
+                        int queuedBackground,
+                        int inFlight,
+                        int concurrencyLimit,
+                        long tokensLastMinute,
+                        long tokenBudget,
+                        long admitted,
+                        long rateLimited,
+                        Duration meanWait,
+                        Duration maxWait)
+    {
+        public int queued() {
+            return queuedInteractive + queuedBackground;
+        }
+    }
+
+    /**
+     * @return true if the error is the provider (or proxy) telling us to slow down
+     */
+    public static boolean isRateLimit(Throwable th) {
+        if (th instanceof HttpException he && he.statusCode() == 429) {
+            return true;
+        }
+        var message = th.getMessage();
+        return message != null && (message.contains("RateLimitError") || message.contains("rate_limit_exceeded"));
+    }
+
+    /**
+     * @return the retry-after hint in a rate-limit error message, if there is one
+     */
+    public static Optional<Duration> retryAfter(Throwable th) {
+        var message = th.getMessage();
+        if (message == null) {
+            return Optional.empty();
+        }
+        var m = RETRY_AFTER.matcher(message);
+        if (!m.find()) {
+            return Optional.empty();
+        }
+        double amount = Double.parseDouble(m.group(1));
+        long millis = "ms".equalsIgnoreCase(m.group(2)) ? (long) amount : (long) (amount * 1000);
+        return Optional.of(Duration.ofMillis(millis));
+    }
+
+    /**
+     * The right to have one request in flight. Closing it without reporting an outcome releases the
+     * slot and leaves the estimated tokens charged.
+     */
+    public static final class Permit implements AutoCloseable {
+        private final ModelState state;
+        private final Usage usage;
+        private final Duration waited;
+        private boolean released;
+
+        private Permit(ModelState state, Usage usage, Duration waited) {
+            this.state = state;
+            this.usage = usage;
+            this.waited = waited;
+        }
+
+        /**
+         * How long the request was queued before it was admitted.
+         */
+        public Duration waited() {
+            return waited;
+        }
+
+        /**
+         * The request succeeded and consumed {@code tokensUsed} tokens (input plus output).
+         */
+        public void complete(long tokensUsed) {
+            release(tokensUsed, Outcome.SUCCESS, Duration.ZERO);
+        }
+
+        /**
+         * The request was rejected for exceeding a rate limit; hold off the model for {@code retryAfter}.
+         * A rejected request consumed nothing, so its estimate is refunded.
+         */
+        public void rateLimited(Duration retryAfter) {
+            release(0, Outcome.RATE_LIMITED, retryAfter);
+        }
+
+        @Override
+        public void close() {
+            release(usage.tokens, Outcome.OTHER, Duration.ZERO);
+        }
+
+        private void release(long tokens, Outcome outcome, Duration cooldown) {
+            if (released) {
+                return;
+            }
+            released = true;
+            state.release(usage, tokens, outcome, cooldown);
+        }
+    }
+
+    private enum Outcome { SUCCESS, RATE_LIMITED, OTHER }
+
+    private record Waiter(Priority priority, long seq) {
+    }
+
+    /** Tokens charged to the window at a given time; starts as the estimate and is corrected on release. */
+    private static final class Usage {
+        final long at;
+        long tokens;
+        boolean expired;
+
+        Usage(long at, long tokens) {
+            this.at = at;
+            this.tokens = tokens;
+        }
+    }
+
+    private static final class ModelState {
+        private final String model;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition changed = lock.newCondition();
+        private final PriorityQueue<Waiter> waiters = new PriorityQueue<>(Comparator.comparing(Waiter::priority)
+                                                                                  .thenComparingLong(Waiter::seq));
+        private final ArrayDeque<Usage> window = new ArrayDeque<>();
+
+        // all guarded by lock
+        private long nextSeq;
+        private int inFlight;
+        private int limit = INITIAL_CONCURRENCY;
+        private int successesSinceIncrease;
+        private long tokensInWindow;
+        private long tokenBudget = -1;
+        private boolean paused;
+        private long pausedUntil;
+        private long admitted;
+        private long rateLimited;
+        private long totalWaitNanos;
+        private long maxWaitNanos;
+
+        ModelState(String model) {
+            this.model = model;
+        }
+
+        Permit acquire(Priority priority, long estimatedTokens) throws InterruptedException {
+            long start = System.nanoTime();
+            lock.lock();
+            try {
+                var waiter = new Waiter(priority, nextSeq++);
+                waiters.add(waiter);
+                long now;
+                try {
+                    while (true) {
+                        now = System.nanoTime();
+                        long delay = admissionDelay(waiter, estimatedTokens, now);
+                        if (delay == 0) {
+                            break;
+                        }
+                        if (delay < 0) {
+                            changed.await();
+                        } else {
+                            changed.awaitNanos(delay);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    waiters.remove(waiter);
+                    changed.signalAll();
+                    throw e;
+                }
+                waiters.remove(waiter);
+
+                inFlight++;
+                admitted++;
+                var usage = new Usage(now, estimatedTokens);
+                window.addLast(usage);
+                tokensInWindow += estimatedTokens;
+
+                long waitNanos = now - start;
+                totalWaitNanos += waitNanos;
+                maxWaitNanos = Math.max(maxWaitNanos, waitNanos);
+                if (waitNanos > Duration.ofSeconds(1).toNanos()) {
+                    logger.debug("{} request to {} waited {} ms for admission", priority, model, waitNanos / 1_000_000);
+                }
+                // the next waiter may be admissible too
+                changed.signalAll();
+                return new Permit(this, usage, Duration.ofNanos(waitNanos));
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * @return 0 if the waiter may go now, a positive number of nanoseconds after which to check again,
+         * or -1 to wait for a release or admission
+         */
+        private long admissionDelay(Waiter waiter, long estimatedTokens, long now) {
+            expire(now);
+            if (waiters.peek() != waiter) {
+                return -1;
+            }
+            if (paused) {
+                if (now - pausedUntil < 0) {
+                    return pausedUntil - now;
+                }
+                paused = false;
+            }
+            if (inFlight >= limit) {
+                return -1;
+            }
+            // a request bigger than the whole budget still has to go out eventually, alone
+            if (tokenBudget >= 0 && tokensInWindow > 0 && tokensInWindow + estimatedTokens > tokenBudget) {
+                return Math.max(1, window.peekFirst().at + WINDOW.toNanos() - now);
+            }
+            return 0;
+        }
+
+        private void expire(long now) {
+            while (!window.isEmpty() && now - window.peekFirst().at >= WINDOW.toNanos()) {
+                var usage = window.removeFirst();
+                usage.expired = true;
+                tokensInWindow -= usage.tokens;
+            }
+        }
+
+        void release(Usage usage, long tokens, Outcome outcome, Duration cooldown) {
+            lock.lock();
+            try {
+                long now = System.nanoTime();
+                inFlight--;
+                if (!usage.expired) {
+                    tokensInWindow += tokens - usage.tokens;
+                }
+                usage.tokens = tokens;
+                expire(now);
+
+                switch (outcome) {
+                    case SUCCESS -> {
+                        if (++successesSinceIncrease >= limit && limit < MAX_CONCURRENCY) {
+                            limit++;
+                            successesSinceIncrease = 0;
+                        }
+                        if (tokenBudget >= 0) {
+                            // we evidently got away with this much; probe a little higher
+                            tokenBudget = Math.max(tokenBudget, tokensInWindow) + tokenBudget / 50;
+                        }
+                    }
+                    case RATE_LIMITED -> {
+                        rateLimited++;
+                        limit = Math.max(1, limit / 2);
+                        successesSinceIncrease = 0;
+                        if (tokensInWindow > 0) {
+                            tokenBudget = tokenBudget < 0 ? tokensInWindow : Math.min(tokenBudget, tokensInWindow);
+                        }
+                        long until = now + cooldown.toNanos();
+                        if (!paused || until - pausedUntil > 0) {
+                            pausedUntil = until;
+                        }
+                        paused = true;
+                        logger.debug("Rate limited by {}: concurrency limit now {}, token budget {}/min, pausing {} ms",
+                                     model, limit, tokenBudget, cooldown.toMillis());
+                    }
+                    case OTHER -> { }
+                }
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        Stats stats() {
+            lock.lock();
+            try {
+                expire(System.nanoTime());
+                int interactive = (int) waiters.stream().filter(w -> w.priority() == Priority.INTERACTIVE).count();
+                return new Stats(model,
+                                 interactive,
+                                 waiters.size() - interactive,
+                                 inFlight,
+                                 limit,
+                                 tokensInWindow,
+                                 tokenBudget,
+                                 admitted,
+                                 rateLimited,
+                                 Duration.ofNanos(admitted == 0 ? 0 : totalWaitNanos / admitted),
+                                 Duration.ofNanos(maxWaitNanos));
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -92,11 +92,17 @@ public final class Models {
     private volatile StreamingChatLanguageModel quickestModel = null;
     private volatile SpeechToTextModel sttModel = null;
     private volatile boolean isFreeTierOnly = false; // Store balance status
+    // shared by every Llm built on these models, so parallel agents queue instead of tripping rate limits
+    private final LlmScheduler scheduler = new LlmScheduler();
 
     // Constructor - could potentially take project-specific config later
     public Models() {
     }
 
+    public LlmScheduler getScheduler() {
+        return scheduler;
+    }
+
     /**
      * Returns the display name for a given model instance
      */
@@ -30,6 +30,7 @@ public class Project implements IProject, AutoCloseable {
     private final Properties projectProps;
     private final Properties workspaceProps;
     private final Path styleGuidePath;
+    private final SessionStore sessionStore;
     private final IGitRepo repo;
     private final Set<ProjectFile> dependencyFiles;
     private volatile CompletableFuture<BuildAgent.BuildDetails> detailsFuture = new CompletableFuture<>();
@@ -98,6 +99,7 @@ public class Project implements IProject, AutoCloseable {
         this.propertiesFile = root.resolve(".brokk").resolve("project.properties");
         this.workspacePropertiesFile = root.resolve(".brokk").resolve("workspace.properties");
         this.styleGuidePath = root.resolve(".brokk").resolve("style.md");
+        this.sessionStore = new SessionStore(root);
         this.projectProps = new Properties();
         this.workspaceProps = new Properties();
         this.dependencyFiles = loadDependencyFiles();
@@ -667,6 +669,32 @@ public class Project implements IProject, AutoCloseable {
         saveProjectProperties();
     }
 
+    /** What CodeAgent runs to check its edits. */
+    public enum VerificationMode {
+        /** the verification command after every round of edits */
+        FULL,
+        /** only the tests affected by the session's edits, then the verification command once they pass */
+        AFFECTED_TESTS
+    }
+
+    public VerificationMode getVerificationMode() {
+        String value = projectProps.getProperty("verification_mode");
+        if (value == null) {
+            return VerificationMode.FULL;
+        }
+        try {
+            return VerificationMode.valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return VerificationMode.FULL;
+        }
+    }
+
+    public void setVerificationMode(VerificationMode mode) {
+        assert mode != null;
+        projectProps.setProperty("verification_mode", mode.name());
+        saveProjectProperties();
+    }
+
     public String getStyleGuide() {
         try {
             if (Files.exists(styleGuidePath)) {
@@ -688,49 +716,44 @@ public class Project implements IProject, AutoCloseable {
     }
 
     /**
-     * Saves a serialized Context object to the workspace properties
+     * Saves the Context to the session store
      */
     public void saveContext(Context context) {
         try {
-            // Save the context
-            byte[] serialized = Context.serialize(context);
-            String encoded = java.util.Base64.getEncoder().encodeToString(serialized);
-            workspaceProps.setProperty("context", encoded);
-
-            // Save the current fragment ID counter
-            int currentMaxId = ContextFragment.getCurrentMaxId();
-            workspaceProps.setProperty("contextFragmentNextId", String.valueOf(currentMaxId));
-
-            saveWorkspaceProperties();
+            sessionStore.save(context);
         } catch (Exception e) {
             logger.error("Error saving context: {}", e.getMessage());
         }
     }
 
     /**
-     * Loads a serialized Context object from the workspace properties
+     * Loads the Context from the session store, migrating a context saved in the workspace properties
+     * by older versions if there is one
      *
      * @return The loaded Context, or null if none exists
      */
     public Context loadContext(IContextManager contextManager, String welcomeMessage) {
         try {
-            // Restore the fragment ID counter first
-            String nextIdStr = workspaceProps.getProperty("contextFragmentNextId");
-            if (nextIdStr != null && !nextIdStr.isEmpty()) {
-                try {
-                    int nextId = Integer.parseInt(nextIdStr);
-                    ContextFragment.setNextId(nextId);
-                    logger.debug("Restored fragment ID counter to {}", nextId);
-                } catch (NumberFormatException e) {
-                    logger.warn("Invalid fragment ID counter value: {}", nextIdStr);
-                }
+            if (sessionStore.exists()) {
+                return sessionStore.load(contextManager, welcomeMessage);
             }
 
-            // Then load the context
             String encoded = workspaceProps.getProperty("context");
             if (encoded != null && !encoded.isEmpty()) {
+                String nextIdStr = workspaceProps.getProperty("contextFragmentNextId");
+                if (nextIdStr != null && !nextIdStr.isEmpty()) {
+                    try {
+                        ContextFragment.setNextId(Integer.parseInt(nextIdStr));
+                    } catch (NumberFormatException e) {
+                        logger.warn("Invalid fragment ID counter value: {}", nextIdStr);
+                    }
+                }
                 byte[] serialized = java.util.Base64.getDecoder().decode(encoded);
-                return Context.deserialize(serialized, welcomeMessage).withContextManager(contextManager);
+                var context = Context.deserialize(serialized, welcomeMessage).withContextManager(contextManager);
+                logger.info("Migrating saved context from workspace properties to the session store");
+                sessionStore.save(context);
+                clearLegacyContext();
+                return context;
             }
         } catch (Throwable e) {
             logger.error("Error loading context: {}", e.getMessage());
@@ -740,10 +763,21 @@ public class Project implements IProject, AutoCloseable {
     }
 
     private void clearSavedContext() {
-        workspaceProps.remove("context");
-        workspaceProps.remove("contextFragmentNextId");
-        saveWorkspaceProperties();
-        logger.debug("Cleared saved context from workspace properties");
+        try {
+            sessionStore.clear();
+        } catch (IOException e) {
+            logger.error("Error clearing saved context: {}", e.getMessage());
+        }
+        clearLegacyContext();
+    }
+
+    private void clearLegacyContext() {
+        boolean removed = workspaceProps.remove("context") != null;
+        removed |= workspaceProps.remove("contextFragmentNextId") != null;
+        if (removed) {
+            saveWorkspaceProperties();
+            logger.debug("Cleared saved context from workspace properties");
+        }
     }
 
     /**
@@ -0,0 +1,259 @@
+package io.github.jbellis.brokk;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.openai.OpenAiChatRequestParameters;
+import io.github.jbellis.brokk.util.AtomicWrites;
+import io.github.jbellis.brokk.util.Messages;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * On-disk cache of LLM responses for helper calls whose output depends only on their input
+ * (summaries, history compression, commit message suggestions), so repeating one is free.
+ * <p>
+ * Entries are keyed by a SHA-256 of the model name, its request parameters and the normalized
+ * messages, and stored one file per entry under .brokk/llm-cache. When the cache grows past its
+ * size bound, the least recently used entries are evicted. Recency is tracked in memory and
+ * written back to the files' modification times by {@link #flush}, so reads never write to disk.
+ */
+public class ResponseCache {
+    private static final Logger logger = LogManager.getLogger(ResponseCache.class);
+
+    public static final String CACHE_DIR_NAME = "llm-cache";
+    static final long DEFAULT_MAX_BYTES = 32L << 20;
+    private static final String SUFFIX = ".txt";
+    private static final Pattern TRAILING_WHITESPACE = Pattern.compile("[ \\t]+$", Pattern.MULTILINE);
+
+    private static final Map<Path, ResponseCache> byProjectRoot = new ConcurrentHashMap<>();
+
+    private final Path cacheDir;
+    private final long maxBytes;
+    // key -> entry, loaded from disk on first use; guarded by this
+    private Map<String, Entry> index;
+    private long totalBytes;
+
+    // touched: used since its file's modification time was last updated
+    private record Entry(long size, long lastUsed, boolean touched) {
+    }
+
+    ResponseCache(Path cacheDir, long maxBytes) {
+        this.cacheDir = cacheDir;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return the shared cache for the project rooted at projectRoot
+     */
+    public static ResponseCache forProject(Path projectRoot) {
+        return byProjectRoot.computeIfAbsent(projectRoot.toAbsolutePath().normalize(),
+                                             root -> new ResponseCache(root.resolve(".brokk").resolve(CACHE_DIR_NAME), DEFAULT_MAX_BYTES));
+    }
+
+    /**
+     * Computes the cache key for sending messages to model with its default request parameters.
+     *
+     * @return the key, or empty if the model has no request parameters to key on, in which case its
+     *         responses are not cached
+     */
+    public static Optional<String> key(StreamingChatLanguageModel model, List<ChatMessage> messages) {
+        var params = model.defaultRequestParameters();
+        if (params == null || params.modelName() == null) {
+            return Optional.empty();
+        }
+        var reasoning = params instanceof OpenAiChatRequestParameters op ? op.reasoningEffort() : null;
+        var parameters = "temperature=%s;maxOutputTokens=%s;reasoningEffort=%s".formatted(params.temperature(), params.maxOutputTokens(), reasoning);
+        return Optional.of(key(params.modelName(), parameters, messages));
+    }
+
+    static String key(String modelName, String parameters, Collection<ChatMessage> messages) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+        update(digest, modelName);
+        update(digest, parameters);
+        for (var message : messages) {
+            update(digest, message.type().name());
+            update(digest, normalize(Messages.getText(message)));
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void update(MessageDigest digest, String s) {
+        var bytes = String.valueOf(s).getBytes(StandardCharsets.UTF_8);
+        // length-prefix each field so that ("ab", "c") and ("a", "bc") hash differently
+        digest.update(Integer.toString(bytes.length).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) ':');
+        digest.update(bytes);
+    }
+
+    /**
+     * Line endings and trailing whitespace don't change what the model is being asked.
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return TRAILING_WHITESPACE.matcher(text.replace("\r\n", "\n")).replaceAll("").strip();
+    }
+
+    /**
+     * @return the cached response text, if any
+     */
+    public Optional<String> get(String key) {
+        synchronized (this) {
+            ensureLoaded();
+            if (!index.containsKey(key)) {
+                return Optional.empty();
+            }
+        }
+
+        var path = pathFor(key);
+        String text;
+        try {
+            text = Files.readString(path);
+        } catch (NoSuchFileException e) {
+            // removed behind our back (or evicted since we checked)
+            synchronized (this) {
+                var removed = index.remove(key);
+                if (removed != null) {
+                    totalBytes -= removed.size();
+                }
+            }
+            return Optional.empty();
+        } catch (IOException e) {
+            logger.warn("Unable to read cached LLM response {}", path, e);
+            return Optional.empty();
+        }
+
+        synchronized (this) {
+            var entry = index.get(key);
+            if (entry != null) {
+                index.put(key, new Entry(entry.size(), System.currentTimeMillis(), true));
+            }
+        }
+        return Optional.of(text);
+    }
+
+    /**
+     * Records the recency of entries read since the last flush in their files' modification times,
+     * so that it survives a restart.
+     */
+    public void flush() {
+        Map<String, Long> touched;
+        synchronized (this) {
+            if (index == null) {
+                return;
+            }
+            touched = new HashMap<>();
+            for (var e : index.entrySet()) {
+                if (e.getValue().touched()) {
+                    touched.put(e.getKey(), e.getValue().lastUsed());
+                    e.setValue(new Entry(e.getValue().size(), e.getValue().lastUsed(), false));
+                }
+            }
+        }
+        touched.forEach((key, lastUsed) -> {
+            try {
+                Files.setLastModifiedTime(pathFor(key), FileTime.fromMillis(lastUsed));
+            } catch (IOException e) {
+                logger.debug("Unable to record use of cached LLM response {}", key, e);
+            }
+        });
+    }
+
+    public synchronized void put(String key, String response) {
+        ensureLoaded();
+        var path = pathFor(key);
+        try {
+            Files.createDirectories(cacheDir);
+            AtomicWrites.atomicOverwrite(path, response);
+        } catch (IOException e) {
+            logger.warn("Unable to cache LLM response to {}", path, e);
+            return;
+        }
+        long size = response.getBytes(StandardCharsets.UTF_8).length;
+        var previous = index.put(key, new Entry(size, System.currentTimeMillis(), false));
+        totalBytes += size - (previous == null ? 0 : previous.size());
+        evict();
+    }
+
+    synchronized long sizeInBytes() {
+        ensureLoaded();
+        return totalBytes;
+    }
+
+    private void evict() {
+        if (totalBytes <= maxBytes) {
+            return;
+        }
+        var lru = index.entrySet().stream()
+                .sorted(Comparator.comparingLong(e -> e.getValue().lastUsed()))
+                .map(Map.Entry::getKey)
+                .toList();
+        for (var key : lru) {
+            if (totalBytes <= maxBytes) {
+                break;
+            }
+            try {
+                Files.deleteIfExists(pathFor(key));
+            } catch (IOException e) {
+                logger.debug("Unable to evict cached LLM response {}", key, e);
+            }
+            totalBytes -= index.remove(key).size();
+        }
+        logger.debug("Evicted LLM response cache down to {} bytes", totalBytes);
+    }
+
+    private void ensureLoaded() {
+        if (index != null) {
+            return;
+        }
+        index = new HashMap<>();
+        totalBytes = 0;
+        if (!Files.isDirectory(cacheDir)) {
+            return;
+        }
+        try (var files = Files.list(cacheDir)) {
+            for (var file : files.filter(f -> f.getFileName().toString().endsWith(SUFFIX)).toList()) {
+                try {
+                    var name = file.getFileName().toString();
+                    long size = Files.size(file);
+                    index.put(name.substring(0, name.length() - SUFFIX.length()),
+                              new Entry(size, Files.getLastModifiedTime(file).toMillis(), false));
+                    totalBytes += size;
+                } catch (IOException e) {
+                    logger.debug("Skipping unreadable cache entry {}", file, e);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Unable to load LLM response cache from {}", cacheDir, e);
+        }
+        evict();
+    }
+
+    private Path pathFor(String key) {
+        return cacheDir.resolve(key + SUFFIX);
+    }
+}
@@ -0,0 +1,295 @@
+package io.github.jbellis.brokk;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ChatMessageDeserializer;
+import dev.langchain4j.data.message.ChatMessageSerializer;
+import io.github.jbellis.brokk.util.AtomicWrites;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Persists the current Context under .brokk/session, replacing the Base64-encoded Java serialization
+ * that used to live in workspace.properties.
+ * <p>
+ * Task history, which grows without bound, goes to an append-only record log ({@value #HISTORY_FILE}):
+ * a save appends only the entries that are new or changed (e.g. compressed) since the last save, and
+ * the log is compacted once most of its records are superseded. Each record is
+ * {@code [int version][int length][payload][int crc32]}, so a torn write at the end is detected and
+ * ignored, and a future format can be introduced without breaking older records. Payloads are JSON,
+ * with chat messages in langchain4j's own JSON format; message lists are parsed only when first used.
+ * <p>
+ * The workspace itself -- fragments, the fragment id counter and the sequence numbers of the history
+ * entries in order -- is small and is rewritten atomically on each save as {@value #SNAPSHOT_FILE}.
+ */
+public class SessionStore {
+    private static final Logger logger = LogManager.getLogger(SessionStore.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    public static final String SESSION_DIR_NAME = "session";
+    static final String HISTORY_FILE = "history.log";
+    static final String SNAPSHOT_FILE = "workspace.bin";
+
+    private static final int RECORD_VERSION = 1;
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int MIN_RECORDS_TO_COMPACT = 32;
+
+    /** Versioned JSON payload of a history record; exactly one of summary and messages is non-null. */
+    record HistoryRecord(int sequence, String sessionName, String summary, String messages) {
+    }
+
+    /** The Java-serialized part of a snapshot. */
+    private record Fragments(List<ContextFragment.ProjectPathFragment> editable,
+                             List<ContextFragment.PathFragment> readonly,
+                             List<ContextFragment.VirtualFragment> virtual) implements Serializable
+    {
+    }
+
+    private final Path dir;
+    // guarded by this: the entry most recently written for each sequence, and how many records the log holds
+    private final Map<Integer, TaskEntry> written = new HashMap<>();
+    private int recordCount;
+
+    public SessionStore(Path projectRoot) {
+        this.dir = projectRoot.resolve(".brokk").resolve(SESSION_DIR_NAME);
+    }
+
+    public synchronized boolean exists() {
+        return Files.exists(dir.resolve(SNAPSHOT_FILE));
+    }
+
+    /**
+     * Saves the context's workspace and any history entries not yet in the log.
+     */
+    public synchronized void save(Context context) throws IOException {
+        Files.createDirectories(dir);
+        var history = context.getTaskHistory();
+
+        var toAppend = history.stream()
+                .filter(e -> written.get(e.sequence()) != e)
+                .toList();
+        if (!toAppend.isEmpty()) {
+            try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(dir.resolve(HISTORY_FILE), StandardOpenOption.CREATE, StandardOpenOption.APPEND)))) {
+                for (var entry : toAppend) {
+                    writeRecord(out, entry);
+                    written.put(entry.sequence(), entry);
+                    recordCount++;
+                }
+            }
+        }
+
+        writeSnapshot(context);
+
+        if (recordCount >= MIN_RECORDS_TO_COMPACT && recordCount > 2 * history.size()) {
+            compact(history);
+        }
+    }
+
+    /**
+     * @return the saved context, or null if there is none
+     */
+    public synchronized Context load(IContextManager contextManager, String welcomeMessage) throws IOException {
+        var snapshotPath = dir.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(snapshotPath)) {
+            return null;
+        }
+
+        var latest = readHistory();
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotPath)))) {
+            int version = in.readInt();
+            if (version != SNAPSHOT_VERSION) {
+                throw new IOException("Unsupported session snapshot version " + version);
+            }
+            ContextFragment.setNextId(in.readInt());
+
+            int historySize = in.readInt();
+            var history = new ArrayList<TaskEntry>(historySize);
+            for (int i = 0; i < historySize; i++) {
+                int sequence = in.readInt();
+                var entry = latest.get(sequence);
+                if (entry == null) {
+                    logger.warn("Task history entry {} is missing from the session log", sequence);
+                    continue;
+                }
+                history.add(entry);
+            }
+
+            Fragments fragments = null;
+            try (var ois = new ObjectInputStream(new ByteArrayInputStream(in.readNBytes(in.readInt())))) {
+                fragments = (Fragments) ois.readObject();
+            } catch (ClassNotFoundException | ObjectStreamException | ClassCastException e) {
+                // keep the history even if the fragments no longer deserialize
+                logger.warn("Unable to restore workspace fragments; restoring task history only", e);
+            }
+
+            written.clear();
+            history.forEach(e -> written.put(e.sequence(), e));
+            return Context.restore(contextManager,
+                                   fragments == null ? List.of() : fragments.editable(),
+                                   fragments == null ? List.of() : fragments.readonly(),
+                                   fragments == null ? List.of() : fragments.virtual(),
+                                   history,
+                                   welcomeMessage);
+        }
+    }
+
+    public synchronized void clear() throws IOException {
+        Files.deleteIfExists(dir.resolve(SNAPSHOT_FILE));
+        Files.deleteIfExists(dir.resolve(HISTORY_FILE));
+        written.clear();
+        recordCount = 0;
+    }
+
+    private void writeSnapshot(Context context) throws IOException {
+        var fragmentBytes = new ByteArrayOutputStream();
+        try (var oos = new ObjectOutputStream(fragmentBytes)) {
+            oos.writeObject(new Fragments(context.editableFiles().toList(),
+                                          context.readonlyFiles().toList(),
+                                          context.virtualFragments().toList()));
+        }
+
+        var bytes = new ByteArrayOutputStream();
+        try (var out = new DataOutputStream(bytes)) {
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeInt(ContextFragment.getCurrentMaxId());
+            var history = context.getTaskHistory();
+            out.writeInt(history.size());
+            for (var entry : history) {
+                out.writeInt(entry.sequence());
+            }
+            out.writeInt(fragmentBytes.size());
+            fragmentBytes.writeTo(out);
+        }
+        AtomicWrites.atomicOverwrite(dir.resolve(SNAPSHOT_FILE), bytes.toByteArray());
+    }
+
+    /**
+     * Rewrites the log with only the entries in the current history.
+     */
+    private void compact(List<TaskEntry> history) throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        try (var out = new DataOutputStream(bytes)) {
+            for (var entry : history) {
+                writeRecord(out, entry);
+            }
+        }
+        AtomicWrites.atomicOverwrite(dir.resolve(HISTORY_FILE), bytes.toByteArray());
+        logger.debug("Compacted session history from {} to {} records", recordCount, history.size());
+        written.clear();
+        history.forEach(e -> written.put(e.sequence(), e));
+        recordCount = history.size();
+    }
+
+    private static void writeRecord(DataOutputStream out, TaskEntry entry) throws IOException {
+        HistoryRecord record;
+        if (entry.isCompressed()) {
+            record = new HistoryRecord(entry.sequence(), null, entry.summary(), null);
+        } else {
+            var log = entry.log();
+            // don't parse a lazily loaded log just to write it back out
+            var messages = log instanceof StoredTaskFragment stored ? stored.json() : ChatMessageSerializer.messagesToJson(log.messages());
+            record = new HistoryRecord(entry.sequence(), log.description(), null, messages);
+        }
+        var payload = objectMapper.writeValueAsBytes(record);
+        var crc = new CRC32();
+        crc.update(payload);
+        out.writeInt(RECORD_VERSION);
+        out.writeInt(payload.length);
+        out.write(payload);
+        out.writeInt((int) crc.getValue());
+    }
+
+    /**
+     * @return the latest entry for each sequence in the log
+     */
+    private Map<Integer, TaskEntry> readHistory() throws IOException {
+        var latest = new HashMap<Integer, TaskEntry>();
+        recordCount = 0;
+        var path = dir.resolve(HISTORY_FILE);
+        if (!Files.exists(path)) {
+            return latest;
+        }
+        long validEnd = 0;
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            while (true) {
+                int version;
+                try {
+                    version = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                int length = in.readInt();
+                var payload = in.readNBytes(length);
+                int expectedCrc = in.readInt();
+                validEnd += 12 + length;
+                var crc = new CRC32();
+                crc.update(payload);
+                if ((int) crc.getValue() != expectedCrc) {
+                    logger.warn("Ignoring corrupt record in {}", path);
+                    continue;
+                }
+                recordCount++;
+                if (version != RECORD_VERSION) {
+                    logger.warn("Skipping session history record with unsupported version {}", version);
+                    continue;
+                }
+                var record = objectMapper.readValue(payload, HistoryRecord.class);
+                var entry = record.summary() != null
+                            ? TaskEntry.fromCompressed(record.sequence(), record.summary())
+                            : new TaskEntry(record.sequence(), new StoredTaskFragment(record.messages(), record.sessionName()), null);
+                latest.put(record.sequence(), entry);
+            }
+        } catch (EOFException e) {
+            // a write was cut short; drop the partial record so later appends start on a record boundary
+            logger.warn("Ignoring truncated record at the end of {}", path);
+            try (var channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(validEnd);
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * A task log read from the session store, whose messages are parsed on first use.
+     */
+    static final class StoredTaskFragment extends ContextFragment.TaskFragment {
+        private final String json;
+        private volatile List<ChatMessage> messages;
+
+        StoredTaskFragment(String json, String sessionName) {
+            super(List.of(), sessionName);
+            this.json = json;
+        }
+
+        String json() {
+            return json;
+        }
+
+        @Override
+        public List<ChatMessage> messages() {
+            var m = messages;
+            if (m == null) {
+                m = ChatMessageDeserializer.messagesFromJson(json);
+                messages = m;
+            }
+            return m;
+        }
+
+        /** Serializes as a plain TaskFragment, whose proxy handles the messages. */
+        @Serial
+        private Object writeReplace() {
+            return new ContextFragment.TaskFragment(messages(), description());
+        }
+    }
+}
@@ -77,14 +77,18 @@ public record TaskEntry(int sequence, ContextFragment.TaskFragment log, String s
 
     public static @NotNull String formatMessages(List<ChatMessage> messages) {
         return messages.stream()
-                  .map(message -> {
-                      var text = Messages.getRepr(message);
-                      return """
-                      <message type=%s>
-                      %s
-                      </message>
-                      """.stripIndent().formatted(message.type().name().toLowerCase(), text.indent(2).stripTrailing());
-                  })
+                  .map(message -> formatMessage(message.type().name().toLowerCase(), Messages.getRepr(message)))
                   .collect(Collectors.joining("\n"));
     }
+
+    /**
+     * Formats one message given its lowercase type name and its text as produced by Messages.getRepr.
+     */
+    public static @NotNull String formatMessage(String type, String text) {
+        return """
+        <message type=%s>
+        %s
+        </message>
+        """.stripIndent().formatted(type, text.indent(2).stripTrailing());
+    }
 }
@@ -0,0 +1,168 @@
+package io.github.jbellis.brokk;
+
+import io.github.jbellis.brokk.analyzer.CodeUnit;
+import io.github.jbellis.brokk.analyzer.IAnalyzer;
+import io.github.jbellis.brokk.analyzer.ProjectFile;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Static test-impact analysis: finds the test files that reach a set of code units through the
+ * analyzer's reference graph, nearest first.
+ * <p>
+ * With a CPG analyzer, this walks "used by" edges ({@link IAnalyzer#getUses}, which covers calls, field
+ * references, type references and subclasses) at class granularity, up to {@link #MAX_DEPTH} hops from
+ * the changed classes. Other analyzers have no reference graph, so a test file counts as one hop away
+ * if it mentions a changed class by its simple name.
+ * <p>
+ * Edges, and results per set of changed classes and test files, are cached per analyzer instance. AnalyzerWrapper builds a new analyzer whenever the
+ * code changes, so the cache always describes the current code, and is dropped along with its analyzer.
+ */
+public class TestImpact {
+    private static final Logger logger = LogManager.getLogger(TestImpact.class);
+
+    static final int MAX_DEPTH = 3;
+
+    // values must not reference their analyzer, or it would never be collected
+    private static final Map<IAnalyzer, TestImpact> byAnalyzer = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /** A test file and the number of "used by" hops from the nearest changed class. */
+    public record ImpactedTest(ProjectFile file, int distance) {
+    }
+
+    // class fqName -> classes that use it
+    private final Map<String, Set<CodeUnit>> usersByClass = new ConcurrentHashMap<>();
+    private record Query(Set<CodeUnit> changedClasses, Set<ProjectFile> testFiles) {
+    }
+
+    private final Map<Query, List<ImpactedTest>> results = new ConcurrentHashMap<>();
+
+    private TestImpact() {
+    }
+
+    /**
+     * @param analyzer  the current analyzer
+     * @param changed   code units that are (about to be) changed; members are treated as their classes
+     * @param testFiles the project's test files
+     * @return the test files that reach the changed code, sorted by distance and then path
+     */
+    public static List<ImpactedTest> impactedTests(IAnalyzer analyzer, Collection<CodeUnit> changed, Collection<ProjectFile> testFiles) {
+        return byAnalyzer.computeIfAbsent(analyzer, a -> new TestImpact()).compute(analyzer, changed, testFiles);
+    }
+
+    private List<ImpactedTest> compute(IAnalyzer analyzer, Collection<CodeUnit> changed, Collection<ProjectFile> testFiles) {
+        var classes = changed.stream()
+                .map(CodeUnit::classUnit)
+                .flatMap(Optional::stream)
+                .collect(Collectors.toUnmodifiableSet());
+        if (classes.isEmpty()) {
+            return List.of();
+        }
+        // the test files are part of the key: a test added since the last call may be the one that reaches the change
+        return results.computeIfAbsent(new Query(classes, Set.copyOf(testFiles)), q -> {
+            var c = q.changedClasses();
+            var tests = q.testFiles();
+            var found = analyzer.isCpg() ? walkUses(analyzer, c, tests) : mentions(c, tests);
+            var impacted = found.entrySet().stream()
+                    .map(e -> new ImpactedTest(e.getKey(), e.getValue()))
+                    .sorted(Comparator.comparingInt(ImpactedTest::distance).thenComparing(t -> t.file().toString()))
+                    .toList();
+            logger.debug("{} test files reach {} changed classes", impacted.size(), c.size());
+            return impacted;
+        });
+    }
+
+    /**
+     * Breadth-first search backwards along "used by" edges. Tests end a path: we want the tests that
+     * reach the changed code, not whatever else the tests happen to reach.
+     */
+    private Map<ProjectFile, Integer> walkUses(IAnalyzer analyzer, Set<CodeUnit> changedClasses, Set<ProjectFile> tests) {
+        var found = new HashMap<ProjectFile, Integer>();
+        // a changed test is its own nearest test
+        changedClasses.stream()
+                .map(CodeUnit::source)
+                .filter(tests::contains)
+                .forEach(f -> found.put(f, 0));
+
+        Set<CodeUnit> frontier = new HashSet<>(changedClasses);
+        var seen = new HashSet<>(changedClasses);
+        for (int depth = 1; depth <= MAX_DEPTH && !frontier.isEmpty(); depth++) {
+            var next = new HashSet<CodeUnit>();
+            for (var cls : frontier) {
+                for (var user : usersOf(analyzer, cls)) {
+                    if (!seen.add(user)) {
+                        continue;
+                    }
+                    if (tests.contains(user.source())) {
+                        found.putIfAbsent(user.source(), depth);
+                    } else {
+                        next.add(user);
+                    }
+                }
+            }
+            frontier = next;
+        }
+        return found;
+    }
+
+    private Set<CodeUnit> usersOf(IAnalyzer analyzer, CodeUnit cls) {
+        return usersByClass.computeIfAbsent(cls.fqName(), fqName -> {
+            List<CodeUnit> uses;
+            try {
+                uses = analyzer.getUses(fqName);
+            } catch (IllegalArgumentException e) {
+                // not in the CPG, e.g. a file added since it was built
+                logger.debug("No uses found for {}: {}", fqName, e.getMessage());
+                return Set.of();
+            }
+            return uses.stream()
+                    .map(CodeUnit::classUnit)
+                    .flatMap(Optional::stream)
+                    .filter(u -> !u.fqName().equals(fqName))
+                    .collect(Collectors.toUnmodifiableSet());
+        });
+    }
+
+    private static Map<ProjectFile, Integer> mentions(Set<CodeUnit> changedClasses, Set<ProjectFile> tests) {
+        var names = changedClasses.stream()
+                .map(cu -> cu.shortName().substring(cu.shortName().lastIndexOf('$') + 1))
+                .map(Pattern::quote)
+                .collect(Collectors.joining("|"));
+        var pattern = Pattern.compile("\\b(?:" + names + ")\\b");
+
+        var found = new HashMap<ProjectFile, Integer>();
+        for (var cls : changedClasses) {
+            if (tests.contains(cls.source())) {
+                found.put(cls.source(), 0);
+            }
+        }
+        for (var test : tests) {
+            if (found.containsKey(test)) {
+                continue;
+            }
+            try {
+                if (pattern.matcher(test.read()).find()) {
+                    found.put(test, 1);
+                }
+            } catch (IOException e) {
+                logger.debug("Unable to read test file {}", test, e);
+            }
+        }
+        return found;
+    }
+}
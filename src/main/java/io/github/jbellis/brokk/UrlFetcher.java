@@ -0,0 +1,298 @@
+package io.github.jbellis.brokk;
+
+import io.github.jbellis.brokk.util.HtmlToMarkdown;
+import okhttp3.Cache;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fetches web pages for the Workspace as text, converting HTML to Markdown.
+ * <p>
+ * Responses go through an OkHttp disk cache under .brokk/url-cache, so a page fetched before, in this
+ * session or an earlier one, is revalidated with its ETag or Last-Modified date instead of downloaded
+ * again. The Markdown of recently fetched pages is kept in memory under the same validators, so an
+ * unchanged page isn't converted again either. Bodies are read only up to a size cap, and HTML is parsed
+ * straight from the response stream. {@link #fetchAsync} runs on OkHttp's dispatcher, so several pages
+ * can be fetched at once.
+ * <p>
+ * Every fetcher's client is derived from one shared client, so they all use the same connection pool and
+ * dispatcher and differ only in their cache. {@link #removeProject} closes a project's cache.
+ */
+public class UrlFetcher implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(UrlFetcher.class);
+
+    public static final String CACHE_DIR_NAME = "url-cache";
+    static final long DEFAULT_CACHE_BYTES = 50L << 20;
+    static final int DEFAULT_MAX_BODY_BYTES = 2 << 20;
+    private static final int MAX_CONVERTED_PAGES = 32;
+    private static final String USER_AGENT = "Brokk-Agent/1.0 (ContextTools)";
+
+    private static final Map<Path, UrlFetcher> byProjectRoot = new ConcurrentHashMap<>();
+    private static final OkHttpClient sharedClient = new OkHttpClient.Builder()
+            .connectTimeout(5, TimeUnit.SECONDS)
+            .readTimeout(10, TimeUnit.SECONDS)
+            .followRedirects(true)
+            .build();
+
+    /**
+     * @param truncated true if the body was longer than the size cap and only its start was read
+     * @param cached    true if the body came from the disk cache rather than the network
+     */
+    public record Page(URI uri, String content, boolean truncated, boolean cached) {
+    }
+
+    private final Cache cache;
+    private final OkHttpClient httpClient;
+    private final int maxBodyBytes;
+    // uri and validator -> converted content; access order, guarded by itself
+    private final Map<String, String> converted = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MAX_CONVERTED_PAGES;
+        }
+    };
+
+    UrlFetcher(Path cacheDir, long cacheBytes, int maxBodyBytes) {
+        this.cache = new Cache(cacheDir.toFile(), cacheBytes);
+        this.httpClient = sharedClient.newBuilder().cache(cache).build();
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    /**
+     * @return a builder for a client that shares the fetchers' connection pool and dispatcher
+     */
+    public static OkHttpClient.Builder newClientBuilder() {
+        return sharedClient.newBuilder();
+    }
+
+    /**
+     * @return the shared fetcher for the project rooted at projectRoot
+     */
+    public static UrlFetcher forProject(Path projectRoot) {
+        return byProjectRoot.computeIfAbsent(projectRoot.toAbsolutePath().normalize(),
+                                             root -> new UrlFetcher(root.resolve(".brokk").resolve(CACHE_DIR_NAME), DEFAULT_CACHE_BYTES, DEFAULT_MAX_BODY_BYTES));
+    }
+
+    /**
+     * Forgets the project's fetcher, e.g. when the project is closed, and closes its disk cache.
+     */
+    public static void removeProject(Path projectRoot) {
+        var fetcher = byProjectRoot.remove(projectRoot.toAbsolutePath().normalize());
+        if (fetcher != null) {
+            fetcher.close();
+        }
+    }
+
+    /**
+     * Closes the disk cache; the fetcher should not be used afterwards.
+     */
+    @Override
+    public void close() {
+        try {
+            cache.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close URL cache {}", cache.directory(), e);
+        }
+    }
+
+    public Page fetch(URI uri) throws IOException {
+        try (var response = httpClient.newCall(request(uri)).execute()) {
+            return read(uri, response);
+        }
+    }
+
+    /**
+     * Starts fetching uri in the background. The future fails with an IOException if the fetch does.
+     */
+    public CompletableFuture<Page> fetchAsync(URI uri) {
+        var future = new CompletableFuture<Page>();
+        Request request;
+        try {
+            request = request(uri);
+        } catch (IOException e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+        httpClient.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(@NotNull Call call, @NotNull IOException e) {
+                future.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(@NotNull Call call, @NotNull Response response) {
+                try (response) {
+                    future.complete(read(uri, response));
+                } catch (Throwable th) {
+                    future.completeExceptionally(th);
+                }
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Fetches the uris concurrently.
+     *
+     * @return the pages, in the order of the uris
+     */
+    public List<Page> fetchAll(List<URI> uris) throws IOException {
+        var futures = uris.stream().map(this::fetchAsync).toList();
+        try {
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while fetching " + uris);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException(e.getCause());
+        }
+        return futures.stream().map(CompletableFuture::join).toList();
+    }
+
+    private static Request request(URI uri) throws IOException {
+        var scheme = uri.getScheme();
+        if (!"http".equalsIgnoreCase(scheme) && !"https".equalsIgnoreCase(scheme)) {
+            throw new IOException("Unsupported URL scheme: " + uri);
+        }
+        return new Request.Builder()
+                .url(uri.toURL())
+                .header("User-Agent", USER_AGENT)
+                .build();
+    }
+
+    private Page read(URI uri, Response response) throws IOException {
+        if (!response.isSuccessful()) {
+            throw new IOException("HTTP %d %s fetching %s".formatted(response.code(), response.message(), uri));
+        }
+        var networkResponse = response.networkResponse();
+        boolean cached = networkResponse == null || networkResponse.code() == HttpURLConnection.HTTP_NOT_MODIFIED;
+
+        var validator = response.header("ETag");
+        if (validator == null) {
+            validator = response.header("Last-Modified");
+        }
+        var convertedKey = validator == null ? null : uri + "\n" + validator;
+        if (convertedKey != null) {
+            String content;
+            synchronized (converted) {
+                content = converted.get(convertedKey);
+            }
+            if (content != null) {
+                logger.debug("Reusing converted content of {} ({})", uri, validator);
+                return new Page(uri, content, false, cached);
+            }
+        }
+
+        var body = response.body();
+        var contentType = body.contentType();
+        var charset = contentType == null ? null : contentType.charset();
+        var in = new CappedInputStream(body.byteStream(), maxBodyBytes);
+        String content;
+        if (contentType != null && contentType.subtype().contains("html")) {
+            content = HtmlToMarkdown.convertToMarkdown(in, charset == null ? null : charset.name(), uri.toString());
+        } else {
+            var text = new String(in.readAllBytes(), charset == null ? StandardCharsets.UTF_8 : charset);
+            content = HtmlToMarkdown.maybeConvertToMarkdown(text);
+        }
+        logger.debug("Fetched {} ({}, {} bytes read{})", uri, cached ? "cached" : "network", in.bytesRead(), in.truncated() ? ", truncated" : "");
+
+        // only complete pages are worth reusing
+        if (convertedKey != null && !in.truncated()) {
+            synchronized (converted) {
+                converted.put(convertedKey, content);
+            }
+        }
+        return new Page(uri, content, in.truncated(), cached);
+    }
+
+    /**
+     * Reports end of stream after maxBytes, and whether there was more to read.
+     */
+    private static final class CappedInputStream extends FilterInputStream {
+        private final long maxBytes;
+        private long bytesRead;
+        private boolean truncated;
+
+        CappedInputStream(InputStream in, long maxBytes) {
+            super(in);
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (atCap()) {
+                return -1;
+            }
+            int b = super.read();
+            if (b >= 0) {
+                bytesRead++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (atCap()) {
+                return -1;
+            }
+            int n = super.read(b, off, (int) Math.min(len, maxBytes - bytesRead));
+            if (n > 0) {
+                bytesRead += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(Math.min(n, maxBytes - bytesRead));
+            bytesRead += skipped;
+            return skipped;
+        }
+
+        private boolean atCap() throws IOException {
+            if (bytesRead < maxBytes) {
+                return false;
+            }
+            if (!truncated && super.read() >= 0) {
+                truncated = true;
+            }
+            return true;
+        }
+
+        long bytesRead() {
+            return bytesRead;
+        }
+
+        boolean truncated() {
+            return truncated;
+        }
+    }
+}
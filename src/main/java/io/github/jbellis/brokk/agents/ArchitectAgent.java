@@ -69,6 +69,10 @@ public class ArchitectAgent {
 
     private TokenUsage totalUsage = new TokenUsage(0, 0);
     private final AtomicInteger searchAgentId = new AtomicInteger(1);
+    // shared by this run's SearchAgents, so they share one limit on summaries in flight
+    private final SearchSummarizer searchSummarizer = new SearchSummarizer();
+    // search tool results, shared by this run's SearchAgents and our own analyzer tool calls
+    private final SearchToolCache searchToolCache;
 
     /**
      * Constructs a BrokkAgent that can handle multi-step tasks and sub-tasks.
@@ -82,6 +86,7 @@ public class ArchitectAgent {
         this.goal = Objects.requireNonNull(goal, "goal cannot be null");
         this.options = Objects.requireNonNull(options, "options cannot be null");
         this.io = contextManager.getIo();
+        this.searchToolCache = new SearchToolCache(() -> contextManager.getAnalyzerWrapper().getNonBlocking());
     }
 
     /**
@@ -209,7 +214,8 @@ public class ArchitectAgent {
         logger.debug("callSearchAgent invoked with query: {}", query);
 
         // Instantiate and run SearchAgent
-        var searchAgent = new SearchAgent(query, contextManager, model, toolRegistry, searchAgentId.getAndIncrement());
+        var searchAgent = new SearchAgent(query, contextManager, model, toolRegistry, searchAgentId.getAndIncrement(),
+                                          searchSummarizer, searchToolCache);
         var result = searchAgent.execute();
         if (result.stopDetails().reason() == SessionResult.StopReason.LLM_ERROR) {
             throw new FatalLlmException(result.stopDetails().explanation());
@@ -359,7 +365,7 @@ public class ArchitectAgent {
                 return Integer.compare(rank1, rank2);
             });
             for (var req : otherReqs) {
-                var toolResult = toolRegistry.executeTool(this, req);
+                var toolResult = searchToolCache.execute(toolRegistry, this, req);
                 architectMessages.add(ToolExecutionResultMessage.from(req, toolResult.resultText()));
                 logger.debug("Executed tool '{}' => result: {}", req.name(), toolResult.resultText());
             }
@@ -419,6 +425,9 @@ public class ArchitectAgent {
                     var errorMessage = "Fatal LLM error executing Code Agent: %s".formatted(e.getMessage());
                     io.systemOutput(errorMessage);
                     return;
+                } finally {
+                    // the files have (probably) changed, so earlier search results may be stale
+                    searchToolCache.invalidate();
                 }
 
                 architectMessages.add(ToolExecutionResultMessage.from(req, toolResult.resultText()));
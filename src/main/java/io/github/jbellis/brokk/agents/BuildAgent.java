@@ -11,6 +11,9 @@ import dev.langchain4j.model.chat.request.ToolChoice;
 import io.github.jbellis.brokk.ContextManager;
 import io.github.jbellis.brokk.Llm;
 import io.github.jbellis.brokk.Project;
+import io.github.jbellis.brokk.TestImpact;
+import io.github.jbellis.brokk.analyzer.CodeUnit;
+import io.github.jbellis.brokk.analyzer.IAnalyzer;
 import io.github.jbellis.brokk.analyzer.ProjectFile;
 import io.github.jbellis.brokk.git.GitRepo;
 import io.github.jbellis.brokk.tools.ToolExecutionResult;
@@ -25,6 +28,9 @@ import org.jetbrains.annotations.Nullable;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
@@ -51,6 +57,7 @@ public class BuildAgent {
     private String abortReason = null;
     // Field to store directories to exclude from code intelligence
     private List<String> currentExcludedDirectories = new ArrayList<>();
+    private BuildSystem detectedSystem = BuildSystem.UNKNOWN;
 
     public BuildAgent(Project project, Llm llm, ToolRegistry toolRegistry) {
         this.project = project;
@@ -84,7 +91,7 @@ public class BuildAgent {
                 .filter(f -> f.getParent().equals(Path.of("")))
                 .map(ProjectFile::toString)
                 .toList();
-        BuildSystem detectedSystem = BuildToolConventions.determineBuildSystem(files);
+        this.detectedSystem = BuildToolConventions.determineBuildSystem(files);
         this.currentExcludedDirectories = new ArrayList<>(BuildToolConventions.getDefaultExcludes(detectedSystem));
         logger.info("Determined build system: {}. Initial excluded directories: {}", detectedSystem, this.currentExcludedDirectories);
 
@@ -248,6 +255,12 @@ public class BuildAgent {
             @P("List of identified third-party dependencies") List<String> dependencies,
             @P("Command to build or lint incrementally, e.g. mvn compile, cargo check, pyflakes .") String buildLintCommand,
             @P("Command to run all tests") String testAllCommand,
+            @P("""
+               Command template to run only some test classes. Use {{classes}} for simple class names,
+               {{fqclasses}} for fully qualified class names, or {{files}} for test file paths; each is a
+               space-separated list unless a separator follows a bar, e.g. mvn test -Dtest={{classes|,}}.
+               Leave empty if the build can't run individual tests.
+               """) String testSomeCommand,
             @P("""
                Instructions and details about the build process, including environment configurations
                and any idiosyncracies observed. Include information on how to run other test configurations, especially
@@ -264,7 +277,11 @@ public class BuildAgent {
                     .map(Path::toString)
                     .collect(Collectors.toSet());
 
-            this.reportedDetails = new BuildDetails(buildfiles, dependencies, buildLintCommand, testAllCommand, instructions, finalExcludes);
+            if (testSomeCommand == null || testSomeCommand.isBlank()) {
+                testSomeCommand = BuildToolConventions.getDefaultTestSomeCommand(detectedSystem);
+            }
+
+            this.reportedDetails = new BuildDetails(buildfiles, dependencies, buildLintCommand, testAllCommand, testSomeCommand, instructions, finalExcludes);
             logger.debug("reportBuildDetails tool executed, details captured. Final excluded directories: {}", finalExcludes);
             return "Build details report received and processed.";
         }
@@ -315,11 +332,17 @@ public class BuildAgent {
         return trimmedText;
     }
 
-    /** Holds semi-structured information about a project's build process */
+    /**
+     * Holds semi-structured information about a project's build process
+     *
+     * @param testSomeCommand template for running only some tests; see
+     *                        {@link BuildToolConventions#interpolateTestSomeCommand}. Empty if unknown.
+     */
     public record BuildDetails(List<String> buildFiles,
                                List<String> dependencies,
                                String buildLintCommand,
                                String testAllCommand,
+                               String testSomeCommand,
                                String instructions,
                                Set<String> excludedDirectories)
     {
@@ -328,11 +351,13 @@ public class BuildAgent {
             Objects.requireNonNull(dependencies);
             Objects.requireNonNull(buildLintCommand);
             Objects.requireNonNull(testAllCommand);
+            // absent from details saved before it was introduced
+            testSomeCommand = testSomeCommand == null ? "" : testSomeCommand;
             Objects.requireNonNull(instructions);
             Objects.requireNonNull(excludedDirectories);
         }
 
-        public static final BuildDetails EMPTY = new BuildDetails(List.of(), List.of(), "", "", "", Set.of());
+        public static final BuildDetails EMPTY = new BuildDetails(List.of(), List.of(), "", "", "", "", Set.of());
     }
 
     /**
@@ -420,4 +445,67 @@ public class BuildAgent {
             return suggestedCommand;
         }, cm.getBackgroundTasks());
     }
+
+    /**
+     * Builds a command that runs only the tests affected by the changed files: the changed files that are
+     * tests themselves, plus the tests that {@link TestImpact} finds reaching the rest.
+     *
+     * @param changedFiles files changed by the current session
+     * @return the command, or null if BuildDetails has no test-some command or no tests are affected
+     */
+    static @Nullable String determineAffectedTestsCommand(ContextManager cm, Collection<ProjectFile> changedFiles) throws InterruptedException {
+        var template = cm.getProject().getBuildDetails().testSomeCommand();
+        if (template.isBlank()) {
+            return null;
+        }
+
+        var analyzer = cm.getAnalyzer();
+        var testFiles = cm.getTestFiles();
+        var tests = Set.copyOf(testFiles);
+        var affected = new LinkedHashSet<ProjectFile>();
+        var changedCode = new HashSet<CodeUnit>();
+        for (var file : changedFiles) {
+            if (tests.contains(file)) {
+                affected.add(file);
+            } else {
+                changedCode.addAll(declarationsIn(analyzer, file));
+            }
+        }
+        if (!changedCode.isEmpty()) {
+            TestImpact.impactedTests(analyzer, changedCode, testFiles).forEach(t -> affected.add(t.file()));
+        }
+        if (affected.isEmpty()) {
+            return null;
+        }
+
+        var classes = new ArrayList<String>();
+        var fqClasses = new ArrayList<String>();
+        for (var file : affected) {
+            var topLevel = declarationsIn(analyzer, file).stream()
+                    .filter(cu -> cu.isClass() && !cu.shortName().contains("$") && !cu.shortName().contains("."))
+                    .sorted()
+                    .toList();
+            if (topLevel.isEmpty()) {
+                // not analyzed yet, e.g. a test created in this session; go by the file name
+                var name = file.getFileName();
+                var dot = name.lastIndexOf('.');
+                var stem = dot > 0 ? name.substring(0, dot) : name;
+                classes.add(stem);
+                fqClasses.add(stem);
+            } else {
+                topLevel.forEach(cu -> {
+                    classes.add(cu.shortName());
+                    fqClasses.add(cu.fqName());
+                });
+            }
+        }
+        var files = affected.stream().map(ProjectFile::toString).toList();
+        var command = BuildToolConventions.interpolateTestSomeCommand(template, classes, fqClasses, files);
+        logger.debug("{} affected test files for {} changed files: {}", affected.size(), changedFiles.size(), command);
+        return command;
+    }
+
+    private static Set<CodeUnit> declarationsIn(IAnalyzer analyzer, ProjectFile file) {
+        return analyzer.isEmpty() ? Set.of() : analyzer.getDeclarationsInFile(file);
+    }
 }
@@ -241,7 +241,7 @@ public class CodeAgent {
 
             // Attempt build/verification
             try {
-                buildError = attemptBuildVerification(verificationCommandFuture, contextManager, io);
+                buildError = attemptBuildVerification(verificationCommandFuture, originalContents.keySet(), contextManager, io);
                 blocksAppliedWithoutBuild = 0; // reset after each build attempt
             } catch (InterruptedException e) {
                 logger.debug("CodeAgent interrupted during build verification.");
@@ -554,11 +554,28 @@ public class CodeAgent {
     /**
      * Runs the build verification command (once available) and appends any build error text to buildErrors list.
      * Returns empty string if build is successful, error message otherwise.
+     * <p>
+     * In {@link Project.VerificationMode#AFFECTED_TESTS} mode, first runs only the tests affected by the files
+     * changed so far, and runs the full verification command only as a final pass once those pass.
      */
     private static String attemptBuildVerification(CompletableFuture<String> verificationCommandFuture,
+                                                   Set<ProjectFile> changedFiles,
                                                    ContextManager contextManager,
                                                    IConsoleIO io) throws InterruptedException
     {
+        if (contextManager.getProject().getVerificationMode() == Project.VerificationMode.AFFECTED_TESTS) {
+            var affectedCommand = BuildAgent.determineAffectedTestsCommand(contextManager, changedFiles);
+            if (affectedCommand == null) {
+                logger.debug("No affected tests to run for {}", changedFiles);
+            } else {
+                var affectedError = checkBuild(affectedCommand, contextManager, io);
+                if (!affectedError.isEmpty()) {
+                    return affectedError;
+                }
+                io.llmOutput("\nAffected tests passed; running full verification as a final pass", ChatMessageType.CUSTOM);
+            }
+        }
+
         String verificationCommand;
         try {
             verificationCommand = verificationCommandFuture.get(5, TimeUnit.SECONDS);
@@ -668,21 +685,23 @@ public class CodeAgent {
         }
 
         io.llmOutput("\nRunning verification command: " + verificationCommand, ChatMessageType.CUSTOM);
+        long startTime = System.currentTimeMillis();
         var result = Environment.instance.captureShellCommand(verificationCommand, cm.getProject().getRoot());
-        logger.debug("Verification command result: {}", result);
+        var elapsed = "%.1fs".formatted((System.currentTimeMillis() - startTime) / 1000.0);
+        logger.debug("Verification command result after {}: {}", elapsed, result);
 
         if (result.error() == null) {
-            io.llmOutput("\n## Verification successful", ChatMessageType.CUSTOM);
+            io.llmOutput("\n## Verification successful (%s)".formatted(elapsed), ChatMessageType.CUSTOM);
             return "";
         }
 
         // Build failed
         io.llmOutput("""
-                     \n**Verification Failed:** %s
+                     \n**Verification Failed** (%s): %s
                      ```bash
                      %s
                      ```
-                     """.stripIndent().formatted(result.error(), result.output()), ChatMessageType.CUSTOM);
+                     """.stripIndent().formatted(elapsed, result.error(), result.output()), ChatMessageType.CUSTOM);
         // Add the combined error and output to the history for the next request
         return result.error() + "\n\n" + result.output();
     }
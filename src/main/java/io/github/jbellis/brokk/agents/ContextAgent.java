@@ -39,6 +39,7 @@ public class ContextAgent {
     private final IConsoleIO io;
     private final IAnalyzer analyzer;
     private final boolean deepScan;
+    private final FileSummaryStore summaryStore;
 
     // if the entire project fits in the Skip Pruning budget, just include it all and call it good
     private final int skipPruningBudget;
@@ -57,6 +58,7 @@ public class ContextAgent {
         this.io = contextManager.getIo();
         this.analyzer = contextManager.getAnalyzer();
         this.deepScan = deepScan;
+        this.summaryStore = FileSummaryStore.forProject(contextManager.getProject().getRoot());
 
         int maxInputTokens = contextManager.getModels().getMaxInputTokens(model);
         this.skipPruningBudget = min(32_000, maxInputTokens / 4);
@@ -162,17 +164,9 @@ public class ContextAgent {
 
         for (var fragment : fragments) {
             if (fragment instanceof ContextFragment.ProjectPathFragment pathFragment) {
-                var file = pathFragment.file();
-                String content = null;
-                try {
-                    content = file.read();
-                } catch (IOException e) {
-                    debug("IOException reading file for token calculation: {}", file, e);
-                }
-                totalTokens += Messages.getApproximateTokens(content);
+                totalTokens += summaryStore.contentTokens(pathFragment.file());
             } else if (fragment instanceof ContextFragment.SkeletonFragment skeletonFragment) {
-                String skeletonsText = String.join("\n", skeletonFragment.skeletons().values());
-                totalTokens += Messages.getApproximateTokens(skeletonsText);
+                totalTokens += summaryStore.tokens(skeletonFragment.skeletons());
             } else {
                 logger.warn("Unhandled ContextFragment type for token calculation: {}", fragment.getClass());
             }
@@ -310,13 +304,13 @@ public class ContextAgent {
             var ac = contextManager.topContext().buildAutoContext(50);
             debug("Non-empty context; using pagerank candidates {}",
                   ac.skeletons().keySet().stream().map(CodeUnit::identifier).collect(Collectors.joining(",")));
-            rawSummaries = ac.skeletons();
+            rawSummaries = selectWithinPruningBudget(ac.skeletons());
         } else {
             // Scan all the files
             rawSummaries = getProjectSummaries(filesToConsider);
         }
 
-        int summaryTokens = Messages.getApproximateTokens(String.join("\n", rawSummaries.values()));
+        int summaryTokens = summaryStore.tokens(rawSummaries);
         debug("Total tokens for {} summaries (from {} files): {}", rawSummaries.size(), filesToConsider.size(), summaryTokens);
 
         boolean withinLimit = deepScan || rawSummaries.size() <= QUICK_TOPK;
@@ -358,9 +352,8 @@ public class ContextAgent {
         var recommendedSummaries = getSummaries(recommendedClasses, false);
 
         // Calculate combined token size
-        int recommendedSummaryTokens = Messages.getApproximateTokens(String.join("\n", recommendedSummaries.values()));
-        var recommendedContentsMap = readFileContents(recommendedFiles);
-        int recommendedContentTokens = Messages.getApproximateTokens(String.join("\n", recommendedContentsMap.values()));
+        int recommendedSummaryTokens = summaryStore.tokens(recommendedSummaries);
+        int recommendedContentTokens = recommendedFiles.stream().mapToInt(summaryStore::contentTokens).sum();
         int totalRecommendedTokens = recommendedSummaryTokens + recommendedContentTokens;
 
         debug("LLM recommended {} classes ({} tokens) and {} files ({} tokens). Total: {} tokens",
@@ -400,15 +393,33 @@ public class ContextAgent {
      * Collect a structural “skeleton” for every top-level class whose source file
      * is in the supplied collection.
      * <p>
-     * We:
-     * 1. Grab the CodeUnits belonging to those files (via the analyzer).
-     * 2. Collapse inner-classes so we only consider the outermost declaration.
-     * 3. Ask the analyzer for a skeleton of each class and keep the non-empty ones.
+     * Skeletons come from the project's FileSummaryStore, so only files that changed since
+     * the last scan are summarized by the analyzer again.
      */
     private Map<CodeUnit, String> getProjectSummaries(Collection<ProjectFile> files) {
-        return files.stream().parallel()
-                .flatMap(f -> analyzer.getSkeletons(f).entrySet().stream())
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (v1, v2) -> v1));
+        int summarizedBefore = summaryStore.summarized();
+        var summaries = summaryStore.skeletons(analyzer, files);
+        debug("Summarized {} of {} files; the rest were unchanged since the last scan",
+              summaryStore.summarized() - summarizedBefore, files.size());
+        return summaries;
+    }
+
+    /**
+     * Pagerank candidates are ranked, so rather than giving up when they are too large to prune, keep
+     * the best-ranked subset that fits the pruning budget.
+     */
+    private Map<CodeUnit, String> selectWithinPruningBudget(Map<CodeUnit, String> rankedSummaries) {
+        var ranked = List.copyOf(rankedSummaries.entrySet());
+        var selected = FileSummaryStore.selectWithinBudget(ranked,
+                                                           e -> summaryStore.tokens(e.getKey(), e.getValue()),
+                                                           budgetPruning);
+        if (selected.size() == ranked.size()) {
+            return rankedSummaries;
+        }
+        debug("Pagerank candidates exceed pruning budget; keeping {} of {}", selected.size(), ranked.size());
+        var result = new LinkedHashMap<CodeUnit, String>();
+        selected.forEach(e -> result.put(e.getKey(), e.getValue()));
+        return result;
     }
 
     private @NotNull Map<CodeUnit, @NotNull String> getSummaries(Collection<CodeUnit> classes, boolean parallel) {
@@ -732,9 +743,8 @@ public class ContextAgent {
             return new RecommendationResult(true, List.of(), "Skipping file content suggestions for non-empty context without analyzer.");
         }
 
-        var contentsMap = readFileContents(filesToConsider);
-        int contentTokens = Messages.getApproximateTokens(String.join("\n", contentsMap.values()));
-        debug("Total tokens for {} files' content: {}", contentsMap.size(), contentTokens);
+        int contentTokens = filesToConsider.stream().parallel().mapToInt(summaryStore::contentTokens).sum();
+        debug("Total tokens for {} files' content: {}", filesToConsider.size(), contentTokens);
 
         // Rule 1: Use all available files if content fits the smallest budget and meet the limit (if not deepScan)
         boolean withinLimit = deepScan || filesToConsider.size() <= QUICK_TOPK; // Use QUICK_TOPK here
@@ -757,6 +767,7 @@ public class ContextAgent {
 
         // Rule 2: Ask LLM to pick relevant files if all content fits the Pruning budget
         if (contentTokens <= budgetPruning) {
+            var contentsMap = readFileContents(filesToConsider);
             var llmRecommendation = askLlmToRecommendContext(List.of(), Map.of(), contentsMap, workspaceRepresentation);
             return createResult(llmRecommendation);
         }
@@ -0,0 +1,458 @@
+package io.github.jbellis.brokk.agents;
+
+import io.github.jbellis.brokk.analyzer.CodeUnit;
+import io.github.jbellis.brokk.analyzer.IAnalyzer;
+import io.github.jbellis.brokk.analyzer.ProjectFile;
+import io.github.jbellis.brokk.util.AtomicWrites;
+import io.github.jbellis.brokk.util.Messages;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Per-file class summaries and token counts for ContextAgent, kept for the life of the project so that
+ * a scan only summarizes the files that changed since the previous one.
+ * <p>
+ * A file's entry is reused while its size and modification time are unchanged; otherwise the file is
+ * hashed, and its summaries are recomputed only if the content hash differs. Tokens are counted once,
+ * when an entry is built, so budget checks add up cached counts instead of tokenizing the summaries again.
+ * <p>
+ * Summaries come from the analyzer, which can lag behind a file that was just edited. When the analyzer
+ * is rebuilt, entries for files modified since the previous analyzer was first seen are dropped, so a
+ * summary taken from a stale analyzer does not outlive it.
+ * <p>
+ * When the analyzer was loaded from or saved to CPGs under .brokk, summaries are also stored one file per
+ * entry under .brokk/summary-cache, keyed by the file's path and content hash and by the CPGs' sizes and
+ * modification times, so they survive a restart that reloads the same CPGs. Entries for other CPGs are
+ * deleted when a new set is first seen.
+ */
+public final class FileSummaryStore {
+    private static final Logger logger = LogManager.getLogger(FileSummaryStore.class);
+
+    public static final String CACHE_DIR_NAME = "summary-cache";
+    private static final String SUFFIX = ".ser";
+    // the cache sits in the project directory, which may come from an untrusted clone, so only the
+    // classes of a summary map are ever deserialized
+    private static final ObjectInputFilter PERSISTED_CLASSES = ObjectInputFilter.Config.createFilter(
+            "maxdepth=8;maxarray=65536;java.util.HashMap;java.util.Map$Entry;java.lang.String;java.lang.Enum;"
+            + "io.github.jbellis.brokk.analyzer.CodeUnit;io.github.jbellis.brokk.analyzer.CodeUnitType;"
+            + "io.github.jbellis.brokk.analyzer.ProjectFile;!*");
+
+    private static final Map<Path, FileSummaryStore> stores = new ConcurrentHashMap<>();
+
+    // budgets are divided into at most this many steps when selecting within them
+    static final int KNAPSACK_RESOLUTION = 2_000;
+
+    /**
+     * One version of a file. skeletons and skeletonTokens are null until summaries are first asked for,
+     * since the content-only path never needs them.
+     */
+    private record Entry(long modifiedMillis,
+                         long size,
+                         String contentHash,
+                         int contentTokens,
+                         Map<CodeUnit, String> skeletons,
+                         Map<CodeUnit, Integer> skeletonTokens)
+    {
+        Entry withSkeletons(Map<CodeUnit, String> skeletons, Map<CodeUnit, Integer> skeletonTokens) {
+            return new Entry(modifiedMillis, size, contentHash, contentTokens, skeletons, skeletonTokens);
+        }
+    }
+
+    private record CountedSkeleton(String skeleton, int tokens) {}
+
+    private final ToIntFunction<String> tokenCounter;
+    private final Path root; // null if summaries are kept in memory only
+    private final Map<ProjectFile, Entry> entries = new ConcurrentHashMap<>();
+    // counts for skeletons obtained outside this store, e.g. the pagerank candidates of a quick scan
+    private final Map<CodeUnit, CountedSkeleton> otherSkeletons = new ConcurrentHashMap<>();
+    // weak, so the store does not keep a replaced analyzer alive; guarded by this
+    private WeakReference<IAnalyzer> currentAnalyzer = new WeakReference<>(null);
+    private long analyzerSeenMillis; // guarded by this
+    private String analyzerIdentity; // of the CPGs behind currentAnalyzer, null if not persisted; guarded by this
+    private final AtomicInteger summarized = new AtomicInteger();
+    private final AtomicInteger reused = new AtomicInteger();
+
+    FileSummaryStore(ToIntFunction<String> tokenCounter) {
+        this(null, tokenCounter);
+    }
+
+    /**
+     * @param root the project root, under whose .brokk directory summaries are persisted; null to keep them in memory only
+     */
+    FileSummaryStore(Path root, ToIntFunction<String> tokenCounter) {
+        this.root = root;
+        this.tokenCounter = tokenCounter;
+    }
+
+    static FileSummaryStore forProject(Path root) {
+        return stores.computeIfAbsent(root, r -> new FileSummaryStore(r, Messages::getApproximateTokens));
+    }
+
+    /**
+     * Forgets the project's store, e.g. when the project is closed. Persisted summaries stay on disk.
+     */
+    public static void removeProject(Path root) {
+        stores.remove(root);
+    }
+
+    /**
+     * @return the skeletons of every class in the given files, summarizing only files not seen in this version
+     */
+    Map<CodeUnit, String> skeletons(IAnalyzer analyzer, Collection<ProjectFile> files) {
+        var identity = dropIfAnalyzerChanged(analyzer);
+        return files.stream().parallel()
+                .flatMap(f -> skeletons(analyzer, identity, f).entrySet().stream())
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (v1, v2) -> v1));
+    }
+
+    private Map<CodeUnit, String> skeletons(IAnalyzer analyzer, String identity, ProjectFile file) {
+        var entry = current(file);
+        if (entry == null) {
+            // unreadable; summarize without caching
+            return analyzer.getSkeletons(file);
+        }
+        if (entry.skeletons() != null) {
+            reused.incrementAndGet();
+            return entry.skeletons();
+        }
+
+        var persisted = identity == null ? null : persistedPath(identity, file, entry.contentHash());
+        var skeletons = persisted == null ? null : readPersisted(persisted, file);
+        if (skeletons != null) {
+            reused.incrementAndGet();
+        } else {
+            summarized.incrementAndGet();
+            skeletons = Map.copyOf(analyzer.getSkeletons(file));
+            if (persisted != null) {
+                writePersisted(persisted, skeletons);
+            }
+        }
+        var tokens = new HashMap<CodeUnit, Integer>();
+        skeletons.forEach((cu, skeleton) -> tokens.put(cu, tokenCounter.applyAsInt(skeleton)));
+        // if the file changed again meanwhile, the newer entry wins
+        entries.replace(file, entry, entry.withSkeletons(skeletons, Map.copyOf(tokens)));
+        return skeletons;
+    }
+
+    /**
+     * @return the approximate token count of the file's full text, or 0 if it cannot be read
+     */
+    int contentTokens(ProjectFile file) {
+        var entry = current(file);
+        return entry == null ? 0 : entry.contentTokens();
+    }
+
+    /**
+     * @return the approximate token count of a class skeleton, from the cache when it holds this same text
+     */
+    int tokens(CodeUnit cu, String skeleton) {
+        var entry = entries.get(cu.source());
+        if (entry != null && entry.skeletons() != null && skeleton.equals(entry.skeletons().get(cu))) {
+            return entry.skeletonTokens().get(cu);
+        }
+        var counted = otherSkeletons.get(cu);
+        if (counted != null && counted.skeleton().equals(skeleton)) {
+            return counted.tokens();
+        }
+        int tokens = tokenCounter.applyAsInt(skeleton);
+        otherSkeletons.put(cu, new CountedSkeleton(skeleton, tokens));
+        return tokens;
+    }
+
+    int tokens(Map<CodeUnit, String> skeletons) {
+        return skeletons.entrySet().stream()
+                .mapToInt(e -> tokens(e.getKey(), e.getValue()))
+                .sum();
+    }
+
+    int summarized() {
+        return summarized.get();
+    }
+
+    int reused() {
+        return reused.get();
+    }
+
+    /**
+     * @return the entry for the file's current content, rebuilt if the content changed, or null if it cannot be read
+     */
+    private Entry current(ProjectFile file) {
+        var path = file.absPath();
+        long modified;
+        long size;
+        try {
+            modified = Files.getLastModifiedTime(path).toMillis();
+            size = Files.size(path);
+        } catch (IOException e) {
+            logger.debug("Cannot stat {}", file, e);
+            entries.remove(file);
+            return null;
+        }
+
+        var entry = entries.get(file);
+        if (entry != null && entry.modifiedMillis() == modified && entry.size() == size) {
+            return entry;
+        }
+
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(path);
+        } catch (IOException e) {
+            logger.debug("Cannot read {}", file, e);
+            entries.remove(file);
+            return null;
+        }
+        var hash = sha256(bytes);
+        Entry updated;
+        if (entry != null && entry.contentHash().equals(hash)) {
+            // touched but not changed
+            updated = new Entry(modified, size, hash, entry.contentTokens(), entry.skeletons(), entry.skeletonTokens());
+        } else {
+            var tokens = tokenCounter.applyAsInt(new String(bytes, StandardCharsets.UTF_8));
+            updated = new Entry(modified, size, hash, tokens, null, null);
+        }
+        entries.put(file, updated);
+        return updated;
+    }
+
+    /**
+     * @return the identity of the CPGs behind the analyzer, or null if its summaries are not persisted
+     */
+    private synchronized String dropIfAnalyzerChanged(IAnalyzer analyzer) {
+        if (analyzer == currentAnalyzer.get()) {
+            return analyzerIdentity;
+        }
+        if (analyzerSeenMillis > 0) {
+            // the old analyzer may have summarized these before it saw their latest edits
+            var since = analyzerSeenMillis;
+            int before = entries.size();
+            entries.values().removeIf(e -> e.modifiedMillis() >= since);
+            logger.debug("Analyzer was rebuilt; dropped {} of {} file summaries", before - entries.size(), before);
+        }
+        currentAnalyzer = new WeakReference<>(analyzer);
+        analyzerSeenMillis = System.currentTimeMillis();
+        analyzerIdentity = cpgIdentity(analyzer);
+        if (analyzerIdentity != null) {
+            deleteOtherIdentities(analyzerIdentity);
+        }
+        return analyzerIdentity;
+    }
+
+    /**
+     * The analyzer's summaries are fixed by the CPGs it was loaded from or saved to, so their sizes and
+     * modification times identify them across restarts. Analyzers that are rebuilt from the sources on
+     * every start have no such identity.
+     *
+     * @return the identity, or null if summaries from this analyzer should not be persisted
+     */
+    private String cpgIdentity(IAnalyzer analyzer) {
+        if (root == null || !isCpg(analyzer)) {
+            return null;
+        }
+        var brokkDir = root.resolve(".brokk");
+        var cpgs = new ArrayList<Path>();
+        try {
+            if (Files.isRegularFile(brokkDir.resolve("joern.cpg"))) {
+                cpgs.add(brokkDir.resolve("joern.cpg"));
+            }
+            if (Files.isDirectory(brokkDir.resolve("cpg"))) {
+                try (var stream = Files.list(brokkDir.resolve("cpg"))) {
+                    stream.filter(p -> p.getFileName().toString().endsWith(".cpg")).forEach(cpgs::add);
+                }
+            }
+            if (cpgs.isEmpty()) {
+                return null;
+            }
+            cpgs.sort(Comparator.naturalOrder());
+            // the root too, since persisted CodeUnits refer to their files by absolute path
+            var identity = new StringBuilder(root.toString()).append('\0').append(analyzer.getClass().getName());
+            for (var cpg : cpgs) {
+                identity.append('\0').append(brokkDir.relativize(cpg))
+                        .append('\0').append(Files.size(cpg))
+                        .append('\0').append(Files.getLastModifiedTime(cpg).toMillis());
+            }
+            return sha256(identity.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            logger.debug("Cannot identify the CPGs under {}; summaries will not be persisted", brokkDir, e);
+            return null;
+        }
+    }
+
+    private static boolean isCpg(IAnalyzer analyzer) {
+        try {
+            return analyzer.isCpg();
+        } catch (UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    private Path cacheDir() {
+        return root.resolve(".brokk").resolve(CACHE_DIR_NAME);
+    }
+
+    private Path persistedPath(String identity, ProjectFile file, String contentHash) {
+        var key = sha256((file.toString() + '\0' + contentHash).getBytes(StandardCharsets.UTF_8));
+        return cacheDir().resolve(identity).resolve(key + SUFFIX);
+    }
+
+    /**
+     * @return the persisted summaries of file, or null if there are none or they cannot be read
+     */
+    private static Map<CodeUnit, String> readPersisted(Path path, ProjectFile file) {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(path);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            logger.debug("Cannot read persisted summaries {}", path, e);
+            return null;
+        }
+        try (var ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            ois.setObjectInputFilter(PERSISTED_CLASSES);
+            if (!(ois.readObject() instanceof Map<?, ?> map)) {
+                return null;
+            }
+            var skeletons = new HashMap<CodeUnit, String>();
+            for (var e : map.entrySet()) {
+                // also rejects entries written for a project at another path
+                if (!(e.getKey() instanceof CodeUnit cu && cu.source().equals(file) && e.getValue() instanceof String skeleton)) {
+                    logger.debug("Ignoring persisted summaries {} that are not for {}", path, file);
+                    return null;
+                }
+                skeletons.put(cu, skeleton);
+            }
+            return Map.copyOf(skeletons);
+        } catch (IOException | ClassNotFoundException | IllegalArgumentException e) {
+            // e.g. written by a version whose classes no longer match; it is summarized again
+            logger.debug("Cannot restore persisted summaries {}", path, e);
+            return null;
+        }
+    }
+
+    private static void writePersisted(Path path, Map<CodeUnit, String> skeletons) {
+        var bytes = new ByteArrayOutputStream();
+        try {
+            try (var oos = new ObjectOutputStream(bytes)) {
+                oos.writeObject(new HashMap<>(skeletons));
+            }
+            Files.createDirectories(path.getParent());
+            AtomicWrites.atomicOverwrite(path, bytes.toByteArray());
+        } catch (IOException e) {
+            logger.debug("Cannot persist summaries to {}", path, e);
+        }
+    }
+
+    /**
+     * Deletes the summaries persisted for CPGs other than the current ones, which will not be loaded again.
+     */
+    private void deleteOtherIdentities(String identity) {
+        var cacheDir = cacheDir();
+        if (!Files.isDirectory(cacheDir)) {
+            return;
+        }
+        try (var dirs = Files.list(cacheDir)) {
+            for (var dir : dirs.filter(d -> !d.getFileName().toString().equals(identity)).toList()) {
+                try (var files = Files.walk(dir)) {
+                    for (var path : files.sorted(Comparator.reverseOrder()).toList()) {
+                        Files.deleteIfExists(path);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            logger.debug("Cannot delete stale summaries under {}", cacheDir, e);
+        }
+    }
+
+    /**
+     * Chooses the items to keep when {@code ranked} does not fit in {@code budget} tokens, as a 0/1 knapsack
+     * in which each item is worth more the higher it is ranked. This favors the top of the ranking, but will
+     * trade one large item for several smaller ones ranked just below it.
+     * <p>
+     * Costs are rounded up to steps of budget / {@link #KNAPSACK_RESOLUTION} tokens to keep the table small,
+     * so the selection may leave a little of the budget unused but never exceeds it.
+     *
+     * @return the selected items, in their original order
+     */
+    static <T> List<T> selectWithinBudget(List<T> ranked, ToIntFunction<T> cost, int budget) {
+        int n = ranked.size();
+        var costs = new long[n];
+        long total = 0;
+        for (int i = 0; i < n; i++) {
+            costs[i] = cost.applyAsInt(ranked.get(i));
+            total += costs[i];
+        }
+        if (total <= budget) {
+            return ranked;
+        }
+        if (budget <= 0) {
+            return List.of();
+        }
+
+        int step = Math.max(1, budget / KNAPSACK_RESOLUTION);
+        int capacity = budget / step;
+        var weights = new int[n];
+        var best = new long[capacity + 1];
+        var taken = new boolean[n][capacity + 1];
+        for (int i = 0; i < n; i++) {
+            long weight = (costs[i] + step - 1) / step;
+            if (weight > capacity) {
+                weights[i] = capacity + 1;
+                continue;
+            }
+            weights[i] = (int) weight;
+            long value = n - i;
+            for (int c = capacity; c >= weights[i]; c--) {
+                if (best[c - weights[i]] + value > best[c]) {
+                    best[c] = best[c - weights[i]] + value;
+                    taken[i][c] = true;
+                }
+            }
+        }
+
+        var selected = new ArrayList<T>();
+        int c = capacity;
+        for (int i = n - 1; i >= 0; i--) {
+            if (taken[i][c]) {
+                selected.add(ranked.get(i));
+                c -= weights[i];
+            }
+        }
+        Collections.reverse(selected);
+        return selected;
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -10,7 +10,6 @@ import dev.langchain4j.agent.tool.ToolSpecification;
 import dev.langchain4j.data.message.*;
 import dev.langchain4j.model.chat.StreamingChatLanguageModel;
 import dev.langchain4j.model.chat.request.ToolChoice;
-import dev.langchain4j.model.chat.response.ChatResponse;
 import dev.langchain4j.model.output.TokenUsage;
 import io.github.jbellis.brokk.*;
 import io.github.jbellis.brokk.analyzer.CodeUnit;
@@ -26,8 +25,11 @@ import scala.Tuple2;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -52,6 +54,8 @@ public class SearchAgent {
     private final Llm llm;
     private final IConsoleIO io;
     private final ToolRegistry toolRegistry;
+    private final SearchSummarizer summarizer;
+    private final SearchToolCache toolCache;
 
     // Budget and action control state
     private boolean allowSearch;
@@ -69,14 +73,41 @@ public class SearchAgent {
     private final Set<String> toolCallSignatures = new HashSet<>();
     private final Set<String> trackedClassNames = new HashSet<>();
     private CompletableFuture<String> initialContextSummary = null;
+    private int stepCount;
 
     private TokenUsage totalUsage = new TokenUsage(0, 0);
 
+    // Per-stage timings, logged when the search ends. Summaries run on other threads, hence the atomics.
+    private long planningNanos;
+    private long toolNanos;
+    private long summarySlotWaitNanos;
+    private long summaryWaitNanos;
+    private final AtomicLong summarizingNanos = new AtomicLong();
+    private int summariesRequested;
+    private final AtomicInteger summariesRun = new AtomicInteger();
+
     public SearchAgent(String query,
                        ContextManager contextManager,
                        StreamingChatLanguageModel model,
                        ToolRegistry toolRegistry,
                        int ordinal) throws InterruptedException
+    {
+        this(query, contextManager, model, toolRegistry, ordinal, new SearchSummarizer(),
+             new SearchToolCache(() -> contextManager.getAnalyzerWrapper().getNonBlocking()));
+    }
+
+    /**
+     * @param summarizer shared by the SearchAgents of one ArchitectAgent run, so they share its limit on
+     *                   summaries in flight
+     * @param toolCache  shared the same way, so parallel searches don't repeat each other's tool calls
+     */
+    SearchAgent(String query,
+                ContextManager contextManager,
+                StreamingChatLanguageModel model,
+                ToolRegistry toolRegistry,
+                int ordinal,
+                SearchSummarizer summarizer,
+                SearchToolCache toolCache) throws InterruptedException
     {
         this.query = query;
         this.contextManager = contextManager;
@@ -85,6 +116,8 @@ public class SearchAgent {
         this.llm = contextManager.getLlm(model, "Search: " + query);
         this.io = contextManager.getIo();
         this.toolRegistry = toolRegistry;
+        this.summarizer = summarizer;
+        this.toolCache = toolCache;
 
         // Set initial state based on analyzer presence and capabilities
         allowSearch = analyzer.isCpg();      // Needs CPG for searchSymbols, getUsages
@@ -97,46 +130,64 @@ public class SearchAgent {
     }
 
     /**
-     * Finalizes any pending summarizations in the action history by waiting for
-     * CompletableFutures to complete and replacing raw results with learnings.
+     * Replaces raw results with learnings where their summaries are ready. Results from before the
+     * latest step must not be shown to the LLM raw again, so this waits for those summaries; the latest
+     * step's results are shown raw until theirs complete, so planning the next step overlaps with
+     * summarizing them.
      */
-    private void waitForPenultimateSummary() {
-        if (actionHistory.size() <= 1) {
+    private void collectSummaries() {
+        if (actionHistory.isEmpty()) {
             return;
         }
-
-        var step = actionHistory.get(actionHistory.size() - 2);
-        // Already summarized? skip
-        if (step.learnings != null) return;
-
-        // If this step has a summarizeFuture, block for result
-        if (step.summarizeFuture != null) {
+        int latestStep = actionHistory.getLast().step;
+        for (var step : actionHistory) {
+            if (step.summarizeFuture == null || (step.step == latestStep && !step.summarizeFuture.isDone())) {
+                continue;
+            }
+            long start = System.nanoTime();
             try {
-                // Block and assign learnings
-                step.learnings = step.summarizeFuture.get(); // Directly access fields of ToolHistoryEntry
+                step.learnings = step.summarizeFuture.get();
                 logger.debug("Summarization complete for step: {}", step.request.name());
             } catch (ExecutionException e) {
                 logger.error("Error waiting for summary for tool {}: {}", step.request.name(), e.getCause().getMessage(), e.getCause());
                 // Store raw result as learnings on error
-                step.learnings = step.execResult.resultText(); // Use text from execResult
+                step.learnings = step.execResult.resultText();
+            } catch (CancellationException e) {
+                logger.warn("Summary for tool {} was cancelled", step.request.name());
+                step.learnings = step.execResult.resultText();
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
                 logger.warn("Interrupted while waiting for summary for tool {}", step.request.name());
-                // Store raw result if interrupted
-                step.learnings = step.execResult.resultText(); // Use text from execResult
+                // Store raw result if interrupted; the rest are collected next time around
+                step.learnings = step.execResult.resultText();
+                return;
             } finally {
                 step.summarizeFuture = null; // Clear the future once handled
+                summaryWaitNanos += System.nanoTime() - start;
             }
         }
     }
 
     /**
-     * Asynchronously summarizes a raw result using the quick model
+     * Asynchronously summarizes a raw result, or picks up the summary already done or in flight for this
+     * query and result. Blocks while the summarizer is at its limit of summaries in flight.
      */
-    private CompletableFuture<String> summarizeResultAsync(String query, ToolHistoryEntry step)
+    private CompletableFuture<String> summarizeResultAsync(String query, ToolHistoryEntry step) throws InterruptedException
     {
-        // Use supplyAsync to run in background
-        return CompletableFuture.supplyAsync(() -> {
+        summariesRequested++;
+        var key = SearchSummarizer.key(query, step.request.name(), step.execResult.resultText());
+        long submitStart = System.nanoTime();
+        try {
+            return summarizer.submit(key, () -> summarizeResult(query, step));
+        } finally {
+            summarySlotWaitNanos += System.nanoTime() - submitStart;
+        }
+    }
+
+    private String summarizeResult(String query, ToolHistoryEntry step) throws InterruptedException {
+        long start = System.nanoTime();
+        summariesRun.incrementAndGet();
+        try {
             logger.debug("Summarizing result ...");
             // Build short system prompt or messages
             ArrayList<ChatMessage> messages = new ArrayList<>();
@@ -177,18 +228,15 @@ public class SearchAgent {
                     step.execResult.resultText()
             )));
 
-            Llm.StreamingResult result = null;
-            try {
-                result = llm.sendRequest(messages);
-            } catch (InterruptedException e) {
-                throw new RuntimeException(e);
-            }
+            var result = llm.sendCacheableRequest(messages);
             if (result.error() != null) {
-                logger.warn("Summarization failed or was cancelled.");
-                return step.execResult.resultText(); // Return raw result on failure
+                // thrown rather than returning the raw result, so it isn't reused as a summary
+                throw new IllegalStateException("Summarization failed: " + result.error().getMessage(), result.error());
             }
             return result.chatResponse().aiMessage().text();
-        });
+        } finally {
+            summarizingNanos.addAndGet(System.nanoTime() - start);
+        }
     }
 
     /**
@@ -197,6 +245,20 @@ public class SearchAgent {
      * @return The final set of discovered code units
      */
     public SessionResult execute() throws InterruptedException {
+        try {
+            return runSearch();
+        } finally {
+            logger.debug("Search #{} `{}` took {} steps. Planning {} ms, tools {} ms (of which {} ms waiting for a summary slot), "
+                                + "blocked on summaries {} ms; {} of {} summaries computed here, in {} ms of background time; "
+                                + "shared tool cache {} hits, {} misses so far",
+                        ordinal, LogDescription.getShortDescription(query), stepCount,
+                        planningNanos / 1_000_000, toolNanos / 1_000_000, summarySlotWaitNanos / 1_000_000,
+                        summaryWaitNanos / 1_000_000, summariesRun.get(), summariesRequested, summarizingNanos.get() / 1_000_000,
+                        toolCache.hits(), toolCache.misses());
+        }
+    }
+
+    private SessionResult runSearch() throws InterruptedException {
         io.systemOutput("Search Agent engaged: `%s...`".formatted(LogDescription.getShortDescription(query)));
 
         // If context exists, ask LLM to evaluate its relevance and kick off async summary
@@ -264,15 +326,14 @@ public class SearchAgent {
             }
 
             // Finalize summaries before the just-returned result
-            waitForPenultimateSummary();
+            collectSummaries();
 
             // Special handling based on previous steps
             updateActionControlsBasedOnContext();
 
-            updateActionControlsBasedOnContext();
-
             // Decide what action(s) to take for this query
             List<ToolExecutionRequest> toolRequests;
+            long planningStart = System.nanoTime();
             try {
                 toolRequests = determineNextActions();
             } catch (InterruptedException e) {
@@ -280,6 +341,8 @@ public class SearchAgent {
                 // let interrupted() check in next loop handle it
                 Thread.currentThread().interrupt();
                 continue;
+            } finally {
+                planningNanos += System.nanoTime() - planningStart;
             }
 
             if (toolRequests.isEmpty()) {
@@ -303,13 +366,17 @@ public class SearchAgent {
 
             // Execute the requested tools via the registry
             List<ToolHistoryEntry> results;
+            long toolStart = System.nanoTime();
             try {
                 results = executeToolCalls(toolRequests);
             } catch (InterruptedException e) {
                 logger.debug("Caught InterruptedException in executeToolCalls", e);
                 Thread.currentThread().interrupt();
                 continue;
+            } finally {
+                toolNanos += System.nanoTime() - toolStart;
             }
+            stepCount++;
 
             // Add results to history BEFORE checking for termination
             actionHistory.addAll(results);
@@ -344,17 +411,19 @@ public class SearchAgent {
 
             // Wait for initial context summary if it's pending (before the second LLM call)
             if (initialContextSummary != null) {
+                long waitStart = System.nanoTime();
                 try {
                     String summary = initialContextSummary.get();
                     logger.debug("Initial context summary complete.");
                     // Find the initial context entry in knowledge (assuming it's the first one)
                     assert !knowledge.isEmpty() && knowledge.getFirst()._1.equals("Initial context");
                     knowledge.set(0, new Tuple2<>("Initial context summary", summary));
-                } catch (ExecutionException e) {
+                } catch (ExecutionException | CancellationException e) {
                     logger.error("Error waiting for initial context summary", e);
                     // Keep the full context in knowledge if summary fails
                 } finally {
                     initialContextSummary = null; // Ensure this only runs once
+                    summaryWaitNanos += System.nanoTime() - waitStart;
                 }
             }
         }
@@ -391,8 +460,9 @@ public class SearchAgent {
     /**
      * Asynchronously summarizes the initial context evaluation result using the quick model.
      */
-    private CompletableFuture<String> summarizeInitialContextAsync(String query, String initialContextResult) {
-        return CompletableFuture.supplyAsync(() -> {
+    private CompletableFuture<String> summarizeInitialContextAsync(String query, String initialContextResult) throws InterruptedException {
+        var key = SearchSummarizer.key(query, "Initial context", initialContextResult);
+        return summarizer.submit(key, () -> {
             logger.debug("Summarizing initial context relevance...");
             ArrayList<ChatMessage> messages = new ArrayList<>();
             messages.add(new SystemMessage("""
@@ -411,13 +481,11 @@ public class SearchAgent {
                                                  </information>
                                                  """.stripIndent().formatted(query, initialContextResult)));
 
-            ChatResponse response;
-            try {
-                response = llm.sendRequest(messages).chatResponse();
-            } catch (InterruptedException e) {
-                throw new RuntimeException(e);
+            var result = llm.sendRequest(messages);
+            if (result.error() != null) {
+                throw new IllegalStateException("Summarization failed: " + result.error().getMessage(), result.error());
             }
-            return response.aiMessage().text();
+            return result.chatResponse().aiMessage().text();
         });
     }
 
@@ -888,8 +956,8 @@ public class SearchAgent {
                 llmOutput("\n" + explanation);
             }
 
-            ToolExecutionResult result = toolRegistry.executeTool(this, request);
-            var entry = new ToolHistoryEntry(request, result);
+            ToolExecutionResult result = toolCache.execute(toolRegistry, this, request);
+            var entry = new ToolHistoryEntry(stepCount, request, result);
 
             handlePostExecution(entry);
             handleToolExecutionResult(result);
@@ -956,7 +1024,7 @@ public class SearchAgent {
     /**
      * Handles summarization or compression after a tool has executed.
      */
-    private void handlePostExecution(ToolHistoryEntry historyEntry) {
+    private void handlePostExecution(ToolHistoryEntry historyEntry) throws InterruptedException {
         var request = historyEntry.request;
         var execResult = historyEntry.execResult;
 
@@ -1201,13 +1269,15 @@ public class SearchAgent {
     }
 
     private static class ToolHistoryEntry {
+        final int step; // entries from one LLM response share a step
         final ToolExecutionRequest request;
         final ToolExecutionResult execResult;
         String compressedResult; // For searchSymbols/getRelatedClasses non-summarized case
         String learnings; // Summarization result
         CompletableFuture<String> summarizeFuture;
 
-        ToolHistoryEntry(ToolExecutionRequest request, ToolExecutionResult execResult) {
+        ToolHistoryEntry(int step, ToolExecutionRequest request, ToolExecutionResult execResult) {
+            this.step = step;
             this.request = request;
             this.execResult = execResult;
         }
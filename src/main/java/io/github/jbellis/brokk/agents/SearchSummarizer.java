@@ -0,0 +1,112 @@
+package io.github.jbellis.brokk.agents;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs SearchAgent's summaries of large tool results in the background.
+ * <p>
+ * One instance is shared by all the SearchAgents of an ArchitectAgent run, so that together they run at
+ * most {@code maxInFlight} summaries at a time; a search that produces results faster than they can be
+ * summarized waits in {@link #submit} rather than queueing up more LLM requests.
+ * <p>
+ * Summaries are written for a query, so they are keyed by query as well as result, and are reused only
+ * when the same query comes across the same result again, even while the first summary is still in flight.
+ */
+final class SearchSummarizer {
+    private static final Logger logger = LogManager.getLogger(SearchSummarizer.class);
+
+    static final int DEFAULT_MAX_IN_FLIGHT = 4;
+
+    private static final AtomicInteger threadNumber = new AtomicInteger();
+    // unbounded, but each instance's semaphore caps how many of its tasks are running
+    private static final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+        Thread t = Executors.defaultThreadFactory().newThread(r);
+        t.setName("Brokk-Summarizer-" + threadNumber.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Semaphore permits;
+    // content key -> summary, in flight or done; failed summaries are removed so they can be retried
+    private final Map<String, CompletableFuture<String>> summaries = new ConcurrentHashMap<>();
+
+    SearchSummarizer() {
+        this(DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    SearchSummarizer(int maxInFlight) {
+        this.permits = new Semaphore(maxInFlight);
+    }
+
+    /**
+     * @return a key identifying a tool result as seen by a given query
+     */
+    static String key(String query, String toolName, String resultText) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+        for (var part : new String[]{query, toolName, resultText}) {
+            digest.update(part.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Returns the summary for {@code key}, running {@code task} to compute it unless it is already done or
+     * in flight. Blocks while the maximum number of summaries are running.
+     * <p>
+     * The task should throw if it cannot produce a summary, so that a fallback is not reused as one.
+     */
+    CompletableFuture<String> submit(String key, Callable<String> task) throws InterruptedException {
+        var future = new CompletableFuture<String>();
+        var existing = summaries.putIfAbsent(key, future);
+        if (existing != null) {
+            logger.debug("Reusing summary {}", key);
+            return existing;
+        }
+
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            summaries.remove(key, future);
+            future.cancel(false);
+            throw e;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(task.call());
+                } catch (Throwable t) {
+                    summaries.remove(key, future);
+                    future.completeExceptionally(t);
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            permits.release();
+            summaries.remove(key, future);
+            future.completeExceptionally(e);
+            throw e;
+        }
+        return future;
+    }
+}
@@ -0,0 +1,178 @@
+package io.github.jbellis.brokk.agents;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import io.github.jbellis.brokk.analyzer.IAnalyzer;
+import io.github.jbellis.brokk.tools.ToolExecutionResult;
+import io.github.jbellis.brokk.tools.ToolRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Results of the read-only search and analyzer tools, shared by the SearchAgents of one ArchitectAgent
+ * run so that parallel searches asking about the same symbols run each query against the analyzer once.
+ * <p>
+ * Results are keyed by tool name and normalized arguments: the free-text {@code reasoning} is dropped and
+ * lists of strings are sorted and deduplicated, since neither changes what the tool finds. Strings are kept
+ * as given, since some tools (e.g. searchSubstrings) use them verbatim as patterns. A call that matches one
+ * still in flight waits for it instead of running again. Only successful results are kept.
+ * <p>
+ * Each result remembers the analyzer it was computed with and is only reused with that same analyzer, so a
+ * rebuild retires every earlier result. Everything is also dropped by {@link #invalidate} when the caller
+ * knows the files have changed.
+ */
+final class SearchToolCache {
+    private static final Logger logger = LogManager.getLogger(SearchToolCache.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    static final Set<String> CACHEABLE_TOOLS = Set.of("searchSymbols", "getUsages", "getRelatedClasses",
+                                                      "getClassSkeletons", "getClassSources", "getMethodSources",
+                                                      "getCallGraphTo", "getCallGraphFrom", "searchSubstrings",
+                                                      "searchFilenames", "getFileContents", "getFileSummaries");
+
+    private record Cached(IAnalyzer analyzer, CompletableFuture<ToolExecutionResult> future) {}
+
+    private final Supplier<IAnalyzer> currentAnalyzer;
+    private final Map<String, Cached> results = new ConcurrentHashMap<>();
+    private IAnalyzer lastAnalyzer; // the analyzer seen by the previous call; guarded by this
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    /**
+     * @param currentAnalyzer returns the analyzer tools are currently running against, or null if it is not ready
+     */
+    SearchToolCache(Supplier<IAnalyzer> currentAnalyzer) {
+        this.currentAnalyzer = currentAnalyzer;
+    }
+
+    /**
+     * Runs the tool through the registry, or returns the result of an identical call made earlier or
+     * still running. The returned result always carries the caller's own request.
+     */
+    ToolExecutionResult execute(ToolRegistry registry, Object instance, ToolExecutionRequest request) throws InterruptedException {
+        var key = CACHEABLE_TOOLS.contains(request.name()) ? key(request) : null;
+        if (key == null) {
+            return registry.executeTool(instance, request);
+        }
+        var analyzer = currentAnalyzer.get();
+        dropIfAnalyzerChanged(analyzer);
+
+        var created = new Cached(analyzer, new CompletableFuture<>());
+        // a result computed with another analyzer is replaced in the same step that finds it
+        var existing = results.compute(key, (k, old) -> old != null && old.analyzer() == analyzer ? old : created);
+        if (existing == created) {
+            misses.incrementAndGet();
+            try {
+                var result = registry.executeTool(instance, request);
+                if (result.status() != ToolExecutionResult.Status.SUCCESS) {
+                    results.remove(key, created);
+                }
+                created.future().complete(result);
+                return result;
+            } catch (Throwable t) {
+                results.remove(key, created);
+                created.future().completeExceptionally(t);
+                throw t;
+            }
+        }
+
+        ToolExecutionResult shared;
+        try {
+            shared = existing.future().get();
+        } catch (ExecutionException e) {
+            // the first caller failed; run it ourselves rather than rethrowing another agent's error
+            logger.debug("Shared call {} failed, running it again", request.name(), e.getCause());
+            return registry.executeTool(instance, request);
+        }
+        if (shared.status() != ToolExecutionResult.Status.SUCCESS) {
+            return registry.executeTool(instance, request);
+        }
+        hits.incrementAndGet();
+        logger.debug("Reusing result of {} {}", request.name(), request.arguments());
+        return ToolExecutionResult.success(request, shared.resultText());
+    }
+
+    /**
+     * Drops all results, e.g. after the project's files have been edited.
+     */
+    void invalidate() {
+        results.clear();
+    }
+
+    int hits() {
+        return hits.get();
+    }
+
+    int misses() {
+        return misses.get();
+    }
+
+    /**
+     * Frees the results of earlier analyzers. Only memory depends on this; lookups already ignore them.
+     */
+    private synchronized void dropIfAnalyzerChanged(IAnalyzer analyzer) {
+        if (analyzer != lastAnalyzer) {
+            if (lastAnalyzer != null) {
+                logger.debug("Analyzer was rebuilt; dropping cached tool results");
+            }
+            results.values().removeIf(cached -> cached.analyzer() != analyzer);
+            lastAnalyzer = analyzer;
+        }
+    }
+
+    /**
+     * @return the cache key for a request, or null if its arguments cannot be parsed (it is then not cached)
+     */
+    static String key(ToolExecutionRequest request) {
+        JsonNode arguments;
+        try {
+            arguments = objectMapper.readTree(request.arguments());
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+        if (arguments == null || !arguments.isObject()) {
+            return null;
+        }
+
+        var normalized = new TreeMap<String, Object>();
+        var fields = arguments.fields();
+        while (fields.hasNext()) {
+            var field = fields.next();
+            if (field.getKey().equals("reasoning")) {
+                continue;
+            }
+            normalized.put(field.getKey(), normalize(field.getValue()));
+        }
+        try {
+            return request.name() + ":" + objectMapper.writeValueAsString(normalized);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private static Object normalize(JsonNode value) {
+        if (value.isArray()) {
+            var items = new ArrayList<JsonNode>();
+            value.forEach(items::add);
+            if (items.stream().allMatch(JsonNode::isTextual)) {
+                var sorted = new TreeSet<String>();
+                items.forEach(item -> sorted.add(item.asText()));
+                return sorted;
+            }
+        }
+        return value;
+    }
+}
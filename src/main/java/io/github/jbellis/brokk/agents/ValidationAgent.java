@@ -4,20 +4,33 @@ package io.github.jbellis.brokk.agents;
 
 import dev.langchain4j.data.message.SystemMessage;
 import dev.langchain4j.data.message.UserMessage;
+import io.github.jbellis.brokk.ContextFragment;
 import io.github.jbellis.brokk.Llm;
 import io.github.jbellis.brokk.ContextManager;
+import io.github.jbellis.brokk.TestImpact;
+import io.github.jbellis.brokk.analyzer.CodeUnit;
+import io.github.jbellis.brokk.analyzer.IAnalyzer;
 import io.github.jbellis.brokk.analyzer.ProjectFile;
 import io.github.jbellis.brokk.prompts.CodePrompts;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
-import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 /**
  * Agent responsible for identifying relevant test files for a given task.
+ * <p>
+ * The code that the task will change is taken to be the editable files in the Workspace. When the
+ * analyzer knows about that code, {@link TestImpact} finds the tests that reach it statically and the
+ * nearest ones are chosen; the LLM is only asked to break a tie when more tests are equally near than
+ * there is room for. Otherwise, including when no test reaches the code, the LLM picks tests from the
+ * list of all test files.
  */
 public class ValidationAgent {
     private static final Logger logger = LogManager.getLogger(ValidationAgent.class);
@@ -28,6 +41,8 @@ public class ValidationAgent {
     private static final String IRRELEVANT_MARKER = "BRK_IRRELEVANT";
     // attempts for relevance check if LLM response is unclear
     private static final int MAX_RELEVANCE_TRIES = 3;
+    // most test files to add from static test-impact analysis
+    static final int MAX_IMPACTED_TESTS = 8;
 
     public ValidationAgent(ContextManager contextManager) {
         this.contextManager = contextManager;
@@ -46,8 +61,22 @@ public class ValidationAgent {
             return List.of();
         }
 
-        // Step 1: Initial filtering to get potentially relevant files
         var llm = contextManager.getLlm(contextManager.getModels().quickModel(), "TestAgent: " + instructions);
+
+        var analyzer = contextManager.getAnalyzer();
+        var changed = changedCodeUnits(analyzer, allTestFiles);
+        if (!changed.isEmpty()) {
+            var impacted = TestImpact.impactedTests(analyzer, changed, allTestFiles);
+            logger.debug("Test-impact analysis of {} changed declarations found {} test files: {}", changed.size(), impacted.size(), impacted);
+            if (!impacted.isEmpty()) {
+                return selectNearest(impacted, instructions, llm);
+            }
+            logger.debug("No tests reach the changed code; asking the LLM for relevant tests");
+        } else {
+            logger.debug("No analyzed code in the editable files; asking the LLM for relevant tests");
+        }
+
+        // Step 1: Initial filtering to get potentially relevant files
         var potentiallyRelevantFiles = getPotentiallyRelevantFiles(allTestFiles, instructions, llm);
         if (potentiallyRelevantFiles.isEmpty()) {
             logger.debug("Initial filtering found no potentially relevant test files.");
@@ -62,6 +91,48 @@ public class ValidationAgent {
         return relevantFiles;
     }
 
+    /**
+     * @return the declarations in the Workspace's editable files, other than tests, that the analyzer knows about
+     */
+    private Set<CodeUnit> changedCodeUnits(IAnalyzer analyzer, List<ProjectFile> allTestFiles) {
+        if (analyzer.isEmpty()) {
+            return Set.of();
+        }
+        var tests = Set.copyOf(allTestFiles);
+        var changed = new HashSet<CodeUnit>();
+        contextManager.topContext().editableFiles()
+                .map(ContextFragment.ProjectPathFragment::file)
+                .filter(file -> !tests.contains(file))
+                .forEach(file -> changed.addAll(analyzer.getDeclarationsInFile(file)));
+        return changed;
+    }
+
+    /**
+     * Takes the impacted tests nearest first, up to {@link #MAX_IMPACTED_TESTS}. If the tests at the
+     * distance where the limit is reached don't all fit, the LLM picks among them.
+     */
+    private List<ProjectFile> selectNearest(List<TestImpact.ImpactedTest> impacted, String instructions, Llm llm) throws InterruptedException {
+        var byDistance = impacted.stream()
+                .collect(Collectors.groupingBy(TestImpact.ImpactedTest::distance,
+                                               TreeMap::new,
+                                               Collectors.mapping(TestImpact.ImpactedTest::file, Collectors.toList())));
+        var selected = new ArrayList<ProjectFile>();
+        for (var tied : byDistance.values()) {
+            int room = MAX_IMPACTED_TESTS - selected.size();
+            if (tied.size() <= room) {
+                selected.addAll(tied);
+                continue;
+            }
+            logger.debug("{} test files tied for {} remaining slots; asking the LLM to choose", tied.size(), room);
+            var preferred = getPotentiallyRelevantFiles(tied, instructions, llm);
+            var ordered = new ArrayList<>(preferred);
+            tied.stream().filter(f -> !preferred.contains(f)).forEach(ordered::add);
+            selected.addAll(ordered.subList(0, room));
+            break;
+        }
+        return selected;
+    }
+
     /**
      * Step 1: Asks the LLM to identify which test files from a list MIGHT be relevant.
      */
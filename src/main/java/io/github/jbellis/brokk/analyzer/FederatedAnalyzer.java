@@ -0,0 +1,247 @@
+package io.github.jbellis.brokk.analyzer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import scala.Tuple2;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Answers IAnalyzer queries across several per-module analyzers ("shards") of one project.
+ * <p>
+ * Questions about a file go to the shard whose module contains it. Questions about a class go to the
+ * shard that declares it, since other shards may only hold an external stub for it. Everything else
+ * (uses, call graphs, searches) is asked of every shard and the answers are merged.
+ * <p>
+ * Each shard only sees its own module's sources, so call and type edges that cross module
+ * boundaries are resolved only as far as each module's own CPG resolved them.
+ */
+public class FederatedAnalyzer implements IAnalyzer, AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(FederatedAnalyzer.class);
+
+    /**
+     * @param moduleRoot absolute path of the module's source root
+     */
+    public record Shard(Path moduleRoot, IAnalyzer analyzer) {
+    }
+
+    private final List<Shard> shards;
+
+    public FederatedAnalyzer(List<Shard> shards) {
+        assert !shards.isEmpty();
+        // deepest modules first, so the first shard containing a file is its owner
+        this.shards = shards.stream()
+                .sorted(Comparator.comparingInt((Shard s) -> s.moduleRoot().getNameCount()).reversed())
+                .toList();
+    }
+
+    public List<Shard> getShards() {
+        return shards;
+    }
+
+    /**
+     * @return the analyzer for the module that contains the file
+     */
+    public Optional<IAnalyzer> shardFor(ProjectFile file) {
+        var path = file.absPath();
+        return shards.stream()
+                .filter(s -> path.startsWith(s.moduleRoot()))
+                .map(Shard::analyzer)
+                .findFirst();
+    }
+
+    /**
+     * @return the analyzer for the module that declares the class
+     */
+    private Optional<IAnalyzer> shardForClass(String fqcn) {
+        return shards.stream()
+                .map(Shard::analyzer)
+                .filter(a -> a.getFileFor(fqcn).isPresent())
+                .findFirst();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return shards.stream().allMatch(s -> s.analyzer().isEmpty());
+    }
+
+    @Override
+    public boolean isCpg() {
+        return true;
+    }
+
+    @Override
+    public List<CodeUnit> getUses(String symbol) {
+        var results = new LinkedHashSet<CodeUnit>();
+        IllegalArgumentException notFound = null;
+        int found = 0;
+        for (var shard : shards) {
+            try {
+                results.addAll(shard.analyzer().getUses(symbol));
+                found++;
+            } catch (IllegalArgumentException e) {
+                // the symbol is not in this module
+                notFound = e;
+            }
+        }
+        if (found == 0 && notFound != null) {
+            throw notFound;
+        }
+        return List.copyOf(results);
+    }
+
+    /**
+     * Runs pagerank in each shard that contains at least one seed class (or in every shard, if none do)
+     * and merges the scores.
+     */
+    @Override
+    public List<Tuple2<CodeUnit, Double>> getPagerank(Map<String, Double> seedClassWeights, int k, boolean reversed) {
+        var seeded = shards.stream()
+                .map(Shard::analyzer)
+                .filter(a -> seedClassWeights.keySet().stream().anyMatch(seed -> a.getFileFor(seed).isPresent()))
+                .toList();
+        var participants = seeded.isEmpty() ? shards.stream().map(Shard::analyzer).toList() : seeded;
+
+        var scores = new HashMap<CodeUnit, Double>();
+        for (var analyzer : participants) {
+            for (var result : analyzer.getPagerank(seedClassWeights, k, reversed)) {
+                scores.merge(result._1(), result._2(), Double::sum);
+            }
+        }
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<CodeUnit, Double>comparingByValue().reversed())
+                .limit(k)
+                .map(e -> new Tuple2<>(e.getKey(), e.getValue()))
+                .toList();
+    }
+
+    @Override
+    public Map<String, List<CallSite>> getCallgraphTo(String methodName, int depth) {
+        return mergeCallgraphs(a -> a.getCallgraphTo(methodName, depth));
+    }
+
+    @Override
+    public Map<String, List<CallSite>> getCallgraphFrom(String methodName, int depth) {
+        return mergeCallgraphs(a -> a.getCallgraphFrom(methodName, depth));
+    }
+
+    private Map<String, List<CallSite>> mergeCallgraphs(Function<IAnalyzer, Map<String, List<CallSite>>> query) {
+        var merged = new HashMap<String, LinkedHashSet<CallSite>>();
+        for (var shard : shards) {
+            query.apply(shard.analyzer()).forEach((method, sites) ->
+                    merged.computeIfAbsent(method, m -> new LinkedHashSet<>()).addAll(sites));
+        }
+        var result = new HashMap<String, List<CallSite>>();
+        merged.forEach((method, sites) -> result.put(method, new ArrayList<>(sites)));
+        return result;
+    }
+
+    @Override
+    public Optional<String> getSkeleton(String className) {
+        return shardForClass(className).flatMap(a -> a.getSkeleton(className));
+    }
+
+    @Override
+    public Optional<String> getSkeletonHeader(String className) {
+        return shardForClass(className).flatMap(a -> a.getSkeletonHeader(className));
+    }
+
+    @Override
+    public Optional<String> getMethodSource(String fqName) {
+        return shards.stream()
+                .map(s -> s.analyzer().getMethodSource(fqName))
+                .flatMap(Optional::stream)
+                .findFirst();
+    }
+
+    @Override
+    public String getClassSource(String fqcn) {
+        var owner = shardForClass(fqcn);
+        if (owner.isPresent()) {
+            return owner.get().getClassSource(fqcn);
+        }
+        // getClassSource is forgiving about inexact names, so fall back to asking everyone
+        return shards.stream()
+                .map(s -> s.analyzer().getClassSource(fqcn))
+                .filter(Objects::nonNull)
+                .findFirst()
+                .orElse(null);
+    }
+
+    @Override
+    public Map<CodeUnit, String> getSkeletons(ProjectFile file) {
+        return shardFor(file).map(a -> a.getSkeletons(file)).orElse(Map.of());
+    }
+
+    @Override
+    public List<CodeUnit> getAllDeclarations() {
+        return shards.stream()
+                .flatMap(s -> s.analyzer().getAllDeclarations().stream())
+                .distinct()
+                .toList();
+    }
+
+    @Override
+    public Set<CodeUnit> getDeclarationsInFile(ProjectFile file) {
+        return shardFor(file).map(a -> a.getDeclarationsInFile(file)).orElse(Set.of());
+    }
+
+    @Override
+    public Optional<ProjectFile> getFileFor(String fqName) {
+        return shards.stream()
+                .map(s -> s.analyzer().getFileFor(fqName))
+                .flatMap(Optional::stream)
+                .findFirst();
+    }
+
+    @Override
+    public Optional<CodeUnit> getDefinition(String fqName) {
+        return shards.stream()
+                .map(s -> s.analyzer().getDefinition(fqName))
+                .flatMap(Optional::stream)
+                .findFirst();
+    }
+
+    @Override
+    public List<CodeUnit> searchDefinitions(String pattern) {
+        return shards.stream()
+                .flatMap(s -> s.analyzer().searchDefinitions(pattern).stream())
+                .distinct()
+                .toList();
+    }
+
+    @Override
+    public Set<String> getSymbols(Set<CodeUnit> sources) {
+        var symbols = new HashSet<String>();
+        shards.forEach(s -> symbols.addAll(s.analyzer().getSymbols(sources)));
+        return symbols;
+    }
+
+    @Override
+    public FunctionLocation getFunctionLocation(String fqMethodName, List<String> paramNames) {
+        SymbolNotFoundException notFound = null;
+        for (var shard : shards) {
+            try {
+                return shard.analyzer().getFunctionLocation(fqMethodName, paramNames);
+            } catch (SymbolNotFoundException e) {
+                notFound = e;
+            }
+        }
+        throw notFound;
+    }
+
+    @Override
+    public void close() {
+        for (var shard : shards) {
+            if (shard.analyzer() instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    logger.warn("Error closing analyzer for {}", shard.moduleRoot(), e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package io.github.jbellis.brokk.analyzer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Finds the module source roots of a multi-module Java project, so each module can get its own CPG.
+ * <p>
+ * A module is a directory holding a Maven or Gradle build file (either listed in
+ * {@code BuildDetails.buildFiles} or among the project's files) that owns at least one .java file, where
+ * each file belongs to the deepest module directory above it. Java files not under any module directory
+ * belong to the project root, which then counts as a module of its own.
+ */
+public final class ModuleRoots {
+    private static final Logger logger = LogManager.getLogger(ModuleRoots.class);
+
+    private static final Set<String> BUILD_FILE_NAMES = Set.of("pom.xml", "build.gradle", "build.gradle.kts");
+    private static final Set<String> SKIPPED_DIRS = Set.of("target", "build", "out", "node_modules", "bin");
+
+    private ModuleRoots() {
+    }
+
+    /**
+     * @param files           the project's files, e.g. from {@code Project.getAllFiles}
+     * @param buildFiles      build files relative to root, e.g. from BuildDetails; entries that are not
+     *                        Maven/Gradle build files are ignored
+     * @param excludedDirs    directories relative to root that should not be searched
+     * @return module directories relative to root (the empty path for the root itself), sorted, each owning
+     * at least one .java file
+     */
+    public static List<Path> discover(Collection<ProjectFile> files, Collection<String> buildFiles, Set<String> excludedDirs) {
+        var excluded = new HashSet<Path>();
+        for (var dir : excludedDirs) {
+            excluded.add(Path.of(dir).normalize());
+        }
+
+        var candidates = new HashSet<Path>();
+        for (var buildFile : buildFiles) {
+            var path = Path.of(buildFile);
+            if (path.getFileName() != null && BUILD_FILE_NAMES.contains(path.getFileName().toString())) {
+                var parent = path.getParent();
+                candidates.add(parent == null ? Path.of("") : parent.normalize());
+            }
+        }
+
+        var javaFiles = new ArrayList<Path>();
+        for (var file : files) {
+            var relative = Path.of(file.toString());
+            if (isSkipped(relative, excluded)) {
+                continue;
+            }
+            var name = relative.getFileName().toString();
+            if (BUILD_FILE_NAMES.contains(name)) {
+                candidates.add(file.getParent());
+            } else if (name.endsWith(".java")) {
+                javaFiles.add(relative);
+            }
+        }
+        logger.trace("{} Java files, {} module candidates", javaFiles.size(), candidates.size());
+
+        // deepest candidates first, so the first match for a file is its owner
+        var byDepth = candidates.stream()
+                .sorted(Comparator.comparingInt(ModuleRoots::depth).reversed())
+                .toList();
+        var modules = new TreeSet<Path>(Comparator.comparing(Path::toString));
+        for (var file : javaFiles) {
+            modules.add(byDepth.stream().filter(file::startsWith).findFirst().orElse(Path.of("")));
+        }
+        return List.copyOf(modules);
+    }
+
+    /**
+     * @return true if a directory above the file is hidden, a build output directory, or excluded
+     */
+    private static boolean isSkipped(Path relative, Set<Path> excluded) {
+        var dir = relative.getParent();
+        if (dir == null) {
+            return false;
+        }
+        for (var component : dir) {
+            var name = component.toString();
+            if (name.startsWith(".") || SKIPPED_DIRS.contains(name)) {
+                return true;
+            }
+        }
+        return excluded.stream().anyMatch(relative::startsWith);
+    }
+
+    /**
+     * @return the modules in {@code modules} nested strictly inside {@code module}
+     */
+    public static List<Path> nestedIn(Path module, Collection<Path> modules) {
+        return modules.stream()
+                .filter(m -> !m.equals(module) && (module.toString().isEmpty() || m.startsWith(module)))
+                .toList();
+    }
+
+    private static int depth(Path relative) {
+        return relative.toString().isEmpty() ? 0 : relative.getNameCount();
+    }
+}
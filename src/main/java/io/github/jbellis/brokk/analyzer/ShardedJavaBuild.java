@@ -0,0 +1,183 @@
+package io.github.jbellis.brokk.analyzer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * Builds one JavaAnalyzer per module of a multi-module project and federates them.
+ * <p>
+ * Each module's CPG is cached under {@code cacheDir} and reused as long as it is newer than every
+ * tracked file in the module, so a change only rebuilds the modules it touches. Modules are built in
+ * parallel, but no more at once than the heap can hold at roughly {@link #HEAP_PER_SHARD} each.
+ */
+public class ShardedJavaBuild {
+    private static final Logger logger = LogManager.getLogger(ShardedJavaBuild.class);
+
+    /** Rough peak heap needed to build one module's CPG; bounds how many modules build concurrently. */
+    static final long HEAP_PER_SHARD = 1L << 30;
+
+    private static final String CACHE_SUFFIX = ".cpg";
+
+    private final Path root;
+    private final List<Path> modules;
+    private final Set<String> excludedDirs;
+    private final Path cacheDir;
+
+    /**
+     * @param root         absolute, normalized project root
+     * @param modules      module directories relative to root, as returned by {@link ModuleRoots#discover}
+     * @param excludedDirs directories relative to root to leave out of every module
+     * @param cacheDir     where per-module CPGs are stored
+     */
+    public ShardedJavaBuild(Path root, List<Path> modules, Set<String> excludedDirs, Path cacheDir) {
+        this.root = root;
+        this.modules = List.copyOf(modules);
+        this.excludedDirs = excludedDirs;
+        this.cacheDir = cacheDir;
+    }
+
+    /**
+     * @param trackedFiles  files used to decide whether a module's cached CPG is still current
+     * @param reuseAnyCache reuse every cached CPG that exists without checking it against trackedFiles
+     */
+    public FederatedAnalyzer build(Collection<ProjectFile> trackedFiles, boolean reuseAnyCache) throws InterruptedException {
+        int parallelism = (int) Math.max(1, Math.min(Math.min(Runtime.getRuntime().availableProcessors(), modules.size()),
+                                                     Runtime.getRuntime().maxMemory() / HEAP_PER_SHARD));
+        logger.debug("Building {} module CPGs with parallelism {}", modules.size(), parallelism);
+        deleteStaleCaches();
+
+        var shards = new ArrayList<FederatedAnalyzer.Shard>();
+        try (var executor = Executors.newFixedThreadPool(parallelism)) {
+            var futures = new ArrayList<Future<FederatedAnalyzer.Shard>>();
+            for (var module : modules) {
+                futures.add(executor.submit(() -> buildShard(module, trackedFiles, reuseAnyCache)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    shards.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    // one broken module should not take code intelligence away from the rest
+                    logger.warn("Unable to build code intelligence for module {}", modules.get(i), e.getCause());
+                }
+            }
+        }
+        if (shards.isEmpty()) {
+            throw new IllegalStateException("Unable to build code intelligence for any module of " + root);
+        }
+        return new FederatedAnalyzer(shards);
+    }
+
+    /**
+     * @param trackedFiles  files used to decide whether a module's cached CPG is still current
+     * @param reuseAnyCache accept any cached CPG that exists without checking it against trackedFiles
+     * @return true if every module has a cached CPG that {@link #build} would reuse
+     */
+    public boolean isCacheCurrent(Collection<ProjectFile> trackedFiles, boolean reuseAnyCache) {
+        for (var module : modules) {
+            var cachePath = cachePath(module);
+            if (!Files.exists(cachePath)) {
+                return false;
+            }
+            if (reuseAnyCache) {
+                continue;
+            }
+            var nested = ModuleRoots.nestedIn(module, modules).stream()
+                    .map(m -> root.resolve(m).normalize())
+                    .toList();
+            try {
+                if (!isCacheCurrent(cachePath, root.resolve(module).normalize(), nested, trackedFiles)) {
+                    return false;
+                }
+            } catch (IOException e) {
+                logger.debug("Unable to check cached CPG for module {}", module, e);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private FederatedAnalyzer.Shard buildShard(Path module, Collection<ProjectFile> trackedFiles, boolean reuseAnyCache) throws IOException {
+        var moduleRoot = root.resolve(module).normalize();
+        var nested = ModuleRoots.nestedIn(module, modules).stream()
+                .map(m -> root.resolve(m).normalize())
+                .toList();
+        var cachePath = cachePath(module);
+
+        if (Files.exists(cachePath) && (reuseAnyCache || isCacheCurrent(cachePath, moduleRoot, nested, trackedFiles))) {
+            try {
+                logger.debug("Reusing cached CPG for module {}", module);
+                return new FederatedAnalyzer.Shard(moduleRoot, JavaAnalyzer.forModule(root, moduleRoot, cachePath));
+            } catch (Throwable th) {
+                logger.info("Error loading cached CPG for module {}; rebuilding", module, th);
+            }
+        }
+
+        // leave out excluded directories and the modules nested inside this one, which get their own shards
+        var ignored = new HashSet<String>();
+        for (var dir : excludedDirs) {
+            ignored.add(root.resolve(dir).normalize().toString());
+        }
+        nested.forEach(n -> ignored.add(n.toString()));
+
+        long start = System.currentTimeMillis();
+        var analyzer = JavaAnalyzer.forModule(root, moduleRoot, ignored);
+        logger.debug("Built CPG for module {} in {} ms", module, System.currentTimeMillis() - start);
+        Files.createDirectories(cacheDir);
+        analyzer.writeCpg(cachePath);
+        return new FederatedAnalyzer.Shard(moduleRoot, analyzer);
+    }
+
+    private static boolean isCacheCurrent(Path cachePath, Path moduleRoot, List<Path> nested, Collection<ProjectFile> trackedFiles) throws IOException {
+        long cacheMTime = Files.getLastModifiedTime(cachePath).toMillis();
+        for (var file : trackedFiles) {
+            var path = file.absPath();
+            if (!path.startsWith(moduleRoot) || nested.stream().anyMatch(path::startsWith)) {
+                continue;
+            }
+            try {
+                if (Files.getLastModifiedTime(path).toMillis() >= cacheMTime) {
+                    return false;
+                }
+            } catch (IOException e) {
+                // probable cause: file exists in git but is removed
+                logger.debug("Error reading file timestamp", e);
+            }
+        }
+        return true;
+    }
+
+    Path cachePath(Path module) {
+        var name = module.toString().isEmpty() ? "_root" : module.toString().replace(module.getFileSystem().getSeparator(), "__");
+        return cacheDir.resolve(name + CACHE_SUFFIX);
+    }
+
+    /**
+     * Removes cached CPGs of modules that no longer exist.
+     */
+    private void deleteStaleCaches() {
+        if (!Files.isDirectory(cacheDir)) {
+            return;
+        }
+        var current = modules.stream().map(this::cachePath).collect(Collectors.toSet());
+        try (var files = Files.list(cacheDir)) {
+            for (var file : files.filter(f -> f.toString().endsWith(CACHE_SUFFIX) && !current.contains(f)).toList()) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            logger.debug("Unable to clean up module CPG cache", e);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package io.github.jbellis.brokk.difftool.doc;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectLoader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A read-only document for one version of a file in Git, read straight from the blob's stream so the
+ * contents are split into lines as they are inflated rather than first being collected into a String.
+ * Binary blobs, and blobs larger than {@link #MAX_TEXT_BYTES}, are shown as a one-line summary instead.
+ */
+public class GitBlobDocument extends AbstractBufferDocument {
+    /** Blobs larger than this are summarized rather than diffed line by line. */
+    public static final long MAX_TEXT_BYTES = 8L << 20;
+    // same heuristic as git: a NUL in the first 8000 bytes means binary
+    private static final int BINARY_PROBE_BYTES = 8000;
+
+    private final ObjectLoader loader; // null when the file does not exist on this side
+    private final String summary;      // non-null when the blob is not shown as text
+
+    /**
+     * @param loader the blob to show, or null for a file that is absent in this version
+     */
+    public GitBlobDocument(ObjectLoader loader, ObjectId blobId, String name) {
+        super();
+        this.loader = loader;
+        this.summary = loader == null ? null : summarize(loader, blobId);
+        setName(name);
+        setShortName(name);
+        initializeAndRead();
+    }
+
+    private static String summarize(ObjectLoader loader, ObjectId blobId) {
+        long size = loader.getSize();
+        String id = blobId.abbreviate(8).name();
+        if (size > MAX_TEXT_BYTES) {
+            return "Large file not shown: %,d bytes (blob %s)%n".formatted(size, id);
+        }
+        if (isBinary(loader)) {
+            return "Binary file not shown: %,d bytes (blob %s)%n".formatted(size, id);
+        }
+        return null;
+    }
+
+    private static boolean isBinary(ObjectLoader loader) {
+        try (InputStream in = loader.openStream()) {
+            byte[] probe = in.readNBytes(BINARY_PROBE_BYTES);
+            for (byte b : probe) {
+                if (b == 0) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read blob for " + loader, e);
+        }
+    }
+
+    /**
+     * @return true if the blob is shown as a summary line rather than its contents
+     */
+    public boolean isSummary() {
+        return summary != null;
+    }
+
+    @Override
+    public int getBufferSize() {
+        if (loader == null || summary != null) {
+            return 1024;
+        }
+        return (int) Math.max(loader.getSize(), 1024);
+    }
+
+    @Override
+    public Reader getReader() {
+        if (loader == null) {
+            return new StringReader("");
+        }
+        if (summary != null) {
+            return new StringReader(summary);
+        }
+        try {
+            return new BufferedReader(new InputStreamReader(loader.openStream(), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open blob for " + getName(), e);
+        }
+    }
+
+    @Override
+    public Writer getWriter() throws IOException {
+        throw new IOException("Document is read-only: " + getName());
+    }
+
+    @Override
+    public boolean isReadonly() {
+        return true;
+    }
+
+    @Override
+    public void read() {
+        initializeAndRead();
+    }
+
+    @Override
+    public String toString() {
+        return "GitBlobDocument[name=" + getName() + ", summary=" + isSummary() + "]";
+    }
+}
@@ -0,0 +1,55 @@
+package io.github.jbellis.brokk.difftool.node;
+
+import io.github.jbellis.brokk.difftool.doc.GitBlobDocument;
+import io.github.jbellis.brokk.git.GitRepo;
+import org.eclipse.jgit.lib.ObjectId;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * One version of a file in Git, identified by its blob id. A null id stands for a file that does not
+ * exist in that version, such as the old side of a newly added file.
+ */
+public class GitBlobNode implements BufferNode {
+    private final String name;
+    private final ObjectId blobId;
+    private final long size;
+    private final GitBlobDocument document;
+
+    public GitBlobNode(String name, GitRepo repo, ObjectId blobId) {
+        this.name = name;
+        this.blobId = blobId;
+        try {
+            var loader = blobId == null ? null : repo.openBlob(blobId);
+            this.size = loader == null ? 0 : loader.getSize();
+            this.document = new GitBlobDocument(loader, blobId, name);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open blob " + blobId.name() + " for " + name, e);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public GitBlobDocument getDocument() {
+        return document;
+    }
+
+    public ObjectId getBlobId() {
+        return blobId;
+    }
+
+    @Override
+    public String toString() {
+        return "GitBlobNode[name=" + name + ", blob=" + (blobId == null ? "none" : blobId.name()) + "]";
+    }
+}
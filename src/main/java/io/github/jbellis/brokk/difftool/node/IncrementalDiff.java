@@ -0,0 +1,143 @@
+package io.github.jbellis.brokk.difftool.node;
+
+import com.github.difflib.patch.AbstractDelta;
+import com.github.difflib.patch.Chunk;
+import com.github.difflib.patch.Patch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Updates a patch after one side of the comparison has been edited, by re-diffing only the edited
+ * region instead of both whole files.
+ * <p>
+ * The region is everything between the common prefix and suffix of the old and new text of the edited
+ * side, widened to cover any delta it touches, so it is bounded on both sides by lines the old patch
+ * says are unchanged. Those anchors pin down the matching region of the other side; the two regions are
+ * diffed on their own and the result is spliced between the old deltas before and after them. The result
+ * is always a valid patch, though it may not be quite as small as a full re-diff would find.
+ */
+public final class IncrementalDiff {
+    private IncrementalDiff() {
+    }
+
+    /**
+     * @param base     the patch from oldLeft to oldRight; not modified
+     * @param oldLeft  the left lines base was computed from
+     * @param oldRight the right lines base was computed from
+     * @return a patch from newLeft to newRight
+     */
+    public static Patch<String> rediff(Patch<String> base,
+                                       List<String> oldLeft, List<String> oldRight,
+                                       List<String> newLeft, List<String> newRight)
+    {
+        boolean leftChanged = !oldLeft.equals(newLeft);
+        boolean rightChanged = !oldRight.equals(newRight);
+        if (!leftChanged && !rightChanged) {
+            return copyOf(base.getDeltas());
+        }
+        if (leftChanged && rightChanged) {
+            // no unchanged side to anchor the edit against
+            return LineDiff.diff(newLeft, newRight);
+        }
+        var oldEdited = leftChanged ? oldLeft : oldRight;
+        var newEdited = leftChanged ? newLeft : newRight;
+        var other = leftChanged ? oldRight : oldLeft;
+
+        // the edited region in old coordinates, [start, end)
+        int minSize = Math.min(oldEdited.size(), newEdited.size());
+        int prefix = 0;
+        while (prefix < minSize && oldEdited.get(prefix).equals(newEdited.get(prefix))) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < minSize - prefix
+                && oldEdited.get(oldEdited.size() - 1 - suffix).equals(newEdited.get(newEdited.size() - 1 - suffix))) {
+            suffix++;
+        }
+        int start = prefix;
+        int end = oldEdited.size() - suffix;
+
+        // widen to the deltas the region touches, until it ends on unchanged lines
+        var deltas = base.getDeltas();
+        boolean widened = true;
+        while (widened) {
+            widened = false;
+            for (var delta : deltas) {
+                var chunk = editedChunk(delta, leftChanged);
+                int chunkEnd = chunk.getPosition() + chunk.size();
+                if (chunk.getPosition() <= end && chunkEnd >= start
+                        && (chunk.getPosition() < start || chunkEnd > end)) {
+                    start = Math.min(start, chunk.getPosition());
+                    end = Math.max(end, chunkEnd);
+                    widened = true;
+                }
+            }
+        }
+
+        // map the anchors to the other side, and sort the old deltas into before, inside and after
+        var before = new ArrayList<AbstractDelta<String>>();
+        var after = new ArrayList<AbstractDelta<String>>();
+        int otherStart = start;
+        int otherEnd = end;
+        for (var delta : deltas) {
+            var chunk = editedChunk(delta, leftChanged);
+            int growth = otherChunk(delta, leftChanged).size() - chunk.size();
+            if (chunk.getPosition() + chunk.size() < start) {
+                before.add(delta);
+                otherStart += growth;
+                otherEnd += growth;
+            } else if (chunk.getPosition() > end) {
+                after.add(delta);
+            } else {
+                // inside the region; re-diffed below
+                otherEnd += growth;
+            }
+        }
+
+        int newEnd = end + newEdited.size() - oldEdited.size();
+        var editedWindow = newEdited.subList(start, newEnd);
+        var otherWindow = other.subList(otherStart, otherEnd);
+        var window = leftChanged ? LineDiff.diff(editedWindow, otherWindow) : LineDiff.diff(otherWindow, editedWindow);
+
+        var result = new Patch<String>(before.size() + window.getDeltas().size() + after.size());
+        before.forEach(result::addDelta);
+        int leftOffset = leftChanged ? start : otherStart;
+        int rightOffset = leftChanged ? otherStart : start;
+        for (var delta : window.getDeltas()) {
+            result.addDelta(shift(delta, leftOffset, rightOffset));
+        }
+        int growth = newEdited.size() - oldEdited.size();
+        for (var delta : after) {
+            result.addDelta(shift(delta, leftChanged ? growth : 0, leftChanged ? 0 : growth));
+        }
+        return result;
+    }
+
+    private static Chunk<String> editedChunk(AbstractDelta<String> delta, boolean leftEdited) {
+        return leftEdited ? delta.getSource() : delta.getTarget();
+    }
+
+    private static Chunk<String> otherChunk(AbstractDelta<String> delta, boolean leftEdited) {
+        return leftEdited ? delta.getTarget() : delta.getSource();
+    }
+
+    private static AbstractDelta<String> shift(AbstractDelta<String> delta, int leftOffset, int rightOffset) {
+        if (leftOffset == 0 && rightOffset == 0) {
+            return delta;
+        }
+        var source = delta.getSource();
+        var target = delta.getTarget();
+        return delta.withChunks(new Chunk<>(source.getPosition() + leftOffset, source.getLines()),
+                                new Chunk<>(target.getPosition() + rightOffset, target.getLines()));
+    }
+
+    /**
+     * @return a new patch holding the same deltas, which later changes to either list won't affect
+     */
+    static Patch<String> copyOf(List<AbstractDelta<String>> deltas) {
+        var copy = new Patch<String>(deltas.size());
+        deltas.forEach(copy::addDelta);
+        return copy;
+    }
+}
@@ -1,6 +1,5 @@
 package io.github.jbellis.brokk.difftool.node;
 
-import com.github.difflib.DiffUtils;
 import com.github.difflib.patch.Patch;
 import io.github.jbellis.brokk.difftool.doc.BufferDocumentIF;
 import io.github.jbellis.brokk.difftool.doc.StringDocument;
@@ -25,6 +24,11 @@ public class JMDiffNode implements TreeNode
 
     // We now store the diff result here instead of JMRevision.
     private Patch<String> patch;
+    // What the last diff was computed from, for re-diffing incrementally. basePatch is a private copy,
+    // since the panel removes deltas from patch as they are applied.
+    private Patch<String> basePatch;
+    private List<String> baseLeftLines = List.of();
+    private List<String> baseRightLines = List.of();
 
     // Placeholder for an empty document, used when a side is missing.
     private static final BufferDocumentIF EMPTY_DOC = new StringDocument("", "<empty>", true);
@@ -63,6 +67,31 @@ public class JMDiffNode implements TreeNode
      * Uses a placeholder empty document if a node is missing.
      */
     public void diff() {
+        var pending = pendingDiff();
+        // Compute the diff
+        setPatch(pending, LineDiff.cachedDiff(pending.leftLines(), pending.rightLines()));
+    }
+
+    /**
+     * The current lines of both sides, together with what the last diff was computed from.
+     * Taking one is cheap, so it can be done on the EDT and {@link #compute()} run elsewhere.
+     */
+    public record PendingDiff(Patch<String> basePatch,
+                              List<String> baseLeftLines, List<String> baseRightLines,
+                              List<String> leftLines, List<String> rightLines)
+    {
+        /**
+         * Re-diffs only the region that changed since the last diff, or everything if there was none.
+         */
+        public Patch<String> compute() {
+            if (basePatch == null) {
+                return LineDiff.cachedDiff(leftLines, rightLines);
+            }
+            return IncrementalDiff.rediff(basePatch, baseLeftLines, baseRightLines, leftLines, rightLines);
+        }
+    }
+
+    public PendingDiff pendingDiff() {
         // Get documents, providing an empty placeholder if a node is null
         BufferDocumentIF leftDoc = (nodeLeft != null) ? nodeLeft.getDocument() : EMPTY_DOC;
         BufferDocumentIF rightDoc = (nodeRight != null) ? nodeRight.getDocument() : EMPTY_DOC;
@@ -72,11 +101,17 @@ public class JMDiffNode implements TreeNode
         assert rightDoc != null : "Right document is unexpectedly null after retrieval/placeholder assignment";
 
         // Get line lists. getLineList() should be safe now due to eager initialization.
-        var leftLines = leftDoc.getLineList();
-        var rightLines = rightDoc.getLineList();
+        return new PendingDiff(basePatch, baseLeftLines, baseRightLines, leftDoc.getLineList(), rightDoc.getLineList());
+    }
 
-        // Compute the diff
-        this.patch = DiffUtils.diff(leftLines, rightLines);
+    /**
+     * Installs the result of a diff computed from pending.
+     */
+    public void setPatch(PendingDiff pending, Patch<String> newPatch) {
+        this.patch = newPatch;
+        this.basePatch = IncrementalDiff.copyOf(newPatch.getDeltas());
+        this.baseLeftLines = pending.leftLines();
+        this.baseRightLines = pending.rightLines();
     }
 
     /**
@@ -0,0 +1,140 @@
+package io.github.jbellis.brokk.difftool.node;
+
+import com.github.difflib.DiffUtils;
+import com.github.difflib.patch.ChangeDelta;
+import com.github.difflib.patch.Chunk;
+import com.github.difflib.patch.DeleteDelta;
+import com.github.difflib.patch.InsertDelta;
+import com.github.difflib.patch.Patch;
+import org.eclipse.jgit.diff.HistogramDiff;
+import org.eclipse.jgit.diff.Sequence;
+import org.eclipse.jgit.diff.SequenceComparator;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Line diffs for the diff tool.
+ * <p>
+ * Small inputs use java-diff-utils' Myers diff. Large ones use JGit's histogram diff, which anchors on
+ * lines that are rare in both files, so it stays fast on files with many changes where Myers degrades,
+ * and tends to line up moved blocks the way a reader would. Recently computed patches are cached by
+ * content, so reopening a comparison does not diff it again.
+ */
+public final class LineDiff {
+    /** Combined line count above which the histogram algorithm is used. */
+    static final int HISTOGRAM_THRESHOLD_LINES = 2000;
+    private static final int MAX_CACHED_PATCHES = 256;
+
+    // content hash -> patch; access order, guarded by itself. Callers get copies, since the UI edits patches.
+    private static final Map<String, Patch<String>> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Patch<String>> eldest) {
+            return size() > MAX_CACHED_PATCHES;
+        }
+    };
+
+    private LineDiff() {
+    }
+
+    /**
+     * @return a patch from left to right, using the algorithm suited to their size
+     */
+    public static Patch<String> diff(List<String> left, List<String> right) {
+        if (left.size() + right.size() > HISTOGRAM_THRESHOLD_LINES) {
+            return histogramDiff(left, right);
+        }
+        return DiffUtils.diff(left, right);
+    }
+
+    /**
+     * Like {@link #diff}, but reuses the patch if these exact contents were diffed recently.
+     */
+    public static Patch<String> cachedDiff(List<String> left, List<String> right) {
+        var key = contentKey(left, right);
+        Patch<String> cached;
+        synchronized (cache) {
+            cached = cache.get(key);
+        }
+        if (cached == null) {
+            cached = diff(left, right);
+            synchronized (cache) {
+                cache.put(key, cached);
+            }
+        }
+        return IncrementalDiff.copyOf(cached.getDeltas());
+    }
+
+    static Patch<String> histogramDiff(List<String> left, List<String> right) {
+        var edits = new HistogramDiff().diff(LinesComparator.INSTANCE, new Lines(left), new Lines(right));
+        var patch = new Patch<String>(edits.size());
+        for (var edit : edits) {
+            // copied, so that cached patches don't keep the whole files alive
+            var source = new Chunk<>(edit.getBeginA(), List.copyOf(left.subList(edit.getBeginA(), edit.getEndA())));
+            var target = new Chunk<>(edit.getBeginB(), List.copyOf(right.subList(edit.getBeginB(), edit.getEndB())));
+            switch (edit.getType()) {
+                case INSERT -> patch.addDelta(new InsertDelta<>(source, target));
+                case DELETE -> patch.addDelta(new DeleteDelta<>(source, target));
+                case REPLACE -> patch.addDelta(new ChangeDelta<>(source, target));
+                case EMPTY -> { }
+            }
+        }
+        return patch;
+    }
+
+    private static String contentKey(List<String> left, List<String> right) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+        // length-prefixed, so no two different pairs of line lists produce the same stream
+        var buffer = ByteBuffer.allocate(Integer.BYTES);
+        for (var side : List.of(left, right)) {
+            digest.update(buffer.clear().putInt(side.size()).array());
+            for (var line : side) {
+                var bytes = line.getBytes(StandardCharsets.UTF_8);
+                digest.update(buffer.clear().putInt(bytes.length).array());
+                digest.update(bytes);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static final class Lines extends Sequence {
+        private final List<String> lines;
+        // hashes are asked for repeatedly while building the histogram
+        private final int[] hashes;
+
+        Lines(List<String> lines) {
+            this.lines = lines;
+            this.hashes = lines.stream().mapToInt(String::hashCode).toArray();
+        }
+
+        @Override
+        public int size() {
+            return lines.size();
+        }
+    }
+
+    private static final class LinesComparator extends SequenceComparator<Lines> {
+        static final LinesComparator INSTANCE = new LinesComparator();
+
+        @Override
+        public boolean equals(Lines a, int ai, Lines b, int bi) {
+            return a.hashes[ai] == b.hashes[bi] && a.lines.get(ai).equals(b.lines.get(bi));
+        }
+
+        @Override
+        public int hash(Lines seq, int ptr) {
+            return seq.hashes[ptr];
+        }
+    }
+}
@@ -16,8 +16,11 @@ import org.fife.ui.rsyntaxtextarea.SyntaxConstants;
 
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.io.File;
 import java.util.concurrent.ExecutionException;
 
@@ -26,20 +29,33 @@ public class BrokkDiffPanel extends JPanel implements PropertyChangeListener {
     private final JTabbedPane tabbedPane;
     private boolean started;
     private final JLabel loadingLabel = new JLabel("Processing... Please wait.");
-    private final BufferSource leftSource;
-    private final BufferSource rightSource;
+    // EDT only once the panel is built
+    private final List<DiffSession.Comparison> comparisons;
+    // false while the caller may still add comparisons
+    private boolean comparisonsComplete;
+    private volatile boolean closed;
+    // the comparison being shown
+    private BufferSource leftSource;
+    private BufferSource rightSource;
     private final boolean isDarkTheme;
 
+    // Only when comparing several files
+    private DiffSession session;
+    private JList<DiffSession.Comparison> fileList;
+    private DefaultListModel<DiffSession.Comparison> fileListModel;
+    private final Map<Integer, BufferDiffPanel> sessionPanels = new HashMap<>();
+
 
     public BrokkDiffPanel(Builder builder) {
         assert builder.contextManager != null;
         this.contextManager = builder.contextManager;
-        this.leftSource = builder.leftSource;
-        this.rightSource = builder.rightSource;
+        this.comparisons = new ArrayList<>(builder.comparisons);
+        this.comparisonsComplete = !builder.expectMoreComparisons;
         this.isDarkTheme = builder.isDarkTheme;
         assert this.contextManager != null : "ContextManager cannot be null";
-        assert this.leftSource != null : "Left source cannot be null";
-        assert this.rightSource != null : "Right source cannot be null";
+        assert !this.comparisons.isEmpty() : "At least one comparison is required";
+        this.leftSource = comparisons.getFirst().left();
+        this.rightSource = comparisons.getFirst().right();
 
         // Make the container focusable, so it can handle key events
         setFocusable(true);
@@ -64,7 +80,9 @@ public class BrokkDiffPanel extends JPanel implements PropertyChangeListener {
     public static class Builder {
         private BufferSource leftSource;
         private BufferSource rightSource;
+        private final List<DiffSession.Comparison> comparisons = new ArrayList<>();
         private boolean isDarkTheme = false; // Default to light theme
+        private boolean expectMoreComparisons = false;
         private final ContextManager contextManager;
 
         public Builder(ContextManager contextManager) {
@@ -82,14 +100,38 @@ public class BrokkDiffPanel extends JPanel implements PropertyChangeListener {
             return this;
         }
 
+        /**
+         * Adds a file to compare; with more than one, the panel lists them and diffs them all in the background.
+         */
+        public Builder addComparison(BufferSource left, BufferSource right) {
+            this.comparisons.add(new DiffSession.Comparison(left, right));
+            return this;
+        }
+
+        /**
+         * Lists the files even if only one has been added so far; the rest are added to the built panel with
+         * {@link BrokkDiffPanel#addComparison} as they become available, followed by
+         * {@link BrokkDiffPanel#comparisonsComplete}.
+         */
+        public Builder expectMoreComparisons() {
+            this.expectMoreComparisons = true;
+            return this;
+        }
+
         public Builder withTheme(boolean isDark) {
             this.isDarkTheme = isDark;
             return this;
         }
 
         public BrokkDiffPanel build() {
-            if (leftSource == null || rightSource == null) {
-                throw new IllegalStateException("Both left and right sources must be provided.");
+            if (leftSource != null || rightSource != null) {
+                if (leftSource == null || rightSource == null) {
+                    throw new IllegalStateException("Both left and right sources must be provided.");
+                }
+                comparisons.addFirst(new DiffSession.Comparison(leftSource, rightSource));
+            }
+            if (comparisons.isEmpty()) {
+                throw new IllegalStateException("At least one comparison must be provided.");
             }
             return new BrokkDiffPanel(this);
         }
@@ -106,10 +148,138 @@ public class BrokkDiffPanel extends JPanel implements PropertyChangeListener {
         started = true;
         getTabbedPane().setFocusable(false);
         setLayout(new BorderLayout());
-        launchComparison();
-
         add(createToolbar(), BorderLayout.NORTH);
-        add(getTabbedPane(), BorderLayout.CENTER);
+        if (comparisons.size() == 1 && comparisonsComplete) {
+            launchComparison();
+            add(getTabbedPane(), BorderLayout.CENTER);
+        } else {
+            launchSession();
+        }
+    }
+
+    /**
+     * Lists the files on the left and diffs them all in the background; the selected one is shown as
+     * soon as its diff is ready.
+     */
+    private void launchSession() {
+        // the renderer reads the session's status, so it must exist before the list is painted
+        session = new DiffSession(comparisons, this::onSessionDiffDone);
+        fileListModel = new DefaultListModel<>();
+        fileListModel.addAll(comparisons);
+        fileList = new JList<>(fileListModel);
+        fileList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        fileList.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected, boolean cellHasFocus) {
+                var comparison = (DiffSession.Comparison) value;
+                var label = switch (session.status(index)) {
+                    case PENDING -> comparison.title() + " ...";
+                    case READY -> comparison.title();
+                    case FAILED -> comparison.title() + " (failed)";
+                };
+                var c = super.getListCellRendererComponent(list, label, index, isSelected, cellHasFocus);
+                if (session.status(index) != DiffSession.Status.READY && !isSelected) {
+                    c.setForeground(UIManager.getColor("Label.disabledForeground"));
+                }
+                return c;
+            }
+        });
+        fileList.addListSelectionListener(e -> {
+            if (!e.getValueIsAdjusting() && fileList.getSelectedIndex() >= 0) {
+                showSessionComparison(fileList.getSelectedIndex());
+            }
+        });
+
+        var splitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, new JScrollPane(fileList), getTabbedPane());
+        splitPane.setResizeWeight(0.15);
+        add(splitPane, BorderLayout.CENTER);
+
+        loadingLabel.setFont(loadingLabel.getFont().deriveFont(Font.BOLD));
+        add(loadingLabel, BorderLayout.SOUTH);
+        updateSessionProgress();
+
+        session.start();
+        if (comparisonsComplete) {
+            session.finish();
+        }
+        fileList.setSelectedIndex(0);
+    }
+
+    /**
+     * Adds a file to a panel built with {@link Builder#expectMoreComparisons}; it is listed, and diffed in the
+     * background, right away if the panel is already showing. Must be called on the EDT.
+     */
+    public void addComparison(BufferSource left, BufferSource right) {
+        assert SwingUtilities.isEventDispatchThread();
+        assert !comparisonsComplete : "comparisons were already declared complete";
+        var comparison = new DiffSession.Comparison(left, right);
+        comparisons.add(comparison);
+        if (session != null) {
+            session.add(comparison);
+            fileListModel.addElement(comparison);
+            updateSessionProgress();
+        }
+    }
+
+    /**
+     * Declares that every file has been added with {@link #addComparison}. Must be called on the EDT.
+     */
+    public void comparisonsComplete() {
+        assert SwingUtilities.isEventDispatchThread();
+        comparisonsComplete = true;
+        if (session != null) {
+            session.finish();
+            updateSessionProgress();
+        }
+    }
+
+    /**
+     * @return true once the frame showing this panel has been closed, after which added files are not diffed
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    private void onSessionDiffDone(int index) {
+        fileList.repaint();
+        if (index == fileList.getSelectedIndex()) {
+            showSessionComparison(index);
+        }
+        updateSessionProgress();
+    }
+
+    private void updateSessionProgress() {
+        if (comparisonsComplete && session.doneCount() == comparisons.size()) {
+            remove(loadingLabel);
+        } else {
+            loadingLabel.setText("Computing diffs: %d of %d%s".formatted(session.doneCount(), comparisons.size(),
+                                                                         comparisonsComplete ? "" : " so far"));
+        }
+        revalidate();
+        repaint();
+    }
+
+    private void showSessionComparison(int index) {
+        var comparison = comparisons.get(index);
+        leftSource = comparison.left();
+        rightSource = comparison.right();
+        getTabbedPane().removeAll();
+
+        var node = session.node(index);
+        if (node == null) {
+            var text = session.status(index) == DiffSession.Status.FAILED ? "Unable to compute this diff." : "Computing diff...";
+            getTabbedPane().addTab(comparison.title(), new JLabel(text, SwingConstants.CENTER));
+            setBufferDiffPanel(null);
+            return;
+        }
+        var panel = sessionPanels.computeIfAbsent(index, i -> {
+            var p = new BufferDiffPanel(this, isDarkTheme);
+            p.setDiffNode(node);
+            return p;
+        });
+        setBufferDiffPanel(panel);
+        getTabbedPane().addTab(panel.getTitle(), panel);
+        updateUndoRedoButtons();
     }
 
     public JButton getBtnUndo() {
@@ -145,20 +315,25 @@ public class BrokkDiffPanel extends JPanel implements PropertyChangeListener {
         btnRedo = new JButton("Redo");
         captureDiffButton = new JButton("Capture Diff");
 
+        // the current content panel is null while a file's diff is still being computed
         btnNext.addActionListener(e -> {
+            if (getCurrentContentPanel() == null) return;
             getCurrentContentPanel().doDown();
             repaint();
         });
         btnPrevious.addActionListener(e -> {
+            if (getCurrentContentPanel() == null) return;
             getCurrentContentPanel().doUp();
             repaint();
         });
         btnUndo.addActionListener(e -> {
+            if (getCurrentContentPanel() == null) return;
             getCurrentContentPanel().doUndo();
             repaint();
             getBufferDiffPanel().doSave();
         });
         btnRedo.addActionListener(e -> {
+            if (getCurrentContentPanel() == null) return;
             getCurrentContentPanel().doRedo();
             repaint();
             getBufferDiffPanel().doSave();
@@ -238,7 +413,7 @@ public class BrokkDiffPanel extends JPanel implements PropertyChangeListener {
 
 
     public AbstractContentPanel getCurrentContentPanel() {
-        return (AbstractContentPanel) getTabbedPane().getSelectedComponent();
+        return getTabbedPane().getSelectedComponent() instanceof AbstractContentPanel panel ? panel : null;
     }
 
 
@@ -281,6 +456,10 @@ public class BrokkDiffPanel extends JPanel implements PropertyChangeListener {
             @Override
             public void windowClosing(java.awt.event.WindowEvent e) {
                 contextManager.getProject().saveDiffWindowBounds(frame);
+                closed = true;
+                if (session != null) {
+                    session.close();
+                }
             }
         });
 
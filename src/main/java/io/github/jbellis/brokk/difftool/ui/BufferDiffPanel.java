@@ -11,11 +11,14 @@ import io.github.jbellis.brokk.difftool.node.JMDiffNode;
 import io.github.jbellis.brokk.difftool.scroll.DiffScrollComponent;
 import io.github.jbellis.brokk.difftool.scroll.ScrollSynchronizer;
 import io.github.jbellis.brokk.difftool.search.SearchBarDialog;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 import javax.swing.*;
 import javax.swing.text.BadLocationException;
 import java.awt.*;
 import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
 
 /**
  * This panel shows the side-by-side file panels, the diff curves, plus search bars.
@@ -23,9 +26,13 @@ import java.util.ArrayList;
  */
 public class BufferDiffPanel extends AbstractContentPanel
 {
+    private static final Logger logger = LogManager.getLogger(BufferDiffPanel.class);
+
     public static final int LEFT = 0;
     public static final int RIGHT = 2;
     public static final int NUMBER_OF_PANELS = 3;
+    // re-diff once typing pauses for this long
+    private static final int REDIFF_DELAY_MS = 150;
 
     private final BrokkDiffPanel mainPanel;
     private final boolean isDarkTheme;
@@ -47,6 +54,10 @@ public class BufferDiffPanel extends AbstractContentPanel
     private ScrollSynchronizer scrollSynchronizer;
     private JSplitPane splitPane;
 
+    private final Timer rediffTimer = new Timer(REDIFF_DELAY_MS, e -> rediff());
+    // bumped by every diff, so a slower background re-diff can't overwrite a newer result; EDT only
+    private long diffGeneration;
+
     public BufferDiffPanel(BrokkDiffPanel mainPanel)
     {
         this(mainPanel, false);
@@ -58,6 +69,7 @@ public class BufferDiffPanel extends AbstractContentPanel
         this.isDarkTheme = isDarkTheme;
         // Let the mainPanel keep a reference to us for toolbar/undo/redo interplay
         mainPanel.setBufferDiffPanel(this);
+        rediffTimer.setRepeats(false);
         init();
         setFocusable(true);
     }
@@ -102,13 +114,13 @@ public class BufferDiffPanel extends AbstractContentPanel
     }
 
     /**
-     * Rerun the diff from scratch, if needed. For Phase 2 we re-run if a doc changed
-     * (the old incremental logic is removed).
+     * Rerun the diff from scratch, synchronously. Edits go through {@link #revisionChanged} instead.
      */
     public void diff()
     {
         // Typically, we'd just re-call diffNode.diff() then re-pull patch.
         if (diffNode != null) {
+            diffGeneration++;
             diffNode.diff();
             this.patch = diffNode.getPatch();
             reDisplay();
@@ -158,15 +170,48 @@ public class BufferDiffPanel extends AbstractContentPanel
     }
 
     /**
-     * Do not try incremental updates. We just re-diff the whole thing.
+     * Schedules an incremental re-diff: once edits pause, only the edited region is diffed again,
+     * in the background, and spliced into the patch (see {@link io.github.jbellis.brokk.difftool.node.IncrementalDiff}).
      */
     public boolean revisionChanged(JMDocumentEvent de)
     {
-        // Old incremental logic removed
-        diff();
+        rediffTimer.restart();
         return true;
     }
 
+    private void rediff()
+    {
+        if (diffNode == null) {
+            return;
+        }
+        var generation = ++diffGeneration;
+        var pending = diffNode.pendingDiff();
+        new SwingWorker<Patch<String>, Void>() {
+            @Override
+            protected Patch<String> doInBackground()
+            {
+                return pending.compute();
+            }
+
+            @Override
+            protected void done()
+            {
+                if (generation != diffGeneration) {
+                    return; // superseded by a later edit
+                }
+                try {
+                    diffNode.setPatch(pending, get());
+                } catch (InterruptedException | ExecutionException ex) {
+                    logger.warn("Incremental diff failed, re-diffing {} from scratch", diffNode.getName(), ex);
+                    diff();
+                    return;
+                }
+                patch = diffNode.getPatch();
+                reDisplay();
+            }
+        }.execute();
+    }
+
     /**
      * The top-level UI for the left & right file panels plus the “diff scroll component”.
      */
@@ -1,5 +1,8 @@
 package io.github.jbellis.brokk.difftool.ui;
 
+import io.github.jbellis.brokk.git.GitRepo;
+import org.eclipse.jgit.lib.ObjectId;
+
 import java.io.File;
 import java.util.Objects;
 
@@ -19,4 +22,15 @@ public sealed interface BufferSource {
             Objects.requireNonNull(title, "title cannot be null");
         }
     }
+
+    /**
+     * A version of a file stored in Git, streamed from its blob when the diff is built.
+     * A null blobId means the file does not exist in that version.
+     */
+    record GitBlobSource(GitRepo repo, ObjectId blobId, String title) implements BufferSource {
+        public GitBlobSource {
+            Objects.requireNonNull(repo, "repo cannot be null");
+            Objects.requireNonNull(title, "title cannot be null");
+        }
+    }
 }
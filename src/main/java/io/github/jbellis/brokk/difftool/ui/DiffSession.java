@@ -0,0 +1,163 @@
+package io.github.jbellis.brokk.difftool.ui;
+
+import io.github.jbellis.brokk.difftool.node.JMDiffNode;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * Computes the diffs for a set of file comparisons in the background, several at a time, in the order
+ * given, so the first file can be shown while the rest are still being diffed. Comparisons may be added
+ * after the session starts, until {@link #finish()} is called.
+ */
+public class DiffSession {
+    private static final Logger logger = LogManager.getLogger(DiffSession.class);
+    private static final int MAX_THREADS = 4;
+
+    public record Comparison(BufferSource left, BufferSource right) {
+        public Comparison {
+            Objects.requireNonNull(left, "left cannot be null");
+            Objects.requireNonNull(right, "right cannot be null");
+        }
+
+        public String title() {
+            return right.title();
+        }
+    }
+
+    public enum Status { PENDING, READY, FAILED }
+
+    private final IntConsumer onDone;
+    private final ExecutorService pool;
+    // EDT only; nodes and statuses are indexed like comparisons
+    private final List<Comparison> comparisons = new ArrayList<>();
+    private final List<JMDiffNode> nodes = new ArrayList<>();
+    private final List<Status> statuses = new ArrayList<>();
+    private boolean started;
+    private boolean finished;
+    private boolean closed;
+    private int doneCount;
+
+    /**
+     * @param onDone called on the EDT with the index of each comparison as its diff completes or fails
+     */
+    public DiffSession(List<Comparison> initial, IntConsumer onDone) {
+        this.onDone = onDone;
+        var threadNumber = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors()), r -> {
+            Thread t = Executors.defaultThreadFactory().newThread(r);
+            t.setName("Brokk-Diff-" + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        initial.forEach(this::append);
+    }
+
+    public void start() {
+        assert SwingUtilities.isEventDispatchThread();
+        started = true;
+        for (int i = 0; i < comparisons.size(); i++) {
+            submit(i);
+        }
+        if (finished) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Adds a comparison to the end of the session; it is diffed right away if the session has started.
+     *
+     * @return the index of the new comparison
+     */
+    public int add(Comparison comparison) {
+        assert SwingUtilities.isEventDispatchThread();
+        int index = append(comparison);
+        if (started) {
+            submit(index);
+        }
+        return index;
+    }
+
+    /**
+     * Declares that no more comparisons will be added, so the pool's threads exit once the queued diffs are done.
+     */
+    public void finish() {
+        assert SwingUtilities.isEventDispatchThread();
+        finished = true;
+        if (started) {
+            pool.shutdown();
+        }
+    }
+
+    private int append(Comparison comparison) {
+        comparisons.add(comparison);
+        nodes.add(null);
+        statuses.add(Status.PENDING);
+        return comparisons.size() - 1;
+    }
+
+    private void submit(int index) {
+        if (closed) {
+            return;
+        }
+        var comparison = comparisons.get(index);
+        pool.submit(() -> {
+            JMDiffNode node;
+            try {
+                node = FileComparison.createDiffNode(comparison.left(), comparison.right());
+                node.diff();
+            } catch (Exception e) {
+                logger.warn("Unable to diff {}", comparison.title(), e);
+                node = null;
+            }
+            var result = node;
+            SwingUtilities.invokeLater(() -> {
+                nodes.set(index, result);
+                statuses.set(index, result == null ? Status.FAILED : Status.READY);
+                doneCount++;
+                onDone.accept(index);
+            });
+        });
+    }
+
+    public List<Comparison> comparisons() {
+        assert SwingUtilities.isEventDispatchThread();
+        return Collections.unmodifiableList(comparisons);
+    }
+
+    /**
+     * @return the computed node, or null while the diff is pending or if it failed
+     */
+    public JMDiffNode node(int index) {
+        assert SwingUtilities.isEventDispatchThread();
+        return nodes.get(index);
+    }
+
+    public Status status(int index) {
+        assert SwingUtilities.isEventDispatchThread();
+        return statuses.get(index);
+    }
+
+    public int doneCount() {
+        assert SwingUtilities.isEventDispatchThread();
+        return doneCount;
+    }
+
+    /**
+     * Abandons the diffs that have not started yet.
+     */
+    public void close() {
+        assert SwingUtilities.isEventDispatchThread();
+        closed = true;
+        pool.shutdownNow();
+    }
+}
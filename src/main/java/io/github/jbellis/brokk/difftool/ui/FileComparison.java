@@ -1,6 +1,8 @@
 package io.github.jbellis.brokk.difftool.ui;
 
+import io.github.jbellis.brokk.difftool.node.BufferNode;
 import io.github.jbellis.brokk.difftool.node.FileNode;
+import io.github.jbellis.brokk.difftool.node.GitBlobNode;
 import io.github.jbellis.brokk.difftool.node.JMDiffNode;
 import io.github.jbellis.brokk.difftool.node.StringNode;
 
@@ -75,7 +77,8 @@ public class FileComparison extends SwingWorker<String, Object> {
         // If no errors, proceed to diffing
         // diffNode can be null if createDiffNode returns null (though it shouldn't with current logic)
         if (diffNode != null) {
-            SwingUtilities.invokeLater(() -> diffNode.diff());
+            // the documents aren't shown yet, so this can run here rather than on the EDT
+            diffNode.diff();
         } else {
             // This case should ideally not be reached if sources are non-null
             return "Error: Could not create diff node from sources.";
@@ -83,33 +86,26 @@ public class FileComparison extends SwingWorker<String, Object> {
         return null;
     }
 
-    private JMDiffNode createDiffNode(BufferSource left, BufferSource right) {
+    static JMDiffNode createDiffNode(BufferSource left, BufferSource right) {
         Objects.requireNonNull(left, "Left source cannot be null");
         Objects.requireNonNull(right, "Right source cannot be null");
 
         var node = new JMDiffNode(left.title(), true); // Use left title for the JMDiffNode name, or decide a convention
 
-        if (left instanceof BufferSource.FileSource fileSourceLeft) {
-            node.setBufferNodeLeft(new FileNode(fileSourceLeft.title(), fileSourceLeft.file()));
-        } else if (left instanceof BufferSource.StringSource stringSourceLeft) {
-            node.setBufferNodeLeft(new StringNode(stringSourceLeft.title(), stringSourceLeft.content()));
-        } else {
-            // Should not happen with a sealed interface if all subtypes are handled
-            throw new IllegalArgumentException("Unknown left source type: " + left.getClass());
-        }
-
-        if (right instanceof BufferSource.FileSource fileSourceRight) {
-            node.setBufferNodeRight(new FileNode(fileSourceRight.title(), fileSourceRight.file()));
-        } else if (right instanceof BufferSource.StringSource stringSourceRight) {
-            node.setBufferNodeRight(new StringNode(stringSourceRight.title(), stringSourceRight.content()));
-        } else {
-            // Should not happen with a sealed interface
-            throw new IllegalArgumentException("Unknown right source type: " + right.getClass());
-        }
+        node.setBufferNodeLeft(createBufferNode(left));
+        node.setBufferNodeRight(createBufferNode(right));
 
         return node;
     }
 
+    private static BufferNode createBufferNode(BufferSource source) {
+        return switch (source) {
+            case BufferSource.FileSource fs -> new FileNode(fs.title(), fs.file());
+            case BufferSource.StringSource ss -> new StringNode(ss.title(), ss.content());
+            case BufferSource.GitBlobSource gs -> new GitBlobNode(gs.title(), gs.repo(), gs.blobId());
+        };
+    }
+
     private static ImageIcon getScaledIcon() {
         try {
             BufferedImage originalImage = ImageIO.read(Objects.requireNonNull(FileComparison.class.getResource("/images/compare.png")));
@@ -10,7 +10,10 @@ import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.diff.DiffFormatter;
 import org.eclipse.jgit.errors.IncorrectObjectTypeException;
 import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectLoader;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
@@ -680,31 +683,56 @@ public class GitRepo implements Closeable, IGitRepo {
             return "";
         }
 
-        var objId = resolve(commitId);
-        if (objId == null) {
-            logger.debug("Could not resolve commitId '{}' to an object; returning empty string", commitId);
+        var blobId = getFileBlobId(commitId, file);
+        if (blobId == null) {
+            logger.debug("File '{}' not found at commit '{}'; returning empty string", file, commitId);
             return "";
         }
+        try {
+            return new String(openBlob(blobId).getBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new GitWrappedIOException(e);
+        }
+    }
 
+    /**
+     * Looks up the blob holding {@code file} at a given commit ID without reading it, so callers can
+     * compare versions by id or stream the contents with {@link #openBlob}.
+     *
+     * @return the blob id, or null if the commit can't be resolved or the file isn't in it
+     */
+    public ObjectId getFileBlobId(String commitId, ProjectFile file) throws GitAPIException {
+        if (commitId == null || commitId.isBlank()) {
+            return null;
+        }
+        var objId = resolve(commitId);
+        if (objId == null) {
+            logger.debug("Could not resolve commitId '{}' to an object", commitId);
+            return null;
+        }
         try (var revWalk = new RevWalk(repository)) {
             var commit = revWalk.parseCommit(objId);
-            var tree = commit.getTree();
-            try (var treeWalk = new TreeWalk(repository)) {
-                treeWalk.addTree(tree);
-                treeWalk.setRecursive(true);
-                while (treeWalk.next()) {
-                    if (treeWalk.getPathString().equals(toGitPath(file.toString()))) {
-                        var blobId = treeWalk.getObjectId(0);
-                        var loader = repository.open(blobId);
-                        return new String(loader.getBytes(), StandardCharsets.UTF_8);
-                    }
-                }
+            // forPath descends only the trees along the path, instead of walking the whole commit
+            try (var treeWalk = TreeWalk.forPath(repository, toGitPath(file.toString()), commit.getTree())) {
+                return treeWalk == null ? null : treeWalk.getObjectId(0);
             }
         } catch (IOException e) {
             throw new GitWrappedIOException(e);
         }
-        logger.debug("File '{}' not found at commit '{}'", file, commitId);
-        return "";
+    }
+
+    public ObjectLoader openBlob(ObjectId blobId) throws IOException {
+        return repository.open(blobId, Constants.OBJ_BLOB);
+    }
+
+    /**
+     * @return the blob id the file's contents on disk would have if it were added as is
+     */
+    public ObjectId hashWorkingFile(ProjectFile file) throws IOException {
+        try (var in = Files.newInputStream(file.absPath());
+             var formatter = new ObjectInserter.Formatter()) {
+            return formatter.idFor(Constants.OBJ_BLOB, Files.size(file.absPath()), in);
+        }
     }
 
     @Override
@@ -5,6 +5,7 @@ import dev.langchain4j.data.message.ChatMessageType;
 import io.github.jbellis.brokk.*;
 import io.github.jbellis.brokk.analyzer.ProjectFile;
 import io.github.jbellis.brokk.git.GitRepo;
+import io.github.jbellis.brokk.gui.dialogs.LargeFilePreviewPanel;
 import io.github.jbellis.brokk.gui.dialogs.PreviewImagePanel;
 import io.github.jbellis.brokk.gui.dialogs.PreviewTextPanel;
 import io.github.jbellis.brokk.gui.mop.MarkdownOutputPanel;
@@ -330,6 +331,8 @@ public class Chrome implements AutoCloseable, IConsoleIO {
                 Container contentPane = ((JFrame) window).getContentPane();
                 if (contentPane instanceof PreviewTextPanel) {
                     ((PreviewTextPanel) contentPane).updateTheme(themeManager);
+                } else if (contentPane instanceof LargeFilePreviewPanel) {
+                    ((LargeFilePreviewPanel) contentPane).updateTheme(themeManager);
                 }
             }
         }
@@ -570,12 +573,16 @@ public class Chrome implements AutoCloseable, IConsoleIO {
         assert SwingUtilities.isEventDispatchThread() : "Preview must be initiated on EDT";
 
         try {
-            // 1. Read file content
-            var content = pf.read();
-
-            // 2. Deduce syntax style
+            // 1. Deduce syntax style
             var syntax = SyntaxDetector.detect(pf);
 
+            // 2. Huge files are paged from a memory mapping instead of read whole
+            if (Files.size(pf.absPath()) > LargeFilePreviewPanel.THRESHOLD_BYTES) {
+                showPreviewFrame(contextManager, "Preview: " + pf, new LargeFilePreviewPanel(pf, syntax, themeManager));
+                return;
+            }
+            var content = pf.read();
+
             // 3. Build the PTP
             // 3. Build the PTP
             // Pass null for the fragment when previewing a file directly.
@@ -6,6 +6,7 @@ import io.github.jbellis.brokk.ContextFragment;
 import io.github.jbellis.brokk.ContextFragment.PathFragment;
 import io.github.jbellis.brokk.ContextFragment.VirtualFragment;
 import io.github.jbellis.brokk.ContextManager;
+import io.github.jbellis.brokk.UrlFetcher;
 import io.github.jbellis.brokk.analyzer.BrokkFile;
 import io.github.jbellis.brokk.analyzer.CodeUnit;
 import io.github.jbellis.brokk.analyzer.CodeUnitType;
@@ -15,8 +16,6 @@ import io.github.jbellis.brokk.gui.dialogs.MultiFileSelectionDialog;
 import io.github.jbellis.brokk.gui.dialogs.MultiFileSelectionDialog.SelectionMode;
 import io.github.jbellis.brokk.gui.dialogs.SymbolSelectionDialog;
 import io.github.jbellis.brokk.prompts.CopyExternalPrompts;
-import io.github.jbellis.brokk.tools.WorkspaceTools;
-import io.github.jbellis.brokk.util.HtmlToMarkdown;
 import io.github.jbellis.brokk.util.Messages;
 import io.github.jbellis.brokk.util.StackTrace;
 import okhttp3.OkHttpClient;
@@ -49,7 +48,7 @@ public class ContextPanel extends JPanel {
     private static final Logger logger = LogManager.getLogger(ContextPanel.class);
     private final String EMPTY_CONTEXT = "Empty Workspace--use Edit or Read or Summarize to add content";
 
-    private static final OkHttpClient httpClient = new OkHttpClient.Builder()
+    private static final OkHttpClient httpClient = UrlFetcher.newClientBuilder()
             .connectTimeout(1, TimeUnit.SECONDS)
             .readTimeout(1, TimeUnit.SECONDS)
             .writeTimeout(1, TimeUnit.SECONDS)
@@ -1115,8 +1114,7 @@ public class ContextPanel extends JPanel {
                     // Fallback: If not an image URL or image fetching failed, try to fetch as text
                     try {
                         chrome.systemOutput("Fetching content from " + clipboardText);
-                        content = WorkspaceTools.fetchUrlContent(uri);
-                        content = HtmlToMarkdown.maybeConvertToMarkdown(content);
+                        content = UrlFetcher.forProject(contextManager.getProject().getRoot()).fetch(uri).content();
                         wasUrl = true;
                         chrome.actionComplete();
                     } catch (IOException e) {
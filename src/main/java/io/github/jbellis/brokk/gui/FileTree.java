@@ -2,6 +2,7 @@ package io.github.jbellis.brokk.gui;
 
 import io.github.jbellis.brokk.Project;
 import io.github.jbellis.brokk.analyzer.ProjectFile;
+import io.github.jbellis.brokk.util.SortedPathIndex;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -20,6 +21,7 @@ import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -56,6 +58,7 @@ public class FileTree extends JTree {
             logger.trace("Attempting initial expansion to project root: {}", project.getRoot());
             expandTreeToPath(project.getRoot());
         } else {
+            addTreeWillExpandListener(createProjectExpandListener());
             setModel(setupProjectFileSystemModel());
         }
 
@@ -82,77 +85,80 @@ public class FileTree extends JTree {
     }
 
     /**
-     * Builds the TreeModel for the project's file hierarchy (from Git or file system walk).
+     * Builds the lazy TreeModel for the project's file hierarchy.
+     * Only the root's immediate children are materialized; deeper levels are created on expansion.
      * Does not set the model on the JTree directly.
      *
-     * @return The DefaultTreeModel.
+     * @return The ProjectTreeModel.
      */
-    private DefaultTreeModel setupProjectFileSystemModel() {
+    private ProjectTreeModel setupProjectFileSystemModel() {
         var root = project.getRoot();
         logger.trace("Building project file system model for: {}", root);
         String rootDisplayName = root.getFileName() != null ? root.getFileName().toString() : root.toString();
-        DefaultMutableTreeNode rootNode = new DefaultMutableTreeNode(rootDisplayName);
-        // Use a map to efficiently find parent nodes during construction
-        Map<Path, DefaultMutableTreeNode> dirNodes = new HashMap<>();
-        dirNodes.put(root, rootNode); // Map absolute path to node
 
-        List<Path> filesToAdd = new ArrayList<>();
+        var index = new SortedPathIndex(toRelativePaths(project.getAllFiles()));
+        logger.trace("Indexed {} tracked files.", index.size());
 
-        project.getAllFiles().stream().map(ProjectFile::absPath).forEach(filesToAdd::add);
-        logger.trace("Found {} tracked files.", filesToAdd.size());
-
-        // Sort paths for consistent tree order
-        filesToAdd.sort(Path::compareTo);
-
-        // Build the tree structure efficiently
-        for (Path absFilePath : filesToAdd) {
-            Path parentPath = absFilePath.getParent();
-            if (parentPath == null) continue; // Should not happen within project
-
-            // Ensure parent directories exist in the tree
-            DefaultMutableTreeNode parentNode = findOrCreateParentNode(root, parentPath, rootNode, dirNodes);
-
-            // Add the file node
-            String filename = absFilePath.getFileName().toString();
-            // Store the ProjectFile itself or just the name? Storing name for now as before.
-            // If selection needs BrokkFile, userObject might need adjustment.
-            DefaultMutableTreeNode fileNode = new DefaultMutableTreeNode(filename);
-            parentNode.add(fileNode);
-        }
+        return new ProjectTreeModel(rootDisplayName, index);
+    }
 
-        logger.trace("Project file system model built successfully.");
-        return new DefaultTreeModel(rootNode);
+    private static List<String> toRelativePaths(Collection<ProjectFile> files) {
+        return files.stream()
+                .map(pf -> pf.toString().replace(File.separatorChar, '/'))
+                .toList();
     }
 
     /**
-     * Helper for setupProjectFileSystemModel to recursively find or create parent nodes
+     * Re-reads the project's file list in the background and applies only the differences to the tree,
+     * preserving expansion and selection state. Intended to be called when the file watcher reports changes.
+     * No-op in external file system mode.
      */
-    private DefaultMutableTreeNode findOrCreateParentNode(Path projectRoot, Path targetParentDirAbs, DefaultMutableTreeNode rootNode, Map<Path, DefaultMutableTreeNode> dirNodes)
-    {
-        if (targetParentDirAbs.equals(projectRoot)) {
-            return rootNode;
-        }
-        DefaultMutableTreeNode existingNode = dirNodes.get(targetParentDirAbs);
-        if (existingNode != null) {
-            return existingNode;
-        }
-
-        // Parent node doesn't exist, create it and its parents recursively
-        Path parentOfTarget = targetParentDirAbs.getParent();
-        if (parentOfTarget == null) { // Should not happen if targetParentDirAbs is under projectRoot
-            logger.error("Unexpected null parent for path: {}", targetParentDirAbs);
-            return rootNode; // Fallback
+    public void refreshProjectFiles() {
+        if (!(getModel() instanceof ProjectTreeModel model)) {
+            return;
         }
+        new SwingWorker<SortedPathIndex.Diff, Void>() {
+            @Override
+            protected SortedPathIndex.Diff doInBackground() {
+                return model.index.diff(toRelativePaths(project.getAllFiles()));
+            }
 
-        DefaultMutableTreeNode parentTreeNode = findOrCreateParentNode(projectRoot, parentOfTarget, rootNode, dirNodes);
+            @Override
+            protected void done() {
+                try {
+                    var diff = get();
+                    if (getModel() == model && !diff.isEmpty()) {
+                        logger.trace("Applying {} additions and {} removals to file tree", diff.added().size(), diff.removed().size());
+                        model.applyDiff(diff);
+                    }
+                } catch (InterruptedException | CancellationException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    logger.error("Error refreshing project file tree.", e.getCause());
+                }
+            }
+        }.execute();
+    }
 
-        // Create the node for targetParentDirAbs
-        String dirName = targetParentDirAbs.getFileName().toString();
-        DefaultMutableTreeNode newNode = new DefaultMutableTreeNode(dirName);
-        parentTreeNode.add(newNode);
-        dirNodes.put(targetParentDirAbs, newNode); // Add to map
+    /**
+     * Creates a TreeWillExpandListener that materializes project directory children on expansion.
+     * The index lookup is in-memory and cheap, so this runs synchronously on the EDT.
+     */
+    private TreeWillExpandListener createProjectExpandListener() {
+        return new TreeWillExpandListener() {
+            @Override
+            public void treeWillExpand(TreeExpansionEvent event) {
+                if (getModel() instanceof ProjectTreeModel model
+                    && event.getPath().getLastPathComponent() instanceof ProjectTreeNode node) {
+                    model.ensureChildrenLoaded(node);
+                }
+            }
 
-        return newNode;
+            @Override
+            public void treeWillCollapse(TreeExpansionEvent event) {
+                // No action needed on collapse
+            }
+        };
     }
 
     /**
@@ -205,7 +211,7 @@ public class FileTree extends JTree {
                         logger.trace("Attempting initial expansion to project root: {}", project.getRoot());
                         expandTreeToPath(project.getRoot());
                     } else {
-                        logger.trace("DefaultTreeModel set (Project files).");
+                        logger.trace("ProjectTreeModel set (Project files).");
                         // Optionally expand the project root node if desired
                         if (getModel().getRoot() instanceof DefaultMutableTreeNode rootNode) {
                             expandPath(new TreePath(rootNode.getPath()));
@@ -700,4 +706,169 @@ public class FileTree extends JTree {
             fileNode.setChildrenLoaded(true); // Mark as loaded (to prevent retries) even though it failed
         }
     }
+
+    /**
+     * A node in the project tree. The user object is the display name (a String), as consumers
+     * reconstruct relative paths from the node path. Directory nodes start with a single placeholder
+     * child until expanded.
+     */
+    private static class ProjectTreeNode extends DefaultMutableTreeNode {
+        private final String relPath; // '/'-separated, "" for the root
+        private final boolean directory;
+        private boolean childrenLoaded = false;
+
+        ProjectTreeNode(String name, String relPath, boolean directory) {
+            super(name, directory);
+            this.relPath = relPath;
+            this.directory = directory;
+            if (directory) {
+                add(new DefaultMutableTreeNode(LazyLoadingTreeModel.LOADING_PLACEHOLDER));
+            }
+        }
+
+        /**
+         * Key that orders siblings the same way SortedPathIndex lists them.
+         */
+        String sortKey() {
+            return directory ? getUserObject() + "/" : (String) getUserObject();
+        }
+
+        String childPath(String name) {
+            return relPath.isEmpty() ? name : relPath + "/" + name;
+        }
+    }
+
+    /**
+     * Tree model for project files backed by a {@link SortedPathIndex}. Nodes are created only when
+     * their parent directory is expanded, and index changes are applied as node insertions and
+     * removals rather than a rebuild. All node mutation happens on the EDT.
+     */
+    private static class ProjectTreeModel extends DefaultTreeModel {
+        private final SortedPathIndex index;
+        // Directory nodes whose children have been materialized, by relative path
+        private final Map<String, ProjectTreeNode> loadedDirs = new HashMap<>();
+
+        ProjectTreeModel(String rootDisplayName, SortedPathIndex index) {
+            super(new ProjectTreeNode(rootDisplayName, "", true));
+            this.index = index;
+            // JTree expands the root without firing will-expand events, so load it up front
+            var rootNode = (ProjectTreeNode) getRoot();
+            populate(rootNode);
+        }
+
+        void ensureChildrenLoaded(ProjectTreeNode node) {
+            if (!node.directory || node.childrenLoaded) {
+                return;
+            }
+            populate(node);
+            nodeStructureChanged(node);
+        }
+
+        private void populate(ProjectTreeNode node) {
+            node.removeAllChildren();
+            for (var entry : index.children(node.relPath)) {
+                node.add(new ProjectTreeNode(entry.name(), node.childPath(entry.name()), entry.directory()));
+            }
+            node.childrenLoaded = true;
+            loadedDirs.put(node.relPath, node);
+        }
+
+        void applyDiff(SortedPathIndex.Diff diff) {
+            assert SwingUtilities.isEventDispatchThread();
+            for (var path : diff.removed()) {
+                if (index.remove(path)) {
+                    removeNodeFor(path);
+                }
+            }
+            for (var path : diff.added()) {
+                if (index.add(path)) {
+                    insertNodeFor(path);
+                }
+            }
+        }
+
+        /**
+         * Adds the node for the first path segment that is missing under a loaded directory, if any.
+         * Deeper segments will be created when that node is expanded.
+         */
+        private void insertNodeFor(String path) {
+            var segments = path.split("/");
+            var parent = (ProjectTreeNode) getRoot();
+            for (int i = 0; i < segments.length; i++) {
+                if (!parent.childrenLoaded) {
+                    return;
+                }
+                boolean isDir = i < segments.length - 1;
+                var existing = findChild(parent, segments[i], isDir);
+                if (existing == null) {
+                    var child = new ProjectTreeNode(segments[i], parent.childPath(segments[i]), isDir);
+                    int at = insertionIndex(parent, child.sortKey());
+                    parent.insert(child, at);
+                    nodesWereInserted(parent, new int[]{at});
+                    return;
+                }
+                parent = existing;
+            }
+        }
+
+        /**
+         * Removes the node for a deleted file, or for its highest ancestor directory that no longer
+         * contains any files.
+         */
+        private void removeNodeFor(String path) {
+            // find the topmost ancestor that became empty
+            String target = path;
+            for (int slash = path.indexOf('/'); slash >= 0; slash = path.indexOf('/', slash + 1)) {
+                var dir = path.substring(0, slash);
+                if (!index.isDirectory(dir)) {
+                    target = dir;
+                    break;
+                }
+            }
+            boolean targetIsDir = !target.equals(path);
+
+            int lastSlash = target.lastIndexOf('/');
+            var parentPath = lastSlash < 0 ? "" : target.substring(0, lastSlash);
+            var parent = loadedDirs.get(parentPath);
+            if (parent == null) {
+                return; // not materialized; nothing visible to update
+            }
+            var node = findChild(parent, target.substring(lastSlash + 1), targetIsDir);
+            if (node == null) {
+                return;
+            }
+            int at = parent.getIndex(node);
+            parent.remove(at);
+            nodesWereRemoved(parent, new int[]{at}, new Object[]{node});
+            if (targetIsDir) {
+                var prefix = target + "/";
+                loadedDirs.keySet().removeIf(k -> k.equals(target) || k.startsWith(prefix));
+            }
+        }
+
+        private static ProjectTreeNode findChild(ProjectTreeNode parent, String name, boolean directory) {
+            for (int i = 0; i < parent.getChildCount(); i++) {
+                if (parent.getChildAt(i) instanceof ProjectTreeNode child
+                    && child.directory == directory
+                    && name.equals(child.getUserObject())) {
+                    return child;
+                }
+            }
+            return null;
+        }
+
+        private static int insertionIndex(ProjectTreeNode parent, String sortKey) {
+            int lo = 0, hi = parent.getChildCount();
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                var child = (ProjectTreeNode) parent.getChildAt(mid);
+                if (child.sortKey().compareTo(sortKey) < 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
 }
@@ -170,10 +170,11 @@ public class GitCommitTab extends JPanel {
 
         // Context menu actions:
         viewDiffItem.addActionListener(e -> {
-            int row = uncommittedFilesTable.getSelectedRow();
-            if (row >= 0) {
-                var projectFile = (ProjectFile) uncommittedFilesTable.getModel().getValueAt(row, 2);
-                GitUiUtil.showUncommittedFileDiff(contextManager, chrome, projectFile.toString());
+            var selectedFiles = getSelectedFilesFromTable();
+            if (selectedFiles.size() == 1) {
+                GitUiUtil.showUncommittedFileDiff(contextManager, chrome, selectedFiles.getFirst().toString());
+            } else if (!selectedFiles.isEmpty()) {
+                GitUiUtil.showUncommittedFilesDiff(contextManager, chrome, selectedFiles);
             }
         });
 
@@ -546,8 +547,8 @@ public class GitCommitTab extends JPanel {
             // More than one file selected
             captureDiffItem.setEnabled(true);
             captureDiffItem.setToolTipText("Capture diff of selected files to context");
-            viewDiffItem.setEnabled(false); // Disable View Diff for multiple files
-            viewDiffItem.setToolTipText("Select a single file to view its diff");
+            viewDiffItem.setEnabled(true);
+            viewDiffItem.setToolTipText("View diffs of selected files");
             editFileItem.setEnabled(false); // Disable Edit File for multiple files
             editFileItem.setToolTipText("Select a single file to edit");
             viewHistoryItem.setEnabled(false); // Disable View History for multiple files
@@ -642,7 +643,7 @@ private String inferCommitMessage(Project project, String diffText) {
         // Use quickest model for commit messages via ContextManager
         Llm.StreamingResult result;
         try {
-            result = contextManager.getLlm(contextManager.getModels().quickestModel(), "Infer commit message").sendRequest(messages);
+            result = contextManager.getLlm(contextManager.getModels().quickestModel(), "Infer commit message").sendCacheableRequest(messages);
         } catch (InterruptedException e) {
             throw new RuntimeException(e);
         }
@@ -480,7 +480,7 @@ public class GitLogTab extends JPanel {
                     viewHistoryItem.setEnabled(singleFileSelected);
                     addFileToContextItem.setEnabled(hasFileSelection);
                     editFileItem.setEnabled(hasFileSelection);
-                    viewDiffItem.setEnabled(singleFileSelected && isSingleCommit);
+                    viewDiffItem.setEnabled(hasFileSelection && isSingleCommit);
                     compareFileWithLocalItem.setEnabled(singleFileSelected && isSingleCommit);
                     comparePrevWithLocalItem.setEnabled(singleFileSelected && isSingleCommit);
 
@@ -555,12 +555,18 @@ public class GitLogTab extends JPanel {
         });
         viewDiffItem.addActionListener(e -> {
             var paths = changesTree.getSelectionPaths();
-            if (paths != null && paths.length == 1) {
-                int[] selRows = commitsTable.getSelectedRows();
-                if (selRows.length == 1 && isFileNode(paths[0])) {
-                    String commitId = (String) commitsTableModel.getValueAt(selRows[0], 3);
-                    String filePath = getFilePathFromTreePath(paths[0]);
-                    GitUiUtil.showFileHistoryDiff(contextManager, chrome, commitId, contextManager.toFile(filePath));
+            int[] selRows = commitsTable.getSelectedRows();
+            if (paths == null || selRows.length != 1) {
+                return;
+            }
+            String commitId = (String) commitsTableModel.getValueAt(selRows[0], 3);
+            if (paths.length == 1 && isFileNode(paths[0])) {
+                String filePath = getFilePathFromTreePath(paths[0]);
+                GitUiUtil.showFileHistoryDiff(contextManager, chrome, commitId, contextManager.toFile(filePath));
+            } else {
+                var files = getSelectedFilePaths(paths).stream().map(contextManager::toFile).toList();
+                if (!files.isEmpty()) {
+                    GitUiUtil.showCommitDiff(contextManager, chrome, commitId, files);
                 }
             }
         });
@@ -4,6 +4,8 @@ import io.github.jbellis.brokk.ContextFragment;
 import io.github.jbellis.brokk.ContextManager;
 import io.github.jbellis.brokk.analyzer.ProjectFile;
 import io.github.jbellis.brokk.difftool.ui.BrokkDiffPanel;
+import io.github.jbellis.brokk.difftool.ui.BufferSource;
+import io.github.jbellis.brokk.git.GitRepo;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.eclipse.jgit.api.errors.GitAPIException;
@@ -11,6 +13,7 @@ import org.fife.ui.rsyntaxtextarea.SyntaxConstants;
 
 import javax.swing.*;
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 /**
@@ -127,8 +130,7 @@ public final class GitUiUtil
                                            String commitId,
                                            ProjectFile file)
     {
-        var repo = cm.getProject().getRepo();
-        if (repo == null) {
+        if (!(cm.getProject().getRepo() instanceof GitRepo repo)) {
             cm.getIo().toolError("Git repository not available.");
             return;
         }
@@ -138,15 +140,18 @@ public final class GitUiUtil
 
         cm.submitBackgroundTask("Loading history diff for " + file.getFileName(), () -> {
             try {
-                var parentObjectId = repo.resolve(parentCommitId);
-                var parentContent = parentObjectId == null ? "" : repo.getFileContent(parentCommitId, file);
-                var commitContent = repo.getFileContent(commitId, file);
+                var parentBlobId = repo.getFileBlobId(parentCommitId, file);
+                var commitBlobId = repo.getFileBlobId(commitId, file);
+                if (Objects.equals(parentBlobId, commitBlobId)) {
+                    cm.getIo().systemOutput("No changes to " + file.getFileName() + " in " + shortCommitId);
+                    return null;
+                }
 
                 SwingUtilities.invokeLater(() -> {
                     var isDark = chrome.themeManager.isDarkTheme();
                     var brokkDiffPanel = new BrokkDiffPanel.Builder(cm)
-                            .leftSource(new io.github.jbellis.brokk.difftool.ui.BufferSource.StringSource(parentContent, parentCommitId))
-                            .rightSource(new io.github.jbellis.brokk.difftool.ui.BufferSource.StringSource(commitContent, commitId))
+                            .leftSource(new BufferSource.GitBlobSource(repo, parentBlobId, parentCommitId))
+                            .rightSource(new BufferSource.GitBlobSource(repo, commitBlobId, commitId))
                             .withTheme(isDark)
                             .build();
                     brokkDiffPanel.showInFrame(dialogTitle);
@@ -158,6 +163,131 @@ public final class GitUiUtil
         });
     }
 
+    /**
+     * Show the changes a commit made to several files in one diff window, with a file list. The window opens
+     * as soon as the first changed file is resolved, and the others are added to it as they are resolved.
+     */
+    public static void showCommitDiff(ContextManager cm,
+                                      Chrome chrome,
+                                      String commitId,
+                                      List<ProjectFile> files)
+    {
+        if (!(cm.getProject().getRepo() instanceof GitRepo repo)) {
+            cm.getIo().toolError("Git repository not available.");
+            return;
+        }
+        var shortCommitId = (commitId.length() > 7) ? commitId.substring(0, 7) : commitId;
+        var parentCommitId = commitId + "^";
+
+        var dialogTitle = "Diff: %d files (%s)".formatted(files.size(), shortCommitId);
+
+        cm.submitBackgroundTask("Loading history diff for " + files.size() + " files", () -> {
+            BrokkDiffPanel panel = null;
+            try {
+                for (var file : files) {
+                    if (panel != null && panel.isClosed()) {
+                        break;
+                    }
+                    var parentBlobId = repo.getFileBlobId(parentCommitId, file);
+                    var commitBlobId = repo.getFileBlobId(commitId, file);
+                    if (Objects.equals(parentBlobId, commitBlobId)) {
+                        continue; // same blob, nothing to show
+                    }
+                    panel = addToDiffWindow(panel, cm, chrome, dialogTitle,
+                                            new BufferSource.GitBlobSource(repo, parentBlobId, parentCommitId + ":" + file),
+                                            new BufferSource.GitBlobSource(repo, commitBlobId, file.toString()));
+                }
+                if (panel == null) {
+                    cm.getIo().systemOutput("No changes to the selected files in " + shortCommitId);
+                }
+            } catch (Exception ex) {
+                cm.getIo().toolErrorRaw("Error loading history diff: " + ex.getMessage());
+            } finally {
+                completeDiffWindow(panel);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Show the uncommitted changes to several files (HEAD vs local) in one diff window, with a file list. The
+     * window opens as soon as the first changed file is resolved, and the others are added to it as they are resolved.
+     */
+    public static void showUncommittedFilesDiff(ContextManager cm,
+                                                Chrome chrome,
+                                                List<ProjectFile> files)
+    {
+        if (!(cm.getProject().getRepo() instanceof GitRepo repo)) {
+            cm.getIo().toolError("Git repository not available.");
+            return;
+        }
+
+        var dialogTitle = "Diff: %d files [HEAD vs Local]".formatted(files.size());
+
+        cm.submitBackgroundTask("Loading uncommitted diff for " + files.size() + " files", () -> {
+            BrokkDiffPanel panel = null;
+            try {
+                for (var file : files) {
+                    if (panel != null && panel.isClosed()) {
+                        break;
+                    }
+                    var headBlobId = repo.getFileBlobId("HEAD", file);
+                    var localBlobId = file.exists() ? repo.hashWorkingFile(file) : null;
+                    if (Objects.equals(headBlobId, localBlobId)) {
+                        continue; // unchanged on disk, e.g. only touched or re-saved
+                    }
+                    var local = file.exists()
+                                ? new BufferSource.FileSource(file.absPath().toFile(), file.toString())
+                                : new BufferSource.StringSource("", file + " (deleted)");
+                    panel = addToDiffWindow(panel, cm, chrome, dialogTitle,
+                                            new BufferSource.GitBlobSource(repo, headBlobId, "HEAD:" + file), local);
+                }
+                if (panel == null) {
+                    cm.getIo().systemOutput("No uncommitted changes to the selected files");
+                }
+            } catch (Exception ex) {
+                cm.getIo().toolErrorRaw("Error loading uncommitted diff: " + ex.getMessage());
+            } finally {
+                completeDiffWindow(panel);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Opens a multi-file diff window on its first comparison, or adds a later one to the open window.
+     * Called from a background thread.
+     *
+     * @return the window's panel, or null if it could not be opened
+     */
+    private static BrokkDiffPanel addToDiffWindow(BrokkDiffPanel panel,
+                                                  ContextManager cm,
+                                                  Chrome chrome,
+                                                  String dialogTitle,
+                                                  BufferSource left,
+                                                  BufferSource right)
+    {
+        if (panel != null) {
+            SwingUtilities.invokeLater(() -> panel.addComparison(left, right));
+            return panel;
+        }
+        return SwingUtil.runOnEDT(() -> {
+            var opened = new BrokkDiffPanel.Builder(cm)
+                    .addComparison(left, right)
+                    .expectMoreComparisons()
+                    .withTheme(chrome.themeManager.isDarkTheme())
+                    .build();
+            opened.showInFrame(dialogTitle);
+            return opened;
+        }, null);
+    }
+
+    private static void completeDiffWindow(BrokkDiffPanel panel) {
+        if (panel != null) {
+            SwingUtilities.invokeLater(panel::comparisonsComplete);
+        }
+    }
+
     /**
      * View the file content at a specific commit (opens it in a preview window).
      */
@@ -312,8 +442,7 @@ public final class GitUiUtil
                                        String filePath,
                                        boolean useParent)
     {
-        var repo = cm.getProject().getRepo();
-        if (repo == null) {
+        if (!(cm.getProject().getRepo() instanceof GitRepo repo)) {
             cm.getIo().toolError("Git repository not available.");
             return;
         }
@@ -339,22 +468,18 @@ public final class GitUiUtil
                     }
                 }
 
-                // 3) Read old content from the base commit (if it exists)
-                var oldContent = "";
-                if (baseCommitId != null) {
-                    oldContent = repo.getFileContent(baseCommitId, file);
-                }
+                // 3) Find the file's blob in the base commit (if it exists); it is streamed when the diff is built
+                var oldBlobId = baseCommitId == null ? null : repo.getFileBlobId(baseCommitId, file);
 
                 // 4) Create panel on Swing thread
-                String finalOldContent = oldContent; // effectively final for lambda
                 String finalBaseCommitTitle = baseCommitTitle;
                 String finalDialogTitle = "Diff: %s [Local vs %s]".formatted(file.getFileName(), baseCommitShort);
 
                 SwingUtilities.invokeLater(() -> {
                     var isDark = chrome.themeManager.isDarkTheme();
                     var brokkDiffPanel = new BrokkDiffPanel.Builder(cm)
-                            .leftSource(new io.github.jbellis.brokk.difftool.ui.BufferSource.StringSource(finalOldContent, finalBaseCommitTitle))
-                            .rightSource(new io.github.jbellis.brokk.difftool.ui.BufferSource.FileSource(file.absPath().toFile(), file.toString()))
+                            .leftSource(new BufferSource.GitBlobSource(repo, oldBlobId, finalBaseCommitTitle))
+                            .rightSource(new BufferSource.FileSource(file.absPath().toFile(), file.toString()))
                             .withTheme(isDark)
                             .build();
                     brokkDiffPanel.showInFrame(finalDialogTitle);
@@ -16,6 +16,7 @@ import java.awt.*;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -24,6 +25,9 @@ import java.util.List;
 public class HistoryOutputPanel extends JPanel {
     private static final Logger logger = LogManager.getLogger(HistoryOutputPanel.class);
 
+    // how many history entries on each side of the selection to prerender
+    private static final int PRERENDER_RADIUS = 2;
+
     private final Chrome chrome;
     private final ContextManager contextManager;
     private JTable historyTable;
@@ -163,6 +167,7 @@ public class HistoryOutputPanel extends JPanel {
                     var ctx = (Context)historyModel.getValueAt(row, 2);
                     contextManager.setSelectedContext(ctx);
                     chrome.loadContext(ctx);
+                    prerenderNeighbours(row);
                 }
              }
          });
@@ -362,6 +367,28 @@ public class HistoryOutputPanel extends JPanel {
         });
     }
 
+    /**
+     * Starts rendering the outputs of the contexts around the given row, so that stepping through
+     * the history to one of them does not have to parse it on the EDT.
+     */
+    private void prerenderNeighbours(int row) {
+        var outputs = new ArrayList<ContextFragment.TaskFragment>();
+        for (int distance = 1; distance <= PRERENDER_RADIUS; distance++) {
+            for (int i : new int[]{row - distance, row + distance}) {
+                if (i < 0 || i >= historyModel.getRowCount()) {
+                    continue;
+                }
+                var output = ((Context) historyModel.getValueAt(i, 2)).getParsedOutput();
+                if (output != null) {
+                    outputs.add(output);
+                }
+            }
+        }
+        if (!outputs.isEmpty()) {
+            MarkdownOutputPanel.prerender(outputs);
+        }
+    }
+
     /**
      * Returns the history table for selection checks
      *
@@ -0,0 +1,289 @@
+package io.github.jbellis.brokk.gui.dialogs;
+
+import io.github.jbellis.brokk.analyzer.ProjectFile;
+import io.github.jbellis.brokk.gui.GuiTheme;
+import io.github.jbellis.brokk.util.MappedTextFile;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.fife.ui.rsyntaxtextarea.RSyntaxTextArea;
+import org.fife.ui.rsyntaxtextarea.SyntaxConstants;
+import org.fife.ui.rtextarea.RTextScrollPane;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.KeyEvent;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Read-only preview of a file too large for {@link PreviewTextPanel}.
+ * <p>
+ * The file is memory-mapped by {@link MappedTextFile} and only the lines that fit in the window are
+ * loaded into the text area, so opening a multi-gigabyte log costs about as much as opening a small one.
+ * The scroll bar spans the whole file and fills in as the line index is built in the background.
+ * Syntax highlighting sees one page at a time, so a construct that starts above the page (a block
+ * comment, say) may be colored wrongly.
+ */
+public class LargeFilePreviewPanel extends JPanel {
+    private static final Logger logger = LogManager.getLogger(LargeFilePreviewPanel.class);
+
+    /** Files larger than this are previewed here rather than in a PreviewTextPanel. */
+    public static final long THRESHOLD_BYTES = 16L << 20;
+    private static final int WHEEL_LINES = 3;
+
+    private static final ExecutorService worker = Executors.newCachedThreadPool(r -> {
+        Thread t = Executors.defaultThreadFactory().newThread(r);
+        t.setName("Brokk-Large-File-Preview");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final ProjectFile projectFile;
+    private final MappedTextFile file;
+    private final RSyntaxTextArea textArea;
+    private final RTextScrollPane scrollPane;
+    private final JScrollBar scrollBar;
+    private final JTextField searchField;
+    private final JLabel statusLabel;
+    private final Future<?> indexing;
+    // only the most recent search is worth finishing
+    private final AtomicLong searchGeneration = new AtomicLong();
+
+    private int firstLine;
+    private int pageLines;
+    // byte offset of the current match, or -1
+    private long lastMatch = -1;
+
+    public LargeFilePreviewPanel(ProjectFile pf, String syntaxStyle, GuiTheme guiTheme) throws IOException {
+        super(new BorderLayout());
+        this.projectFile = pf;
+        this.file = new MappedTextFile(pf.absPath());
+
+        // === Top search bar ===
+        JPanel topPanel = new JPanel(new BorderLayout(8, 4));
+        JPanel searchControlsPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 0));
+        searchField = new JTextField(20);
+        var nextButton = new JButton("↓");
+        var previousButton = new JButton("↑");
+        searchControlsPanel.add(new JLabel("Search:"));
+        searchControlsPanel.add(searchField);
+        searchControlsPanel.add(previousButton);
+        searchControlsPanel.add(nextButton);
+        statusLabel = new JLabel();
+        topPanel.add(searchControlsPanel, BorderLayout.CENTER);
+        topPanel.add(statusLabel, BorderLayout.EAST);
+
+        // === One page of the file; the external scroll bar moves the page ===
+        textArea = new RSyntaxTextArea();
+        textArea.setSyntaxEditingStyle(syntaxStyle != null ? syntaxStyle : SyntaxConstants.SYNTAX_STYLE_NONE);
+        textArea.setAntiAliasingEnabled(true);
+        textArea.setHighlightCurrentLine(false);
+        textArea.setEditable(false);
+        scrollBar = new JScrollBar(JScrollBar.VERTICAL);
+        scrollBar.addAdjustmentListener(e -> {
+            if (scrollBar.getValue() != firstLine) {
+                showPage(scrollBar.getValue());
+            }
+        });
+        scrollPane = new RTextScrollPane(textArea);
+        scrollPane.setVerticalScrollBarPolicy(ScrollPaneConstants.VERTICAL_SCROLLBAR_NEVER);
+        scrollPane.setWheelScrollingEnabled(false);
+        scrollPane.addMouseWheelListener(e -> scrollBar.setValue(scrollBar.getValue() + e.getWheelRotation() * WHEEL_LINES));
+        scrollPane.getViewport().addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                showPage(firstLine);
+            }
+        });
+        if (guiTheme != null) {
+            guiTheme.applyCurrentThemeToComponent(textArea);
+        }
+
+        JPanel center = new JPanel(new BorderLayout());
+        center.add(scrollPane, BorderLayout.CENTER);
+        center.add(scrollBar, BorderLayout.EAST);
+        add(topPanel, BorderLayout.NORTH);
+        add(center, BorderLayout.CENTER);
+
+        // === Search: Enter / arrows / buttons; a new query starts from the current page ===
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                lastMatch = -1;
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                lastMatch = -1;
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                lastMatch = -1;
+            }
+        });
+        searchField.addActionListener(e -> findNext(true));
+        nextButton.addActionListener(e -> findNext(true));
+        previousButton.addActionListener(e -> findNext(false));
+        bind(searchField, KeyEvent.VK_DOWN, 0, "findNext", () -> findNext(true));
+        bind(searchField, KeyEvent.VK_UP, 0, "findPrevious", () -> findNext(false));
+
+        // === Keyboard paging over the whole file rather than the loaded page ===
+        bind(textArea, KeyEvent.VK_PAGE_DOWN, 0, "filePageDown", () -> scrollBar.setValue(firstLine + pageLines));
+        bind(textArea, KeyEvent.VK_PAGE_UP, 0, "filePageUp", () -> scrollBar.setValue(firstLine - pageLines));
+        int menuMask = Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx();
+        bind(textArea, KeyEvent.VK_HOME, menuMask, "fileStart", () -> scrollBar.setValue(0));
+        bind(textArea, KeyEvent.VK_END, menuMask, "fileEnd", () -> scrollBar.setValue(scrollBar.getMaximum()));
+        getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_F, menuMask), "focusSearch");
+        getActionMap().put("focusSearch", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                searchField.requestFocusInWindow();
+            }
+        });
+
+        indexing = worker.submit(() -> file.indexLines(lines -> SwingUtilities.invokeLater(this::onIndexProgress)));
+        updateStatus();
+    }
+
+    private static void bind(JComponent component, int keyCode, int modifiers, String name, Runnable action) {
+        component.getInputMap(JComponent.WHEN_FOCUSED).put(KeyStroke.getKeyStroke(keyCode, modifiers), name);
+        component.getActionMap().put(name, new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                action.run();
+            }
+        });
+    }
+
+    private int visibleRows() {
+        int height = scrollPane.getViewport().getExtentSize().height;
+        return Math.max(1, height / Math.max(1, textArea.getLineHeight()));
+    }
+
+    /**
+     * Loads the page starting at first (clamped to the indexed lines) into the text area.
+     */
+    private void showPage(int first) {
+        assert SwingUtilities.isEventDispatchThread();
+        int lineCount = file.lineCount();
+        int rows = visibleRows();
+        first = Math.max(0, Math.min(first, lineCount - rows));
+        int last = Math.min(lineCount, first + rows);
+        firstLine = first;
+        pageLines = last - first;
+        textArea.setText(pageLines > 0 ? file.lines(first, last) : "");
+        textArea.setCaretPosition(0);
+        scrollPane.getGutter().setLineNumberingStartIndex(first + 1);
+        scrollBar.setValues(first, rows, 0, Math.max(lineCount, rows));
+        scrollBar.setBlockIncrement(rows);
+        updateStatus();
+    }
+
+    private void onIndexProgress() {
+        int rows = visibleRows();
+        // refill the page while it still has room for newly indexed lines; otherwise just grow the scroll bar
+        if (pageLines < rows) {
+            showPage(firstLine);
+        } else {
+            scrollBar.setMaximum(Math.max(file.lineCount(), rows));
+            updateStatus();
+        }
+    }
+
+    private void updateStatus() {
+        var total = "%,d".formatted(file.lineCount());
+        var range = pageLines == 0 ? "" : "Lines %,d-%,d of ".formatted(firstLine + 1, firstLine + pageLines);
+        statusLabel.setText(range + total + (file.isIndexComplete() ? "" : " (indexing...)") + " ");
+    }
+
+    /**
+     * Searches the whole file, case-insensitively, from the current match or page, wrapping around at
+     * the end. The scan runs in the background and is abandoned if another search starts.
+     */
+    private void findNext(boolean forward) {
+        var query = searchField.getText();
+        if (query == null || query.isEmpty()) {
+            return;
+        }
+        long generation = searchGeneration.incrementAndGet();
+        long pageStart = firstLine == 0 ? 0 : file.lineStart(firstLine);
+        long from = lastMatch >= 0 ? lastMatch + (forward ? 1 : -1) : (forward ? pageStart : pageStart - 1);
+        statusLabel.setText("Searching... ");
+        worker.submit(() -> {
+            try {
+                // placing a match needs its line, so the index must be done
+                indexing.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                logger.error("Unable to index {}", projectFile, e.getCause());
+                return;
+            }
+            BooleanSupplier cancelled = () -> searchGeneration.get() != generation;
+            long hit = file.find(query, from, forward, false, cancelled);
+            if (hit < 0 && !cancelled.getAsBoolean()) {
+                hit = file.find(query, forward ? 0 : file.size(), forward, false, cancelled);
+            }
+            long match = hit;
+            SwingUtilities.invokeLater(() -> {
+                if (cancelled.getAsBoolean()) {
+                    return;
+                }
+                if (match < 0) {
+                    updateStatus();
+                    statusLabel.setText("No matches. " + statusLabel.getText());
+                    return;
+                }
+                lastMatch = match;
+                showMatch(match, query.length());
+            });
+        });
+    }
+
+    /**
+     * Scrolls so the match is a third of the way down the page, and selects it.
+     */
+    private void showMatch(long offset, int length) {
+        int line = file.lineForOffset(offset);
+        showPage(line - visibleRows() / 3);
+        long lineStart = file.lineStart(line);
+        if (offset - lineStart >= MappedTextFile.MAX_LINE_BYTES || line - firstLine >= pageLines) {
+            return;
+        }
+        // the page holds decoded text, so convert the byte offset within the line to a char offset
+        int column = new String(file.read(lineStart, (int) (offset - lineStart)), StandardCharsets.UTF_8).length();
+        try {
+            int start = textArea.getLineStartOffset(line - firstLine) + column;
+            textArea.select(start, Math.min(start + length, textArea.getDocument().getLength()));
+        } catch (BadLocationException e) {
+            logger.debug("Match at {} is not on the page", offset, e);
+        }
+    }
+
+    public void updateTheme(GuiTheme guiTheme) {
+        if (guiTheme != null) {
+            guiTheme.applyCurrentThemeToComponent(textArea);
+        }
+    }
+
+    @Override
+    public void removeNotify() {
+        super.removeNotify();
+        searchGeneration.incrementAndGet();
+        file.close();
+    }
+}
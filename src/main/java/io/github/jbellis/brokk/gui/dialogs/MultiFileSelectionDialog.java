@@ -224,6 +224,15 @@ public class MultiFileSelectionDialog extends JDialog {
         SwingUtilities.invokeLater(() -> {
             fileTree.loadTreeInBackground();
         });
+        // Apply file additions/deletions incrementally while the dialog is open
+        Runnable refreshTree = () -> SwingUtilities.invokeLater(fileTree::refreshProjectFiles);
+        contextManager.addFileChangeListener(refreshTree);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                contextManager.removeFileChangeListener(refreshTree);
+            }
+        });
 
         JPanel inputPanel = new JPanel(new BorderLayout());
         inputPanel.setBorder(BorderFactory.createEmptyBorder(4, 4, 4, 4));
@@ -35,6 +35,8 @@ public class SettingsDialog extends JDialog {
     private JComboBox<Project.CpgRefresh> cpgRefreshComboBox; // ComboBox for CPG refresh
     private JTextField buildCleanCommandField;
     private JTextField allTestsCommandField;
+    private JTextField someTestsCommandField;
+    private JComboBox<Project.VerificationMode> verificationModeComboBox;
     private JTextArea buildInstructionsArea;
     private DataRetentionPanel dataRetentionPanel; // Reference to the new panel
     // Model selection combo boxes (initialized in createModelsPanel)
@@ -375,6 +377,7 @@ public class SettingsDialog extends JDialog {
         // Initialize Build fields for new BuildDetails
         buildCleanCommandField = new JTextField(); // used for Build/Lint Command
         allTestsCommandField = new JTextField(); // used for Test All Command
+        someTestsCommandField = new JTextField(); // used for Test Some Command template
         // Set the text area for build instructions to be 10 lines tall
         buildInstructionsArea = new JTextArea(10, 20);
         buildInstructionsArea.setWrapStyleWord(true);
@@ -407,6 +410,31 @@ public class SettingsDialog extends JDialog {
         gbc.weightx = 1.0;
         buildPanel.add(allTestsCommandField, gbc);
 
+        // Test Some Command
+        gbc.gridx = 0;
+        gbc.gridy = row;
+        gbc.weightx = 0.0;
+        buildPanel.add(new JLabel("Test Some Command:"), gbc);
+        someTestsCommandField.setText(details.testSomeCommand());
+        someTestsCommandField.setToolTipText("Runs only some tests; use {{classes}}, {{fqclasses}} or {{files}}, with an optional separator, e.g. {{classes|,}}");
+        gbc.gridx = 1;
+        gbc.gridy = row++;
+        gbc.weightx = 1.0;
+        buildPanel.add(someTestsCommandField, gbc);
+
+        // Verification Mode
+        gbc.gridx = 0;
+        gbc.gridy = row;
+        gbc.weightx = 0.0;
+        buildPanel.add(new JLabel("Code Agent Verifies:"), gbc);
+        verificationModeComboBox = new JComboBox<>(Project.VerificationMode.values());
+        verificationModeComboBox.setSelectedItem(project.getVerificationMode());
+        verificationModeComboBox.setToolTipText("AFFECTED_TESTS runs only the tests affected by the edits until they pass, then the full verification once");
+        gbc.gridx = 1;
+        gbc.gridy = row++;
+        gbc.weightx = 1.0;
+        buildPanel.add(verificationModeComboBox, gbc);
+
         // Build Instructions
         gbc.gridx = 0;
         gbc.gridy = row;
@@ -1025,6 +1053,7 @@ public class SettingsDialog extends JDialog {
             // Read potentially edited values from Build tab
             var newBuildLint = buildCleanCommandField.getText();
             var newTestAll = allTestsCommandField.getText();
+            var newTestSome = someTestsCommandField.getText();
             var newInstructions = buildInstructionsArea.getText();
 
             // Create a list from the DefaultListModel for excluded directories
@@ -1040,6 +1069,7 @@ public class SettingsDialog extends JDialog {
                                                         currentDetails.dependencies(),
                                                         newBuildLint,
                                                         newTestAll,
+                                                        newTestSome,
                                                         newInstructions,
                                                         newExcludedDirs);
 
@@ -1050,6 +1080,11 @@ public class SettingsDialog extends JDialog {
                 project.saveBuildDetails(newDetails);
             }
 
+            var selectedMode = (Project.VerificationMode) verificationModeComboBox.getSelectedItem();
+            if (selectedMode != project.getVerificationMode()) {
+                project.setVerificationMode(selectedMode);
+            }
+
             // Apply CPG Refresh Setting
             var selectedRefresh = (Project.CpgRefresh) cpgRefreshComboBox.getSelectedItem();
             if (selectedRefresh != project.getCpgRefresh()) {
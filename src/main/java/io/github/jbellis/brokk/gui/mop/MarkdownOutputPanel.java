@@ -4,6 +4,7 @@ import dev.langchain4j.data.message.*;
 import io.github.jbellis.brokk.ContextFragment;
 import io.github.jbellis.brokk.TaskEntry;
 import io.github.jbellis.brokk.gui.mop.stream.IncrementalBlockRenderer;
+import io.github.jbellis.brokk.gui.mop.stream.blocks.ComponentData;
 import io.github.jbellis.brokk.util.Messages;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -12,7 +13,12 @@ import javax.swing.*;
 import java.awt.*;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 /**
@@ -31,6 +37,11 @@ import java.util.stream.Collectors;
  * <p>
  * The panel updates incrementally when messages are appended, only re-rendering the affected message
  * rather than the entire content, which prevents flickering during streaming updates.
+ * <p>
+ * Outputs shown with setText are cached as finished component trees, so flipping back to a recently
+ * viewed output just re-adds its components. {@link #prerender} parses outputs the user is likely to
+ * view next (e.g. neighbouring history entries) in the background, leaving only Swing component
+ * creation for the EDT.
  */
 public class MarkdownOutputPanel extends JPanel implements Scrollable {
     private static final Logger logger = LogManager.getLogger(MarkdownOutputPanel.class);
@@ -51,6 +62,39 @@ public class MarkdownOutputPanel extends JPanel implements Scrollable {
     private boolean isDarkTheme = false;
     private boolean blockClearAndReset = false;
 
+    private static final int MAX_CACHED_OUTPUTS = 8;
+    private static final int MAX_PRERENDERED_MESSAGES = 128;
+
+    /** An output's messages with the components and renderers that display them. */
+    private record Rendered(List<ChatMessage> messages, List<Component> components, List<IncrementalBlockRenderer> renderers) {
+    }
+
+    // Recently shown outputs, keyed by their messages; EDT only
+    private final Map<List<ChatMessage>, Rendered> renderedCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<List<ChatMessage>, Rendered> eldest) {
+            return size() > MAX_CACHED_OUTPUTS;
+        }
+    };
+    // Key of the cached output currently shown, or null if the shown content is not (or no longer) cached
+    private List<ChatMessage> shownKey = null;
+
+    // Compacted components per message, shared by all panels since they don't depend on the theme
+    private static final Map<ChatMessage, List<ComponentData>> prerendered = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ChatMessage, List<ComponentData>> eldest) {
+            return size() > MAX_PRERENDERED_MESSAGES;
+        }
+    });
+    private static final ExecutorService prerenderWorker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = Executors.defaultThreadFactory().newThread(r);
+        t.setName("Brokk-Markdown-Prerender");
+        t.setDaemon(true);
+        return t;
+    });
+    // only the most recent prerender request is worth finishing
+    private static final AtomicLong prerenderGeneration = new AtomicLong();
+
     public MarkdownOutputPanel() {
         setLayout(new BoxLayout(this, BoxLayout.Y_AXIS));
         setOpaque(true);
@@ -84,7 +128,12 @@ public class MarkdownOutputPanel extends JPanel implements Scrollable {
         }
 
         // Re-render all components with new theme
-        setText(messages);
+        renderedCache.clear();
+        if (!blockClearAndReset) {
+            var current = List.copyOf(messages);
+            internalClear();
+            setText(current);
+        }
 
         revalidate();
         repaint();
@@ -137,6 +186,7 @@ public class MarkdownOutputPanel extends JPanel implements Scrollable {
         messageRenderers.clear();
         removeAll();
         spinnerPanel = null;
+        shownKey = null;
     }
 
     /**
@@ -152,6 +202,12 @@ public class MarkdownOutputPanel extends JPanel implements Scrollable {
             return;
         }
 
+        // the shown output is about to change, so its cached components no longer match it
+        if (shownKey != null) {
+            renderedCache.remove(shownKey);
+            shownKey = null;
+        }
+
         // Check if we're appending to an existing message of the same type
         if (!messages.isEmpty() && messages.getLast().type() == type) {
             // Append to existing message
@@ -159,7 +215,7 @@ public class MarkdownOutputPanel extends JPanel implements Scrollable {
         } else {
             // Create a new message
             ChatMessage newMessage = Messages.create(text, type);
-            addNewMessage(newMessage);
+            addNewMessage(newMessage, false);
         }
 
         textChangeListeners.forEach(Runnable::run);
@@ -189,8 +245,10 @@ public class MarkdownOutputPanel extends JPanel implements Scrollable {
 
     /**
      * Adds a new message to the display
+     *
+     * @param compacted true to render the message in its final, compacted form (it will not be streamed into)
      */
-    private void addNewMessage(ChatMessage message) {
+    private void addNewMessage(ChatMessage message, boolean compacted) {
         // Add to our message list
         messages.add(message);
 
@@ -248,7 +306,11 @@ public class MarkdownOutputPanel extends JPanel implements Scrollable {
         add(basePanel);
         
         // Update the renderer with the message content
-        renderer.update(Messages.getText(message));
+        if (compacted) {
+            renderer.applyCompacted(compactedComponents(message));
+        } else {
+            renderer.update(Messages.getText(message));
+        }
 
         // Re-add spinner if it was visible
         if (spinnerWasVisible) {
@@ -284,8 +346,24 @@ public class MarkdownOutputPanel extends JPanel implements Scrollable {
             return;
         }
         
-        for (var message : messages) {
-            addNewMessage(message);
+        // the cache only holds whole outputs, so only use it when this output is all that's shown
+        var cacheable = this.messages.isEmpty();
+        var cached = cacheable ? renderedCache.get(messages) : null;
+        if (cached != null) {
+            this.messages.addAll(cached.messages());
+            messageComponents.addAll(cached.components());
+            messageRenderers.addAll(cached.renderers());
+            cached.components().forEach(this::add);
+        } else {
+            for (var message : messages) {
+                addNewMessage(message, true);
+            }
+        }
+        if (cacheable) {
+            shownKey = List.copyOf(messages);
+            if (cached == null) {
+                renderedCache.put(shownKey, new Rendered(List.copyOf(this.messages), List.copyOf(messageComponents), List.copyOf(messageRenderers)));
+            }
         }
         compactAllMessages(); // do this for better text selection
         revalidate();
@@ -315,6 +393,44 @@ public class MarkdownOutputPanel extends JPanel implements Scrollable {
         }
     }
 
+    /**
+     * Parses the messages of the given outputs in the background, nearest first, so that showing one of
+     * them later only has to create its Swing components. Supersedes any earlier request that is still running.
+     */
+    public static void prerender(List<ContextFragment.TaskFragment> outputs) {
+        long generation = prerenderGeneration.incrementAndGet();
+        prerenderWorker.submit(() -> {
+            try {
+                for (var output : outputs) {
+                    for (var message : output.messages()) {
+                        if (generation != prerenderGeneration.get()) {
+                            return;
+                        }
+                        if (!prerendered.containsKey(message)) {
+                            prerendered.put(message, buildCompactedComponents(message));
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                logger.debug("Unable to prerender output", e);
+            }
+        });
+    }
+
+    private static List<ComponentData> compactedComponents(ChatMessage message) {
+        var components = prerendered.get(message);
+        if (components == null) {
+            components = buildCompactedComponents(message);
+            prerendered.put(message, components);
+        }
+        return components;
+    }
+
+    private static List<ComponentData> buildCompactedComponents(ChatMessage message) {
+        // edit blocks are disabled for user messages, as in addNewMessage
+        return IncrementalBlockRenderer.buildCompactedComponents(Messages.getText(message), message.type() != ChatMessageType.USER);
+    }
+
     /**
      * Returns text representation of all messages.
      * For backward compatibility with code that expects a String.
@@ -84,7 +84,17 @@ public final class IncrementalBlockRenderer {
         
         // Initialize Flexmark with our extensions
         idProvider = new IdProvider();
-        MutableDataSet options = new MutableDataSet()
+        var options = flexmarkOptions(enableEditBlocks, idProvider);
+        parser = Parser.builder(options).build();
+        renderer = HtmlRenderer.builder(options).build();
+        activeFactories = factoriesFor(enableEditBlocks);
+        
+        logger.debug("Initialized IncrementalBlockRenderer with Flexmark parser and custom extensions (edit blocks {})",
+                     enableEditBlocks ? "enabled" : "disabled");
+    }
+
+    private static MutableDataSet flexmarkOptions(boolean enableEditBlocks, IdProvider idProvider) {
+        return new MutableDataSet()
             .set(Parser.EXTENSIONS, Arrays.asList(
                     TablesExtension.create(),
                     BrokkMarkdownExtension.create()
@@ -93,22 +103,47 @@ public final class IncrementalBlockRenderer {
             .set(IdProvider.ID_PROVIDER, idProvider)
             .set(HtmlRenderer.SOFT_BREAK, "<br />\n")
             .set(HtmlRenderer.ESCAPE_HTML, true);
-            
-        parser = Parser.builder(options).build();
-        renderer = HtmlRenderer.builder(options).build();
-        
-        // Filter out edit blocks if disabled
+    }
+
+    // Filter out edit blocks if disabled
+    private static Map<String, ComponentDataFactory> factoriesFor(boolean enableEditBlocks) {
         if (enableEditBlocks) {
-            activeFactories = FACTORIES;
-            logger.debug("Edit blocks enabled");
-        } else {
-            activeFactories = FACTORIES.entrySet().stream()
-                    .filter(e -> !"edit-block".equals(e.getKey()))
-                    .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, Map.Entry::getValue));
-            logger.debug("Edit blocks disabled");
+            return FACTORIES;
         }
-        
-        logger.debug("Initialized IncrementalBlockRenderer with Flexmark parser and custom extensions");
+        return FACTORIES.entrySet().stream()
+                .filter(e -> !"edit-block".equals(e.getKey()))
+                .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, Map.Entry::getValue));
+    }
+
+    /**
+     * Builds the components that {@link #update} followed by {@link #compactMarkdown} would end up showing
+     * for the given markdown. Touches no Swing state, so it can run off the EDT; hand the result to
+     * {@link #applyCompacted} on the EDT.
+     */
+    public static List<ComponentData> buildCompactedComponents(String markdown, boolean enableEditBlocks) {
+        var idProvider = new IdProvider();
+        var options = flexmarkOptions(enableEditBlocks, idProvider);
+        var html = HtmlRenderer.builder(options).build().render(Parser.builder(options).build().parse(markdown));
+        var markdownFactory = new MarkdownFactory();
+        var components = buildComponentData(html, idProvider, markdownFactory, factoriesFor(enableEditBlocks));
+        return mergeMarkdownBlocks(components, markdownFactory);
+    }
+
+    /**
+     * Shows components from {@link #buildCompactedComponents} and leaves this renderer compacted,
+     * as if the markdown had been streamed in and then compacted.
+     */
+    public void applyCompacted(List<ComponentData> components) {
+        if (compacted) {
+            throw new IllegalStateException("Renderer already compacted");
+        }
+        updateUI(components);
+        compacted = true;
+        lastMarkdown = components.stream()
+                                 .filter(cd -> cd instanceof MarkdownComponentData)
+                                 .map(cd -> ((MarkdownComponentData) cd).html())
+                                 .collect(Collectors.joining("\n"));
+        lastHtmlFingerprint = components.stream().map(ComponentData::fp).collect(Collectors.joining("-"));
     }
     
     /**
@@ -184,6 +219,14 @@ public final class IncrementalBlockRenderer {
      * @return A list of ComponentData objects in document order
      */
     /* package */ List<ComponentData> buildComponentData(String html) {
+        return buildComponentData(html, idProvider, markdownFactory, activeFactories);
+    }
+
+    private static List<ComponentData> buildComponentData(String html,
+                                                          IdProvider idProvider,
+                                                          MarkdownFactory markdownFactory,
+                                                          Map<String, ComponentDataFactory> activeFactories)
+    {
         List<ComponentData> result = new ArrayList<>();
         
         Document doc = Jsoup.parse(html);
@@ -200,7 +243,7 @@ public final class IncrementalBlockRenderer {
                 
                 // For stability of IDs, ensure composites get a deterministic ID
                 // derived from the source element's position via IdProvider
-                parsedElements = normalizeCompositeId(element, parsedElements);
+                parsedElements = normalizeCompositeId(element, parsedElements, idProvider);
                 
                 // Add all parsed components to our result list
                 result.addAll(parsedElements);
@@ -225,8 +268,9 @@ public final class IncrementalBlockRenderer {
      * @param parsed The list of components parsed from the element
      * @return The same list with any composite's ID normalized
      */
-    private List<ComponentData> normalizeCompositeId(Element topLevelElement, 
-                                                    List<ComponentData> parsed) {
+    private static List<ComponentData> normalizeCompositeId(Element topLevelElement,
+                                                           List<ComponentData> parsed,
+                                                           IdProvider idProvider) {
         if (parsed.size() != 1 || !(parsed.getFirst() instanceof CompositeComponentData composite)) {
             return parsed;  // No work to do
         }
@@ -265,7 +309,7 @@ public final class IncrementalBlockRenderer {
             return;
         }
 
-        var merged = mergeMarkdownBlocks(originalComponents);
+        var merged = mergeMarkdownBlocks(originalComponents, markdownFactory);
         logger.debug("Compacting markdown blocks: {} -> {}", originalComponents.size(), merged.size());
         updateUI(merged);
         compacted = true;
@@ -282,9 +326,10 @@ public final class IncrementalBlockRenderer {
      * Merges consecutive MarkdownComponentData blocks into a single block.
      * 
      * @param src The source list of ComponentData objects
+     * @param markdownFactory The factory used to create the merged blocks
      * @return A new list with consecutive MarkdownComponentData blocks merged
      */
-    private List<ComponentData> mergeMarkdownBlocks(List<ComponentData> src) {
+    private static List<ComponentData> mergeMarkdownBlocks(List<ComponentData> src, MarkdownFactory markdownFactory) {
         var out = new ArrayList<ComponentData>();
         MarkdownComponentData acc = null;
         StringBuilder htmlBuf = null;
@@ -298,13 +343,13 @@ public final class IncrementalBlockRenderer {
                     htmlBuf.append('\n').append(md.html());
                 }
             } else {
-                flush(out, acc, htmlBuf);
+                flush(out, acc, htmlBuf, markdownFactory);
                 out.add(cd);
                 acc = null;
                 htmlBuf = null;
             }
         }
-        flush(out, acc, htmlBuf);
+        flush(out, acc, htmlBuf, markdownFactory);
         return out;
     }
 
@@ -314,8 +359,9 @@ public final class IncrementalBlockRenderer {
      * @param out The output list to add the merged component to
      * @param acc The accumulated MarkdownComponentData
      * @param htmlBuf The StringBuilder containing the merged HTML content
+     * @param markdownFactory The factory used to create the merged block
      */
-    private void flush(List<ComponentData> out, MarkdownComponentData acc, StringBuilder htmlBuf) {
+    private static void flush(List<ComponentData> out, MarkdownComponentData acc, StringBuilder htmlBuf, MarkdownFactory markdownFactory) {
         if (acc == null || htmlBuf == null) return;
         var merged = markdownFactory.fromText(acc.id(), htmlBuf.toString());
         out.add(merged);
@@ -0,0 +1,163 @@
+package io.github.jbellis.brokk.tools;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-tool execution statistics collected by {@link ToolRegistry}: call and failure counts,
+ * a latency histogram, and result sizes. All recording is lock-free so it is safe to call from
+ * the many agent threads that execute tools concurrently.
+ */
+public class ToolMetrics {
+    /**
+     * Upper bounds (inclusive, in milliseconds) of the latency histogram buckets.
+     * A final overflow bucket collects everything slower than the last bound.
+     */
+    static final long[] LATENCY_BUCKETS_MS = {1, 5, 10, 25, 50, 100, 250, 500, 1_000, 2_500, 5_000, 10_000, 30_000};
+
+    private final Map<String, Collector> collectors = new ConcurrentHashMap<>();
+
+    /**
+     * Immutable snapshot of one tool's statistics.
+     *
+     * @param histogram counts per latency bucket; {@code histogram.length == LATENCY_BUCKETS_MS.length + 1}
+     */
+    public record ToolStats(String toolName,
+                            long calls,
+                            long failures,
+                            long totalNanos,
+                            long maxNanos,
+                            long[] histogram,
+                            long totalResultChars,
+                            long maxResultChars)
+    {
+        public double meanMillis() {
+            return calls == 0 ? 0 : totalNanos / 1e6 / calls;
+        }
+
+        public double maxMillis() {
+            return maxNanos / 1e6;
+        }
+
+        public long meanResultChars() {
+            return calls == 0 ? 0 : totalResultChars / calls;
+        }
+
+        /**
+         * Approximates the given latency percentile (0-100) as the upper bound of the bucket that contains it.
+         * Returns -1 if the percentile falls in the overflow bucket.
+         */
+        public long percentileMillis(double percentile) {
+            if (calls == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(calls * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < histogram.length; i++) {
+                seen += histogram[i];
+                if (seen >= rank) {
+                    return i < LATENCY_BUCKETS_MS.length ? LATENCY_BUCKETS_MS[i] : -1;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static class Collector {
+        final LongAdder calls = new LongAdder();
+        final LongAdder failures = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        final LongAdder[] histogram = new LongAdder[LATENCY_BUCKETS_MS.length + 1];
+        final LongAdder totalResultChars = new LongAdder();
+        final LongAccumulator maxResultChars = new LongAccumulator(Math::max, 0);
+
+        Collector() {
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] = new LongAdder();
+            }
+        }
+    }
+
+    /**
+     * Records a single tool execution.
+     */
+    public void record(String toolName, long elapsedNanos, int resultChars, boolean success) {
+        var c = collectors.computeIfAbsent(toolName, k -> new Collector());
+        c.calls.increment();
+        if (!success) {
+            c.failures.increment();
+        }
+        c.totalNanos.add(elapsedNanos);
+        c.maxNanos.accumulate(elapsedNanos);
+        c.histogram[bucketFor(elapsedNanos)].increment();
+        c.totalResultChars.add(resultChars);
+        c.maxResultChars.accumulate(resultChars);
+    }
+
+    static int bucketFor(long elapsedNanos) {
+        long millis = elapsedNanos / 1_000_000;
+        for (int i = 0; i < LATENCY_BUCKETS_MS.length; i++) {
+            if (millis <= LATENCY_BUCKETS_MS[i]) {
+                return i;
+            }
+        }
+        return LATENCY_BUCKETS_MS.length;
+    }
+
+    /**
+     * @return statistics for every tool that has been called at least once, most-called first
+     */
+    public List<ToolStats> snapshot() {
+        return collectors.entrySet().stream()
+                .map(e -> {
+                    var c = e.getValue();
+                    var histogram = new long[c.histogram.length];
+                    for (int i = 0; i < histogram.length; i++) {
+                        histogram[i] = c.histogram[i].sum();
+                    }
+                    return new ToolStats(e.getKey(),
+                                         c.calls.sum(),
+                                         c.failures.sum(),
+                                         c.totalNanos.sum(),
+                                         c.maxNanos.get(),
+                                         histogram,
+                                         c.totalResultChars.sum(),
+                                         c.maxResultChars.get());
+                })
+                .sorted(Comparator.comparingLong(ToolStats::calls).reversed().thenComparing(ToolStats::toolName))
+                .toList();
+    }
+
+    public void reset() {
+        collectors.clear();
+    }
+
+    /**
+     * Formats the current statistics as a fixed-width table, suitable for logging or a debug panel.
+     */
+    public String format() {
+        var stats = snapshot();
+        if (stats.isEmpty()) {
+            return "No tool calls recorded";
+        }
+        var sb = new StringBuilder();
+        sb.append("%-28s %7s %6s %9s %8s %8s %9s %10s%n".formatted("tool", "calls", "fails", "mean ms", "p90 ms", "max ms", "avg chars", "max chars"));
+        for (var s : stats) {
+            long p90 = s.percentileMillis(90);
+            sb.append("%-28s %7d %6d %9.1f %8s %8.1f %9d %10d%n".formatted(s.toolName(),
+                                                                          s.calls(),
+                                                                          s.failures(),
+                                                                          s.meanMillis(),
+                                                                          p90 < 0 ? ">" + LATENCY_BUCKETS_MS[LATENCY_BUCKETS_MS.length - 1] : "<=" + p90,
+                                                                          s.maxMillis(),
+                                                                          s.meanResultChars(),
+                                                                          s.maxResultChars()));
+        }
+        return sb.toString();
+    }
+}
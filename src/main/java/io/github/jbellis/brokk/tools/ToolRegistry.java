@@ -1,8 +1,8 @@
 package io.github.jbellis.brokk.tools;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import dev.langchain4j.agent.tool.*;
 import dev.langchain4j.data.message.AiMessage;
 import io.github.jbellis.brokk.ContextManager;
@@ -10,10 +10,12 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jetbrains.annotations.NotNull;
 
-import java.lang.reflect.InvocationTargetException;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
-import java.lang.reflect.Parameter;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
@@ -21,17 +23,63 @@ import java.util.stream.Collectors;
 /**
  * Discovers, registers, provides specifications for, and executes tools.
  * Tools are methods annotated with @Tool on registered object instances.
+ * <p>
+ * Each tool method is compiled once, the first time its class is seen, into a {@link CompiledTool}:
+ * a cached ToolSpecification, a MethodHandle invoker, and a prebuilt argument binder. Lookups and
+ * invocations after that do no reflection. Every execution is recorded in {@link #getMetrics()}.
  */
 public class ToolRegistry {
     private static final Logger logger = LogManager.getLogger(ToolRegistry.class);
     private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object.class, Object[].class);
 
-    // Maps tool name to its invocation target (method + instance)
+    // Instance tools (declared, non-static @Tool methods) per class, compiled on first use
+    private static final Map<Class<?>, Map<String, CompiledTool>> instanceToolsByClass = new ConcurrentHashMap<>();
+
+    // Maps tool name to its invocation target (compiled tool + instance)
     private final Map<String, ToolInvocationTarget> toolMap = new ConcurrentHashMap<>();
     private final ContextManager contextManager;
+    private final ToolMetrics metrics = new ToolMetrics();
+
+    // Internal record to hold a compiled tool and the instance it belongs to
+    private record ToolInvocationTarget(CompiledTool tool, Object instance) {}
+
+    /**
+     * Binds one JSON argument to one method parameter.
+     */
+    private record ParameterBinder(String name, ObjectReader reader) {}
+
+    /**
+     * A tool method with everything needed to describe and invoke it precomputed.
+     * {@code invoker} has type (Object instance, Object[] args) -> Object.
+     */
+    private record CompiledTool(String name,
+                                ToolSpecification specification,
+                                MethodHandle invoker,
+                                ParameterBinder[] parameters)
+    {
+        static CompiledTool compile(String name, Method method) {
+            MethodHandle invoker;
+            try {
+                invoker = MethodHandles.lookup()
+                        .unreflect(method)
+                        .asSpreader(Object[].class, method.getParameterCount())
+                        .asType(INVOKER_TYPE);
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException("Tool method %s is not accessible".formatted(method), e);
+            }
+
+            var params = method.getParameters();
+            var binders = new ParameterBinder[params.length];
+            var typeFactory = OBJECT_MAPPER.getTypeFactory();
+            for (int i = 0; i < params.length; i++) {
+                var javaType = typeFactory.constructType(params[i].getParameterizedType());
+                binders[i] = new ParameterBinder(params[i].getName(), OBJECT_MAPPER.readerFor(javaType));
+            }
 
-    // Internal record to hold method and the instance it belongs to
-    private record ToolInvocationTarget(Method method, Object instance) {}
+            return new CompiledTool(name, ToolSpecifications.toolSpecificationFrom(method), invoker, binders);
+        }
+    }
 
     /**
      * Creates a new ToolRegistry and self-registers internal tools.
@@ -54,6 +102,11 @@ public class ToolRegistry {
         return "Good thinking.";
     }
 
+    private static String toolName(Method method) {
+        var toolAnnotation = method.getAnnotation(dev.langchain4j.agent.tool.Tool.class);
+        return toolAnnotation.name().isEmpty() ? method.getName() : toolAnnotation.name();
+    }
+
     /**
      * Registers all methods annotated with @Tool from the given object instance.
      * @param toolProviderInstance An instance of a class containing methods annotated with @Tool.
@@ -64,19 +117,33 @@ public class ToolRegistry {
 
         for (Method method : clazz.getMethods()) {
             if (method.isAnnotationPresent(dev.langchain4j.agent.tool.Tool.class)) {
-                dev.langchain4j.agent.tool.Tool toolAnnotation = method.getAnnotation(dev.langchain4j.agent.tool.Tool.class);
-                String toolName = toolAnnotation.name().isEmpty() ? method.getName() : toolAnnotation.name();
+                String toolName = toolName(method);
 
                 if (toolMap.containsKey(toolName)) {
                     throw new IllegalArgumentException("Duplicate tool name registration attempted: '%s'".formatted(toolName));
                 } else {
                     logger.debug("Registering tool: '{}' from class {}", toolName, clazz.getName());
-                    toolMap.put(toolName, new ToolInvocationTarget(method, toolProviderInstance));
+                    toolMap.put(toolName, new ToolInvocationTarget(CompiledTool.compile(toolName, method), toolProviderInstance));
                 }
             }
         }
     }
 
+    /**
+     * @return the compiled instance tools declared by the given class, compiling them on first request
+     */
+    private static Map<String, CompiledTool> instanceTools(Class<?> cls) {
+        return instanceToolsByClass.computeIfAbsent(cls, c -> {
+            var tools = new HashMap<String, CompiledTool>();
+            Arrays.stream(c.getDeclaredMethods())
+                    .filter(m -> m.isAnnotationPresent(dev.langchain4j.agent.tool.Tool.class))
+                    .filter(m -> !Modifier.isStatic(m.getModifiers()))
+                    .forEach(m -> tools.putIfAbsent(toolName(m), CompiledTool.compile(toolName(m), m)));
+            logger.debug("Compiled {} instance tools for {}", tools.size(), c.getName());
+            return Map.copyOf(tools);
+        });
+    }
+
     /**
      * Generates ToolSpecifications for the given list of tool names.
      * @param toolNames A list of tool names to get specifications for.
@@ -91,7 +158,7 @@ public class ToolRegistry {
         }
         return toolNames.stream()
                 .map(toolMap::get)
-                .map(target -> ToolSpecifications.toolSpecificationFrom(target.method()))
+                .map(target -> target.tool().specification())
                 .collect(Collectors.toList());
     }
 
@@ -104,26 +171,16 @@ public class ToolRegistry {
      */
     public List<ToolSpecification> getTools(Object instance, Collection<String> toolNames) {
         Objects.requireNonNull(instance, "toolInstance cannot be null");
-        Class<?> cls = instance.getClass();
+        var tools = instanceTools(instance.getClass());
 
-        // Gather all instance methods declared in the class that are annotated with @Tool.
-        List<Method> annotatedMethods = Arrays.stream(cls.getDeclaredMethods())
-                .filter(m -> m.isAnnotationPresent(dev.langchain4j.agent.tool.Tool.class))
-                .filter(m -> !Modifier.isStatic(m.getModifiers()))
-                .toList();
-
-        // For each toolName, directly find the corresponding method and generate its specification.
         return toolNames.stream()
-                .map(toolName -> annotatedMethods.stream()
-                        .filter(m -> {
-                            var toolAnnotation = m.getAnnotation(dev.langchain4j.agent.tool.Tool.class);
-                            String name = toolAnnotation.name().isEmpty() ? m.getName() : toolAnnotation.name();
-                            return name.equals(toolName);
-                        })
-                        .findFirst()
-                        .orElseThrow(() -> new IllegalArgumentException("No tool method found for %s in %s".formatted(toolName, instance)))
-                )
-                .map(ToolSpecifications::toolSpecificationFrom)
+                .map(toolName -> {
+                    var tool = tools.get(toolName);
+                    if (tool == null) {
+                        throw new IllegalArgumentException("No tool method found for %s in %s".formatted(toolName, instance));
+                    }
+                    return tool.specification();
+                })
                 .collect(Collectors.toList());
     }
 
@@ -135,89 +192,100 @@ public class ToolRegistry {
      */
     public ToolExecutionResult executeTool(Object instance, ToolExecutionRequest request) throws InterruptedException {
         assert instance != null;
-        Class<?> cls = instance.getClass();
         String toolName = request.name();
 
         // Look for the method matching the tool name within the instance's class
-        Method targetMethod = Arrays.stream(cls.getDeclaredMethods())
-                .filter(m -> m.isAnnotationPresent(dev.langchain4j.agent.tool.Tool.class))
-                .filter(m -> !Modifier.isStatic(m.getModifiers())) // Ensure it's an instance method
-                .filter(m -> {
-                    var toolAnnotation = m.getAnnotation(dev.langchain4j.agent.tool.Tool.class);
-                    String name = toolAnnotation.name().isEmpty() ? m.getName() : toolAnnotation.name();
-                    return name.equals(toolName);
-                })
-                .findFirst()
-                .orElse(null);
+        var instanceTool = instanceTools(instance.getClass()).get(toolName);
 
         ToolInvocationTarget target;
-        if (targetMethod == null) {
+        if (instanceTool == null) {
             // check globally registered tools
-            target = toolMap.get(request.name());
+            target = toolMap.get(toolName);
         } else {
-            target = new ToolInvocationTarget(targetMethod, instance);
+            target = new ToolInvocationTarget(instanceTool, instance);
         }
 
         if (target == null) {
             logger.error("Tool not found: {}", request.name());
             return ToolExecutionResult.failure(request, "Tool not found: " + request.name());
         }
-        return executeTool(request, target);
+
+        long start = System.nanoTime();
+        ToolExecutionResult result = null;
+        try {
+            result = executeTool(request, target);
+            return result;
+        } finally {
+            // exceptions (including interruption) count as failures with no output
+            boolean success = result != null && result.status() == ToolExecutionResult.Status.SUCCESS;
+            int resultChars = result == null ? 0 : result.resultText().length();
+            metrics.record(toolName, System.nanoTime() - start, resultChars, success);
+        }
+    }
+
+    /**
+     * @return execution statistics for every tool run through this registry
+     */
+    public ToolMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Writes the current tool execution statistics to the log.
+     */
+    public void logMetrics() {
+        logger.debug("Tool execution metrics:\n{}", metrics.format());
     }
 
     /**
      * Private helper to execute a tool given a request and a resolved target.
      * Handles argument parsing and method invocation.
      * @param request The execution request.
-     * @param target The resolved method and instance.
+     * @param target The resolved tool and instance.
      * @return The execution result.
      */
     private static @NotNull ToolExecutionResult executeTool(ToolExecutionRequest request, ToolInvocationTarget target) throws InterruptedException {
-        Method method = target.method();
-        Object instance = target.instance();
+        var tool = target.tool();
 
+        Object[] methodArgs;
         try {
             // 1. Parse JSON arguments from the request
-            Map<String, Object> argumentsMap = OBJECT_MAPPER.readValue(request.arguments(), new TypeReference<HashMap<String, Object>>() {
-            });
-
-            // 2. Prepare the arguments array for Method.invoke
-            Parameter[] parameters = method.getParameters();
-            Object[] methodArgs = new Object[parameters.length];
+            JsonNode arguments = OBJECT_MAPPER.readTree(request.arguments());
+            if (arguments == null || !arguments.isObject()) {
+                return ToolExecutionResult.failure(request, "Error parsing arguments json: expected a JSON object but got: " + request.arguments());
+            }
 
+            // 2. Bind each parameter with its precompiled reader
+            var parameters = tool.parameters();
+            methodArgs = new Object[parameters.length];
             for (int i = 0; i < parameters.length; i++) {
-                Parameter param = parameters[i];
-                if (!argumentsMap.containsKey(param.getName())) {
-                    return ToolExecutionResult.failure(request, "Missing required parameter: '%s' in arguments: %s".formatted(param.getName(), request.arguments()));
+                var param = parameters[i];
+                var argValue = arguments.get(param.name());
+                if (argValue == null) {
+                    return ToolExecutionResult.failure(request, "Missing required parameter: '%s' in arguments: %s".formatted(param.name(), request.arguments()));
                 }
-
-                Object argValue = argumentsMap.get(param.getName());
-
-                // Convert the argument to the correct type expected by the method parameter
-                // Jackson might have already done some conversion (e.g., numbers), but lists/etc. might need care.
-                // Using ObjectMapper for type conversion.
-                methodArgs[i] = OBJECT_MAPPER.convertValue(argValue, param.getType());
+                methodArgs[i] = param.reader().readValue(argValue);
             }
+        } catch (IOException e) {
+            return ToolExecutionResult.failure(request, "Error parsing arguments json: " + e.getMessage());
+        }
 
-            // 3. Invoke the method
-            logger.debug("Invoking tool '{}' with args: {}", request.name(), List.of(methodArgs));
-            Object resultObject = method.invoke(instance, methodArgs);
-            String resultString = resultObject != null ? resultObject.toString() : "";
-
-            return ToolExecutionResult.success(request, resultString);
-        } catch (InvocationTargetException e) {
+        // 3. Invoke the method
+        logger.debug("Invoking tool '{}' with args: {}", request.name(), Arrays.asList(methodArgs));
+        Object resultObject;
+        try {
+            resultObject = (Object) tool.invoker().invokeExact(target.instance(), methodArgs);
+        } catch (Throwable t) {
             // some code paths will wrap IE in RuntimeException, so check the entire Cause hierarchy
-            for (var e2 = (Throwable) e; e2 != null; e2 = e2.getCause()) {
-                if (e2 instanceof InterruptedException ie) {
+            for (var t2 = t; t2 != null; t2 = t2.getCause()) {
+                if (t2 instanceof InterruptedException ie) {
                     throw ie;
                 }
             }
-            throw new RuntimeException(e);
-        } catch (JsonProcessingException e) {
-            return ToolExecutionResult.failure(request, "Error parsing arguments json: " + e.getMessage());
-        } catch (IllegalAccessException e) {
-            throw new RuntimeException(e);
+            throw new RuntimeException(t);
         }
+        String resultString = resultObject != null ? resultObject.toString() : "";
+        return ToolExecutionResult.success(request, resultString);
     }
 
     /**
@@ -6,26 +6,26 @@ import io.github.jbellis.brokk.AnalyzerUtil;
 import io.github.jbellis.brokk.Completions;
 import io.github.jbellis.brokk.ContextFragment;
 import io.github.jbellis.brokk.ContextManager;
+import io.github.jbellis.brokk.UrlFetcher;
 import io.github.jbellis.brokk.analyzer.CodeUnit;
 import io.github.jbellis.brokk.analyzer.IAnalyzer;
 import io.github.jbellis.brokk.analyzer.ProjectFile;
-import io.github.jbellis.brokk.util.HtmlToMarkdown;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.fife.ui.rsyntaxtextarea.SyntaxConstants;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 
@@ -124,47 +124,64 @@ public class WorkspaceTools {
         return resultMessage;
     }
 
-    @Tool("Fetch content from a URL (e.g., documentation, issue tracker) and add it to the Workspace as a read-only text fragment. HTML content will be converted to Markdown.")
+    @Tool("Fetch content from one or more URLs (e.g., documentation, issue tracker) and add each to the Workspace as a read-only text fragment. HTML content will be converted to Markdown.")
     public String addUrlContentsToWorkspace(
-            @P("The full URL to fetch content from (e.g., 'https://example.com/docs/page').")
-            String urlString
+            @P("The full URLs to fetch content from (e.g., 'https://example.com/docs/page'). They are fetched concurrently.")
+            List<String> urls
     )
     {
-        if (urlString == null || urlString.isBlank()) {
+        if (urls == null || urls.stream().allMatch(u -> u == null || u.isBlank())) {
             return "URL cannot be empty.";
         }
 
-        String content;
-        URI uri;
-        try {
-            uri = new URI(urlString);
-            logger.debug("Fetching content from URL: {}", urlString);
-            content = fetchUrlContent(uri);
-            logger.debug("Fetched {} characters from {}", content.length(), urlString);
-            // Directly call the utility method for conversion
-            content = HtmlToMarkdown.maybeConvertToMarkdown(content);
-            logger.debug("Content length after potential markdown conversion: {}", content.length());
-        } catch (URISyntaxException e) {
-            return "Invalid URL format: " + urlString;
-        } catch (IOException e) {
-            logger.error("Failed to fetch or process URL content: {}", urlString, e);
-            throw new RuntimeException("Failed to fetch URL content for " + urlString + ": " + e.getMessage(), e);
-        } catch (Exception e) {
-            logger.error("Unexpected error processing URL: {}", urlString, e);
-            throw new RuntimeException("Unexpected error processing URL " + urlString + ": " + e.getMessage(), e);
+        var results = new ArrayList<String>();
+        var fetches = new LinkedHashMap<String, CompletableFuture<UrlFetcher.Page>>();
+        var fetcher = UrlFetcher.forProject(contextManager.getProject().getRoot());
+        for (var urlString : urls.stream().filter(u -> u != null && !u.isBlank()).distinct().toList()) {
+            try {
+                logger.debug("Fetching content from URL: {}", urlString);
+                fetches.put(urlString, fetcher.fetchAsync(new URI(urlString)));
+            } catch (URISyntaxException e) {
+                results.add("Invalid URL format: " + urlString);
+            }
         }
 
-        if (content.isBlank()) {
-            return "Fetched content from URL is empty: " + urlString;
+        boolean failed = false;
+        var fragments = new ArrayList<ContextFragment.StringFragment>();
+        for (var entry : fetches.entrySet()) {
+            var urlString = entry.getKey();
+            UrlFetcher.Page page;
+            try {
+                page = entry.getValue().join();
+            } catch (CompletionException e) {
+                logger.error("Failed to fetch or process URL content: {}", urlString, e.getCause());
+                results.add("Failed to fetch URL content for %s: %s".formatted(urlString, e.getCause().getMessage()));
+                failed = true;
+                continue;
+            }
+            logger.debug("Fetched {} characters from {}", page.content().length(), urlString);
+            if (page.content().isBlank()) {
+                results.add("Fetched content from URL is empty: " + urlString);
+                continue;
+            }
+            fragments.add(new ContextFragment.StringFragment(page.content(), "Content from " + urlString, SyntaxConstants.SYNTAX_STYLE_NONE));
+            results.add("Added content from URL [%s] as a read-only text fragment%s.".formatted(urlString, page.truncated() ? " (truncated: the page is too large)" : ""));
+        }
+        if (fragments.isEmpty() && failed) {
+            throw new RuntimeException(String.join("\n", results));
         }
 
-        // Use the ContextManager's method to add the string fragment
-        String description = "Content from " + urlString;
         // ContextManager handles pushing the context update
-        var fragment = new ContextFragment.StringFragment(content, description, SyntaxConstants.SYNTAX_STYLE_NONE);
-        contextManager.pushContext(ctx -> ctx.addVirtualFragment(fragment));
+        if (!fragments.isEmpty()) {
+            contextManager.pushContext(ctx -> {
+                for (var fragment : fragments) {
+                    ctx = ctx.addVirtualFragment(fragment);
+                }
+                return ctx;
+            });
+        }
 
-        return "Added content from URL [%s] as a read-only text fragment.".formatted(urlString);
+        return String.join("\n", results);
     }
 
     @Tool("Add an arbitrary block of text (e.g., notes that are independent of the Plan, a configuration snippet, or something learned from another Agent) to the Workspace as a read-only fragment")
@@ -571,27 +588,6 @@ public class WorkspaceTools {
 
     // --- Helper Methods ---
 
-    /**
-     * Fetches content from a given URL. Public static for reuse.
-     *
-     * @param url The URL to fetch from.
-     * @return The content as a String.
-     * @throws IOException If fetching fails.
-     */
-    public static String fetchUrlContent(URI url) throws IOException { // Changed to public static
-        var connection = url.toURL().openConnection();
-        // Set reasonable timeouts
-        connection.setConnectTimeout(5000);
-        connection.setReadTimeout(10000);
-        // Set a user agent
-        connection.setRequestProperty("User-Agent", "Brokk-Agent/1.0 (ContextTools)");
-
-        try (var reader = new BufferedReader(
-                new InputStreamReader(connection.getInputStream()))) {
-            return reader.lines().collect(Collectors.joining("\n"));
-        }
-    }
-
     private IAnalyzer getAnalyzer() {
         return contextManager.getAnalyzerUninterrupted();
     }
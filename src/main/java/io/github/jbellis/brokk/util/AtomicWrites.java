@@ -22,12 +22,23 @@ public class AtomicWrites {
      * @throws IOException if an I/O error occurs during writing or moving the file.
      */
     public static void atomicOverwrite(Path targetPath, String content) throws IOException {
+        atomicOverwrite(targetPath, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Overwrites the content of a file with the provided binary data, in the same way as
+     * {@link #atomicOverwrite(Path, String)}.
+     *
+     * @param targetPath the path to the target file that will be overwritten.
+     * @param content    the bytes to write.
+     * @throws IOException if an I/O error occurs during writing or moving the file.
+     */
+    public static void atomicOverwrite(Path targetPath, byte[] content) throws IOException {
         // Create a temporary file in the same directory as the target file.
         Path tempFile = Files.createTempFile(targetPath.getParent(), "temp-", ".tmp");
 
         try {
-            // Write the content to the temporary file using UTF-8 encoding.
-            Files.write(tempFile, content.getBytes(StandardCharsets.UTF_8));
+            Files.write(tempFile, content);
 
             try {
                 // Try to atomically move the temporary file to the target location.
@@ -2,6 +2,8 @@ package io.github.jbellis.brokk.util;
 
 import java.util.List;
 import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 public class BuildToolConventions {
@@ -78,4 +80,44 @@ public class BuildToolConventions {
             default -> List.of(); // UNKNOWN or any other unhandled system
         };
     }
+
+    /**
+     * Placeholders in a test-some command template. Each expands to a list, joined by a single space
+     * unless the placeholder gives its own separator after a bar, e.g. {@code {{classes|,}}}.
+     * <ul>
+     * <li>{@code {{classes}}}: simple names of the test classes</li>
+     * <li>{@code {{fqclasses}}}: fully qualified names of the test classes</li>
+     * <li>{@code {{files}}}: paths of the test files, relative to the project root</li>
+     * </ul>
+     */
+    private static final Pattern TEMPLATE_PLACEHOLDER = Pattern.compile("\\{\\{(classes|fqclasses|files)(?:\\|([^}]*))?}}");
+
+    /**
+     * @return a command template that runs only the given tests, or an empty string if we don't know one
+     */
+    public static String getDefaultTestSomeCommand(BuildSystem system) {
+        return switch (system) {
+            case MAVEN -> "mvn test -Dtest={{classes|,}} -Dsurefire.failIfNoSpecifiedTests=false";
+            case GRADLE -> "./gradlew test --tests {{fqclasses| --tests }}";
+            case SBT -> "sbt \"testOnly {{fqclasses}}\"";
+            case NPM -> "npx jest {{files}}";
+            case PYTHON -> "pytest {{files}}";
+            default -> "";
+        };
+    }
+
+    /**
+     * Fills in a test-some command template.
+     */
+    public static String interpolateTestSomeCommand(String template, List<String> classes, List<String> fqClasses, List<String> files) {
+        return TEMPLATE_PLACEHOLDER.matcher(template).replaceAll(m -> {
+            var values = switch (m.group(1)) {
+                case "classes" -> classes;
+                case "fqclasses" -> fqClasses;
+                default -> files;
+            };
+            var separator = m.group(2) == null ? " " : m.group(2);
+            return Matcher.quoteReplacement(String.join(separator, values));
+        });
+    }
 }
@@ -10,6 +10,8 @@ import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
@@ -27,8 +29,21 @@ public class HtmlToMarkdown {
             return maybeHtml;
         }
 
+        return toMarkdown(Jsoup.parse(maybeHtml));
+    }
+
+    /**
+     * Converts an HTML document to Markdown, parsing it straight from the stream instead of reading it
+     * into a String first.
+     *
+     * @param charsetName the charset from the Content-Type header, or null to detect it from the document
+     */
+    public static String convertToMarkdown(InputStream html, String charsetName, String baseUri) throws IOException {
+        return toMarkdown(Jsoup.parse(html, charsetName, baseUri));
+    }
+
+    private static String toMarkdown(Document doc) {
         // 1) Extract and clean just the <body> content with Jsoup:
-        Document doc = Jsoup.parse(maybeHtml);
         doc.select("script, style, form, iframe").remove(); // optional removals
         Element body = doc.body();
         String bodyHtml = body.html();
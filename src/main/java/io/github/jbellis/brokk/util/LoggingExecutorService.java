@@ -1,106 +0,0 @@
-package io.github.jbellis.brokk.util;
-
-import java.util.Collection;
-import java.util.List;
-import java.util.concurrent.*;
-import java.util.function.Consumer;
-
-public class LoggingExecutorService implements ExecutorService {
-    private final ExecutorService delegate;
-    private final Consumer<Throwable> exceptionHandler;
-
-    public LoggingExecutorService(ExecutorService delegate, Consumer<Throwable> exceptionHandler) {
-        this.delegate = delegate;
-        this.exceptionHandler = exceptionHandler;
-    }
-
-    @Override
-    public <T> Future<T> submit(Callable<T> task) {
-        return delegate.submit(wrap(task));
-    }
-
-    @Override
-    public Future<?> submit(Runnable task) {
-        return delegate.submit(wrap(task));
-    }
-
-    @Override
-    public <T> Future<T> submit(Runnable task, T result) {
-        return delegate.submit(wrap(task), result);
-    }
-
-    private <T> Callable<T> wrap(Callable<T> task) {
-        return () -> {
-            try {
-                return task.call();
-            } catch (Throwable th) {
-                exceptionHandler.accept(th);
-                throw th;
-            }
-        };
-    }
-
-    private Runnable wrap(Runnable task) {
-        return () -> {
-            try {
-                task.run();
-            } catch (Throwable th) {
-                exceptionHandler.accept(th);
-                throw th;
-            }
-        };
-    }
-
-    @Override
-    public void execute(Runnable command) {
-        delegate.execute(wrap(command));
-    }
-
-    @Override
-    public void shutdown() {
-        delegate.shutdown();
-    }
-
-    @Override
-    public List<Runnable> shutdownNow() {
-        return delegate.shutdownNow();
-    }
-
-    @Override
-    public boolean isShutdown() {
-        return delegate.isShutdown();
-    }
-
-    @Override
-    public boolean isTerminated() {
-        return delegate.isTerminated();
-    }
-
-    @Override
-    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
-        return delegate.awaitTermination(timeout, unit);
-    }
-
-    @Override
-    public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks) throws InterruptedException {
-        return delegate.invokeAll(tasks.stream().map(this::wrap).toList());
-    }
-
-    @Override
-    public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
-            throws InterruptedException {
-        return delegate.invokeAll(tasks.stream().map(this::wrap).toList(), timeout, unit);
-    }
-
-    @Override
-    public <T> T invokeAny(Collection<? extends Callable<T>> tasks)
-            throws InterruptedException, ExecutionException {
-        return delegate.invokeAny(tasks.stream().map(this::wrap).toList());
-    }
-
-    @Override
-    public <T> T invokeAny(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
-            throws InterruptedException, ExecutionException, TimeoutException {
-        return delegate.invokeAny(tasks.stream().map(this::wrap).toList(), timeout, unit);
-    }
-}
@@ -0,0 +1,259 @@
+package io.github.jbellis.brokk.util;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+
+/**
+ * A read-only, memory-mapped view of a text file too large to load into a Swing document.
+ * <p>
+ * The file is mapped in segments (a single mapping is limited to 2GB), so opening it costs nothing up
+ * front and only the pages that are actually read come into memory. {@link #indexLines} builds the
+ * line-start index, normally on a background thread; until it finishes, {@link #lineCount()} reports the
+ * lines indexed so far, so a viewer can show the start of the file immediately. Text is decoded as UTF-8.
+ */
+public class MappedTextFile implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(MappedTextFile.class);
+
+    static final int DEFAULT_SEGMENT_BYTES = 1 << 30;
+    /** Longer lines are cut off when read; a minified file can be one enormous line. */
+    public static final int MAX_LINE_BYTES = 64 * 1024;
+    private static final int PROGRESS_INTERVAL_BYTES = 16 << 20;
+
+    private final FileChannel channel;
+    private final long size;
+    private final int segmentBytes;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+
+    // written only by the indexing thread; lineStarts is published before indexedLines
+    private volatile long[] lineStarts = new long[1024];
+    private volatile int indexedLines;
+    private volatile boolean indexComplete;
+    private volatile boolean closed;
+
+    public MappedTextFile(Path path) throws IOException {
+        this(path, DEFAULT_SEGMENT_BYTES);
+    }
+
+    MappedTextFile(Path path, int segmentBytes) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.segmentBytes = segmentBytes;
+        for (long start = 0; start < size; start += segmentBytes) {
+            segments.add(channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(segmentBytes, size - start)));
+        }
+        // line 0 starts at 0, even in an empty file
+        lineStarts[0] = 0;
+        indexedLines = 1;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public boolean isIndexComplete() {
+        return indexComplete;
+    }
+
+    /**
+     * @return the number of lines whose extent is known: all of them once indexing is complete
+     */
+    public int lineCount() {
+        int n = indexedLines;
+        return indexComplete ? n : n - 1;
+    }
+
+    /**
+     * Scans the file for line breaks. Call once, normally off the EDT.
+     *
+     * @param progress called now and then with the number of lines indexed so far
+     */
+    public void indexLines(IntConsumer progress) {
+        long pos = 0;
+        for (var segment : segments) {
+            int limit = segment.limit();
+            for (int i = 0; i < limit; i++) {
+                if (segment.get(i) == '\n' && pos + i + 1 < size) {
+                    addLineStart(pos + i + 1);
+                }
+                if (i % PROGRESS_INTERVAL_BYTES == PROGRESS_INTERVAL_BYTES - 1) {
+                    if (closed) {
+                        return;
+                    }
+                    progress.accept(indexedLines - 1);
+                }
+            }
+            pos += limit;
+        }
+        indexComplete = true;
+        logger.debug("Indexed {} lines in {} bytes", indexedLines, size);
+        progress.accept(lineCount());
+    }
+
+    private void addLineStart(long start) {
+        var starts = lineStarts;
+        int n = indexedLines;
+        if (n == starts.length) {
+            starts = Arrays.copyOf(starts, starts.length * 2);
+            lineStarts = starts;
+        }
+        starts[n] = start;
+        indexedLines = n + 1;
+    }
+
+    /**
+     * @return the byte offset at which the line starts
+     */
+    public long lineStart(int line) {
+        checkLine(line);
+        return lineStarts[line];
+    }
+
+    /**
+     * @return the byte offset just past the line, including its line break
+     */
+    public long lineEnd(int line) {
+        checkLine(line);
+        return line + 1 < indexedLines ? lineStarts[line + 1] : size;
+    }
+
+    private void checkLine(int line) {
+        if (line < 0 || line >= lineCount()) {
+            throw new IndexOutOfBoundsException("Line " + line + " of " + lineCount());
+        }
+    }
+
+    /**
+     * @return the line containing the byte at offset
+     */
+    public int lineForOffset(long offset) {
+        int n = indexedLines;
+        var starts = lineStarts;
+        int i = Arrays.binarySearch(starts, 0, n, offset);
+        return i >= 0 ? i : -i - 2;
+    }
+
+    /**
+     * @return the text of the line, without its line break, cut off at {@link #MAX_LINE_BYTES}
+     */
+    public String line(int line) {
+        long start = lineStart(line);
+        long end = lineEnd(line);
+        int length = (int) Math.min(end - start, MAX_LINE_BYTES);
+        var bytes = read(start, length);
+        int n = bytes.length;
+        if (n > 0 && bytes[n - 1] == '\n' && start + n == end) {
+            n--;
+        }
+        if (n > 0 && bytes[n - 1] == '\r') {
+            n--;
+        }
+        return new String(bytes, 0, n, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return lines [from, to) joined with '\n'
+     */
+    public String lines(int from, int to) {
+        var sb = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            if (i > from) {
+                sb.append('\n');
+            }
+            sb.append(line(i));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Finds the next occurrence of query, scanning the mapped bytes. Matching is on UTF-8 bytes, so
+     * ignoring case only folds ASCII letters.
+     *
+     * @param from      offset of the first byte to consider; when searching backwards, the last
+     * @param cancelled checked periodically; the search gives up and returns -1 once it is true
+     * @return the byte offset of the match, or -1
+     */
+    public long find(String query, long from, boolean forward, boolean matchCase, BooleanSupplier cancelled) {
+        var needle = query.getBytes(StandardCharsets.UTF_8);
+        if (needle.length == 0 || needle.length > size) {
+            return -1;
+        }
+        if (!matchCase) {
+            for (int i = 0; i < needle.length; i++) {
+                needle[i] = lower(needle[i]);
+            }
+        }
+        long last = size - needle.length;
+        long start = forward ? Math.max(0, from) : Math.min(from, last);
+        int step = forward ? 1 : -1;
+        long checked = 0;
+        for (long pos = start; pos >= 0 && pos <= last; pos += step) {
+            if ((++checked & 0xFFFFF) == 0 && (closed || cancelled.getAsBoolean())) {
+                return -1;
+            }
+            if (matchesAt(pos, needle, matchCase)) {
+                return pos;
+            }
+        }
+        return -1;
+    }
+
+    private boolean matchesAt(long pos, byte[] needle, boolean matchCase) {
+        for (int i = 0; i < needle.length; i++) {
+            byte b = byteAt(pos + i);
+            if ((matchCase ? b : lower(b)) != needle[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte lower(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+
+    private byte byteAt(long pos) {
+        return segments.get((int) (pos / segmentBytes)).get((int) (pos % segmentBytes));
+    }
+
+    /**
+     * @return length bytes starting at offset, which may span segments
+     */
+    public byte[] read(long offset, int length) {
+        var bytes = new byte[length];
+        int copied = 0;
+        while (copied < length) {
+            long pos = offset + copied;
+            var segment = segments.get((int) (pos / segmentBytes)).duplicate();
+            int within = (int) (pos % segmentBytes);
+            int n = Math.min(length - copied, segment.limit() - within);
+            segment.get(within, bytes, copied, n);
+            copied += n;
+        }
+        return bytes;
+    }
+
+    /**
+     * Stops any indexing or search in progress. The mapping itself is released when this is collected.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.debug("Unable to close mapped file", e);
+        }
+    }
+}
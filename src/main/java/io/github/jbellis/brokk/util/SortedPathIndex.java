@@ -0,0 +1,162 @@
+package io.github.jbellis.brokk.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Compact, sorted index of relative file paths ('/'-separated), used to answer directory-listing
+ * questions without materializing a node per file and directory.
+ * <p>
+ * Because the paths are kept in a single sorted array, all paths under a directory form one contiguous
+ * range, so listing the immediate children of a directory costs O(children * log n) via binary search,
+ * skipping over each subdirectory's range in one step. Single-path insertions and removals are
+ * O(n) array shifts, which is cheap next to a full rebuild.
+ * <p>
+ * All methods are synchronized so a background thread may compute diffs while the EDT reads.
+ */
+public class SortedPathIndex {
+    // '/' + 1: every path under "dir/" sorts strictly before "dir" + SUBTREE_END
+    private static final char SUBTREE_END = '/' + 1;
+
+    private String[] paths;
+    private int size;
+
+    /**
+     * An immediate child of a directory.
+     */
+    public record Entry(String name, boolean directory) {
+    }
+
+    public SortedPathIndex(Collection<String> relativePaths) {
+        var sorted = relativePaths.stream().distinct().sorted().toArray(String[]::new);
+        this.paths = sorted;
+        this.size = sorted.length;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized boolean contains(String path) {
+        return Arrays.binarySearch(paths, 0, size, path) >= 0;
+    }
+
+    /**
+     * @return true if at least one indexed path lies under {@code dir}. The empty string is the root.
+     */
+    public synchronized boolean isDirectory(String dir) {
+        if (dir.isEmpty()) {
+            return size > 0;
+        }
+        var prefix = dir + "/";
+        int i = lowerBound(prefix);
+        return i < size && paths[i].startsWith(prefix);
+    }
+
+    /**
+     * Lists the immediate children of {@code dir} (the empty string is the root) in index order.
+     * A file {@code a.txt} and a directory {@code a} sort as {@code "a.txt"} and {@code "a/"}.
+     */
+    public synchronized List<Entry> children(String dir) {
+        var prefix = dir.isEmpty() ? "" : dir + "/";
+        int i = lowerBound(prefix);
+        int end = dir.isEmpty() ? size : lowerBound(dir + SUBTREE_END);
+
+        var result = new ArrayList<Entry>();
+        while (i < end) {
+            var path = paths[i];
+            int slash = path.indexOf('/', prefix.length());
+            if (slash < 0) {
+                result.add(new Entry(path.substring(prefix.length()), false));
+                i++;
+            } else {
+                var name = path.substring(prefix.length(), slash);
+                result.add(new Entry(name, true));
+                i = lowerBound(prefix + name + SUBTREE_END); // skip the whole subtree
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return true if the path was not already present
+     */
+    public synchronized boolean add(String path) {
+        int i = Arrays.binarySearch(paths, 0, size, path);
+        if (i >= 0) {
+            return false;
+        }
+        int insertAt = -i - 1;
+        if (size == paths.length) {
+            paths = Arrays.copyOf(paths, Math.max(16, size + (size >> 1)));
+        }
+        System.arraycopy(paths, insertAt, paths, insertAt + 1, size - insertAt);
+        paths[insertAt] = path;
+        size++;
+        return true;
+    }
+
+    /**
+     * @return true if the path was present
+     */
+    public synchronized boolean remove(String path) {
+        int i = Arrays.binarySearch(paths, 0, size, path);
+        if (i < 0) {
+            return false;
+        }
+        System.arraycopy(paths, i + 1, paths, i, size - i - 1);
+        paths[--size] = null;
+        return true;
+    }
+
+    /**
+     * Paths to add and remove to bring this index in line with a new listing.
+     */
+    public record Diff(List<String> added, List<String> removed) {
+        public boolean isEmpty() {
+            return added.isEmpty() && removed.isEmpty();
+        }
+    }
+
+    /**
+     * Computes the changes between the current contents and {@code newPaths} with a single merge pass.
+     */
+    public Diff diff(Collection<String> newPaths) {
+        var incoming = newPaths.stream().distinct().sorted().toArray(String[]::new);
+        String[] current;
+        int currentSize;
+        synchronized (this) {
+            current = Arrays.copyOf(paths, size);
+            currentSize = size;
+        }
+
+        var added = new ArrayList<String>();
+        var removed = new ArrayList<String>();
+        int i = 0, j = 0;
+        while (i < currentSize || j < incoming.length) {
+            if (j >= incoming.length) {
+                removed.add(current[i++]);
+            } else if (i >= currentSize) {
+                added.add(incoming[j++]);
+            } else {
+                int cmp = current[i].compareTo(incoming[j]);
+                if (cmp == 0) {
+                    i++;
+                    j++;
+                } else if (cmp < 0) {
+                    removed.add(current[i++]);
+                } else {
+                    added.add(incoming[j++]);
+                }
+            }
+        }
+        return new Diff(added, removed);
+    }
+
+    private int lowerBound(String key) {
+        int i = Arrays.binarySearch(paths, 0, size, key);
+        return i >= 0 ? i : -i - 1;
+    }
+}
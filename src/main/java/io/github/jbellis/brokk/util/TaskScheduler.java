@@ -0,0 +1,314 @@
+package io.github.jbellis.brokk.util;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Runs tasks on virtual threads, grouped into named lanes that each cap how many of their tasks
+ * may run at once.
+ * <p>
+ * A lane's limit is a {@link Semaphore}: a task that cannot get a permit waits in the lane's FIFO queue
+ * without holding any thread, and is started on a fresh virtual thread as soon as a running task releases
+ * its permit. Blocking work (LLM calls, git I/O, waiting on the analyzer) therefore only ties up a cheap
+ * virtual thread, while the limits keep each category of work from crowding out the others.
+ * <p>
+ * Every task is tracked from submission until it completes or is cancelled, so {@link #activeTasks()}
+ * gives a live view of what is queued and running and for how long.
+ */
+public class TaskScheduler {
+    private static final Logger logger = LogManager.getLogger(TaskScheduler.class);
+
+    private final AtomicLong nextId = new AtomicLong();
+    private final Map<Long, TrackedTask<?>> active = new ConcurrentHashMap<>();
+    private final List<Lane> lanes = new CopyOnWriteArrayList<>();
+
+    public enum State {QUEUED, RUNNING}
+
+    /**
+     * Point-in-time view of a queued or running task.
+     *
+     * @param queued  time spent waiting for a permit (so far, if still queued)
+     * @param running time spent running so far; zero while queued
+     */
+    public record TaskInfo(long id, String lane, String description, State state, Duration queued, Duration running) {
+        public Duration total() {
+            return queued.plus(running);
+        }
+    }
+
+    /**
+     * Creates a lane that runs at most {@code maxConcurrent} of its tasks at a time.
+     *
+     * @param exceptionHandler invoked on the task's thread with anything the task throws, before it is
+     *                         recorded in the task's Future
+     */
+    public Lane lane(String name, int maxConcurrent, Consumer<Throwable> exceptionHandler) {
+        var lane = new Lane(name, maxConcurrent, exceptionHandler);
+        lanes.add(lane);
+        return lane;
+    }
+
+    /**
+     * @return all queued and running tasks across every lane, longest-lived first
+     */
+    public List<TaskInfo> activeTasks() {
+        long now = System.nanoTime();
+        return active.values().stream()
+                .map(t -> t.info(now))
+                .sorted(Comparator.comparing(TaskInfo::total).reversed())
+                .toList();
+    }
+
+    /**
+     * Stops accepting new tasks in every lane; tasks already submitted still run.
+     */
+    public void shutdown() {
+        lanes.forEach(Lane::shutdown);
+    }
+
+    /**
+     * Stops every lane, drops queued tasks and interrupts running ones.
+     */
+    public void shutdownNow() {
+        lanes.forEach(Lane::shutdownNow);
+    }
+
+    /**
+     * Formats the active tasks as one line each, suitable for logging or a debug panel.
+     */
+    public String format() {
+        var tasks = activeTasks();
+        if (tasks.isEmpty()) {
+            return "No active tasks";
+        }
+        var sb = new StringBuilder();
+        for (var t : tasks) {
+            sb.append("%-10s %-8s %8dms %s%n".formatted(t.lane(),
+                                                        t.state(),
+                                                        (t.state() == State.QUEUED ? t.queued() : t.running()).toMillis(),
+                                                        t.description()));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * An ExecutorService whose tasks run on virtual threads, at most {@code maxConcurrent} at a time.
+     * Tasks start in submission order.
+     */
+    public class Lane extends AbstractExecutorService {
+        private final String name;
+        private final Semaphore permits;
+        private final Queue<TrackedTask<?>> queue = new ConcurrentLinkedQueue<>();
+        private final Consumer<Throwable> exceptionHandler;
+        private final ThreadFactory threadFactory;
+        private final Map<Thread, Boolean> threads = new ConcurrentHashMap<>();
+        private volatile boolean shutdown;
+
+        private Lane(String name, int maxConcurrent, Consumer<Throwable> exceptionHandler) {
+            assert maxConcurrent > 0;
+            this.name = name;
+            this.permits = new Semaphore(maxConcurrent);
+            this.exceptionHandler = exceptionHandler;
+            this.threadFactory = Thread.ofVirtual().name("brokk-" + name + "-", 0).factory();
+        }
+
+        public String name() {
+            return name;
+        }
+
+        /**
+         * Submits a task that is listed under {@code description} in {@link TaskScheduler#activeTasks()}.
+         */
+        public <T> Future<T> submit(String description, Callable<T> task) {
+            var tracked = new TrackedTask<>(this, description, task);
+            enqueue(tracked);
+            return tracked;
+        }
+
+        @Override
+        public Future<?> submit(Runnable task) {
+            return submit(name + " task", () -> {
+                task.run();
+                return null;
+            });
+        }
+
+        @Override
+        public <T> Future<T> submit(Callable<T> task) {
+            return submit(name + " task", task);
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            submit(command);
+        }
+
+        private void enqueue(TrackedTask<?> task) {
+            if (shutdown) {
+                throw new RejectedExecutionException("Lane " + name + " is shut down");
+            }
+            active.put(task.id, task);
+            queue.add(task);
+            dispatch();
+        }
+
+        /**
+         * Starts queued tasks while permits are available. A task that was cancelled while queued
+         * is discarded without using its permit.
+         */
+        private void dispatch() {
+            while (!queue.isEmpty() && permits.tryAcquire()) {
+                TrackedTask<?> next;
+                do {
+                    next = queue.poll();
+                } while (next != null && next.isDone());
+                if (next == null) {
+                    permits.release();
+                    // another submitter may have enqueued after our isEmpty check but before we took the permit;
+                    // loop around so that task is not stranded
+                    continue;
+                }
+                var task = next;
+                var thread = threadFactory.newThread(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        threads.remove(Thread.currentThread());
+                        permits.release();
+                        dispatch();
+                    }
+                });
+                threads.put(thread, Boolean.TRUE);
+                thread.start();
+            }
+        }
+
+        @Override
+        public void shutdown() {
+            shutdown = true;
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            shutdown = true;
+            var dropped = new ArrayList<Runnable>();
+            TrackedTask<?> task;
+            while ((task = queue.poll()) != null) {
+                task.cancel(false);
+                dropped.add(task);
+            }
+            threads.keySet().forEach(Thread::interrupt);
+            return dropped;
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return shutdown && queue.isEmpty() && threads.isEmpty();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            while (!isTerminated()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                var running = threads.keySet().stream().findFirst();
+                if (running.isPresent()) {
+                    running.get().join(Duration.ofNanos(remaining));
+                } else {
+                    Thread.sleep(Math.max(1, Math.min(10, TimeUnit.NANOSECONDS.toMillis(remaining))));
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * A FutureTask that reports itself to the active-task registry and to its lane's exception handler.
+     */
+    private class TrackedTask<T> extends FutureTask<T> {
+        final long id = nextId.incrementAndGet();
+        final Lane lane;
+        final String description;
+        final long submittedNanos = System.nanoTime();
+        volatile long startedNanos; // 0 while queued
+
+        TrackedTask(Lane lane, String description, Callable<T> task) {
+            super(() -> {
+                try {
+                    return task.call();
+                } catch (Throwable th) {
+                    lane.exceptionHandler.accept(th);
+                    throw th;
+                }
+            });
+            this.lane = lane;
+            this.description = description;
+        }
+
+        @Override
+        public void run() {
+            startedNanos = System.nanoTime();
+            super.run();
+        }
+
+        // deregister before waiters are released, so a caller returning from get() never still sees the task
+        @Override
+        protected void set(T result) {
+            active.remove(id);
+            super.set(result);
+        }
+
+        @Override
+        protected void setException(Throwable t) {
+            active.remove(id);
+            super.setException(t);
+        }
+
+        @Override
+        protected void done() {
+            active.remove(id); // covers cancellation
+            long started = startedNanos;
+            if (started != 0) {
+                logger.trace("{} task '{}' finished in {}ms", lane.name, description,
+                             TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            }
+        }
+
+        TaskInfo info(long now) {
+            long started = startedNanos;
+            if (started == 0) {
+                return new TaskInfo(id, lane.name, description, State.QUEUED, Duration.ofNanos(now - submittedNanos), Duration.ZERO);
+            }
+            return new TaskInfo(id, lane.name, description, State.RUNNING,
+                                Duration.ofNanos(started - submittedNanos), Duration.ofNanos(now - started));
+        }
+    }
+}
@@ -47,6 +47,12 @@ abstract class AbstractAnalyzer protected(sourcePath: Path, private[brokk] val c
   protected implicit val ec: ExecutionContext = ExecutionContext.global
   protected implicit val callResolver: ICallResolver = NoResolve
 
+  // Inheritance index, built once per CPG; must precede pagerank initialization, which reads it
+  private[brokk] val typeHierarchy: TypeHierarchy = TypeHierarchy.build(cpg)
+
+  // Method and call-edge index; lazy because it applies the subclass's resolveMethodName
+  private[brokk] lazy val methodIndex: MethodIndex = MethodIndex.build(cpg, resolveMethodName)
+
   // Adjacency maps for pagerank
   private var adjacency: Map[String, Map[String, Int]] = Map.empty
   private var reverseAdjacency: Map[String, Map[String, Int]] = Map.empty
@@ -113,8 +119,8 @@ abstract class AbstractAnalyzer protected(sourcePath: Path, private[brokk] val c
    * and has some members or methods.
    */
   def isClassInProject(className: String): Boolean = {
-    val td = cpg.typeDecl.fullNameExact(className).l
-    td.nonEmpty && !(td.member.isEmpty && td.method.isEmpty && td.derivedTypeDecl.isEmpty)
+    val td = typeHierarchy.declsOf(className)
+    td.nonEmpty && !(td.member.isEmpty && td.method.isEmpty && typeHierarchy.directSubtypes(className).isEmpty)
   }
 
   private def initializePageRank(): Unit = {
@@ -225,7 +231,7 @@ abstract class AbstractAnalyzer protected(sourcePath: Path, private[brokk] val c
         .foreach(increment(adjacencyMap, sourceClass, _))
 
       // (3) Collect "extends"/"implements" edges; these count 5x
-      td.inheritsFromTypeFullName
+      typeHierarchy.directSupertypes(sourceClass)
         .filter(isRelevant)
         .filter(_ != sourceClass)
         .foreach(parent => increment(adjacencyMap, sourceClass, parent, 5))
@@ -258,8 +264,17 @@ abstract class AbstractAnalyzer protected(sourcePath: Path, private[brokk] val c
     else toFile(td.filename)
   }
 
+  /**
+   * Root of the ProjectFiles this analyzer hands out. The same as the source path unless the analyzer
+   * covers a single module of a larger project, in which case CPG filenames (relative to the module)
+   * are re-rooted at the project root.
+   */
+  protected def projectRoot: Path = absolutePath
+
+  private lazy val modulePrefix: Path = projectRoot.toRealPath().relativize(absolutePath)
+
   private[brokk] def toFile(relName: String): Option[ProjectFile] =
-    Some(ProjectFile(absolutePath, relName))
+    Some(ProjectFile(projectRoot, modulePrefix.resolve(relName)))
 
   // using cpg.all doesn't work because there are always-present nodes for files and the ANY typedecl
   override def isEmpty: Boolean = cpg.member.isEmpty
@@ -457,8 +472,7 @@ abstract class AbstractAnalyzer protected(sourcePath: Path, private[brokk] val c
       .l
 
     // Classes that inherit from this class → return as class CodeUnits
-    val inheritingClasses = cpg.typeDecl
-      .filter(_.inheritsFromTypeFullName.contains(classFullName))
+    val inheritingClasses = typeHierarchy.directSubtypeDecls(classFullName)
       .filter(td => !partOfClass(classFullName, td.fullName))
       .flatMap { td =>
         toFile(td).flatMap { file =>
@@ -469,20 +483,15 @@ abstract class AbstractAnalyzer protected(sourcePath: Path, private[brokk] val c
           Try(CodeUnit.cls(file, packageName, className)).toOption
         }
       }
-      .l
 
     (fieldRefs ++ paramRefs ++ localRefs ++ methodReturnRefs ++ inheritingClasses).toList.distinct
   }
 
   /**
-   * Recursively collects the fully-qualified names of all subclasses of the given class.
+   * Collects the fully-qualified names of all subclasses of the given class, transitively.
    */
-  private[brokk] def allSubclasses(className: String): Set[String] = {
-    val direct = cpg.typeDecl.l.filter { td =>
-      td.inheritsFromTypeFullName.contains(className)
-    }.map(_.fullName).toSet
-    direct ++ direct.flatMap { sub => allSubclasses(sub) }
-  }
+  private[brokk] def allSubclasses(className: String): Set[String] =
+    typeHierarchy.allSubtypes(className)
 
   override def getUses(symbol: String): java.util.List[CodeUnit] = {
     import scala.jdk.CollectionConverters.*
@@ -524,7 +533,7 @@ abstract class AbstractAnalyzer protected(sourcePath: Path, private[brokk] val c
 
       val results = calls.flatMap { methodName => // Changed variable name to results
         // Find method nodes for the caller's name
-        val methods = cpg.method.fullName(s"$methodName:.*").l
+        val methods = methodIndex.methodsNamed(methodName)
         if (methods.nonEmpty) {
           // Attempt to get the file for the method's declaring type
           methods.head.typeDecl.headOption.flatMap(toFile).flatMap { file =>
@@ -563,7 +572,7 @@ abstract class AbstractAnalyzer protected(sourcePath: Path, private[brokk] val c
           logger.debug(s"Found ${refs.size} references to field '$fieldPart'")
 
           val result = refs.flatMap { methodName =>
-            val methods = cpg.method.fullName(s"$methodName:.*").l
+            val methods = methodIndex.methodsNamed(methodName)
             if methods.nonEmpty then {
               methods.head.typeDecl.headOption.flatMap(toFile).flatMap { file =>
                 cuFunction(methodName, file)
@@ -601,7 +610,7 @@ abstract class AbstractAnalyzer protected(sourcePath: Path, private[brokk] val c
     logger.debug(s"Processing ${allClasses.size} classes in total")
 
     val methodUses = allClasses.flatMap { cn =>
-      val uses = cpg.typeDecl.fullNameExact(cn).l.flatMap { td =>
+      val uses = typeHierarchy.declsOf(cn).flatMap { td =>
         td.method.l.flatMap(m => callersOfMethodNode(m, true))
       }
       logger.debug(s"Found ${uses.size} method uses for class: $cn")
@@ -625,7 +634,7 @@ abstract class AbstractAnalyzer protected(sourcePath: Path, private[brokk] val c
 
     // Convert methodUses and fieldRefUses to actual CodeUnits
     val methodUseUnits = methodUses.distinct.flatMap { methodName =>
-      val methods = cpg.method.fullName(s"$methodName:.*").l
+      val methods = methodIndex.methodsNamed(methodName)
       if methods.nonEmpty then {
         methods.head.typeDecl.headOption.flatMap(toFile).flatMap { file =>
           cuFunction(methodName, file)
@@ -638,7 +647,7 @@ abstract class AbstractAnalyzer protected(sourcePath: Path, private[brokk] val c
     logger.debug(s"Converted to ${methodUseUnits.size} method use code units")
 
     val fieldUseUnits = fieldRefUses.distinct.flatMap { methodName =>
-      val methods = cpg.method.fullName(s"$methodName:.*").l
+      val methods = methodIndex.methodsNamed(methodName)
       if methods.nonEmpty then {
         methods.head.typeDecl.headOption.flatMap(toFile).flatMap { file =>
           cuFunction(methodName, file)
@@ -665,12 +674,11 @@ abstract class AbstractAnalyzer protected(sourcePath: Path, private[brokk] val c
                             ): java.util.Map[String, java.util.List[CallSite]] = {
     import scala.jdk.CollectionConverters.*
     val result = new java.util.HashMap[String, java.util.List[CallSite]]()
-    val startMethods = cpg.method.filter(m => chopColon(m.fullName) == startingMethod).l
-    if (startMethods.isEmpty) return result
+    val startIds = methodIndex.methodIds(startingMethod)
+    if (startIds.isEmpty) return result
 
     val visited = mutable.Set[String]()
-    val startMethodNames = startMethods.map(m => resolveMethodName(chopColon(m.fullName))).toSet
-    visited ++= startMethodNames
+    visited ++= startIds.map(methodIndex.resolvedName)
 
     def shouldIncludeMethod(methodName: String): Boolean = {
       !methodName.startsWith("<operator>") &&
@@ -689,44 +697,47 @@ abstract class AbstractAnalyzer protected(sourcePath: Path, private[brokk] val c
       result.put(methodName, existing)
     }
 
-    def explore(methods: List[Method], currentDepth: Int): Unit = {
-      if (currentDepth > maxDepth || methods.isEmpty) return
-      val nextMethods = mutable.ListBuffer[Method]()
+    def fileOf(methodId: Int): Option[ProjectFile] =
+      methodIndex.method(methodId).typeDecl.headOption.flatMap(toFile)
 
-      methods.foreach { method =>
-        val methodName = resolveMethodName(chopColon(method.fullName))
-        val calls = if (isIncoming) method.callIn.l else method.call.l
+    // breadth-first over method ids; each level is the set of methods reached by the previous one
+    var frontier = startIds
+    var currentDepth = 1
+    while (currentDepth <= maxDepth && frontier.nonEmpty) {
+      val next = mutable.ArrayBuilder.make[Int]
 
-        calls.foreach { call =>
+      frontier.foreach { methodId =>
+        val methodName = methodIndex.resolvedName(methodId)
+        val callIds = if (isIncoming) methodIndex.incomingCalls(methodId) else methodIndex.outgoingCalls(methodId)
+
+        callIds.foreach { callId =>
+          val call = methodIndex.call(callId)
           if (isIncoming) {
             // The caller is the next method
-            val callerMethod = call.method
-            val callerName = resolveMethodName(chopColon(callerMethod.fullName))
+            val callerId = methodIndex.callerOf(callId)
+            val callerName = methodIndex.resolvedName(callerId)
 
             if (!visited.contains(callerName) && shouldIncludeMethod(callerName)) {
-              val callerFileOpt = callerMethod.typeDecl.headOption.flatMap(toFile)
-              callerFileOpt.foreach { file =>
+              fileOf(callerId).foreach { file =>
                 cuFunction(callerName, file).foreach { cu =>
                   addCallSite(methodName, CallSite(cu, getSourceLine(call)))
                   visited += callerName
-                  nextMethods += callerMethod
+                  next += callerId
                 }
               }
             }
           } else {
             // The callee is the next method
-            val calleeFullName = chopColon(call.methodFullName)
-            val calleeName = resolveMethodName(calleeFullName)
-
-            if (!visited.contains(calleeName) && shouldIncludeMethod(calleeName)) {
-              val calleePattern = s"^${Regex.quote(calleeFullName)}.*"
-              val calleeMethods = cpg.method.fullName(calleePattern).l
-              if (calleeMethods.nonEmpty) {
-                calleeMethods.head.typeDecl.headOption.flatMap(toFile).foreach { file =>
+            val calleeIds = methodIndex.calleesOf(callId)
+            if (calleeIds.nonEmpty) {
+              val calleeName = methodIndex.resolvedName(calleeIds.head)
+
+              if (!visited.contains(calleeName) && shouldIncludeMethod(calleeName)) {
+                fileOf(calleeIds.head).foreach { file =>
                   cuFunction(calleeName, file).foreach { cu =>
                     addCallSite(methodName, CallSite(cu, getSourceLine(call)))
                     visited += calleeName
-                    nextMethods ++= calleeMethods
+                    next ++= calleeIds
                   }
                 }
               }
@@ -734,10 +745,10 @@ abstract class AbstractAnalyzer protected(sourcePath: Path, private[brokk] val c
           }
         }
       }
-      explore(nextMethods.toList, currentDepth + 1)
+      frontier = next.result()
+      currentDepth += 1
     }
 
-    explore(startMethods, 1)
     result
   }
 
@@ -1,13 +1,11 @@
 package io.github.jbellis.brokk.analyzer
 
-import io.joern.dataflowengineoss.layers.dataflows.OssDataFlow
 import io.joern.javasrc2cpg.{Config, JavaSrc2Cpg}
 import io.joern.joerncli.CpgBasedTool
 import io.joern.x2cpg.X2Cpg
 import io.shiftleft.codepropertygraph.generated.Cpg
 import io.shiftleft.codepropertygraph.generated.nodes.{Method, TypeDecl}
 import io.shiftleft.semanticcpg.language.* // Import necessary for extension methods
-import io.shiftleft.semanticcpg.layers.LayerCreatorContext
 
 import java.io.IOException
 import java.nio.file.Path
@@ -19,9 +17,12 @@ import scala.util.boundary, boundary.break // Added for modern early exit
  * A concrete analyzer for Java source code, extending AbstractAnalyzer
  * with Java-specific logic for building the CPG, method signatures, etc.
  */
-class JavaAnalyzer private(sourcePath: Path, cpgInit: Cpg)
+class JavaAnalyzer private(sourcePath: Path, cpgInit: Cpg, shardProjectRoot: Option[Path])
   extends AbstractAnalyzer(sourcePath, cpgInit) {
 
+  private def this(sourcePath: Path, cpgInit: Cpg) =
+    this(sourcePath, cpgInit, None)
+
   def this(sourcePath: Path, preloadedPath: Path) =
     this(sourcePath, CpgBasedTool.loadFromFile(preloadedPath.toString))
 
@@ -42,6 +43,8 @@ class JavaAnalyzer private(sourcePath: Path, cpgInit: Cpg)
 
   override def isCpg: Boolean = true
 
+  override protected def projectRoot: Path = shardProjectRoot.getOrElse(absolutePath)
+
   /**
    * Java-specific method signature builder.
    */
@@ -104,10 +107,8 @@ class JavaAnalyzer private(sourcePath: Path, cpgInit: Cpg)
     } else processType(t)
   }
 
-  override protected def methodsFromName(resolvedMethodName: String): List[Method] = {
-    val escaped = Regex.quote(resolvedMethodName)
-    cpg.method.fullName(escaped + ":.*").l
-  }
+  override protected def methodsFromName(resolvedMethodName: String): List[Method] =
+    methodIndex.methodsNamed(resolvedMethodName)
 
   /**
    * Recursively builds a structural "skeleton" for a given TypeDecl.
@@ -347,6 +348,23 @@ class JavaAnalyzer private(sourcePath: Path, cpgInit: Cpg)
 object JavaAnalyzer {
   import scala.jdk.CollectionConverters.*
 
+  /**
+   * Builds an analyzer over a single module of a multi-module project (see FederatedAnalyzer).
+   * Files are reported relative to `projectRoot`; `excludedFiles` may be absolute or relative to the module.
+   */
+  def forModule(projectRoot: Path, moduleRoot: Path, excludedFiles: java.util.Set[String]): JavaAnalyzer =
+    new JavaAnalyzer(moduleRoot, createNewCpgForSource(moduleRoot, excludedFiles), Some(projectRoot))
+
+  /**
+   * Loads a module analyzer from a CPG previously written with writeCpg.
+   */
+  def forModule(projectRoot: Path, moduleRoot: Path, preloadedPath: Path): JavaAnalyzer =
+    new JavaAnalyzer(moduleRoot, CpgBasedTool.loadFromFile(preloadedPath.toString), Some(projectRoot))
+
+  /**
+   * Builds a CPG with the default overlays only. None of the IAnalyzer queries read dataflow edges,
+   * so the OssDataFlow layer is not built, which keeps it out of first-build time and .brokk/joern.cpg.
+   */
   private def createNewCpgForSource(sourcePath: Path, excludedFiles: java.util.Set[String]): Cpg = {
     val absPath = sourcePath.toAbsolutePath.toRealPath()
     require(absPath.toFile.isDirectory, s"Source path must be a directory: $absPath")
@@ -362,8 +380,6 @@ object JavaAnalyzer {
       throw new IOException("Failed to create Java CPG")
     }
     X2Cpg.applyDefaultOverlays(newCpg)
-    val context = new LayerCreatorContext(newCpg)
-    new OssDataFlow(OssDataFlow.defaultOpts).create(context)
     newCpg
   }
 }
@@ -0,0 +1,102 @@
+package io.github.jbellis.brokk.analyzer
+
+import io.shiftleft.codepropertygraph.generated.Cpg
+import io.shiftleft.codepropertygraph.generated.nodes.{Call, Method}
+import io.shiftleft.semanticcpg.language.*
+
+import scala.collection.mutable
+
+/**
+ * Name-keyed index over a CPG's methods and call sites, so that method lookups and call-graph walks
+ * never regex-match the fullName of every Method node.
+ *
+ * Methods and calls get dense int ids. Methods are keyed by their fullName up to the first ':' (the part
+ * without the signature), and call edges are stored as int adjacency arrays in both directions:
+ * `outgoingCalls(m)` lists the calls made from inside method m, `incomingCalls(m)` lists the calls that the CPG
+ * resolves to m. Each call also records the ids of the methods its `methodFullName` names, so a
+ * call-graph BFS is pure array traversal.
+ */
+private[brokk] final class MethodIndex private(methods: Array[Method],
+                                               resolvedNames: Array[String],
+                                               byName: Map[String, Array[Int]],
+                                               calls: Array[Call],
+                                               callerIds: Array[Int],
+                                               calleeIds: Array[Array[Int]],
+                                               outgoingCallIds: Array[Array[Int]],
+                                               incomingCallIds: Array[Array[Int]]) {
+  def methodCount: Int = methods.length
+
+  def callCount: Int = calls.length
+
+  /** Method nodes whose fullName, up to the first ':', is exactly `name`, in CPG order. */
+  def methodsNamed(name: String): List[Method] = methodIds(name).toList.map(methods(_))
+
+  def methodIds(name: String): Array[Int] = byName.getOrElse(name, Array.emptyIntArray)
+
+  def method(id: Int): Method = methods(id)
+
+  /** The method's name with the signature removed and the analyzer's resolveMethodName applied. */
+  def resolvedName(id: Int): String = resolvedNames(id)
+
+  def call(callId: Int): Call = calls(callId)
+
+  /** Id of the method containing the call. */
+  def callerOf(callId: Int): Int = callerIds(callId)
+
+  /** Ids of the methods named by the call's methodFullName; empty for calls to code outside the CPG. */
+  def calleesOf(callId: Int): Array[Int] = calleeIds(callId)
+
+  /** Ids of the calls made from within the method, in CPG order. */
+  def outgoingCalls(methodId: Int): Array[Int] = outgoingCallIds(methodId)
+
+  /** Ids of the calls that the CPG resolves to the method. */
+  def incomingCalls(methodId: Int): Array[Int] = incomingCallIds(methodId)
+}
+
+private[brokk] object MethodIndex {
+  private def chopColon(full: String) = full.split(":").head
+
+  def build(cpg: Cpg, resolveMethodName: String => String): MethodIndex = {
+    implicit val callResolver: ICallResolver = NoResolve
+
+    val methods = cpg.method.toArray
+    val methodIds = mutable.HashMap[Method, Int]()
+    val byName = mutable.HashMap[String, mutable.ArrayBuffer[Int]]()
+    val resolvedNames = new Array[String](methods.length)
+    methods.indices.foreach { id =>
+      val m = methods(id)
+      methodIds(m) = id
+      val name = chopColon(m.fullName)
+      byName.getOrElseUpdate(name, mutable.ArrayBuffer()) += id
+      resolvedNames(id) = resolveMethodName(name)
+    }
+    val nameIndex = byName.map { case (k, v) => k -> v.toArray }.toMap
+
+    val calls = mutable.ArrayBuffer[Call]()
+    val callerOf = mutable.ArrayBuffer[Int]()
+    val calleesOf = mutable.ArrayBuffer[Array[Int]]()
+    val outgoing = Array.fill(methods.length)(mutable.ArrayBuilder.make[Int])
+    val incoming = Array.fill(methods.length)(mutable.ArrayBuilder.make[Int])
+    methods.indices.foreach { id =>
+      methods(id).call.foreach { c =>
+        val callId = calls.size
+        calls += c
+        callerOf += id
+        calleesOf += nameIndex.getOrElse(chopColon(c.methodFullName), Array.emptyIntArray)
+        outgoing(id) += callId
+        c.callee.foreach { target =>
+          methodIds.get(target).foreach(incoming(_) += callId)
+        }
+      }
+    }
+
+    new MethodIndex(methods,
+                    resolvedNames,
+                    nameIndex,
+                    calls.toArray,
+                    callerOf.toArray,
+                    calleesOf.toArray,
+                    outgoing.map(_.result()),
+                    incoming.map(_.result()))
+  }
+}
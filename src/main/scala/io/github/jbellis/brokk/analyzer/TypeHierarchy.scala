@@ -0,0 +1,118 @@
+package io.github.jbellis.brokk.analyzer
+
+import io.shiftleft.codepropertygraph.generated.Cpg
+import io.shiftleft.codepropertygraph.generated.nodes.TypeDecl
+import io.shiftleft.semanticcpg.language.*
+
+import scala.collection.concurrent.TrieMap
+import scala.collection.mutable
+
+/**
+ * Inheritance index over a CPG, built once when the analyzer loads its CPG.
+ *
+ * Every type name that appears as a TypeDecl or as an inherited type gets a dense int id, and the
+ * direct supertype / subtype relations are stored as sorted int adjacency arrays. Transitive closures
+ * are computed on first request with a breadth-first walk (so cycles in broken code are harmless)
+ * and cached per type, so repeated "find usages" on the same base class costs a single lookup
+ * instead of a scan of every TypeDecl per level of the hierarchy.
+ */
+private[brokk] final class TypeHierarchy private(names: Array[String],
+                                                 ids: Map[String, Int],
+                                                 supertypes: Array[Array[Int]],
+                                                 subtypes: Array[Array[Int]],
+                                                 decls: Array[List[TypeDecl]]) {
+  private val descendantsCache = TrieMap[Int, Array[Int]]()
+  private val ancestorsCache = TrieMap[Int, Array[Int]]()
+
+  /** Number of distinct type names known to the index, declared or only inherited from. */
+  def size: Int = names.length
+
+  /** TypeDecl nodes declared with exactly this full name, in CPG order. */
+  def declsOf(fullName: String): List[TypeDecl] =
+    ids.get(fullName).map(decls(_)).getOrElse(List.empty)
+
+  def directSupertypes(fullName: String): List[String] = namesOf(ids.get(fullName).map(supertypes(_)))
+
+  def directSubtypes(fullName: String): List[String] = namesOf(ids.get(fullName).map(subtypes(_)))
+
+  /** TypeDecl nodes of the types that directly extend or implement `fullName`, in CPG order. */
+  def directSubtypeDecls(fullName: String): List[TypeDecl] =
+    ids.get(fullName).map(id => subtypes(id).toList.flatMap(decls(_))).getOrElse(List.empty)
+
+  /** Full names of every type that transitively extends or implements `fullName`. */
+  def allSubtypes(fullName: String): Set[String] =
+    ids.get(fullName).map(id => descendants(id).iterator.map(names(_)).toSet).getOrElse(Set.empty)
+
+  /** Full names of every type that `fullName` transitively extends or implements. */
+  def allSupertypes(fullName: String): Set[String] =
+    ids.get(fullName).map(id => ancestors(id).iterator.map(names(_)).toSet).getOrElse(Set.empty)
+
+  /** True if `subtype` transitively extends or implements `supertype`. */
+  def isSubtype(subtype: String, supertype: String): Boolean =
+    (ids.get(subtype), ids.get(supertype)) match {
+      case (Some(sub), Some(sup)) => java.util.Arrays.binarySearch(ancestors(sub), sup) >= 0
+      case _ => false
+    }
+
+  private def descendants(id: Int): Array[Int] = descendantsCache.getOrElseUpdate(id, closure(id, subtypes))
+
+  private def ancestors(id: Int): Array[Int] = ancestorsCache.getOrElseUpdate(id, closure(id, supertypes))
+
+  /** Ids reachable from `start` through at least one edge, in ascending order. */
+  private def closure(start: Int, adjacency: Array[Array[Int]]): Array[Int] = {
+    val visited = new java.util.BitSet(names.length)
+    val queue = mutable.ArrayDeque[Int]()
+    adjacency(start).foreach { next =>
+      visited.set(next)
+      queue.append(next)
+    }
+    while (queue.nonEmpty) {
+      val current = queue.removeHead()
+      adjacency(current).foreach { next =>
+        if (!visited.get(next)) {
+          visited.set(next)
+          queue.append(next)
+        }
+      }
+    }
+    visited.stream().toArray
+  }
+
+  private def namesOf(idArray: Option[Array[Int]]): List[String] =
+    idArray.map(_.toList.map(names(_))).getOrElse(List.empty)
+}
+
+private[brokk] object TypeHierarchy {
+  def build(cpg: Cpg): TypeHierarchy = {
+    val typeDecls = cpg.typeDecl.l
+    val ids = mutable.HashMap[String, Int]()
+    val names = mutable.ArrayBuffer[String]()
+    def idOf(name: String): Int = ids.getOrElseUpdate(name, {
+      names += name
+      names.size - 1
+    })
+
+    // declared types first, so ids follow CPG order and sorted id arrays preserve it
+    typeDecls.foreach(td => idOf(td.fullName))
+    val edges = typeDecls.map(td => idOf(td.fullName) -> td.inheritsFromTypeFullName.map(idOf).toList)
+
+    val n = names.size
+    val declsById = Array.fill(n)(mutable.ListBuffer[TypeDecl]())
+    typeDecls.foreach(td => declsById(ids(td.fullName)) += td)
+
+    val superSets = Array.fill(n)(mutable.Set[Int]())
+    val subSets = Array.fill(n)(mutable.Set[Int]())
+    edges.foreach { case (sub, sups) =>
+      sups.filter(_ != sub).foreach { sup =>
+        superSets(sub) += sup
+        subSets(sup) += sub
+      }
+    }
+
+    new TypeHierarchy(names.toArray,
+                      ids.toMap,
+                      superSets.map(_.toArray.sorted),
+                      subSets.map(_.toArray.sorted),
+                      declsById.map(_.toList))
+  }
+}
@@ -0,0 +1,125 @@
+package io.github.jbellis.brokk;
+
+import dev.langchain4j.data.message.ChatMessageType;
+import io.github.jbellis.brokk.analyzer.ProjectFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ContextHistoryTest {
+    @TempDir
+    Path tempDir;
+    private IContextManager contextManager;
+    private ProjectFile file;
+
+    private final IConsoleIO io = new IConsoleIO() {
+        @Override
+        public void actionOutput(String msg) {
+        }
+
+        @Override
+        public void toolErrorRaw(String msg) {
+            fail(msg);
+        }
+
+        @Override
+        public void llmOutput(String token, ChatMessageType type) {
+        }
+
+        @Override
+        public void blockLlmOutput(boolean blocked) {
+        }
+    };
+
+    @BeforeEach
+    void setup() {
+        contextManager = new IContextManager() {
+        };
+        file = new ProjectFile(tempDir, "Big.java");
+    }
+
+    private static String version(int i) {
+        return ("// version " + i + "\n") + "class Big { int x; }\n".repeat(5_000);
+    }
+
+    /**
+     * Edits the file on disk the way an agent does and pushes a context recording its previous contents.
+     */
+    private void edit(ContextHistory history, int version) throws Exception {
+        var previous = Files.readString(file.absPath());
+        Files.writeString(file.absPath(), version(version));
+        history.pushContext(ctx -> ctx.addHistoryEntry(ctx.createTaskEntry(new SessionResult("edit " + version, List.of(), Map.of(), new SessionResult.StopDetails(SessionResult.StopReason.SUCCESS))),
+                                                       null,
+                                                       CompletableFuture.completedFuture("edit " + version),
+                                                       Map.of(file, previous)));
+    }
+
+    @Test
+    void testUndoAndRedoRestoreFiles() throws Exception {
+        Files.writeString(file.absPath(), version(0));
+        var history = new ContextHistory();
+        history.setInitialContext(new Context(contextManager));
+        for (int i = 1; i <= 3; i++) {
+            edit(history, i);
+        }
+
+        assertTrue(history.undo(2, io).wasUndone());
+        assertEquals(version(1), Files.readString(file.absPath()));
+        assertTrue(history.redo(io));
+        assertEquals(version(2), Files.readString(file.absPath()));
+        assertTrue(history.undo(2, io).wasUndone());
+        assertEquals(version(0), Files.readString(file.absPath()));
+    }
+
+    @Test
+    void testContentsAreDeduplicatedAndCompressed() throws Exception {
+        Files.writeString(file.absPath(), version(0));
+        var history = new ContextHistory();
+        history.setInitialContext(new Context(contextManager));
+        // flip between two versions, so every undo step records one of the same two texts
+        for (int i = 1; i <= 20; i++) {
+            edit(history, i % 2);
+        }
+
+        var stats = history.getUndoMemoryUsage();
+        assertEquals(2, stats.blobs());
+        assertEquals(20L * version(0).length(), stats.rawBytes());
+        assertTrue(stats.heapBytes() < version(0).length() / 10, "heap bytes " + stats.heapBytes());
+
+        // redo contents share blobs with the undo contents they mirror
+        history.undo(5, io);
+        assertEquals(2, history.getUndoMemoryUsage().blobs());
+    }
+
+    @Test
+    void testSpillsToDiskOverBudgetAndReleasesDroppedContexts() throws Exception {
+        Files.writeString(file.absPath(), version(0));
+        var history = new ContextHistory(0);
+        history.setInitialContext(new Context(contextManager));
+        for (int i = 1; i <= 5; i++) {
+            edit(history, i);
+        }
+
+        var stats = history.getUndoMemoryUsage();
+        assertEquals(5, stats.blobs());
+        assertEquals(0, stats.heapBytes());
+        assertTrue(stats.spilledBytes() > 0);
+
+        // spilled contents are read back for undo
+        history.undo(5, io);
+        assertEquals(version(0), Files.readString(file.absPath()));
+
+        // a new edit discards the redo list, and its contents with it
+        edit(history, 6);
+        assertEquals(1, history.getUndoMemoryUsage().blobs());
+        history.close();
+    }
+}
@@ -0,0 +1,147 @@
+package io.github.jbellis.brokk;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * Standalone micro-benchmark comparing the original scan-every-offset block matcher against
+ * the hashed matcher in {@link HashedLines}, applying many blocks in sequence to one large
+ * generated file, as EditBlock.applyEditBlocks does for a single turn.
+ * <p>
+ * Not a unit test; run with {@code sbt "Test/runMain io.github.jbellis.brokk.EditBlockMatchBenchmark [lines] [blocks]"}.
+ */
+public class EditBlockMatchBenchmark {
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int lineCount = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int blockCount = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        var content = generateFile(lineCount);
+        var blocks = generateBlocks(content, blockCount);
+        System.out.printf("File: %,d lines, %,d chars; %d blocks%n", lineCount, content.length(), blocks.size());
+
+        // sanity check: both implementations must produce identical output
+        var legacyResult = runLegacy(content, blocks);
+        var hashedResult = runHashed(content, blocks);
+        if (!legacyResult.equals(hashedResult)) {
+            throw new AssertionError("Legacy and hashed matchers disagree");
+        }
+
+        report("legacy", () -> runLegacy(content, blocks));
+        report("hashed", () -> runHashed(content, blocks));
+    }
+
+    private interface Run {
+        String run() throws Exception;
+    }
+
+    private static void report(String label, Run run) throws Exception {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            run.run();
+        }
+        long best = Long.MAX_VALUE;
+        long total = 0;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            run.run();
+            long elapsed = System.nanoTime() - start;
+            best = Math.min(best, elapsed);
+            total += elapsed;
+        }
+        System.out.printf("%-8s best %8.2f ms, mean %8.2f ms%n", label, best / 1e6, total / 1e6 / MEASURED_ROUNDS);
+    }
+
+    private static String runHashed(String content, List<EditBlock.SearchReplaceBlock> blocks) throws Exception {
+        var doc = HashedLines.of(content);
+        for (var block : blocks) {
+            doc = EditBlock.replaceMostSimilarChunk(doc, block.beforeText(), block.afterText());
+        }
+        return doc.content();
+    }
+
+    private static String runLegacy(String content, List<EditBlock.SearchReplaceBlock> blocks) {
+        var current = content;
+        for (var block : blocks) {
+            current = legacyPerfectOrWhitespace(EditBlock.splitLines(current),
+                                                EditBlock.splitLines(block.beforeText()),
+                                                EditBlock.splitLines(block.afterText()));
+        }
+        return current;
+    }
+
+    /**
+     * The pre-hashing implementation: compare the target at every start offset, first exactly,
+     * then ignoring whitespace. Kept here only as a baseline.
+     */
+    private static String legacyPerfectOrWhitespace(String[] original, String[] target, String[] replace) {
+        for (int pass = 0; pass < 2; pass++) {
+            var matches = new ArrayList<Integer>();
+            outer:
+            for (int i = 0; i <= original.length - target.length; i++) {
+                for (int j = 0; j < target.length; j++) {
+                    boolean same = pass == 0
+                                   ? Objects.equals(original[i + j], target[j])
+                                   : EditBlock.nonWhitespace(original[i + j]).equals(EditBlock.nonWhitespace(target[j]));
+                    if (!same) {
+                        continue outer;
+                    }
+                }
+                matches.add(i);
+                if (matches.size() > 1) {
+                    throw new IllegalStateException("ambiguous");
+                }
+            }
+            if (matches.size() == 1) {
+                int start = matches.getFirst();
+                var result = new ArrayList<>(Arrays.asList(original).subList(0, start));
+                result.addAll(Arrays.asList(replace));
+                result.addAll(Arrays.asList(original).subList(start + target.length, original.length));
+                return String.join("", result);
+            }
+        }
+        throw new IllegalStateException("no match");
+    }
+
+    /**
+     * Generated-code-like content: highly repetitive, with a unique identifier on every line.
+     */
+    private static String generateFile(int lines) {
+        var sb = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            switch (i % 4) {
+                case 0 -> sb.append("    public int getField").append(i).append("() {\n");
+                case 1 -> sb.append("        return field").append(i).append(";\n");
+                case 2 -> sb.append("    }\n");
+                default -> sb.append("\n");
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Picks blocks spread across the file, skewed towards the end where the legacy scan is slowest.
+     */
+    private static List<EditBlock.SearchReplaceBlock> generateBlocks(String content, int count) {
+        var lines = EditBlock.splitLines(content);
+        var random = new Random(42);
+        var blocks = new ArrayList<EditBlock.SearchReplaceBlock>();
+        var used = new boolean[lines.length / 4];
+        while (blocks.size() < count && blocks.size() < used.length) {
+            int method = (int) (used.length * Math.sqrt(random.nextDouble()));
+            if (used[method]) {
+                continue;
+            }
+            used[method] = true;
+            int start = method * 4;
+            var before = lines[start] + lines[start + 1] + lines[start + 2];
+            var after = lines[start] + lines[start + 1].replace("return", "return -") + lines[start + 2];
+            blocks.add(new EditBlock.SearchReplaceBlock("Generated.java", before, after));
+        }
+        return blocks;
+    }
+}
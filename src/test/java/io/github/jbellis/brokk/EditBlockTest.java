@@ -416,6 +416,46 @@ class EditBlockTest {
         assertEquals("Updated text\n", actualContent);
     }
 
+    @Test
+    void testMultipleBlocksSameFileAppliedTogether(@TempDir Path tempDir) throws IOException {
+        TestConsoleIO io = new TestConsoleIO();
+        Path existingFile = tempDir.resolve("fileA.txt");
+        String originalContent = "One\nTwo\nThree\n";
+        Files.writeString(existingFile, originalContent);
+
+        String response = """
+                          ```
+                          fileA.txt
+                          <<<<<<< SEARCH
+                          One
+                          =======
+                          Uno
+                          >>>>>>> REPLACE
+                          ```
+
+                          ```
+                          fileA.txt
+                          <<<<<<< SEARCH
+                          Uno
+                          Two
+                          =======
+                          Uno
+                          Dos
+                          >>>>>>> REPLACE
+                          ```
+                          """;
+
+        TestContextManager ctx = new TestContextManager(tempDir, Set.of("fileA.txt"));
+        var blocks = EditBlockParser.instance.parseEditBlocks(response, ctx.getEditableFiles()).blocks();
+        var result = EditBlock.applyEditBlocks(ctx, io, blocks);
+
+        // The second block sees the output of the first, and undo state is the pre-edit content
+        assertTrue(result.failedBlocks().isEmpty(), "No failures expected");
+        var fileA = new ProjectFile(tempDir, Path.of("fileA.txt"));
+        assertEquals(originalContent, result.originalContents().get(fileA));
+        assertEquals("Uno\nDos\nThree\n", Files.readString(existingFile));
+    }
+
     @Test
     void testApplyEditsEmptySearchReplacesFile(@TempDir Path tempDir) throws IOException, EditBlock.AmbiguousMatchException, EditBlock.NoMatchException {
         TestConsoleIO io = new TestConsoleIO();
@@ -0,0 +1,51 @@
+package io.github.jbellis.brokk;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HashedLinesTest {
+    @Test
+    void testFindExact() {
+        var doc = HashedLines.of("a\nb\nc\na\nb\n");
+        assertEquals(List.of(0, 3), doc.findExact(new String[]{"a\n", "b\n"}, 10));
+        assertEquals(List.of(0), doc.findExact(new String[]{"a\n", "b\n"}, 1));
+        assertEquals(List.of(2), doc.findExact(new String[]{"c\n"}, 10));
+        assertTrue(doc.findExact(new String[]{"b\n", "a\n"}, 10).isEmpty());
+        // target longer than document
+        assertTrue(doc.findExact(new String[]{"a\n", "b\n", "c\n", "a\n", "b\n", "c\n"}, 10).isEmpty());
+    }
+
+    @Test
+    void testFindIgnoringWhitespace() {
+        var doc = HashedLines.of("    int x = 1;\n\tint y = 2;\n");
+        assertEquals(List.of(0), doc.findIgnoringWhitespace(new String[]{"int x=1;\n", "int  y = 2;\n"}, 10));
+        assertTrue(doc.findExact(new String[]{"int x=1;\n"}, 10).isEmpty());
+        // target longer than the rest of the document
+        assertTrue(doc.findIgnoringWhitespace(new String[]{"int y = 2;\n", "int z = 3;\n"}, 10).isEmpty());
+    }
+
+    @Test
+    void testSpliceReusesAndMatchesFreshHashes() {
+        var doc = HashedLines.of("one\ntwo\nthree\nfour\n");
+        var spliced = doc.splice(1, 2, new String[]{"TWO\n", "2.5\n", "THREE\n"});
+        assertEquals("one\nTWO\n2.5\nTHREE\nfour\n", spliced.content());
+        assertEquals(5, spliced.size());
+
+        // searches against the spliced document agree with a freshly hashed copy
+        var fresh = HashedLines.of(spliced.content());
+        var target = new String[]{"THREE\n", "four\n"};
+        assertEquals(fresh.findExact(target, 10), spliced.findExact(target, 10));
+        assertEquals(List.of(3), spliced.findExact(target, 10));
+    }
+
+    @Test
+    void testContentPreservesMissingTrailingNewline() {
+        var doc = HashedLines.of("no newline");
+        assertEquals("no newline", doc.content());
+        assertEquals("no newline\n", doc.line(0));
+    }
+}
@@ -0,0 +1,109 @@
+package io.github.jbellis.brokk;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LlmHistoryLogTest {
+    @TempDir
+    Path tempDir;
+
+    @AfterEach
+    void closeLog() throws Exception {
+        assertTrue(LlmHistoryLog.close(tempDir.resolve("history"), Duration.ofSeconds(10)));
+    }
+
+    private static Llm.StreamingResult response(String text) {
+        return new Llm.StreamingResult(ChatResponse.builder().aiMessage(new AiMessage(text)).build(), null);
+    }
+
+    @Test
+    void testRoundTripDeduplicatesRepeatedBodies() throws Exception {
+        var log = LlmHistoryLog.forBaseDir(tempDir.resolve("history"));
+        var session = tempDir.resolve("history").resolve("session");
+        var workspace = new UserMessage("<workspace>\n" + "class Foo {}\n".repeat(5_000) + "</workspace>");
+
+        var conversation = new ArrayList<ChatMessage>(List.of(new SystemMessage("You are a coder"), workspace));
+        for (int i = 0; i < 10; i++) {
+            conversation.add(new UserMessage("step " + i));
+            assertTrue(log.submit(new LlmHistoryLog.Request(session, LocalDateTime.now(), "quick", List.copyOf(conversation),
+                                                            i % 2 == 0 ? null : List.of("searchSymbols"), response("answer " + i))));
+            conversation.add(new AiMessage("answer " + i));
+        }
+        log.submit(new LlmHistoryLog.Request(session, LocalDateTime.now(), "quick", List.copyOf(conversation), null, null));
+        assertTrue(log.flush(Duration.ofSeconds(10)));
+
+        // the workspace is stored once, compressed
+        long workspaceBytes = workspace.singleText().length();
+        assertTrue(Files.size(session.resolve(LlmHistoryLog.BLOBS_FILE)) < workspaceBytes / 10,
+                   "blob file is " + Files.size(session.resolve(LlmHistoryLog.BLOBS_FILE)) + " bytes");
+
+        var entries = LlmHistoryReader.read(session);
+        assertEquals(11, entries.size());
+        for (int i = 0; i < 10; i++) {
+            var entry = entries.get(i);
+            assertEquals(i, entry.seq());
+            assertEquals("quick", entry.model());
+            assertEquals(3 + 2 * i, entry.messages().size());
+            assertEquals(workspace.singleText(), entry.messages().get(1).text());
+            assertEquals("user", entry.messages().getLast().type());
+            assertEquals("step " + i, entry.messages().getLast().text());
+            assertEquals("answer " + i, entry.description());
+            assertEquals(response("answer " + i).formatted(), entry.response());
+        }
+        assertEquals(List.of("searchSymbols"), entries.get(1).tools());
+        assertEquals("Cancelled", entries.getLast().response());
+
+        // the reconstruction matches the plain-text layout
+        var expected = "# Request to quick:\n\n%s\n# Response:\n\n%s".formatted(TaskEntry.formatMessages(entries.getFirst().messages().stream()
+                .map(m -> (ChatMessage) (m.type().equals("system") ? new SystemMessage(m.text()) : new UserMessage(m.text())))
+                .toList()), response("answer 0").formatted());
+        assertEquals(expected, entries.getFirst().format());
+    }
+
+    @Test
+    void testIdenticalRequestAddsNoBlobs() throws Exception {
+        var session = tempDir.resolve("history").resolve("resumed");
+        var log = LlmHistoryLog.forBaseDir(tempDir.resolve("history"));
+        var messages = List.<ChatMessage>of(new UserMessage("same question"));
+        log.submit(new LlmHistoryLog.Request(session, LocalDateTime.now(), "quick", messages, null, response("same answer")));
+        assertTrue(log.flush(Duration.ofSeconds(10)));
+        long size = Files.size(session.resolve(LlmHistoryLog.BLOBS_FILE));
+
+        // a repeated request adds an index line but no blobs
+        var blobs = LlmHistoryReader.scanBlobs(session.resolve(LlmHistoryLog.BLOBS_FILE));
+        assertEquals(2, blobs.size());
+        log.submit(new LlmHistoryLog.Request(session, LocalDateTime.now(), "quick", messages, null, response("same answer")));
+        assertTrue(log.flush(Duration.ofSeconds(10)));
+        assertEquals(size, Files.size(session.resolve(LlmHistoryLog.BLOBS_FILE)));
+        assertEquals(List.of(0, 1), LlmHistoryReader.read(session).stream().map(LlmHistoryReader.Entry::seq).toList());
+    }
+
+    @Test
+    void testCloseWritesQueuedRequestsAndForgetsTheLog() throws Exception {
+        var session = tempDir.resolve("history").resolve("closed");
+        var log = LlmHistoryLog.forBaseDir(tempDir.resolve("history"));
+        assertTrue(log.submit(new LlmHistoryLog.Request(session, LocalDateTime.now(), "quick",
+                                                        List.of(new UserMessage("question")), null, response("answer"))));
+
+        assertTrue(LlmHistoryLog.close(tempDir.resolve("history"), Duration.ofSeconds(10)));
+        assertEquals(1, LlmHistoryReader.read(session).size());
+        // the closed log drops new requests, and the base dir gets a fresh log
+        assertFalse(log.submit(new LlmHistoryLog.Request(session, LocalDateTime.now(), "quick", List.of(), null, null)));
+        assertNotSame(log, LlmHistoryLog.forBaseDir(tempDir.resolve("history")));
+    }
+}
@@ -0,0 +1,270 @@
+package io.github.jbellis.brokk;
+
+import com.sun.net.httpserver.HttpServer;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LlmSchedulerTest {
+    private static final int SERVER_CONCURRENCY = 2;
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger maxActive = new AtomicInteger();
+    private final AtomicInteger rejected = new AtomicInteger();
+
+    /**
+     * Starts a fake OpenAI-compatible endpoint that streams a short completion, and answers with a
+     * LiteLLM-style 429 whenever more than SERVER_CONCURRENCY requests are in flight.
+     */
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.createContext("/v1/chat/completions", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            int now = active.incrementAndGet();
+            try {
+                if (now > SERVER_CONCURRENCY) {
+                    rejected.incrementAndGet();
+                    var body = """
+                            {"error": {"message": "litellm.RateLimitError: Please retry after 0.2 seconds", "type": "rate_limit_exceeded", "code": "429"}}
+                            """.getBytes(StandardCharsets.UTF_8);
+                    exchange.getResponseHeaders().add("Content-Type", "application/json");
+                    exchange.sendResponseHeaders(429, body.length);
+                    exchange.getResponseBody().write(body);
+                    return;
+                }
+                maxActive.accumulateAndGet(now, Math::max);
+                Thread.sleep(50);
+                var body = """
+                        data: {"id":"1","object":"chat.completion.chunk","created":1,"model":"fake","choices":[{"index":0,"delta":{"role":"assistant","content":"ok"},"finish_reason":null}]}
+
+                        data: {"id":"1","object":"chat.completion.chunk","created":1,"model":"fake","choices":[{"index":0,"delta":{},"finish_reason":"stop"}],"usage":{"prompt_tokens":100,"completion_tokens":1,"total_tokens":101}}
+
+                        data: [DONE]
+
+                        """.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                active.decrementAndGet();
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    private StreamingChatLanguageModel fakeModel() {
+        return OpenAiStreamingChatModel.builder()
+                .baseUrl("http://localhost:" + server.getAddress().getPort() + "/v1")
+                .apiKey("dummy-key")
+                .modelName("fake")
+                .timeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    /**
+     * Sends one request through the scheduler the way Llm does, retrying on rate limits.
+     */
+    private static void send(LlmScheduler scheduler, StreamingChatLanguageModel model) throws Exception {
+        for (int attempt = 0; attempt < 20; attempt++) {
+            try (var permit = scheduler.acquire("fake", LlmScheduler.Priority.BACKGROUND, 100)) {
+                var future = new CompletableFuture<ChatResponse>();
+                var request = ChatRequest.builder().messages(List.of(UserMessage.from("hi"))).build();
+                model.chat(request, new StreamingChatResponseHandler() {
+                    @Override
+                    public void onPartialResponse(String token) {
+                    }
+
+                    @Override
+                    public void onCompleteResponse(ChatResponse response) {
+                        future.complete(response);
+                    }
+
+                    @Override
+                    public void onError(Throwable th) {
+                        future.completeExceptionally(th);
+                    }
+                });
+                try {
+                    var response = future.get(10, TimeUnit.SECONDS);
+                    permit.complete(response.tokenUsage() == null ? 100 : response.tokenUsage().totalTokenCount());
+                    return;
+                } catch (java.util.concurrent.ExecutionException e) {
+                    assertTrue(LlmScheduler.isRateLimit(e.getCause()), "unexpected error " + e.getCause());
+                    permit.rateLimited(LlmScheduler.retryAfter(e.getCause()).orElse(LlmScheduler.DEFAULT_COOLDOWN));
+                }
+            }
+        }
+        fail("request was never admitted by the fake endpoint");
+    }
+
+    @Test
+    void testBacksOffToServerConcurrencyAgainstFakeEndpoint() throws Exception {
+        var scheduler = new LlmScheduler();
+        var model = fakeModel();
+
+        try (var executor = Executors.newFixedThreadPool(16)) {
+            var futures = new ArrayList<CompletableFuture<Void>>();
+            for (int i = 0; i < 40; i++) {
+                futures.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        send(scheduler, model);
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }, executor));
+            }
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(60, TimeUnit.SECONDS);
+        }
+
+        var stats = scheduler.getStats().getFirst();
+        assertEquals("fake", stats.model());
+        assertTrue(stats.rateLimited() > 0, "the fake endpoint should have pushed back at least once");
+        assertEquals(stats.rateLimited(), rejected.get());
+        assertTrue(stats.concurrencyLimit() < LlmScheduler.INITIAL_CONCURRENCY, "limit was " + stats.concurrencyLimit());
+        assertEquals(0, stats.queued());
+        assertEquals(0, stats.inFlight());
+        assertEquals(SERVER_CONCURRENCY, maxActive.get());
+    }
+
+    @Test
+    void testInteractiveRequestsJumpTheQueue() throws Exception {
+        var scheduler = new LlmScheduler();
+        var held = new ArrayList<LlmScheduler.Permit>();
+        for (int i = 0; i < LlmScheduler.INITIAL_CONCURRENCY; i++) {
+            held.add(scheduler.acquire("m", LlmScheduler.Priority.BACKGROUND, 10));
+        }
+
+        var order = new java.util.concurrent.ConcurrentLinkedQueue<String>();
+        try (var executor = Executors.newFixedThreadPool(2)) {
+            var background = executor.submit(() -> {
+                try (var p = scheduler.acquire("m", LlmScheduler.Priority.BACKGROUND, 10)) {
+                    order.add("background");
+                    p.complete(10);
+                }
+                return null;
+            });
+            // make sure the background request is queued first
+            while (scheduler.getStats().getFirst().queuedBackground() == 0) {
+                Thread.sleep(5);
+            }
+            var interactive = executor.submit(() -> {
+                try (var p = scheduler.acquire("m", LlmScheduler.Priority.INTERACTIVE, 10)) {
+                    order.add("interactive");
+                    Thread.sleep(50);
+                    p.complete(10);
+                }
+                return null;
+            });
+            while (scheduler.getStats().getFirst().queuedInteractive() == 0) {
+                Thread.sleep(5);
+            }
+            var stats = scheduler.getStats().getFirst();
+            assertEquals(2, stats.queued());
+            assertEquals(LlmScheduler.INITIAL_CONCURRENCY, stats.inFlight());
+
+            // free one slot: the interactive request goes first even though it arrived second
+            held.removeFirst().complete(10);
+            interactive.get(5, TimeUnit.SECONDS);
+            held.forEach(LlmScheduler.Permit::close);
+            background.get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(List.of("interactive", "background"), List.copyOf(order));
+        var stats = scheduler.getStats().getFirst();
+        assertEquals(LlmScheduler.INITIAL_CONCURRENCY + 2, stats.admitted());
+        assertTrue(stats.maxWait().compareTo(Duration.ZERO) > 0);
+    }
+
+    @Test
+    void testRateLimitPausesAdmissions() throws Exception {
+        var scheduler = new LlmScheduler();
+        try (var p = scheduler.acquire("m", LlmScheduler.Priority.INTERACTIVE, 1000)) {
+            p.rateLimited(Duration.ofMillis(300));
+        }
+        var stats = scheduler.getStats().getFirst();
+        assertEquals(LlmScheduler.INITIAL_CONCURRENCY / 2, stats.concurrencyLimit());
+        // nothing got through this minute, so there is nothing to learn a budget from
+        assertEquals(-1, stats.tokenBudget());
+        assertEquals(0, stats.tokensLastMinute());
+
+        long start = System.nanoTime();
+        try (var p = scheduler.acquire("m", LlmScheduler.Priority.INTERACTIVE, 10)) {
+            p.complete(10);
+        }
+        assertTrue(System.nanoTime() - start >= Duration.ofMillis(250).toNanos());
+    }
+
+    @Test
+    void testRateLimitLearnsTokenBudget() throws Exception {
+        var scheduler = new LlmScheduler();
+        try (var p = scheduler.acquire("m", LlmScheduler.Priority.BACKGROUND, 100)) {
+            p.complete(500);
+        }
+        try (var p = scheduler.acquire("m", LlmScheduler.Priority.BACKGROUND, 100)) {
+            p.rateLimited(Duration.ZERO);
+        }
+        var stats = scheduler.getStats().getFirst();
+        assertEquals(500, stats.tokensLastMinute());
+        assertEquals(500, stats.tokenBudget());
+        assertEquals(1, stats.rateLimited());
+
+        // the budget is spent for this minute, so the next request has to wait for the window to roll over
+        var waiter = Thread.ofVirtual().start(() -> {
+            try (var p = scheduler.acquire("m", LlmScheduler.Priority.BACKGROUND, 100)) {
+                p.complete(100);
+            } catch (InterruptedException e) {
+                // expected
+            }
+        });
+        while (scheduler.getStats().getFirst().queued() == 0) {
+            Thread.sleep(5);
+        }
+        waiter.interrupt();
+        waiter.join();
+        assertEquals(0, scheduler.getStats().getFirst().queued());
+        assertEquals(2, scheduler.getStats().getFirst().admitted());
+    }
+
+    @Test
+    void testRetryAfterParsing() {
+        assertEquals(Duration.ofMillis(200), LlmScheduler.retryAfter(new RuntimeException("RateLimitError: Please retry after 0.2 seconds")).orElseThrow());
+        assertEquals(Duration.ofSeconds(20), LlmScheduler.retryAfter(new RuntimeException("Please try again in 20s.")).orElseThrow());
+        assertEquals(Duration.ofMillis(750), LlmScheduler.retryAfter(new RuntimeException("try again in 750ms")).orElseThrow());
+        assertTrue(LlmScheduler.retryAfter(new RuntimeException("Internal server error")).isEmpty());
+        assertTrue(LlmScheduler.isRateLimit(new dev.langchain4j.exception.HttpException(429, "too many")));
+        assertFalse(LlmScheduler.isRateLimit(new dev.langchain4j.exception.HttpException(500, "boom")));
+    }
+}
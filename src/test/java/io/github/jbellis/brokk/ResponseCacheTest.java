@@ -0,0 +1,92 @@
+package io.github.jbellis.brokk;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResponseCacheTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testKeyIgnoresWhitespaceNoiseButNotContent() {
+        var base = ResponseCache.key("quick", "t=0", List.of(new SystemMessage("Summarize"), new UserMessage("line one\nline two")));
+        var crlf = ResponseCache.key("quick", "t=0", List.of(new SystemMessage("Summarize"), new UserMessage("line one  \r\nline two\n")));
+        assertEquals(base, crlf);
+
+        assertNotEquals(base, ResponseCache.key("quickest", "t=0", List.of(new SystemMessage("Summarize"), new UserMessage("line one\nline two"))));
+        assertNotEquals(base, ResponseCache.key("quick", "t=1", List.of(new SystemMessage("Summarize"), new UserMessage("line one\nline two"))));
+        assertNotEquals(base, ResponseCache.key("quick", "t=0", List.of(new SystemMessage("Summarize"), new UserMessage("line one\nline 2"))));
+        // same text, different roles
+        assertNotEquals(base, ResponseCache.key("quick", "t=0", List.of(new SystemMessage("Summarize"), new AiMessage("line one\nline two"))));
+    }
+
+    @Test
+    void testModelWithoutParametersHasNoKey() {
+        var model = new StreamingChatLanguageModel() {
+            @Override
+            public ChatRequestParameters defaultRequestParameters() {
+                return null;
+            }
+        };
+        assertEquals(Optional.empty(), ResponseCache.key(model, List.of(new UserMessage("hello"))));
+    }
+
+    @Test
+    void testEntriesSurviveReload() {
+        var cache = new ResponseCache(tempDir, 1024);
+        assertEquals(Optional.empty(), cache.get("abc"));
+        cache.put("abc", "the summary");
+        assertEquals(Optional.of("the summary"), cache.get("abc"));
+
+        var reloaded = new ResponseCache(tempDir, 1024);
+        assertEquals(Optional.of("the summary"), reloaded.get("abc"));
+        assertEquals("the summary".length(), reloaded.sizeInBytes());
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsed() throws InterruptedException {
+        var cache = new ResponseCache(tempDir, 250);
+        cache.put("a", "x".repeat(100));
+        Thread.sleep(5);
+        cache.put("b", "y".repeat(100));
+        Thread.sleep(5);
+        // touching a makes b the least recently used
+        assertTrue(cache.get("a").isPresent());
+        Thread.sleep(5);
+        cache.put("c", "z".repeat(100));
+
+        assertTrue(cache.get("a").isPresent());
+        assertTrue(cache.get("b").isEmpty());
+        assertTrue(cache.get("c").isPresent());
+        assertEquals(200, cache.sizeInBytes());
+    }
+
+    @Test
+    void testFlushPersistsRecency() throws InterruptedException {
+        var cache = new ResponseCache(tempDir, 250);
+        cache.put("a", "x".repeat(100));
+        Thread.sleep(5);
+        cache.put("b", "y".repeat(100));
+        Thread.sleep(5);
+        assertTrue(cache.get("a").isPresent());
+        cache.flush();
+
+        // a fresh instance sees that a was used after b
+        var reloaded = new ResponseCache(tempDir, 250);
+        Thread.sleep(5);
+        reloaded.put("c", "z".repeat(100));
+        assertTrue(reloaded.get("a").isPresent());
+        assertTrue(reloaded.get("b").isEmpty());
+    }
+}
@@ -0,0 +1,145 @@
+package io.github.jbellis.brokk;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import io.github.jbellis.brokk.analyzer.ProjectFile;
+import org.fife.ui.rsyntaxtextarea.SyntaxConstants;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SessionStoreTest {
+    @TempDir
+    Path tempDir;
+    private IContextManager contextManager;
+
+    @BeforeEach
+    void setup() {
+        contextManager = new IContextManager() {
+        };
+    }
+
+    private static Context addTask(Context context, String question, String answer) {
+        var messages = List.<ChatMessage>of(new UserMessage(question), new AiMessage(answer));
+        var result = new SessionResult(question, messages, Map.of(), new SessionResult.StopDetails(SessionResult.StopReason.SUCCESS));
+        return context.addHistoryEntry(context.createTaskEntry(result), result.output(), CompletableFuture.completedFuture(question), Map.of());
+    }
+
+    private Path historyLog() {
+        return tempDir.resolve(".brokk").resolve(SessionStore.SESSION_DIR_NAME).resolve(SessionStore.HISTORY_FILE);
+    }
+
+    @Test
+    void testRoundTrip() throws Exception {
+        var projectFile = new ProjectFile(tempDir, "src/Main.java");
+        Files.createDirectories(projectFile.absPath().getParent());
+        Files.writeString(projectFile.absPath(), "class Main {}");
+
+        var context = new Context(contextManager)
+                .addEditableFiles(List.of(new ContextFragment.ProjectPathFragment(projectFile)))
+                .addVirtualFragment(new ContextFragment.StringFragment("notes", "Notes", SyntaxConstants.SYNTAX_STYLE_NONE));
+        context = addTask(context, "What is 2+2?", "4");
+        context = addTask(context, "And 3+3?", "6");
+
+        var store = new SessionStore(tempDir);
+        assertFalse(store.exists());
+        store.save(context);
+        assertTrue(store.exists());
+
+        var loaded = new SessionStore(tempDir).load(contextManager, "welcome back");
+        assertNotNull(loaded);
+        assertEquals(List.of(projectFile), loaded.editableFiles().map(ContextFragment.ProjectPathFragment::file).toList());
+        assertEquals(List.of("notes"), loaded.virtualFragments().map(ContextFragment.VirtualFragment::text).toList());
+        assertEquals(List.of(1, 2), loaded.getTaskHistory().stream().map(TaskEntry::sequence).toList());
+        var log = loaded.getTaskHistory().get(1).log();
+        assertEquals("And 3+3?", log.description());
+        assertEquals(List.of(new UserMessage("And 3+3?"), new AiMessage("6")), log.messages());
+        assertTrue(loaded.getParsedOutput().text().contains("welcome back"));
+    }
+
+    @Test
+    void testSaveAppendsOnlyNewAndChangedEntries() throws Exception {
+        var store = new SessionStore(tempDir);
+        var context = addTask(new Context(contextManager), "first", "one");
+        store.save(context);
+        long afterFirst = Files.size(historyLog());
+
+        // saving the same history again appends nothing
+        store.save(context.addVirtualFragment(new ContextFragment.StringFragment("x", "X", SyntaxConstants.SYNTAX_STYLE_NONE)));
+        assertEquals(afterFirst, Files.size(historyLog()));
+
+        context = addTask(context, "second", "two");
+        store.save(context);
+        long afterSecond = Files.size(historyLog());
+        assertTrue(afterSecond > afterFirst);
+
+        // compressing the first entry appends one record that supersedes the original
+        var history = context.getTaskHistory();
+        context = context.withCompressedHistory(List.of(TaskEntry.fromCompressed(1, "asked for one"), history.get(1)));
+        store.save(context);
+        assertTrue(Files.size(historyLog()) > afterSecond);
+
+        var loaded = new SessionStore(tempDir).load(contextManager, "welcome");
+        assertTrue(loaded.getTaskHistory().getFirst().isCompressed());
+        assertEquals("asked for one", loaded.getTaskHistory().getFirst().summary());
+        assertEquals("second", loaded.getTaskHistory().get(1).log().description());
+    }
+
+    @Test
+    void testTornWriteAtEndOfLogIsIgnored() throws Exception {
+        var store = new SessionStore(tempDir);
+        var context = addTask(new Context(contextManager), "first", "one");
+        store.save(context);
+        long good = Files.size(historyLog());
+        store.save(addTask(context, "second", "two"));
+
+        // simulate a crash partway through the second record
+        try (var raf = new RandomAccessFile(historyLog().toFile(), "rw")) {
+            raf.setLength(good + 10);
+        }
+        var loaded = new SessionStore(tempDir).load(contextManager, "welcome");
+        // the snapshot still lists entry 2, but only entry 1 survived
+        assertEquals(List.of(1), loaded.getTaskHistory().stream().map(TaskEntry::sequence).toList());
+
+        // the partial record was dropped, so records appended afterwards read back normally
+        var store2 = new SessionStore(tempDir);
+        var reloaded = store2.load(contextManager, "welcome");
+        store2.save(addTask(reloaded, "third", "three"));
+        var last = new SessionStore(tempDir).load(contextManager, "welcome");
+        assertEquals(2, last.getTaskHistory().size());
+        assertEquals(new AiMessage("three"), last.getTaskHistory().getLast().log().messages().getLast());
+    }
+
+    @Test
+    void testCompactsSupersededRecords() throws Exception {
+        var store = new SessionStore(tempDir);
+        var context = new Context(contextManager);
+        long oneRecord = 0;
+        for (int i = 0; i < 40; i++) {
+            context = addTask(context, "question " + i, "answer " + i);
+            store.save(context);
+            if (i == 0) {
+                oneRecord = Files.size(historyLog());
+            }
+            context = context.clearHistory();
+            store.save(context);
+        }
+        // 40 superseded records were written, but compaction keeps the log from holding them all
+        assertTrue(Files.size(historyLog()) < 20 * oneRecord, "log was not compacted");
+
+        context = addTask(context, "last", "answer");
+        store.save(context);
+        var loaded = new SessionStore(tempDir).load(contextManager, "welcome");
+        assertEquals(List.of("last"), loaded.getTaskHistory().stream().map(e -> e.log().description()).toList());
+    }
+}
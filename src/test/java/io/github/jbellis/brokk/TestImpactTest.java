@@ -0,0 +1,117 @@
+package io.github.jbellis.brokk;
+
+import io.github.jbellis.brokk.analyzer.CodeUnit;
+import io.github.jbellis.brokk.analyzer.IAnalyzer;
+import io.github.jbellis.brokk.analyzer.ProjectFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestImpactTest {
+    @TempDir
+    Path tempDir;
+
+    private CodeUnit cls(String path, String name) {
+        return CodeUnit.cls(new ProjectFile(tempDir, path), "p", name);
+    }
+
+    /** A CPG analyzer whose only data is a "used by" graph. */
+    private static IAnalyzer cpg(Map<CodeUnit, List<CodeUnit>> users, AtomicInteger lookups) {
+        return new IAnalyzer() {
+            @Override
+            public boolean isCpg() {
+                return true;
+            }
+
+            @Override
+            public List<CodeUnit> getUses(String symbol) {
+                lookups.incrementAndGet();
+                return users.entrySet().stream()
+                        .filter(e -> e.getKey().fqName().equals(symbol))
+                        .findFirst()
+                        .map(Map.Entry::getValue)
+                        .orElseThrow(() -> new IllegalArgumentException(symbol));
+            }
+        };
+    }
+
+    @Test
+    void testWalksUsesNearestFirst() {
+        var model = cls("src/Model.java", "Model");
+        var service = cls("src/Service.java", "Service");
+        var controller = cls("src/Controller.java", "Controller");
+        var modelTest = cls("test/ModelTest.java", "ModelTest");
+        var serviceTest = cls("test/ServiceTest.java", "ServiceTest");
+        var controllerTest = cls("test/ControllerTest.java", "ControllerTest");
+        var helperTest = cls("test/HelperTest.java", "HelperTest");
+        var users = Map.of(
+                model, List.of(CodeUnit.fn(service.source(), "p", "Service.load"), modelTest),
+                service, List.of(controller, serviceTest),
+                controller, List.of(controllerTest),
+                // tests end a path; what uses a test doesn't matter
+                modelTest, List.of(helperTest));
+        var tests = List.of(modelTest.source(), serviceTest.source(), controllerTest.source(), helperTest.source());
+        var lookups = new AtomicInteger();
+        var analyzer = cpg(users, lookups);
+
+        var impacted = TestImpact.impactedTests(analyzer, Set.of(CodeUnit.fn(model.source(), "p", "Model.save")), tests);
+        assertEquals(List.of(new TestImpact.ImpactedTest(modelTest.source(), 1),
+                             new TestImpact.ImpactedTest(serviceTest.source(), 2),
+                             new TestImpact.ImpactedTest(controllerTest.source(), 3)),
+                     impacted);
+
+        // the same analyzer answers again from its cache
+        int before = lookups.get();
+        assertEquals(impacted, TestImpact.impactedTests(analyzer, Set.of(model), tests));
+        assertEquals(before, lookups.get());
+    }
+
+    @Test
+    void testNewTestFilesAreNotAnsweredFromTheCache() {
+        var model = cls("src/Model.java", "Model");
+        var modelTest = cls("test/ModelTest.java", "ModelTest");
+        var analyzer = cpg(Map.of(model, List.of(modelTest)), new AtomicInteger());
+
+        assertEquals(List.of(), TestImpact.impactedTests(analyzer, Set.of(model), List.of()));
+        // ModelTest was added after the first call
+        assertEquals(List.of(new TestImpact.ImpactedTest(modelTest.source(), 1)),
+                     TestImpact.impactedTests(analyzer, Set.of(model), List.of(modelTest.source())));
+    }
+
+    @Test
+    void testChangedTestIsDistanceZero() {
+        var model = cls("src/Model.java", "Model");
+        var modelTest = cls("test/ModelTest.java", "ModelTest");
+        var analyzer = cpg(Map.of(model, List.of(modelTest), modelTest, List.of()), new AtomicInteger());
+
+        var impacted = TestImpact.impactedTests(analyzer, Set.of(model, modelTest), List.of(modelTest.source()));
+        assertEquals(List.of(new TestImpact.ImpactedTest(modelTest.source(), 0)), impacted);
+    }
+
+    @Test
+    void testWithoutCpgMatchesTestsMentioningChangedClasses() throws Exception {
+        var model = cls("src/Model.py", "Model");
+        var mentions = new ProjectFile(tempDir, "test/test_model.py");
+        var lookalike = new ProjectFile(tempDir, "test/test_other.py");
+        Files.createDirectories(mentions.absPath().getParent());
+        Files.writeString(mentions.absPath(), "from p import Model\n");
+        Files.writeString(lookalike.absPath(), "from p import ModelView\n");
+        var analyzer = new IAnalyzer() {
+            @Override
+            public boolean isCpg() {
+                return false;
+            }
+        };
+
+        var impacted = TestImpact.impactedTests(analyzer, Set.of(model), List.of(mentions, lookalike));
+        assertEquals(List.of(new TestImpact.ImpactedTest(mentions, 1)), impacted);
+    }
+}
@@ -0,0 +1,150 @@
+package io.github.jbellis.brokk;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UrlFetcherTest {
+    @TempDir
+    Path tempDir;
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private final List<UrlFetcher> fetchers = new ArrayList<>();
+
+    @BeforeEach
+    void setup() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        serverExecutor = Executors.newFixedThreadPool(4);
+        server.setExecutor(serverExecutor);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+        fetchers.forEach(UrlFetcher::close);
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:%d%s".formatted(server.getAddress().getPort(), path));
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        var bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        try (var out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private UrlFetcher fetcher(int maxBodyBytes) {
+        var fetcher = new UrlFetcher(tempDir, 1 << 20, maxBodyBytes);
+        fetchers.add(fetcher);
+        return fetcher;
+    }
+
+    @Test
+    void testRevalidatesCachedPageWithEtag() throws Exception {
+        var downloads = new AtomicInteger();
+        var revalidations = new AtomicInteger();
+        server.createContext("/docs", exchange -> {
+            exchange.getResponseHeaders().set("ETag", "\"v1\"");
+            if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                revalidations.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            downloads.incrementAndGet();
+            respond(exchange, 200, "text/html; charset=utf-8", "<html><body><h1>Hello</h1><p>World</p><script>x()</script></body></html>");
+        });
+
+        var firstSession = fetcher(UrlFetcher.DEFAULT_MAX_BODY_BYTES);
+        var first = firstSession.fetch(uri("/docs"));
+        assertFalse(first.cached());
+        assertTrue(first.content().contains("Hello"));
+        assertTrue(first.content().contains("World"));
+        assertFalse(first.content().contains("x()"));
+
+        // a later session revalidates instead of downloading again
+        firstSession.close();
+        var second = fetcher(UrlFetcher.DEFAULT_MAX_BODY_BYTES).fetch(uri("/docs"));
+        assertTrue(second.cached());
+        assertEquals(first.content(), second.content());
+        assertEquals(1, downloads.get());
+        assertEquals(1, revalidations.get());
+    }
+
+    @Test
+    void testCapsBodySize() throws Exception {
+        server.createContext("/big", exchange -> respond(exchange, 200, "text/plain", "x".repeat(1000)));
+
+        var page = fetcher(100).fetch(uri("/big"));
+        assertTrue(page.truncated());
+        assertEquals("x".repeat(100), page.content());
+
+        fetchers.getFirst().close();
+        var whole = fetcher(1000).fetch(uri("/big"));
+        assertFalse(whole.truncated());
+        assertEquals(1000, whole.content().length());
+    }
+
+    @Test
+    void testFetchesConcurrently() throws Exception {
+        // each response waits until all three requests have arrived
+        var arrived = new CountDownLatch(3);
+        server.createContext("/page", exchange -> {
+            arrived.countDown();
+            try {
+                boolean together = arrived.await(5, TimeUnit.SECONDS);
+                respond(exchange, together ? 200 : 503, "text/plain", exchange.getRequestURI().getQuery());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        var pages = fetcher(UrlFetcher.DEFAULT_MAX_BODY_BYTES).fetchAll(List.of(uri("/page?a"), uri("/page?b"), uri("/page?c")));
+        assertEquals(List.of("a", "b", "c"), pages.stream().map(UrlFetcher.Page::content).toList());
+    }
+
+    @Test
+    void testHttpErrorsAndUnsupportedSchemesFail() {
+        server.createContext("/missing", exchange -> respond(exchange, 404, "text/plain", "not here"));
+
+        var fetcher = fetcher(UrlFetcher.DEFAULT_MAX_BODY_BYTES);
+        assertThrows(IOException.class, () -> fetcher.fetch(uri("/missing")));
+        assertThrows(IOException.class, () -> fetcher.fetch(URI.create("ftp://example.com/file")));
+    }
+
+    @Test
+    void testRemoveProjectForgetsTheFetcher() {
+        var fetcher = UrlFetcher.forProject(tempDir);
+        assertSame(fetcher, UrlFetcher.forProject(tempDir));
+
+        UrlFetcher.removeProject(tempDir);
+        var reopened = UrlFetcher.forProject(tempDir);
+        fetchers.add(reopened);
+        assertNotSame(fetcher, reopened);
+    }
+}
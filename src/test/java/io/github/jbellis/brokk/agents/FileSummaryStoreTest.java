@@ -0,0 +1,230 @@
+package io.github.jbellis.brokk.agents;
+
+import io.github.jbellis.brokk.analyzer.CodeUnit;
+import io.github.jbellis.brokk.analyzer.IAnalyzer;
+import io.github.jbellis.brokk.analyzer.ProjectFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileSummaryStoreTest {
+    @TempDir
+    Path root;
+
+    /**
+     * Summarizes each file as one class whose skeleton is the file's text.
+     */
+    private static class CountingAnalyzer implements IAnalyzer {
+        final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public Map<CodeUnit, String> getSkeletons(ProjectFile file) {
+            calls.incrementAndGet();
+            try {
+                return Map.of(unit(file), Files.readString(file.absPath()));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    private static class CpgAnalyzer extends CountingAnalyzer {
+        @Override
+        public boolean isCpg() {
+            return true;
+        }
+    }
+
+    private static CodeUnit unit(ProjectFile file) {
+        return CodeUnit.cls(file, "p", file.getFileName().replace(".java", ""));
+    }
+
+    private ProjectFile write(String name, String text) throws IOException {
+        var file = new ProjectFile(root, name);
+        file.write(text);
+        return file;
+    }
+
+    private static void setModified(ProjectFile file, long millis) throws IOException {
+        Files.setLastModifiedTime(file.absPath(), FileTime.fromMillis(millis));
+    }
+
+    @Test
+    void testOnlyChangedFilesAreSummarizedAgain() throws IOException {
+        var counted = new AtomicInteger();
+        var store = new FileSummaryStore(s -> {
+            counted.incrementAndGet();
+            return s.length();
+        });
+        var analyzer = new CountingAnalyzer();
+        var a = write("A.java", "class A {}");
+        var b = write("B.java", "class B {}");
+        setModified(a, 1_000);
+        setModified(b, 1_000);
+
+        var first = store.skeletons(analyzer, List.of(a, b));
+        assertEquals(2, analyzer.calls.get());
+        assertEquals("class A {}", first.get(unit(a)));
+
+        store.skeletons(analyzer, List.of(a, b));
+        assertEquals(2, analyzer.calls.get());
+        assertEquals(2, store.reused());
+
+        // touched without changing: hashed, but not summarized again
+        setModified(a, 2_000);
+        store.skeletons(analyzer, List.of(a, b));
+        assertEquals(2, analyzer.calls.get());
+
+        a.write("class A { int x; }");
+        setModified(a, 3_000);
+        var updated = store.skeletons(analyzer, List.of(a, b));
+        assertEquals(3, analyzer.calls.get());
+        assertEquals("class A { int x; }", updated.get(unit(a)));
+
+        // token counts are served from the cache while the skeleton text matches
+        int countedBefore = counted.get();
+        assertEquals("class A { int x; }".length() + "class B {}".length(), store.tokens(updated));
+        assertEquals(countedBefore, counted.get());
+        assertEquals(3, store.tokens(unit(a), "abc"));
+        assertEquals(countedBefore + 1, counted.get());
+        assertEquals(3, store.tokens(unit(a), "abc"));
+        assertEquals(countedBefore + 1, counted.get());
+    }
+
+    @Test
+    void testContentTokensDoNotNeedTheAnalyzer() throws IOException {
+        var store = new FileSummaryStore(String::length);
+        var a = write("A.java", "class A {}");
+
+        assertEquals(10, store.contentTokens(a));
+        assertEquals(0, store.contentTokens(new ProjectFile(root, "Missing.java")));
+        assertEquals(0, store.summarized());
+    }
+
+    @Test
+    void testAnalyzerRebuildDropsRecentlyModifiedFiles() throws IOException {
+        var store = new FileSummaryStore(String::length);
+        var unchanged = write("Unchanged.java", "class Unchanged {}");
+        var edited = write("Edited.java", "class Edited {}");
+        setModified(unchanged, 1_000);
+        var analyzer = new CountingAnalyzer();
+        store.skeletons(analyzer, List.of(unchanged, edited));
+        assertEquals(2, analyzer.calls.get());
+
+        // edited while the analyzer was in use, so the analyzer may not have seen the edit yet
+        edited.write("class Edited { int x; }");
+        setModified(edited, System.currentTimeMillis() + 60_000);
+        store.skeletons(analyzer, List.of(unchanged, edited));
+        assertEquals(3, analyzer.calls.get());
+
+        var rebuilt = new CountingAnalyzer();
+        store.skeletons(rebuilt, List.of(unchanged, edited));
+        assertEquals(1, rebuilt.calls.get());
+    }
+
+    @Test
+    void testSummariesPersistWhileTheCpgIsUnchanged() throws IOException {
+        var cpg = root.resolve(".brokk").resolve("joern.cpg");
+        Files.createDirectories(cpg.getParent());
+        Files.writeString(cpg, "cpg");
+        Files.setLastModifiedTime(cpg, FileTime.fromMillis(1_000));
+        var a = write("A.java", "class A {}");
+
+        var first = new CpgAnalyzer();
+        new FileSummaryStore(root, String::length).skeletons(first, List.of(a));
+        assertEquals(1, first.calls.get());
+
+        // a restart that reloads the same CPG
+        var reloaded = new CpgAnalyzer();
+        var store = new FileSummaryStore(root, String::length);
+        assertEquals("class A {}", store.skeletons(reloaded, List.of(a)).get(unit(a)));
+        assertEquals(0, reloaded.calls.get());
+        assertEquals(1, store.reused());
+
+        // a rebuilt CPG summarizes again, and the old CPG's summaries are deleted
+        Files.setLastModifiedTime(cpg, FileTime.fromMillis(2_000));
+        var rebuilt = new CpgAnalyzer();
+        new FileSummaryStore(root, String::length).skeletons(rebuilt, List.of(a));
+        assertEquals(1, rebuilt.calls.get());
+        try (var dirs = Files.list(root.resolve(".brokk").resolve(FileSummaryStore.CACHE_DIR_NAME))) {
+            assertEquals(1, dirs.count());
+        }
+    }
+
+    @Test
+    void testUnexpectedPersistedClassesAreNotDeserialized() throws IOException {
+        var cpg = root.resolve(".brokk").resolve("joern.cpg");
+        Files.createDirectories(cpg.getParent());
+        Files.writeString(cpg, "cpg");
+        var a = write("A.java", "class A {}");
+        new FileSummaryStore(root, String::length).skeletons(new CpgAnalyzer(), List.of(a));
+
+        // replace the persisted summaries with a map holding a class outside the allow-list
+        var bytes = new ByteArrayOutputStream();
+        try (var oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(new HashMap<>(Map.of(unit(a), new Date())));
+        }
+        try (var files = Files.walk(root.resolve(".brokk").resolve(FileSummaryStore.CACHE_DIR_NAME))) {
+            for (var path : files.filter(Files::isRegularFile).toList()) {
+                Files.write(path, bytes.toByteArray());
+            }
+        }
+
+        var analyzer = new CpgAnalyzer();
+        var skeletons = new FileSummaryStore(root, String::length).skeletons(analyzer, List.of(a));
+        assertEquals(1, analyzer.calls.get());
+        assertEquals("class A {}", skeletons.get(unit(a)));
+    }
+
+    @Test
+    void testAnalyzersWithoutCpgAreNotPersisted() throws IOException {
+        var a = write("A.java", "class A {}");
+        new FileSummaryStore(root, String::length).skeletons(new CountingAnalyzer(), List.of(a));
+
+        var analyzer = new CountingAnalyzer();
+        new FileSummaryStore(root, String::length).skeletons(analyzer, List.of(a));
+        assertEquals(1, analyzer.calls.get());
+        assertFalse(Files.exists(root.resolve(".brokk").resolve(FileSummaryStore.CACHE_DIR_NAME)));
+    }
+
+    @Test
+    void testRemoveProjectForgetsTheStore() {
+        var store = FileSummaryStore.forProject(root);
+        assertSame(store, FileSummaryStore.forProject(root));
+        FileSummaryStore.removeProject(root);
+        assertNotSame(store, FileSummaryStore.forProject(root));
+        FileSummaryStore.removeProject(root);
+    }
+
+    @Test
+    void testSelectWithinBudget() {
+        var ranked = List.of("a", "b", "c", "d");
+        var costs = Map.of("a", 50, "b", 60, "c", 30, "d", 20);
+
+        assertEquals(ranked, FileSummaryStore.selectWithinBudget(ranked, costs::get, 160));
+        // b no longer fits beside a, but the smaller c and d do
+        assertEquals(List.of("a", "c", "d"), FileSummaryStore.selectWithinBudget(ranked, costs::get, 105));
+        assertEquals(List.of("a"), FileSummaryStore.selectWithinBudget(ranked, costs::get, 55));
+        assertEquals(List.of("d"), FileSummaryStore.selectWithinBudget(ranked, costs::get, 25));
+        assertEquals(List.of(), FileSummaryStore.selectWithinBudget(ranked, costs::get, 10));
+
+        // large budgets are selected in coarser steps but never overrun
+        var large = List.of(1_000_001, 900_000, 100_000, 5);
+        var selected = FileSummaryStore.selectWithinBudget(large, x -> x, 1_000_000);
+        assertEquals(List.of(900_000, 100_000), selected);
+        assertTrue(selected.stream().mapToInt(x -> x).sum() <= 1_000_000);
+    }
+}
@@ -0,0 +1,91 @@
+package io.github.jbellis.brokk.agents;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SearchSummarizerTest {
+    @Test
+    void testSameResultIsSummarizedOnce() throws Exception {
+        var summarizer = new SearchSummarizer();
+        var calls = new AtomicInteger();
+        var release = new CountDownLatch(1);
+        var key = SearchSummarizer.key("query", "getClassSources", "class Foo {}");
+
+        var first = summarizer.submit(key, () -> {
+            calls.incrementAndGet();
+            release.await();
+            return "summary";
+        });
+        // still in flight: the second caller shares it
+        var second = summarizer.submit(key, () -> {
+            calls.incrementAndGet();
+            return "other";
+        });
+        release.countDown();
+
+        assertEquals("summary", first.get(5, TimeUnit.SECONDS));
+        assertEquals("summary", second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, calls.get());
+        // a different query is summarized separately
+        assertNotEquals(key, SearchSummarizer.key("other query", "getClassSources", "class Foo {}"));
+    }
+
+    @Test
+    void testFailedSummaryIsNotReused() throws Exception {
+        var summarizer = new SearchSummarizer();
+        var key = SearchSummarizer.key("query", "getUsages", "usages");
+
+        var failed = summarizer.submit(key, () -> {
+            throw new IllegalStateException("LLM error");
+        });
+        assertThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS));
+
+        var retried = summarizer.submit(key, () -> "summary");
+        assertEquals("summary", retried.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testSubmitBlocksAtInFlightLimit() throws Exception {
+        var summarizer = new SearchSummarizer(2);
+        var release = new CountDownLatch(1);
+        var running = new AtomicInteger();
+        var maxRunning = new AtomicInteger();
+        var futures = new ArrayList<CompletableFuture<String>>();
+        for (int i = 0; i < 2; i++) {
+            futures.add(summarizer.submit("key" + i, () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                release.await();
+                running.decrementAndGet();
+                return "done";
+            }));
+        }
+
+        var submitted = new CountDownLatch(1);
+        var producer = new Thread(() -> {
+            try {
+                futures.add(summarizer.submit("key2", () -> "done"));
+                submitted.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+        assertFalse(submitted.await(200, TimeUnit.MILLISECONDS), "third submit should wait for a free slot");
+
+        release.countDown();
+        assertTrue(submitted.await(5, TimeUnit.SECONDS));
+        producer.join();
+        for (var future : futures) {
+            assertEquals("done", future.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(2, maxRunning.get());
+    }
+}
@@ -0,0 +1,137 @@
+package io.github.jbellis.brokk.agents;
+
+import dev.langchain4j.agent.tool.P;
+import dev.langchain4j.agent.tool.Tool;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import io.github.jbellis.brokk.analyzer.IAnalyzer;
+import io.github.jbellis.brokk.tools.ToolExecutionResult;
+import io.github.jbellis.brokk.tools.ToolRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SearchToolCacheTest {
+    public static class FakeSearchTools {
+        final AtomicInteger calls = new AtomicInteger();
+        volatile CountDownLatch gate = new CountDownLatch(0);
+
+        @Tool("Fake symbol search")
+        public String searchSymbols(@P("patterns") List<String> patterns, @P("reasoning") String reasoning) throws InterruptedException {
+            calls.incrementAndGet();
+            gate.await();
+            return "found " + String.join(",", patterns);
+        }
+
+        @Tool("Not cacheable")
+        public String addNote(@P("text") String text) {
+            calls.incrementAndGet();
+            return text;
+        }
+    }
+
+    private static ToolExecutionRequest request(String id, String name, String arguments) {
+        return ToolExecutionRequest.builder().id(id).name(name).arguments(arguments).build();
+    }
+
+    @Test
+    void testEquivalentCallsShareOneResult() throws Exception {
+        var analyzer = new IAnalyzer() {};
+        var cache = new SearchToolCache(() -> analyzer);
+        var registry = new ToolRegistry(null);
+        var tools = new FakeSearchTools();
+
+        var first = cache.execute(registry, tools, request("1", "searchSymbols", "{\"patterns\": [\"Foo\", \"Bar\"], \"reasoning\": \"first\"}"));
+        // different reasoning, order and duplicates
+        var second = cache.execute(registry, tools, request("2", "searchSymbols", "{\"reasoning\": \"second\", \"patterns\": [\"Bar\", \"Foo\", \"Foo\"]}"));
+
+        assertEquals(1, tools.calls.get());
+        assertEquals(first.resultText(), second.resultText());
+        assertEquals("2", second.request().id());
+        assertEquals(1, cache.hits());
+
+        cache.execute(registry, tools, request("3", "searchSymbols", "{\"patterns\": [\"Baz\"], \"reasoning\": \"\"}"));
+        assertEquals(2, tools.calls.get());
+
+        // whitespace may be part of a pattern, so it is not normalized away
+        cache.execute(registry, tools, request("4", "searchSymbols", "{\"patterns\": [\" Bar\", \"Foo\"], \"reasoning\": \"\"}"));
+        assertEquals(3, tools.calls.get());
+    }
+
+    @Test
+    void testInFlightCallIsJoined() throws Exception {
+        var analyzer = new IAnalyzer() {};
+        var cache = new SearchToolCache(() -> analyzer);
+        var registry = new ToolRegistry(null);
+        var tools = new FakeSearchTools();
+        tools.gate = new CountDownLatch(1);
+        var arguments = "{\"patterns\": [\"Foo\"], \"reasoning\": \"r\"}";
+
+        var first = CompletableFuture.supplyAsync(() -> execute(cache, registry, tools, request("1", "searchSymbols", arguments)));
+        while (tools.calls.get() == 0) {
+            Thread.sleep(5);
+        }
+        var second = CompletableFuture.supplyAsync(() -> execute(cache, registry, tools, request("2", "searchSymbols", arguments)));
+        Thread.sleep(100);
+        assertFalse(second.isDone(), "second call should wait for the first");
+        tools.gate.countDown();
+
+        assertEquals("found Foo", first.get(5, TimeUnit.SECONDS).resultText());
+        assertEquals("found Foo", second.get(5, TimeUnit.SECONDS).resultText());
+        assertEquals(1, tools.calls.get());
+    }
+
+    @Test
+    void testAnalyzerRebuildAndInvalidateDropResults() throws Exception {
+        var analyzer = new AtomicReference<IAnalyzer>(new IAnalyzer() {});
+        var cache = new SearchToolCache(analyzer::get);
+        var registry = new ToolRegistry(null);
+        var tools = new FakeSearchTools();
+        var arguments = "{\"patterns\": [\"Foo\"], \"reasoning\": \"r\"}";
+
+        cache.execute(registry, tools, request("1", "searchSymbols", arguments));
+        cache.execute(registry, tools, request("2", "searchSymbols", arguments));
+        assertEquals(1, tools.calls.get());
+
+        analyzer.set(new IAnalyzer() {});
+        cache.execute(registry, tools, request("3", "searchSymbols", arguments));
+        assertEquals(2, tools.calls.get());
+
+        cache.invalidate();
+        cache.execute(registry, tools, request("4", "searchSymbols", arguments));
+        assertEquals(3, tools.calls.get());
+    }
+
+    @Test
+    void testOtherToolsAndFailuresAreNotCached() throws Exception {
+        var analyzer = new IAnalyzer() {};
+        var cache = new SearchToolCache(() -> analyzer);
+        var registry = new ToolRegistry(null);
+        var tools = new FakeSearchTools();
+
+        cache.execute(registry, tools, request("1", "addNote", "{\"text\": \"x\"}"));
+        cache.execute(registry, tools, request("2", "addNote", "{\"text\": \"x\"}"));
+        assertEquals(2, tools.calls.get());
+
+        // missing parameter: fails without reaching the tool, and is not remembered
+        var failed = cache.execute(registry, tools, request("3", "searchSymbols", "{\"patterns\": [\"Foo\"]}"));
+        assertEquals(ToolExecutionResult.Status.FAILURE, failed.status());
+        var again = cache.execute(registry, tools, request("4", "searchSymbols", "{\"patterns\": [\"Foo\"]}"));
+        assertEquals(ToolExecutionResult.Status.FAILURE, again.status());
+        assertEquals(0, cache.hits());
+    }
+
+    private static ToolExecutionResult execute(SearchToolCache cache, ToolRegistry registry, Object tools, ToolExecutionRequest request) {
+        try {
+            return cache.execute(registry, tools, request);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
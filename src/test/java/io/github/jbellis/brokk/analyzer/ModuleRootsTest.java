@@ -0,0 +1,48 @@
+package io.github.jbellis.brokk.analyzer;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ModuleRootsTest {
+    private static final Path root = Path.of("/project");
+
+    private static List<ProjectFile> files(String... relative) {
+        return Arrays.stream(relative).map(f -> new ProjectFile(root, f)).toList();
+    }
+
+    @Test
+    void testDiscoverMultiModuleLayout() {
+        var files = files("pom.xml",
+                          "a/pom.xml",
+                          "a/src/main/java/A.java",
+                          "b/build.gradle.kts",
+                          "b/src/B.java",
+                          "b/nested/pom.xml",
+                          "b/nested/src/N.java",
+                          "c/pom.xml", // no sources, not a module
+                          "a/target/generated/G.java",
+                          "vendored/pom.xml",
+                          "vendored/V.java");
+
+        var modules = ModuleRoots.discover(files, List.of(), Set.of("vendored"));
+        assertEquals(List.of(Path.of("a"), Path.of("b"), Path.of("b/nested")), modules);
+        assertEquals(List.of(Path.of("b/nested")), ModuleRoots.nestedIn(Path.of("b"), modules));
+        assertEquals(List.of(), ModuleRoots.nestedIn(Path.of("a"), modules));
+    }
+
+    @Test
+    void testLooseSourcesBelongToRoot() {
+        // the build file is only known from BuildDetails
+        var files = files("Main.java", "lib/Lib.java");
+
+        var modules = ModuleRoots.discover(files, List.of("lib/build.gradle", "README.md"), Set.of());
+        assertEquals(List.of(Path.of(""), Path.of("lib")), modules);
+        assertEquals(List.of(Path.of("lib")), ModuleRoots.nestedIn(Path.of(""), modules));
+    }
+}
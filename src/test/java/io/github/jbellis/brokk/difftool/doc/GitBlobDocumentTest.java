@@ -0,0 +1,73 @@
+package io.github.jbellis.brokk.difftool.doc;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GitBlobDocumentTest {
+    private static ObjectLoader blob(byte[] bytes) {
+        return new ObjectLoader.SmallObject(Constants.OBJ_BLOB, bytes);
+    }
+
+    private static ObjectId idFor(byte[] bytes) {
+        try (var formatter = new ObjectInserter.Formatter()) {
+            return formatter.idFor(Constants.OBJ_BLOB, bytes);
+        }
+    }
+
+    private static GitBlobDocument document(byte[] bytes) {
+        return new GitBlobDocument(blob(bytes), idFor(bytes), "A.java");
+    }
+
+    @Test
+    void testTextIsSplitIntoLines() {
+        var doc = document("line one\nline two\n".getBytes(StandardCharsets.UTF_8));
+        assertFalse(doc.isSummary());
+        assertEquals("line one\n", doc.getLineText(0));
+        assertEquals("line two\n", doc.getLineText(1));
+        assertTrue(doc.isReadonly());
+    }
+
+    @Test
+    void testNulInTheProbeMeansBinary() {
+        var bytes = new byte[8_000];
+        Arrays.fill(bytes, (byte) 'a');
+        bytes[7_999] = 0;
+        var doc = document(bytes);
+        assertTrue(doc.isSummary());
+        assertTrue(doc.getLineText(0).startsWith("Binary file not shown: 8,000 bytes"));
+
+        // a NUL past the first 8000 bytes is not looked for
+        var longer = new byte[8_001];
+        Arrays.fill(longer, (byte) 'a');
+        longer[8_000] = 0;
+        assertFalse(document(longer).isSummary());
+    }
+
+    @Test
+    void testBlobsOverTheLimitAreSummarized() {
+        var atLimit = new byte[(int) GitBlobDocument.MAX_TEXT_BYTES];
+        Arrays.fill(atLimit, (byte) 'a');
+        assertFalse(document(atLimit).isSummary());
+
+        var overLimit = Arrays.copyOf(atLimit, atLimit.length + 1);
+        overLimit[atLimit.length] = 'a';
+        var doc = document(overLimit);
+        assertTrue(doc.isSummary());
+        assertTrue(doc.getLineText(0).startsWith("Large file not shown"));
+    }
+
+    @Test
+    void testAbsentFileIsEmpty() {
+        var doc = new GitBlobDocument(null, null, "A.java");
+        assertFalse(doc.isSummary());
+        assertEquals(0, doc.getDocument().getLength());
+    }
+}
@@ -0,0 +1,91 @@
+package io.github.jbellis.brokk.difftool.node;
+
+import com.github.difflib.DiffUtils;
+import com.github.difflib.patch.Patch;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IncrementalDiffTest {
+    private static List<String> lines(int n) {
+        return IntStream.range(0, n).mapToObj(i -> "line " + i).toList();
+    }
+
+    private static void assertTransforms(Patch<String> patch, List<String> left, List<String> right) throws Exception {
+        assertEquals(right, DiffUtils.patch(left, patch));
+    }
+
+    @Test
+    void testEditAwayFromDeltasKeepsThem() throws Exception {
+        var left = lines(100);
+        var right = new ArrayList<>(left);
+        right.set(10, "changed 10");
+        right.remove(80);
+        var base = DiffUtils.diff(left, right);
+
+        var edited = new ArrayList<>(right);
+        edited.add(50, "inserted");
+        var patch = IncrementalDiff.rediff(base, left, right, left, edited);
+
+        assertTransforms(patch, left, edited);
+        assertEquals(DiffUtils.diff(left, edited).getDeltas(), patch.getDeltas());
+        // the base is left alone
+        assertEquals(2, base.getDeltas().size());
+    }
+
+    @Test
+    void testEditRevertingADeltaRemovesIt() throws Exception {
+        var left = lines(50);
+        var right = new ArrayList<>(left);
+        right.set(20, "changed 20");
+        right.set(40, "changed 40");
+        var base = DiffUtils.diff(left, right);
+
+        var reverted = new ArrayList<>(right);
+        reverted.set(20, "line 20");
+        var patch = IncrementalDiff.rediff(base, left, right, left, reverted);
+
+        assertTransforms(patch, left, reverted);
+        assertEquals(1, patch.getDeltas().size());
+        assertEquals(40, patch.getDeltas().get(0).getSource().getPosition());
+    }
+
+    @Test
+    void testRandomEditsOnEitherSideStayValid() throws Exception {
+        var random = new Random(42);
+        var left = new ArrayList<>(lines(200));
+        var right = new ArrayList<>(left);
+        mutate(right, random, 10);
+        var patch = DiffUtils.diff(left, right);
+
+        for (int round = 0; round < 200; round++) {
+            var newLeft = new ArrayList<>(left);
+            var newRight = new ArrayList<>(right);
+            mutate(random.nextBoolean() ? newLeft : newRight, random, 1 + random.nextInt(3));
+            patch = IncrementalDiff.rediff(patch, left, right, newLeft, newRight);
+            assertTransforms(patch, newLeft, newRight);
+            left = newLeft;
+            right = newRight;
+        }
+    }
+
+    private static void mutate(List<String> lines, Random random, int edits) {
+        for (int i = 0; i < edits; i++) {
+            int at = random.nextInt(lines.size() + 1);
+            switch (random.nextInt(3)) {
+                case 0 -> lines.add(at, "new " + random.nextInt(1000));
+                case 1 -> {
+                    if (at < lines.size()) lines.remove(at);
+                }
+                default -> {
+                    if (at < lines.size()) lines.set(at, "edit " + random.nextInt(1000));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package io.github.jbellis.brokk.difftool.node;
+
+import com.github.difflib.DiffUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LineDiffTest {
+    private static List<String> lines(int n) {
+        return IntStream.range(0, n).mapToObj(i -> "line " + i).toList();
+    }
+
+    @Test
+    void testHistogramDiffOfLargeFileIsValid() throws Exception {
+        var left = lines(LineDiff.HISTOGRAM_THRESHOLD_LINES);
+        var right = new ArrayList<>(left);
+        right.set(5, "changed");
+        right.remove(1000);
+        right.add(1500, "inserted");
+        right.add("appended");
+
+        var patch = LineDiff.diff(left, right);
+        assertEquals(4, patch.getDeltas().size());
+        assertEquals(right, DiffUtils.patch(left, patch));
+    }
+
+    @Test
+    void testCachedDiffHandsOutCopies() throws Exception {
+        var left = lines(10);
+        var right = new ArrayList<>(left);
+        right.set(3, "changed");
+
+        var first = LineDiff.cachedDiff(left, right);
+        first.getDeltas().clear();
+        var second = LineDiff.cachedDiff(left, right);
+        assertEquals(1, second.getDeltas().size());
+        assertEquals(right, DiffUtils.patch(left, second));
+    }
+}
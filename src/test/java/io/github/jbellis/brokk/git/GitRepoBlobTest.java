@@ -0,0 +1,61 @@
+package io.github.jbellis.brokk.git;
+
+import io.github.jbellis.brokk.analyzer.ProjectFile;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GitRepoBlobTest {
+    @TempDir
+    Path root;
+
+    private void commit(ProjectFile file, String text) throws Exception {
+        file.write(text);
+        try (var git = Git.open(root.toFile())) {
+            var ident = new PersonIdent("Test", "test@example.com");
+            git.add().addFilepattern(file.toString()).call();
+            git.commit().setMessage("update " + file).setAuthor(ident).setCommitter(ident).setSign(false).call();
+        }
+    }
+
+    @Test
+    void testBlobIdsMatchWorkingFileHashes() throws Exception {
+        Git.init().setDirectory(root.toFile()).call().close();
+        var file = new ProjectFile(root, "src/A.java");
+        commit(file, "class A {}\n");
+
+        try (var repo = new GitRepo(root)) {
+            var blobId = repo.getFileBlobId("HEAD", file);
+            assertNotNull(blobId);
+            // an unchanged working file hashes to the committed blob, so callers can skip it without reading either
+            assertEquals(blobId, repo.hashWorkingFile(file));
+            assertEquals("class A {}\n", new String(repo.openBlob(blobId).getBytes(), StandardCharsets.UTF_8));
+
+            file.write("class A { int x; }\n");
+            assertNotEquals(blobId, repo.hashWorkingFile(file));
+
+            commit(file, "class A { int x; }\n");
+            assertEquals(blobId, repo.getFileBlobId("HEAD^", file));
+            assertEquals(repo.hashWorkingFile(file), repo.getFileBlobId("HEAD", file));
+        }
+    }
+
+    @Test
+    void testMissingFilesAndCommitsHaveNoBlob() throws Exception {
+        Git.init().setDirectory(root.toFile()).call().close();
+        var file = new ProjectFile(root, "A.java");
+        commit(file, "class A {}\n");
+
+        try (var repo = new GitRepo(root)) {
+            assertNull(repo.getFileBlobId("HEAD", new ProjectFile(root, "Missing.java")));
+            assertNull(repo.getFileBlobId("HEAD^", file));
+            assertNull(repo.getFileBlobId("", file));
+        }
+    }
+}
@@ -391,6 +391,37 @@ public class IncrementalBlockRendererTest {
         assertEquals(1, postMergeCount, "All markdown blocks should be merged into one");
     }
 
+    @Test
+    void prebuiltCompactedComponentsMatchStreamedThenCompacted() {
+        String md = """
+                    Intro text
+
+                    More intro
+
+                    ```java
+                    int x = 1;
+                    ```
+
+                    Outro text
+                    """;
+
+        var streamed = new IncrementalBlockRenderer(false);
+        streamed.update(md);
+        streamed.compactMarkdown();
+
+        // built off the EDT in practice, then applied to a fresh renderer
+        var components = IncrementalBlockRenderer.buildCompactedComponents(md, true);
+        var prebuilt = new IncrementalBlockRenderer(false);
+        prebuilt.applyCompacted(components);
+
+        assertEquals(3, components.size(), "the two intro paragraphs should be merged");
+        assertEquals(streamed.getRoot().getComponentCount(), prebuilt.getRoot().getComponentCount());
+        for (int i = 0; i < components.size(); i++) {
+            assertEquals(streamed.getRoot().getComponent(i).getClass(), prebuilt.getRoot().getComponent(i).getClass());
+        }
+        assertThrows(IllegalStateException.class, () -> prebuilt.update(md + "more"));
+    }
+
     @Test
     void specialBlocksBreakMarkdownSequence() {
         // prose - code - prose  =>  must stay 3 blocks (2 markdown, 1 code)
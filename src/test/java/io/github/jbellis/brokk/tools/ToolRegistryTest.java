@@ -0,0 +1,83 @@
+package io.github.jbellis.brokk.tools;
+
+import dev.langchain4j.agent.tool.P;
+import dev.langchain4j.agent.tool.Tool;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ToolRegistryTest {
+    public static class EchoTools {
+        @Tool("Joins words")
+        public String join(@P("words") List<String> words, @P("separator") String separator) {
+            return String.join(separator, words);
+        }
+
+        @Tool("Always interrupted")
+        public String interrupted() throws InterruptedException {
+            throw new InterruptedException();
+        }
+    }
+
+    private static ToolExecutionRequest request(String name, String arguments) {
+        return ToolExecutionRequest.builder().id("1").name(name).arguments(arguments).build();
+    }
+
+    @Test
+    void testExecuteInstanceTool() throws InterruptedException {
+        var registry = new ToolRegistry(null);
+        var result = registry.executeTool(new EchoTools(), request("join", "{\"words\": [\"a\", \"b\"], \"separator\": \"-\"}"));
+        assertEquals(ToolExecutionResult.Status.SUCCESS, result.status());
+        assertEquals("a-b", result.resultText());
+    }
+
+    @Test
+    void testMissingAndMalformedArguments() throws InterruptedException {
+        var registry = new ToolRegistry(null);
+        var missing = registry.executeTool(new EchoTools(), request("join", "{\"words\": []}"));
+        assertEquals(ToolExecutionResult.Status.FAILURE, missing.status());
+        assertTrue(missing.resultText().contains("separator"));
+
+        var malformed = registry.executeTool(new EchoTools(), request("join", "not json"));
+        assertEquals(ToolExecutionResult.Status.FAILURE, malformed.status());
+    }
+
+    @Test
+    void testFallsBackToRegisteredTools() throws InterruptedException {
+        var registry = new ToolRegistry(null);
+        var result = registry.executeTool(new EchoTools(), request("think", "{\"reasoning\": \"hmm\"}"));
+        assertEquals(ToolExecutionResult.Status.SUCCESS, result.status());
+
+        var unknown = registry.executeTool(new EchoTools(), request("nope", "{}"));
+        assertEquals(ToolExecutionResult.Status.FAILURE, unknown.status());
+    }
+
+    @Test
+    void testInterruptionPropagates() {
+        var registry = new ToolRegistry(null);
+        assertThrows(InterruptedException.class, () -> registry.executeTool(new EchoTools(), request("interrupted", "{}")));
+    }
+
+    @Test
+    void testGetToolsAndMetrics() throws InterruptedException {
+        var registry = new ToolRegistry(null);
+        var specs = registry.getTools(new EchoTools(), List.of("join"));
+        assertEquals("join", specs.getFirst().name());
+        assertThrows(IllegalArgumentException.class, () -> registry.getTools(new EchoTools(), List.of("missing")));
+
+        registry.executeTool(new EchoTools(), request("join", "{\"words\": [\"x\"], \"separator\": \",\"}"));
+        registry.executeTool(new EchoTools(), request("join", "{}"));
+
+        var stats = registry.getMetrics().snapshot();
+        assertEquals(1, stats.size());
+        var join = stats.getFirst();
+        assertEquals("join", join.toolName());
+        assertEquals(2, join.calls());
+        assertEquals(1, join.failures());
+        assertEquals(2, java.util.Arrays.stream(join.histogram()).sum());
+        assertTrue(registry.getMetrics().format().contains("join"));
+    }
+}
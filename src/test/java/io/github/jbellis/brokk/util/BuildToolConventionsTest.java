@@ -0,0 +1,35 @@
+package io.github.jbellis.brokk.util;
+
+import io.github.jbellis.brokk.util.BuildToolConventions.BuildSystem;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class BuildToolConventionsTest {
+    private static final List<String> CLASSES = List.of("ATest", "BTest");
+    private static final List<String> FQ_CLASSES = List.of("p.ATest", "q.BTest");
+    private static final List<String> FILES = List.of("src/test/p/ATest.java", "src/test/q/BTest.java");
+
+    private static String interpolate(String template) {
+        return BuildToolConventions.interpolateTestSomeCommand(template, CLASSES, FQ_CLASSES, FILES);
+    }
+
+    @Test
+    void testDefaultTemplates() {
+        assertEquals("mvn test -Dtest=ATest,BTest -Dsurefire.failIfNoSpecifiedTests=false",
+                     interpolate(BuildToolConventions.getDefaultTestSomeCommand(BuildSystem.MAVEN)));
+        assertEquals("./gradlew test --tests p.ATest --tests q.BTest",
+                     interpolate(BuildToolConventions.getDefaultTestSomeCommand(BuildSystem.GRADLE)));
+        assertEquals("sbt \"testOnly p.ATest q.BTest\"",
+                     interpolate(BuildToolConventions.getDefaultTestSomeCommand(BuildSystem.SBT)));
+        assertEquals("", BuildToolConventions.getDefaultTestSomeCommand(BuildSystem.UNKNOWN));
+    }
+
+    @Test
+    void testSeparatorsAndUnknownPlaceholders() {
+        assertEquals("run src/test/p/ATest.java$src/test/q/BTest.java", interpolate("run {{files|$}}"));
+        assertEquals("run ATest BTest {{tests}}", interpolate("run {{classes}} {{tests}}"));
+    }
+}
@@ -0,0 +1,100 @@
+package io.github.jbellis.brokk.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappedTextFileTest {
+    @TempDir
+    Path tempDir;
+
+    private MappedTextFile indexed(String content, int segmentBytes) throws Exception {
+        var path = tempDir.resolve("file.txt");
+        Files.writeString(path, content);
+        var file = new MappedTextFile(path, segmentBytes);
+        file.indexLines(n -> {});
+        return file;
+    }
+
+    @Test
+    void testIndexesLines() throws Exception {
+        try (var file = indexed("alpha\r\nbeta\n\ngamma", MappedTextFile.DEFAULT_SEGMENT_BYTES)) {
+            assertTrue(file.isIndexComplete());
+            assertEquals(4, file.lineCount());
+            assertEquals("alpha", file.line(0));
+            assertEquals("beta", file.line(1));
+            assertEquals("", file.line(2));
+            assertEquals("gamma", file.line(3));
+            assertEquals("beta\n\ngamma", file.lines(1, 4));
+            assertEquals(7, file.lineStart(1));
+            assertEquals(12, file.lineEnd(1));
+        }
+    }
+
+    @Test
+    void testTrailingNewlineDoesNotStartALine() throws Exception {
+        try (var file = indexed("a\nb\n", MappedTextFile.DEFAULT_SEGMENT_BYTES)) {
+            assertEquals(2, file.lineCount());
+            assertEquals("b", file.line(1));
+        }
+        try (var empty = indexed("", MappedTextFile.DEFAULT_SEGMENT_BYTES)) {
+            assertEquals(1, empty.lineCount());
+            assertEquals("", empty.line(0));
+            assertEquals(-1, empty.find("x", 0, true, true, () -> false));
+        }
+    }
+
+    @Test
+    void testLinesAndMatchesSpanSegments() throws Exception {
+        var lines = new ArrayList<String>();
+        for (int i = 0; i < 50; i++) {
+            lines.add("line " + i + " ünïcode");
+        }
+        var content = String.join("\n", lines);
+        // tiny segments, so most lines and matches cross a segment boundary
+        try (var file = indexed(content, 7)) {
+            assertEquals(50, file.lineCount());
+            for (int i = 0; i < 50; i++) {
+                assertEquals(lines.get(i), file.line(i));
+            }
+            long hit = file.find("line 37 ", 0, true, true, () -> false);
+            assertEquals(37, file.lineForOffset(hit));
+            assertEquals(file.lineStart(37), hit);
+        }
+    }
+
+    @Test
+    void testFindsForwardBackwardAndIgnoringCase() throws Exception {
+        try (var file = indexed("Foo bar\nfoo BAR\nbaz", 5)) {
+            assertEquals(0, file.find("Foo", 0, true, true, () -> false));
+            assertEquals(-1, file.find("Foo", 1, true, true, () -> false));
+            assertEquals(8, file.find("Foo", 1, true, false, () -> false));
+            assertEquals(12, file.find("bar", file.size(), false, false, () -> false));
+            assertEquals(4, file.find("bar", 11, false, false, () -> false));
+            assertEquals(1, file.lineForOffset(12));
+            assertEquals(2, file.lineForOffset(file.size() - 1));
+            assertEquals(-1, file.find("qux", 0, true, false, () -> false));
+        }
+    }
+
+    @Test
+    void testLinesAreAvailableWhileIndexing() throws Exception {
+        var path = tempDir.resolve("file.txt");
+        Files.writeString(path, "one\ntwo\nthree");
+        try (var file = new MappedTextFile(path, MappedTextFile.DEFAULT_SEGMENT_BYTES)) {
+            // before indexing nothing is known about where the first line ends
+            assertFalse(file.isIndexComplete());
+            assertEquals(0, file.lineCount());
+            var progress = new ArrayList<Integer>();
+            file.indexLines(progress::add);
+            assertEquals(List.of(3), progress);
+            assertEquals("three", file.line(2));
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package io.github.jbellis.brokk.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SortedPathIndexTest {
+    private static SortedPathIndex.Entry file(String name) {
+        return new SortedPathIndex.Entry(name, false);
+    }
+
+    private static SortedPathIndex.Entry dir(String name) {
+        return new SortedPathIndex.Entry(name, true);
+    }
+
+    @Test
+    void testChildren() {
+        var index = new SortedPathIndex(List.of("src/a/A.java", "src/a/B.java", "src/b/C.java", "README.md", "a.txt", "a/x.txt", "a-b/y.txt"));
+        assertEquals(List.of(file("README.md"), dir("a-b"), file("a.txt"), dir("a"), dir("src")), index.children(""));
+        assertEquals(List.of(dir("a"), dir("b")), index.children("src"));
+        assertEquals(List.of(file("A.java"), file("B.java")), index.children("src/a"));
+        assertEquals(List.of(file("x.txt")), index.children("a"));
+        assertTrue(index.children("nope").isEmpty());
+    }
+
+    @Test
+    void testIsDirectory() {
+        var index = new SortedPathIndex(List.of("src/a/A.java", "srcfile.txt"));
+        assertTrue(index.isDirectory(""));
+        assertTrue(index.isDirectory("src"));
+        assertTrue(index.isDirectory("src/a"));
+        assertFalse(index.isDirectory("src/a/A.java"));
+        assertFalse(index.isDirectory("srcfile.txt"));
+    }
+
+    @Test
+    void testAddRemove() {
+        var index = new SortedPathIndex(List.of("b.txt"));
+        assertTrue(index.add("a/new.txt"));
+        assertFalse(index.add("a/new.txt"));
+        assertEquals(List.of(dir("a"), file("b.txt")), index.children(""));
+        assertTrue(index.remove("a/new.txt"));
+        assertFalse(index.remove("a/new.txt"));
+        assertFalse(index.isDirectory("a"));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void testDiff() {
+        var index = new SortedPathIndex(List.of("a", "b", "c"));
+        var diff = index.diff(List.of("b", "c", "d", "d"));
+        assertEquals(List.of("d"), diff.added());
+        assertEquals(List.of("a"), diff.removed());
+        assertTrue(index.diff(List.of("c", "b", "a")).isEmpty());
+    }
+}
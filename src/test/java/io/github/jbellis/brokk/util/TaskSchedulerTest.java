@@ -0,0 +1,140 @@
+package io.github.jbellis.brokk.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskSchedulerTest {
+    @Test
+    void testLaneLimitsConcurrency() throws Exception {
+        var scheduler = new TaskScheduler();
+        var lane = scheduler.lane("bg", 3, th -> {});
+        var running = new AtomicInteger();
+        var maxRunning = new AtomicInteger();
+
+        var futures = new ArrayList<Future<Integer>>();
+        for (int i = 0; i < 30; i++) {
+            int n = i;
+            futures.add(lane.submit("task " + i, () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(5);
+                running.decrementAndGet();
+                return n;
+            }));
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            assertEquals(i, futures.get(i).get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(3, maxRunning.get());
+        assertTrue(scheduler.activeTasks().isEmpty());
+    }
+
+    @Test
+    void testSingleLaneRunsInSubmissionOrderOnVirtualThreads() throws Exception {
+        var scheduler = new TaskScheduler();
+        var lane = scheduler.lane("user", 1, th -> {});
+        var order = new ConcurrentLinkedQueue<Integer>();
+        var virtual = new AtomicInteger();
+
+        var futures = new ArrayList<Future<?>>();
+        for (int i = 0; i < 20; i++) {
+            int n = i;
+            futures.add(lane.submit(() -> {
+                order.add(n);
+                if (Thread.currentThread().isVirtual()) {
+                    virtual.incrementAndGet();
+                }
+            }));
+        }
+        for (var f : futures) {
+            f.get(10, TimeUnit.SECONDS);
+        }
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19), List.copyOf(order));
+        assertEquals(20, virtual.get());
+    }
+
+    @Test
+    void testActiveTasksAndCancellation() throws Exception {
+        var scheduler = new TaskScheduler();
+        var lane = scheduler.lane("user", 1, th -> {});
+        var started = new CountDownLatch(1);
+
+        var blocking = lane.submit("blocking", () -> {
+            started.countDown();
+            Thread.sleep(60_000);
+            return null;
+        });
+        var queued = lane.submit("queued", () -> 1);
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        var active = scheduler.activeTasks();
+        assertEquals(2, active.size());
+        var byDescription = active.stream().collect(Collectors.toMap(TaskScheduler.TaskInfo::description, t -> t));
+        assertEquals(TaskScheduler.State.RUNNING, byDescription.get("blocking").state());
+        assertEquals(TaskScheduler.State.QUEUED, byDescription.get("queued").state());
+        assertEquals("user", byDescription.get("queued").lane());
+
+        // cancelling a queued task removes it from the view without running it
+        queued.cancel(false);
+        assertEquals(List.of("blocking"), scheduler.activeTasks().stream().map(TaskScheduler.TaskInfo::description).toList());
+
+        // interrupting the running task ends it
+        blocking.cancel(true);
+        assertTrue(blocking.isCancelled());
+        lane.shutdown();
+        assertTrue(lane.awaitTermination(10, TimeUnit.SECONDS));
+        assertTrue(scheduler.activeTasks().isEmpty());
+    }
+
+    @Test
+    void testExceptionHandlerSeesFailures() throws Exception {
+        var scheduler = new TaskScheduler();
+        var seen = new ConcurrentLinkedQueue<Throwable>();
+        var lane = scheduler.lane("context", 2, seen::add);
+
+        var f = lane.submit("failing", () -> {
+            throw new IllegalStateException("boom");
+        });
+        var ex = assertThrows(ExecutionException.class, () -> f.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, ex.getCause());
+        assertEquals(1, seen.size());
+        assertSame(ex.getCause(), seen.peek());
+    }
+
+    @Test
+    void testShutdownNowDropsQueuedAndRejectsNew() throws Exception {
+        var scheduler = new TaskScheduler();
+        var lane = scheduler.lane("bg", 1, th -> {});
+        var started = new CountDownLatch(1);
+        var interrupted = new CountDownLatch(1);
+
+        lane.submit("sleeper", () -> {
+            started.countDown();
+            try {
+                Thread.sleep(60_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return null;
+        });
+        var queued = lane.submit("never runs", () -> 1);
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        scheduler.shutdownNow();
+        assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+        assertTrue(queued.isCancelled());
+        assertTrue(lane.awaitTermination(10, TimeUnit.SECONDS));
+        assertThrows(RejectedExecutionException.class, () -> lane.submit(() -> {}));
+    }
+}
@@ -1,6 +1,7 @@
 package io.github.jbellis.brokk.analyzer
 
 import io.github.jbellis.brokk.analyzer.{CodeUnit, JavaAnalyzer}
+import io.joern.dataflowengineoss.layers.dataflows.OssDataFlow
 import io.shiftleft.codepropertygraph.generated.language.*
 import io.shiftleft.semanticcpg.language.*
 import org.junit.jupiter.api.Assertions.{assertEquals, assertFalse, assertThrows, assertTrue}
@@ -236,6 +237,31 @@ class AnalyzerTest {
     assertTrue(callees.contains("A.method2"), "Should call A.method2")
   }
 
+  @Test
+  def methodIndexTest(): Unit = {
+    val analyzer = getAnalyzer
+    val index = analyzer.methodIndex
+
+    val method1 = index.methodIds("A.method1")
+    assertEquals(1, method1.length)
+    assertEquals("A.method1", index.resolvedName(method1.head))
+    assertTrue(index.methodsNamed("A.noSuchMethod").isEmpty)
+
+    val callsIntoA = index.methodIds("B.callsIntoA").head
+    val calleeNames = index.outgoingCalls(callsIntoA).flatMap(index.calleesOf).map(index.resolvedName).toSet
+    assertTrue(calleeNames.contains("A.method1"))
+    assertTrue(calleeNames.contains("A.method2"))
+
+    val callerNames = index.incomingCalls(method1.head).map(c => index.resolvedName(index.callerOf(c))).toSet
+    assertEquals(Set("B.callsIntoA", "D.methodD1"), callerNames)
+  }
+
+  @Test
+  def dataflowLayerIsNotBuiltTest(): Unit = {
+    val overlays = getAnalyzer.cpg.metaData.head.overlays
+    assertFalse(overlays.contains(OssDataFlow.overlayName))
+  }
+
   @Test
   def getPagerankTest(): Unit = {
     val analyzer = getAnalyzer
@@ -354,6 +380,25 @@ class AnalyzerTest {
     assertTrue(ex.getMessage.contains("Symbol 'NoSuchClass' not found"))
   }
 
+  @Test
+  def typeHierarchyTest(): Unit = {
+    val analyzer = getAnalyzer
+    val hierarchy = analyzer.typeHierarchy
+
+    assertEquals(List("XExtendsY"), hierarchy.directSubtypes("BaseClass"))
+    assertEquals(Set("XExtendsY"), hierarchy.allSubtypes("BaseClass"))
+    assertEquals(Set("XExtendsY"), analyzer.allSubclasses("BaseClass"))
+    assertTrue(hierarchy.directSupertypes("XExtendsY").contains("BaseClass"))
+    assertTrue(hierarchy.allSupertypes("XExtendsY").contains("BaseClass"))
+    assertTrue(hierarchy.isSubtype("XExtendsY", "BaseClass"))
+    assertFalse(hierarchy.isSubtype("BaseClass", "XExtendsY"))
+    assertEquals(List("XExtendsY"), hierarchy.directSubtypeDecls("BaseClass").map(_.fullName))
+
+    assertTrue(hierarchy.allSubtypes("XExtendsY").isEmpty)
+    assertTrue(hierarchy.allSubtypes("org.foo.Bar").isEmpty)
+    assertTrue(hierarchy.declsOf("org.foo.Bar").isEmpty)
+  }
+
   @Test
   def getDefinitionsTest(): Unit = {
     val analyzer = getAnalyzer
@@ -0,0 +1,63 @@
+package io.github.jbellis.brokk.analyzer
+
+import io.shiftleft.semanticcpg.language.*
+
+import java.nio.file.Path
+import scala.util.Random
+import scala.util.matching.Regex
+
+/**
+ * Standalone benchmark for depth-3 call graph queries against the MethodIndex.
+ * Builds a CPG for a source tree (by default this project's own Java sources), then times:
+ *  - building the index,
+ *  - resolving method names by regex over every Method node (the old lookup) vs. by the index,
+ *  - getCallgraphFrom / getCallgraphTo at the requested depth for a random sample of methods.
+ *
+ * Not a unit test; run with
+ * {{{ sbt "Test/runMain io.github.jbellis.brokk.analyzer.CallGraphBenchmark [sourcePath] [depth] [samples]" }}}
+ */
+object CallGraphBenchmark {
+  def main(args: Array[String]): Unit = {
+    val sourcePath = Path.of(args.headOption.getOrElse("src/main/java"))
+    val depth = if (args.length > 1) args(1).toInt else 3
+    val samples = if (args.length > 2) args(2).toInt else 200
+
+    val (analyzer, cpgMillis) = time(JavaAnalyzer(sourcePath))
+    val (index, indexMillis) = time(analyzer.methodIndex)
+    println(f"CPG: ${analyzer.cpg.method.size}%,d methods built in $cpgMillis%,d ms; " +
+      f"index: ${index.methodCount}%,d methods, ${index.callCount}%,d calls built in $indexMillis%,d ms")
+
+    val random = new Random(42)
+    val names = (0 until index.methodCount)
+      .map(index.resolvedName)
+      .filterNot(n => n.startsWith("<operator>") || n.startsWith("java."))
+      .distinct
+    val sample = random.shuffle(names).take(samples)
+    println(s"Sampling ${sample.size} methods, depth $depth")
+
+    // name resolution: regex over all methods vs. hash lookup
+    val (regexHits, regexMillis) = time(sample.map(n => analyzer.cpg.method.fullName(Regex.quote(n) + ":.*").size).sum)
+    val (indexHits, indexLookupMillis) = time(sample.map(n => index.methodIds(n).length).sum)
+    require(regexHits == indexHits, s"regex lookup found $regexHits methods but index found $indexHits")
+    println(f"name lookup  regex: $regexMillis%,6d ms   index: $indexLookupMillis%,6d ms")
+
+    for (round <- 1 to 3) {
+      val (fromEdges, fromMillis) = time(sample.map(n => edgeCount(analyzer.getCallgraphFrom(n, depth))).sum)
+      val (toEdges, toMillis) = time(sample.map(n => edgeCount(analyzer.getCallgraphTo(n, depth))).sum)
+      println(f"round $round  from: $fromMillis%,6d ms ($fromEdges%,d edges)   to: $toMillis%,6d ms ($toEdges%,d edges)")
+    }
+    analyzer.close()
+  }
+
+  private def edgeCount(graph: java.util.Map[String, java.util.List[CallSite]]): Int = {
+    var n = 0
+    graph.values().forEach(sites => n += sites.size())
+    n
+  }
+
+  private def time[T](f: => T): (T, Long) = {
+    val start = System.nanoTime()
+    val result = f
+    (result, (System.nanoTime() - start) / 1_000_000)
+  }
+}